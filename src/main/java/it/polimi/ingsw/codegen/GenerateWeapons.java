@@ -0,0 +1,25 @@
+package it.polimi.ingsw.codegen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the class holding the behaviours of the weapons. At build time, WeaponsProcessor compiles the weapons described
+ * in the given file into the class CompiledWeapons, in the same package, calling the methods of the marked class
+ * annotated with WeaponBehaviour.
+ *
+ * @author marcobaga
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateWeapons {
+
+    /**
+     * The file describing the weapons, among the resources.
+     *
+     * @return      the name of the file
+     */
+    String value();
+}
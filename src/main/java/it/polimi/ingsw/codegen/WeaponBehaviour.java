@@ -0,0 +1,25 @@
+package it.polimi.ingsw.codegen;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a static method implementing a behaviour of the weapons, with the tag used for it in the file describing them.
+ * The parameters of the method tell which behaviour it is: the shooter for a target finder, the shooter and the targets
+ * for a destination finder, the shooter, the target, the destination, the damage and the marks for an effect.
+ *
+ * @author marcobaga
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface WeaponBehaviour {
+
+    /**
+     * The tag of the behaviour in the file describing the weapons.
+     *
+     * @return      the tag
+     */
+    String value();
+}
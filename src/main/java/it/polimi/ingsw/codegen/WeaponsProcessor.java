@@ -0,0 +1,315 @@
+package it.polimi.ingsw.codegen;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Annotation processor compiling the file describing the weapons into Java code, at build time.
+ *
+ * For the class marked with GenerateWeapons, it generates the class CompiledWeapons in the same package. Each firemode
+ * becomes a final class implementing its target finder, destination finder and effect by calling directly the methods
+ * of the marked class tagged as in the file, with the damage and the marks of the firemode as constants. The costs
+ * and colors become constants too, so that no file is read at runtime. A tag, color or name which does not match
+ * fails the build.
+ *
+ * The file is looked for in the directory given by the option weaponsDir, or among the resources already copied to
+ * the output directory.
+ *
+ * @author marcobaga
+ */
+@SupportedAnnotationTypes("it.polimi.ingsw.codegen.GenerateWeapons")
+@SupportedOptions(WeaponsProcessor.WEAPONS_DIR)
+public class WeaponsProcessor extends AbstractProcessor {
+
+    static final String WEAPONS_DIR = "weaponsDir";
+    private static final String GENERATED = "CompiledWeapons";
+    private static final String CARDS = "it.polimi.ingsw.model.cards";
+    private static final String MAIN = "MAIN";
+
+    private static final int TARGET_PARAMETERS = 1;
+    private static final int DESTINATION_PARAMETERS = 2;
+    private static final int EFFECT_PARAMETERS = 5;
+
+
+    /**
+     * Supports the version of the compiler running the processor.
+     *
+     * @return      the latest supported version
+     */
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+
+    /**
+     * Generates the weapons of every class marked with GenerateWeapons.
+     *
+     * @param annotations   the annotations processed
+     * @param roundEnv      the current round
+     * @return              true, since the annotations are handled here
+     */
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateWeapons.class)) {
+            TypeElement type = (TypeElement) element;
+            try {
+                JsonObject weapons = new JsonParser().parse(read(type.getAnnotation(GenerateWeapons.class).value())).getAsJsonObject();
+                String source = generate(type, weapons);
+                String name = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName() + "." + GENERATED;
+                JavaFileObject file = processingEnv.getFiler().createSourceFile(name, type);
+                try (Writer writer = file.openWriter()) {
+                    writer.write(source);
+                }
+            } catch (IOException | JsonParseException | IllegalStateException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot compile the weapons: " + e.getMessage(), type);
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Reads the file describing the weapons.
+     *
+     * @param fileName      the name of the file
+     * @return              its content
+     * @throws IOException  if the file cannot be found or read
+     */
+    private String read(String fileName) throws IOException {
+        String dir = processingEnv.getOptions().get(WEAPONS_DIR);
+        if (dir != null) {
+            return new String(Files.readAllBytes(Paths.get(dir, fileName)), StandardCharsets.UTF_8);
+        }
+        FileObject resource = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", fileName);
+        return resource.getCharContent(true).toString();
+    }
+
+
+    /**
+     * Generates the source of the compiled weapons.
+     *
+     * @param type          the class holding the behaviours
+     * @param weapons       the description of the weapons
+     * @return              the source
+     */
+    private String generate(TypeElement type, JsonObject weapons) {
+
+        Map<Integer, Map<String, String>> behaviours = behaviours(type);
+        String owner = type.getSimpleName().toString();
+        Set<String> weaponNames = constants(CARDS + ".Weapon.WeaponName");
+        Set<String> colors = constants(CARDS + ".Color");
+        Set<String> fireModeNames = constants(CARDS + ".FireMode.FireModeName");
+
+        StringBuilder definitions = new StringBuilder();
+        StringBuilder classes = new StringBuilder();
+
+        for (Map.Entry<String, JsonElement> weapon : weapons.entrySet()) {
+            JsonObject tree = weapon.getValue().getAsJsonObject();
+            String weaponName = check(weaponNames, weapon.getKey().toUpperCase().replace(' ', '_'), "weapon", weapon.getKey());
+            String color = check(colors, tree.get("color").getAsString().toUpperCase(), "color", weapon.getKey());
+            int r = tree.get("costR").getAsInt();
+            int b = tree.get("costB").getAsInt();
+            int y = tree.get("costY").getAsInt();
+
+            definitions.append("        definitions.put(Weapon.WeaponName.").append(weaponName)
+                    .append(", new WeaponDefinition(Weapon.WeaponName.").append(weaponName).append(", Color.").append(color)
+                    .append(",\n                ").append(ammo(r, b, y)).append(", ")
+                    .append(ammo(r - ("RED".equals(color) ? 1 : 0), b - ("BLUE".equals(color) ? 1 : 0), y - ("YELLOW".equals(color) ? 1 : 0)))
+                    .append(", Arrays.asList(");
+
+            String separator = "";
+            for (JsonElement modeElement : tree.getAsJsonArray("modes")) {
+                JsonObject mode = modeElement.getAsJsonObject();
+                String modeName = check(fireModeNames, mode.get("name").getAsString().toUpperCase(), "firemode", weapon.getKey());
+                String where = weapon.getKey() + " " + modeName;
+                String className = camel(weapon.getKey()) + camel(modeName);
+                String cost = MAIN.equals(modeName) ? ammo(0, 0, 0)
+                        : ammo(mode.get("costR").getAsInt(), mode.get("costB").getAsInt(), mode.get("costY").getAsInt());
+
+                definitions.append(separator).append("\n                new FireModeDefinition(FireMode.FireModeName.").append(modeName)
+                        .append(", ").append(cost).append(", ").append(className).append(".INSTANCE, ")
+                        .append(className).append(".INSTANCE, ").append(className).append(".INSTANCE)");
+                separator = ",";
+
+                classes.append("\n\n    /**\n     * ").append(where).append(": targets ").append(mode.get("target").getAsString())
+                        .append(", destinations ").append(mode.get("destination").getAsString())
+                        .append(", effect ").append(mode.get("effect").getAsString()).append(".\n     */\n")
+                        .append("    private static final class ").append(className).append(" implements TargetFinder, DestinationFinder, Effect {\n\n")
+                        .append("        static final ").append(className).append(" INSTANCE = new ").append(className).append("();\n\n")
+                        .append("        @Override\n")
+                        .append("        public List<List<Player>> find(Player shooter) throws NotAvailableAttributeException {\n")
+                        .append("            return ").append(owner).append('.')
+                        .append(method(behaviours, TARGET_PARAMETERS, mode.get("target").getAsString(), "target", where)).append("(shooter);\n")
+                        .append("        }\n\n")
+                        .append("        @Override\n")
+                        .append("        public List<Square> find(Player shooter, List<Player> targets) throws NotAvailableAttributeException {\n")
+                        .append("            return ").append(owner).append('.')
+                        .append(method(behaviours, DESTINATION_PARAMETERS, mode.get("destination").getAsString(), "destination", where)).append("(shooter, targets);\n")
+                        .append("        }\n\n")
+                        .append("        @Override\n")
+                        .append("        public void apply(Player shooter, Player target, Square destination) throws NotAvailableAttributeException {\n")
+                        .append("            ").append(owner).append('.')
+                        .append(method(behaviours, EFFECT_PARAMETERS, mode.get("effect").getAsString(), "effect", where))
+                        .append("(shooter, target, destination, ").append(mode.get("dmg").getAsInt()).append(", ").append(mode.get("mark").getAsInt()).append(");\n")
+                        .append("        }\n")
+                        .append("    }");
+            }
+            definitions.append(")));\n");
+        }
+
+        return "package " + processingEnv.getElementUtils().getPackageOf(type).getQualifiedName() + ";\n\n"
+                + "import it.polimi.ingsw.model.board.Player;\n"
+                + "import it.polimi.ingsw.model.board.Square;\n"
+                + "import " + CARDS + ".*;\n"
+                + "import it.polimi.ingsw.model.exceptions.NotAvailableAttributeException;\n\n"
+                + "import java.util.Arrays;\n"
+                + "import java.util.EnumMap;\n"
+                + "import java.util.List;\n"
+                + "import java.util.Map;\n\n"
+                + "/**\n"
+                + " * Weapons compiled from the file describing them by " + getClass().getSimpleName() + ". Generated at build time: do not edit.\n"
+                + " */\n"
+                + "final class " + GENERATED + " {\n\n"
+                + "    private " + GENERATED + "() {}\n\n"
+                + "    /**\n"
+                + "     * Creates the definitions of all weapons.\n"
+                + "     *\n"
+                + "     * @return      the definitions, by weapon name\n"
+                + "     */\n"
+                + "    static Map<Weapon.WeaponName, WeaponDefinition> definitions() {\n"
+                + "        Map<Weapon.WeaponName, WeaponDefinition> definitions = new EnumMap<>(Weapon.WeaponName.class);\n"
+                + definitions
+                + "        return definitions;\n"
+                + "    }"
+                + classes
+                + "\n}\n";
+    }
+
+
+    /**
+     * Collects the methods tagged with WeaponBehaviour, by kind of behaviour.
+     *
+     * @param type          the class holding the behaviours
+     * @return              the names of the methods by tag, by number of parameters
+     */
+    private Map<Integer, Map<String, String>> behaviours(TypeElement type) {
+        Map<Integer, Map<String, String>> behaviours = new HashMap<>();
+        for (Element member : type.getEnclosedElements()) {
+            WeaponBehaviour behaviour = member.getAnnotation(WeaponBehaviour.class);
+            if (behaviour != null && member.getKind() == ElementKind.METHOD) {
+                int parameters = ((ExecutableElement) member).getParameters().size();
+                behaviours.computeIfAbsent(parameters, k -> new HashMap<>()).put(behaviour.value(), member.getSimpleName().toString());
+            }
+        }
+        return behaviours;
+    }
+
+
+    /**
+     * Finds the method implementing a behaviour.
+     *
+     * @param behaviours    the methods by tag, by number of parameters
+     * @param parameters    the number of parameters of the kind of behaviour
+     * @param tag           the tag in the file
+     * @param kind          the kind of behaviour, for errors
+     * @param where         the firemode, for errors
+     * @return              the name of the method
+     */
+    private static String method(Map<Integer, Map<String, String>> behaviours, int parameters, String tag, String kind, String where) {
+        String method = behaviours.getOrDefault(parameters, Collections.emptyMap()).get(tag);
+        if (method == null) {
+            throw new IllegalStateException("unknown " + kind + " \"" + tag + "\" in " + where);
+        }
+        return method;
+    }
+
+
+    /**
+     * Lists the constants of an enumeration.
+     *
+     * @param name          the qualified name of the enumeration
+     * @return              the names of its constants
+     */
+    private Set<String> constants(String name) {
+        TypeElement type = processingEnv.getElementUtils().getTypeElement(name);
+        if (type == null) {
+            throw new IllegalStateException("missing " + name);
+        }
+        Set<String> constants = new HashSet<>();
+        for (Element e : type.getEnclosedElements()) {
+            if (e.getKind() == ElementKind.ENUM_CONSTANT) {
+                constants.add(e.getSimpleName().toString());
+            }
+        }
+        return constants;
+    }
+
+
+    /**
+     * Checks that a value is a constant of an enumeration.
+     *
+     * @param constants     the constants of the enumeration
+     * @param value         the value
+     * @param kind          the kind of value, for errors
+     * @param where         the weapon, for errors
+     * @return              the value
+     */
+    private static String check(Set<String> constants, String value, String kind, String where) {
+        if (!constants.contains(value)) {
+            throw new IllegalStateException("unknown " + kind + " " + value + " in " + where);
+        }
+        return value;
+    }
+
+
+    /**
+     * Writes the creation of an ammo pack.
+     *
+     * @param r             the red ammo
+     * @param b             the blue ammo
+     * @param y             the yellow ammo
+     * @return              the Java expression
+     */
+    private static String ammo(int r, int b, int y) {
+        return "new AmmoPack(" + r + ", " + b + ", " + y + ")";
+    }
+
+
+    /**
+     * Converts a name to camel case, to name a class.
+     *
+     * @param name          the name, made of words separated by spaces or underscores
+     * @return              the name in camel case
+     */
+    private static String camel(String name) {
+        StringBuilder res = new StringBuilder();
+        for (String word : name.split("[ _]")) {
+            if (!word.isEmpty()) {
+                res.append(word.substring(0, 1).toUpperCase()).append(word.substring(1).toLowerCase());
+            }
+        }
+        return res.toString();
+    }
+}
@@ -0,0 +1,242 @@
+package it.polimi.ingsw.controller;
+
+import it.polimi.ingsw.network.server.VirtualView;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static it.polimi.ingsw.controller.ServerMain.MIN_PLAYERS;
+
+/**
+ * Admission control for new games. The matchmaking forms games as soon as enough players are waiting, but they
+ * only start if the server can take them: the number of live games must be below a maximum, the load of the machine
+ * per core must be acceptable, and the running games must still react quickly to the answers of their players,
+ * which is measured by the shards as the 95th percentile of the time between an answer arriving and its GameEngine
+ * handling it.
+ * Games which cannot start are queued in order, and their players are told how long they will have to wait,
+ * estimated from the age of the live games and the average length of the games already over.
+ *
+ * @author marcobaga
+ */
+class AdmissionController {
+
+    private final int maxGames;
+    private final double maxLoadPerCore;
+    private final long maxLatencyMillis;
+    private final Map<Object, Long> liveGames;
+    private final List<List<VirtualView>> queue;
+    private final List<String> lastEta;
+    private double averageGameMillis;
+
+    private static final Logger LOGGER = Logger.getLogger("serverLogger");
+    static final double LATENCY_PERCENTILE = 0.95;
+    private static final double GAME_LENGTH_WEIGHT = 0.2;
+    private static final String QUEUED_MESSAGE = "The server is busy: your game is queued and will start in about ";
+    private static final String MINUTES = " minutes.";
+    private static final String LESS_THAN_A_MINUTE = "less than a minute.";
+
+    /**
+     * Standard constructor.
+     *
+     * @param maxGames              maximum number of games running at the same time, 0 for no limit
+     * @param maxLoadPerCore        maximum load average per core at which new games start, 0 for no limit
+     * @param maxLatencyMillis      maximum 95th percentile of the answer latency at which new games start, 0 for no limit
+     * @param expectedGameMinutes   length of a game assumed before any game is over
+     */
+    AdmissionController(int maxGames, double maxLoadPerCore, long maxLatencyMillis, int expectedGameMinutes){
+        this.maxGames = maxGames;
+        this.maxLoadPerCore = maxLoadPerCore;
+        this.maxLatencyMillis = maxLatencyMillis;
+        this.liveGames = new LinkedHashMap<>();
+        this.queue = new ArrayList<>();
+        this.lastEta = new ArrayList<>();
+        this.averageGameMillis = TimeUnit.MINUTES.toMillis(expectedGameMinutes);
+    }
+
+
+    /**
+     * Queues the players of a new game.
+     *
+     * @param players       the players
+     */
+    synchronized void enqueue(List<VirtualView> players){
+        queue.add(players);
+        lastEta.add("");
+    }
+
+
+    /**
+     * Takes out of the queue the games which can start now, in order. Each of them must then be passed to started().
+     *
+     * @param loadPerCore   the current load average per core, negative if unknown
+     * @param latency       the current LATENCY_PERCENTILE of the answer latency, in milliseconds
+     * @return              the players of each game to start
+     */
+    synchronized List<List<VirtualView>> admit(double loadPerCore, long latency){
+        List<List<VirtualView>> admitted = new ArrayList<>();
+        while(!queue.isEmpty() && canStart(liveGames.size() + admitted.size(), loadPerCore, latency)){
+            admitted.add(queue.remove(0));
+            lastEta.remove(0);
+        }
+        return admitted;
+    }
+
+
+    /**
+     * States whether a new game can start. The live games are always allowed to go on; one game at a time is
+     * admitted when the server is idle, however loaded the machine looks.
+     *
+     * @param live          the number of games running or about to start
+     * @param loadPerCore   the current load average per core, negative if unknown
+     * @param latency       the current LATENCY_PERCENTILE of the answer latency, in milliseconds
+     * @return              true if a new game can start
+     */
+    private boolean canStart(int live, double loadPerCore, long latency){
+        if(maxGames > 0 && live >= maxGames){
+            return false;
+        }
+        if(live == 0){
+            return true;
+        }
+        boolean loaded = maxLoadPerCore > 0 && loadPerCore > maxLoadPerCore;
+        boolean slow = maxLatencyMillis > 0 && latency > maxLatencyMillis;
+        if(loaded || slow){
+            LOGGER.log(Level.FINE, "Overloaded, load {0}, slow answers {1}", new Object[]{loadPerCore, slow});
+        }
+        return !loaded && !slow;
+    }
+
+
+    /**
+     * Starts tracking a game which was admitted.
+     *
+     * @param engine        the game, or the id of a game hosted by a game node
+     * @param now           the current time in milliseconds
+     */
+    synchronized void started(Object engine, long now){
+        liveGames.put(engine, now);
+    }
+
+
+    /**
+     * Stops tracking a game which is over, and updates the average length of the games.
+     *
+     * @param engine        the game, or the id of a game hosted by a game node
+     * @param now           the current time in milliseconds
+     */
+    synchronized void finished(Object engine, long now){
+        Long start = liveGames.remove(engine);
+        if(start != null){
+            averageGameMillis = (1 - GAME_LENGTH_WEIGHT) * averageGameMillis + GAME_LENGTH_WEIGHT * (now - start);
+        }
+    }
+
+
+    /**
+     * Estimates how long a queued game will wait: the k-th game in the queue starts when k + 1 games are over,
+     * assuming that the oldest games end first and that each game lasts as long as the average one.
+     *
+     * @param position      the position in the queue, starting from 0
+     * @param now           the current time in milliseconds
+     * @return              the estimated wait in milliseconds
+     */
+    synchronized long eta(int position, long now){
+        List<Long> starts = new ArrayList<>(liveGames.values());
+        if(starts.isEmpty()){
+            return 0;
+        }
+        int rounds = position / starts.size() + 1;
+        long start = starts.get(position % starts.size());
+        return Math.max(0, start + (long) (averageGameMillis * rounds) - now);
+    }
+
+
+    /**
+     * Tells the players of the queued games how long they will wait, when the estimate changes.
+     *
+     * @param now           the current time in milliseconds
+     */
+    synchronized void notifyQueued(long now){
+        for(int i = 0; i < queue.size(); i++){
+            long minutes = TimeUnit.MILLISECONDS.toMinutes(eta(i, now));
+            String message = QUEUED_MESSAGE + (minutes == 0 ? LESS_THAN_A_MINUTE : minutes + MINUTES);
+            if(!message.equals(lastEta.get(i))){
+                for(VirtualView v : queue.get(i)){
+                    v.display(message);
+                }
+                lastEta.set(i, message);
+            }
+        }
+    }
+
+
+    /**
+     * Removes the suspended players from the queued games. Games left with too few players are dropped from the
+     * queue, and their players are returned so that they can go back to matchmaking.
+     *
+     * @param suspended     filled with the suspended players removed
+     * @return              the players of the games dropped from the queue
+     */
+    synchronized List<VirtualView> removeSuspended(List<VirtualView> suspended){
+        List<VirtualView> requeued = new ArrayList<>();
+        Iterator<List<VirtualView>> games = queue.iterator();
+        Iterator<String> etas = lastEta.iterator();
+        while(games.hasNext()){
+            List<VirtualView> game = games.next();
+            etas.next();
+            for(VirtualView v : new ArrayList<>(game)){
+                if(v.isSuspended()){
+                    game.remove(v);
+                    suspended.add(v);
+                }
+            }
+            if(game.size() < MIN_PLAYERS){
+                requeued.addAll(game);
+                games.remove();
+                etas.remove();
+            }
+        }
+        return requeued;
+    }
+
+
+    /**
+     * Removes all queued games.
+     */
+    synchronized void clear(){
+        queue.clear();
+        lastEta.clear();
+        liveGames.clear();
+    }
+
+
+    /**
+     * Reads the load average of the machine per core.
+     *
+     * @return              the load per core, negative if not available
+     */
+    static double loadPerCore(){
+        double load = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+        return load < 0 ? load : load / Runtime.getRuntime().availableProcessors();
+    }
+
+
+    /*
+     * Getters
+     */
+
+    synchronized int getLiveGames() {
+        return liveGames.size();
+    }
+
+    synchronized int getQueued() {
+        return queue.size();
+    }
+}
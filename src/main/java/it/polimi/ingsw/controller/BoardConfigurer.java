@@ -8,7 +8,9 @@ import it.polimi.ingsw.model.cards.Weapon;
 import it.polimi.ingsw.model.exceptions.NoMoreCardsException;
 import it.polimi.ingsw.model.exceptions.UnacceptableItemNumberException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import static it.polimi.ingsw.model.board.Player.HeroName;
 
@@ -28,6 +30,7 @@ public class BoardConfigurer {
     private static final String AMMO_SQUARE = "aS";
     private static final String WEAPON_SQUARE = "wS";
     private static final String ID = "Id";
+    private static List<AmmoTile> ammoTiles;
 
 
     /**
@@ -119,6 +122,32 @@ public class BoardConfigurer {
     }
 
 
+    /**
+     * Returns the ammo tiles of a deck. Ammo tiles have no state, so the same tiles are shared by the decks of every
+     * game, and are created the first time.
+     *
+     * @return                      the ammo tiles.
+     */
+    private static synchronized List<AmmoTile> getAmmoTiles(){
+
+        if (ammoTiles == null) {
+            List<AmmoTile> tiles = new ArrayList<>();
+            int ammoTilesTypesNumber = j.getIntBC("ammoTilesTypesNumber");
+            for (int i = 0; i < ammoTilesTypesNumber; i++) {
+                for (int k = 0; k < j.getIntBC("quantity", AMMO_TILES, i); k++) {
+                    tiles.add(new AmmoTile(j.getBooleanBC("pU", AMMO_TILES, i),
+                            new AmmoPack(j.getIntBC("r", AMMO_TILES, i),
+                                    j.getIntBC("b", AMMO_TILES, i),
+                                    j.getIntBC("y", AMMO_TILES, i))));
+                }
+            }
+            ammoTiles = Collections.unmodifiableList(tiles);
+        }
+        return ammoTiles;
+
+    }
+
+
     /**
      * Adds a deck of weapon, a deck of ammoTiles and a deck of powerUps to the board.
      * The decks are filled and randomly shuffled.
@@ -126,31 +155,37 @@ public class BoardConfigurer {
      * @param board                 the board the decks must be added to.
      */
     public static void configureDecks(Board board){
+        configureDecks(board, new Random());
+    }
+
+
+    /**
+     * Adds a deck of weapon, a deck of ammoTiles and a deck of powerUps to the board.
+     * The decks are filled and shuffled by the given generator, also when they are regenerated.
+     *
+     * @param board                 the board the decks must be added to.
+     * @param random                the generator of the game.
+     */
+    public static void configureDecks(Board board, Random random){
 
         //configures the weapons deck
         WeaponFactory weaponFactory = new WeaponFactory(board);
-        Deck weaponsDeck = new Deck();
+        Deck weaponsDeck = new Deck(random);
         for (Weapon.WeaponName weaponName : Weapon.WeaponName.values()) {
             weaponsDeck.addCard(weaponFactory.createWeapon(weaponName));
         }
         weaponsDeck.shuffleDeck();
 
         //configures the ammo deck
-        Deck ammoDeck = new Deck();
-        int ammoTilesTypesNumber = j.getIntBC("ammoTilesTypesNumber");
-        for(int i=0; i < ammoTilesTypesNumber; i++){
-            for(int k = 0; k < j.getIntBC("quantity", AMMO_TILES, i); k++){
-                    ammoDeck.addCard((new AmmoTile((j.getBooleanBC("pU", AMMO_TILES, i)),
-                        new AmmoPack(j.getIntBC("r", AMMO_TILES, i),
-                                j.getIntBC("b", AMMO_TILES, i),
-                                j.getIntBC("y", AMMO_TILES, i)))));
-            }
+        Deck ammoDeck = new Deck(random);
+        for (AmmoTile ammoTile : getAmmoTiles()) {
+            ammoDeck.addCard(ammoTile);
         }
         ammoDeck.shuffleDeck();
 
         //configures the powerUps deck
         PowerUpFactory powerUpFactory = new PowerUpFactory(board);
-        Deck powerUpsDeck = new Deck();
+        Deck powerUpsDeck = new Deck(random);
         for (int i = 0; i< j.getIntBC("pUNumberPerColor"); i++) {
             for (PowerUp.PowerUpName powerUpName : PowerUp.PowerUpName.values()) {
                 for(int k = 0; k< j.getIntBC("pUColorsNumber"); k++) {
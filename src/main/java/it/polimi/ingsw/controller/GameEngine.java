@@ -9,6 +9,7 @@ import it.polimi.ingsw.model.cards.AmmoPack;
 import it.polimi.ingsw.model.exceptions.*;
 import it.polimi.ingsw.network.server.VirtualView;
 
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.logging.*;
@@ -43,13 +44,26 @@ public class GameEngine implements Runnable{
     private boolean exitGame;
 
     private final Map<VirtualView, String> notifications;
+    private final Map<VirtualView, Long> answeredAt;
+    private Shard shard;
     private List<VirtualView> resuming;
 
+    private long seed;
+    private Random random;
+    private GameEventLog eventLog;
+    private GameReplay replay;
+    private SnapshotFile snapshotFile;
+    private boolean restored;
+
     private boolean endphaseSimulation;
     private int turnDuration;
     private int setupTimeout;
+    private String eventLogDir;
+    private String snapshotDir;
+    private int restoreTimeout;
 
     private static final Logger LOGGER = Logger.getLogger("serverLogger");
+    private static final Level SEED = new Level("SEED", Level.SEVERE.intValue()) { };
     private static final String P = "Player ";
 
     private static final String WAIT_SHORT_MESSAGE = "Your answer did not arrive in time. You have not been suspended, but a default value has been selected.\n Press 1 and enter to proceed.";
@@ -94,7 +108,7 @@ public class GameEngine implements Runnable{
      *
      * @param players           the players in the game.
      */
-    GameEngine(List<VirtualView> players){
+    public GameEngine(List<VirtualView> players){
 
         this.players = players;
         this.leaderboard = new ArrayList<>();
@@ -114,8 +128,16 @@ public class GameEngine implements Runnable{
         }
 
         this.notifications = new HashMap<>();
+        this.answeredAt = new HashMap<>();
         this.resuming = new ArrayList<>();
 
+        this.seed = new Random().nextLong();
+        this.random = new Random(seed);
+        this.eventLog = null;
+        this.replay = null;
+        this.snapshotFile = null;
+        this.restored = false;
+
         LOGGER.log(Level.FINE, "Initialized GameEngine {0}", this);
     }
 
@@ -164,8 +186,48 @@ public class GameEngine implements Runnable{
 
     void setTimer(Timer timer) {this.timer = timer;}
 
+    void setShard(Shard shard) {this.shard = shard;}
+
+    /**
+     * Makes the game play again the game recorded in a log, instead of asking its players.
+     *
+     * @param replay        the recorded game
+     */
+    void setReplay(GameReplay replay) {
+        this.replay = replay;
+        this.seed = replay.getSeed();
+        this.random = new Random(seed);
+    }
+
     void setLeaderboard(List<VirtualView> leaderboard) { this.leaderboard = leaderboard;  }
 
+    /**
+     * Makes the game go on from a snapshot, once enough of its players resume. The players of the game are
+     * suspended until then.
+     *
+     * @param snapshot      the restored game
+     * @param file          the file where the snapshots of the game go on being written
+     */
+    void restore(GameSnapshot snapshot, SnapshotFile file) {
+        this.board = snapshot.getBoard();
+        try {
+            this.killShotTrack = board.getKillShotTrack();
+        } catch (NotAvailableAttributeException e) {LOGGER.log(Level.SEVERE, KILLSHOT_TRACK_ABSENT_EX, e);}
+        this.frenzy = snapshot.isFrenzy();
+        this.frenzyActivator = snapshot.getFrenzyActivator();
+        for (int i = 0; i < players.size(); i++) {
+            VirtualView p = players.get(i);
+            p.setPlayer(board.getPlayers().get(i));
+            p.suspend();
+            p.setJustSuspended(false);
+        }
+        setCurrentPlayer(players.get(snapshot.getCurrentPlayer()));
+        this.statusSaver = new StatusSaver(board);
+        this.snapshotFile = file;
+        this.restored = true;
+    }
+
+
     /**
      * Runs a game.
      *
@@ -175,12 +237,22 @@ public class GameEngine implements Runnable{
 
         loadParams();
         this.timer = new Timer(turnDuration);
+        openEventLog();
 
         try {
 
             LOGGER.log(Level.FINE, "GameEngine running");
 
-            if (endphaseSimulation) {
+            if (restored) {
+                try {
+                    awaitResumes();
+                } catch (NotEnoughPlayersException e) {
+                    endForLackOfPlayers();
+                    return;
+                }
+            }
+
+            else if (endphaseSimulation) {
                 simulationTillEndphaseSetup();
                 try {
                     for (VirtualView p : players) {
@@ -197,19 +269,14 @@ public class GameEngine implements Runnable{
                     setup();
                     simulationTillEndphaseSetup();
                 }catch (NotEnoughPlayersException e) {
-                    for (VirtualView p : players) {
-                        p.showEnd(NOT_ENOUGH_PLAYER_GAME_OVER);
-                    }
-                    for (VirtualView p : resuming) {
-                        p.showEnd(NOT_ENOUGH_PLAYER_GAME_OVER);
-                    }
-                    ServerMain.getInstance().untrackGame(this);
+                    endForLackOfPlayers();
                     return;
                 }
             }
 
             while (!gameOver) {
                 LOGGER.log(Level.FINE, "Running turn");
+                saveSnapshot();
                 allowPlayersToResume();
                 try {
                     try {
@@ -235,16 +302,67 @@ public class GameEngine implements Runnable{
                     }
                 }
                 changePlayer();
+                if (eventLog != null) {
+                    eventLog.endTurn();
+                }
 
             }
-            resolve();
+            if (replay == null || !replay.isExhausted()) {
+                resolve();
+            }
+            closeEventLog();
+            deleteSnapshots();
 
-            ServerMain.getInstance().untrackGame(this);
+            if (replay == null) {
+                ServerMain.getInstance().untrackGame(this);
+            }
 
         } catch (Exception e) {e.printStackTrace(); throw e;}
     }
 
 
+    /**
+     * Ends a game which lost too many players before it could start or go on.
+     */
+    private void endForLackOfPlayers(){
+        for (VirtualView p : players) {
+            p.showEnd(NOT_ENOUGH_PLAYER_GAME_OVER);
+        }
+        for (VirtualView p : resuming) {
+            p.showEnd(NOT_ENOUGH_PLAYER_GAME_OVER);
+        }
+        closeEventLog();
+        deleteSnapshots();
+        if (replay == null) {
+            ServerMain.getInstance().untrackGame(this);
+        }
+    }
+
+
+    /**
+     * Waits until enough players of a restored game resume.
+     *
+     * @throws NotEnoughPlayersException    if they do not resume within restoreTimeout seconds.
+     */
+    private void awaitResumes() throws NotEnoughPlayersException{
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(restoreTimeout);
+        LOGGER.log(Level.INFO, "Waiting for the players of a restored game");
+        while (players.stream().filter(x->!x.isSuspended()).count() < MIN_PLAYERS) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new NotEnoughPlayersException("Not enough players resumed the restored game.");
+            }
+            allowPlayersToResume();
+            try {
+                TimeUnit.MILLISECONDS.sleep(SLEEP_TIMEOUT);
+            }catch(InterruptedException ex){
+                LOGGER.log(Level.INFO,"Skipped waiting time.");
+                Thread.currentThread().interrupt();
+                throw new NotEnoughPlayersException("Interrupted while waiting for the players of the restored game.");
+            }
+        }
+    }
+
+
     /**
      * Sets up the game.
      *
@@ -255,7 +373,7 @@ public class GameEngine implements Runnable{
         LOGGER.log(Level.FINE,"All the players are connected.");
         configureMap();
         configureKillShotTrack();
-        BoardConfigurer.configureDecks(board);
+        BoardConfigurer.configureDecks(board, random);
         LOGGER.log(Level.INFO,"Decks configured.");
 
         try {
@@ -421,6 +539,7 @@ public class GameEngine implements Runnable{
             }
             p.display(builder.toString());
         }
+        if (replay != null) return;
         try{
             Thread.sleep(1000); //give them time to read
         } catch(InterruptedException e){
@@ -652,6 +771,13 @@ public class GameEngine implements Runnable{
      * @return the player's answer.
      */
     String waitShort(VirtualView current, int timeout) throws NotEnoughPlayersException{
+        if(replay != null){
+            checkForSuspension();
+            String answer = replay.nextShortAnswer(players.indexOf(current));
+            checkForSuspension();
+            return answer;
+        }
+        boolean defaulted = false;
         long start = System.currentTimeMillis();
         long timeoutMillis = TimeUnit.SECONDS.toMillis(timeout);
         LOGGER.log(Level.INFO ,"Waiting for {0} answer", current.getName());
@@ -666,16 +792,26 @@ public class GameEngine implements Runnable{
             if(System.currentTimeMillis()>start+timeoutMillis||current.isSuspended()){
                 LOGGER.log(Level.INFO,"Timeout ran out while waiting for " + current.getName() +". Returning default value");
                 synchronized (notifications){
-                    notifications.putIfAbsent(current, DEFAULT_ANSWER);
+                    defaulted = notifications.putIfAbsent(current, DEFAULT_ANSWER) == null;
                 }
                 current.display(WAIT_SHORT_MESSAGE);
             }
         }
         LOGGER.log(Level.INFO, "Done waiting");
-        checkForSuspension();
+        recordLatency(current);
+        String answer;
         synchronized (notifications) {
-            return notifications.get(current);
+            answer = notifications.get(current);
         }
+        if(eventLog != null){
+            if(defaulted){
+                eventLog.event(GameEventLog.DEFAULT, players.indexOf(current));
+            }else {
+                eventLog.answer(players.indexOf(current), answer);
+            }
+        }
+        checkForSuspension();
+        return answer;
     }
 
 
@@ -689,6 +825,10 @@ public class GameEngine implements Runnable{
      */
     String wait(VirtualView current) throws SlowAnswerException, NotEnoughPlayersException{
         LOGGER.log(Level.INFO ,"Waiting for {0} answer", current);
+        if(replay != null){
+            checkForSuspension();
+            return replay.nextAnswer(players.indexOf(current));
+        }
         while(!hasAnswered(current)){
             checkForSuspension();
             try {
@@ -699,12 +839,38 @@ public class GameEngine implements Runnable{
             }
             if(timer.isOver()||current.isSuspended()){
                 LOGGER.log(Level.FINE, "Player {0} took too long to answer and will be suspended", current.getName());
+                if(eventLog != null){
+                    eventLog.event(GameEventLog.SLOW, players.indexOf(current));
+                }
                 throw new SlowAnswerException("Maximum time exceeded for the user to answer.");
             }
         }
         LOGGER.log(Level.INFO, "Done waiting");
+        recordLatency(current);
+        String answer;
+        synchronized (notifications) {
+            answer = notifications.get(current);
+        }
+        if(eventLog != null){
+            eventLog.answer(players.indexOf(current), answer);
+        }
+        return answer;
+    }
+
+
+    /**
+     * Tells the shard hosting the game how long the answer of a player waited before being handled.
+     * Default answers given on timeout are not counted.
+     *
+     * @param current       the player who answered
+     */
+    private void recordLatency(VirtualView current){
+        Long arrival;
         synchronized (notifications) {
-            return notifications.get(current);
+            arrival = answeredAt.remove(current);
+        }
+        if(arrival != null && shard != null){
+            shard.recordLatency(System.currentTimeMillis() - arrival);
         }
     }
 
@@ -732,7 +898,9 @@ public class GameEngine implements Runnable{
         if(!players.contains(p)) return;
         try {
             synchronized (notifications) {
-                notifications.putIfAbsent(p, message);
+                if(notifications.putIfAbsent(p, message) == null){
+                    answeredAt.put(p, System.currentTimeMillis());
+                }
             }
             LOGGER.log(Level.INFO, "{0} just notified the GameEngine", p.getName());
         }catch (Exception ex){
@@ -759,10 +927,16 @@ public class GameEngine implements Runnable{
      * @throws NotEnoughPlayersException if less than the minimum number of  players are left
      */
     synchronized void checkForSuspension() throws NotEnoughPlayersException{
+        if(replay != null){
+            replay.applySuspensions(players);
+        }
         List<VirtualView> justSuspended = new ArrayList<>();
         for(VirtualView v : players){
             if(v.isJustSuspended()) {
                 justSuspended.add(v);
+                if(eventLog != null){
+                    eventLog.event(GameEventLog.SUSPEND, players.indexOf(v));
+                }
                 v.setJustSuspended(false);
                 try {
                     board.removeObserver(v);
@@ -871,7 +1045,7 @@ public class GameEngine implements Runnable{
      * @param p     player trying to resume
      * @return      true if resuming is possible, else false
      */
-    synchronized boolean tryResuming(VirtualView p){
+    public synchronized boolean tryResuming(VirtualView p){
         for (VirtualView v : players){
             if (statusSaver!=null&&v.isSuspended()&&!resuming.stream().map(VirtualView::getName).collect(Collectors.toList()).contains(p)){
                 resuming.add(p);
@@ -887,6 +1061,9 @@ public class GameEngine implements Runnable{
      * After every turn, this function is called to allow players who have requested to resume back in the game.
      */
     synchronized void allowPlayersToResume(){
+        if(replay != null){
+            resuming.addAll(replay.nextResumes(players));
+        }
         List<VirtualView> temp = new ArrayList<>(resuming);
         for(VirtualView v : temp){
             for(VirtualView old : players){
@@ -894,12 +1071,13 @@ public class GameEngine implements Runnable{
                     v.setPlayer(old.getModel());
                     v.setGame(this);
                     players.set(players.indexOf(old), v);
-                    ServerMain.getInstance().getPlayers().remove(old);
-                    ServerMain.getInstance().getPlayers().add(v);
-                    board.registerObserver(v);
+                    if(replay == null) {
+                        ServerMain.getInstance().replacePlayer(old, v);
+                    }
+                    board.registerObserver(v, v.getResumeSeq());
+                    board.notifyObserver(v);
                     resuming.remove(v);
                     notifications.remove(old);
-                    ServerMain.getInstance().getPlayers().remove(old);
                     for(VirtualView p : players){
                         if(p.equals(v)){
                             p.display(YOU_ARE_BACK_MESSAGE);
@@ -907,6 +1085,9 @@ public class GameEngine implements Runnable{
                             p.display(v.getName() + IS_BACK_MESSAGE);
                         }
                     }
+                    if(eventLog != null){
+                        eventLog.event(GameEventLog.RESUME, players.indexOf(v));
+                    }
                     LOGGER.log(Level.INFO, "{0} successfully resumed and can now play.", v.getName());
                     break;
                 }
@@ -923,6 +1104,77 @@ public class GameEngine implements Runnable{
         this.endphaseSimulation = Boolean.parseBoolean(prop.getProperty("endPhaseSimulation", "false"));
         this.turnDuration = Integer.parseInt(prop.getProperty("turnDuration", "60"));
         this.setupTimeout = Integer.parseInt(prop.getProperty("setupTimeout", "20"));
+        this.eventLogDir = prop.getProperty("eventLogDir", "").trim();
+        this.snapshotDir = prop.getProperty("snapshotDir", "").trim();
+        this.restoreTimeout = Integer.parseInt(prop.getProperty("restoreTimeout", "300"));
+        String gameSeed = prop.getProperty("gameSeed", "").trim();
+        if(replay == null && !restored && !gameSeed.isEmpty()){
+            this.seed = Long.parseLong(gameSeed);
+            this.random = new Random(seed);
+        }
+        if(replay != null){
+            this.endphaseSimulation = replay.isEndphaseSimulation();
+        }
+    }
+
+
+    /**
+     * Logs the seed of the game with the names of its players, and opens its snapshot file and its event log, if
+     * they are enabled and the game is neither a replay nor restored from a snapshot. The seed is logged at the
+     * SEED level, which the server logger keeps like errors.
+     */
+    private void openEventLog(){
+        if(replay != null || restored) return;
+        List<String> names = new ArrayList<>();
+        for(VirtualView p : players){
+            names.add(p.getName());
+        }
+        LOGGER.log(SEED, "Game of {0} started with seed {1}", new Object[]{names, Long.toString(seed)});
+        if(!snapshotDir.isEmpty()){
+            snapshotFile = SnapshotFile.create(Paths.get(snapshotDir));
+        }
+        if(eventLogDir.isEmpty()) return;
+        eventLog = GameEventLog.open(eventLogDir, seed, endphaseSimulation, names);
+    }
+
+
+    /**
+     * Writes a snapshot of the game in the background, at the beginning of a turn.
+     */
+    private void saveSnapshot(){
+        if(snapshotFile == null) return;
+        List<String> names = new ArrayList<>();
+        for(VirtualView p : players){
+            names.add(p.getName());
+        }
+        try {
+            snapshotFile.write(GameSnapshot.encode(board, names, players.indexOf(currentPlayer), frenzy, frenzyActivator));
+        }catch (IllegalStateException ex){
+            LOGGER.log(Level.SEVERE, "Cannot take a snapshot of the game", ex);
+        }
+    }
+
+
+    /**
+     * Deletes the snapshots of a game which is over.
+     */
+    private void deleteSnapshots(){
+        if(snapshotFile != null){
+            snapshotFile.delete();
+            snapshotFile = null;
+        }
+    }
+
+
+    /**
+     * Records the end of the game and closes its event log.
+     */
+    private void closeEventLog(){
+        if(eventLog != null){
+            eventLog.event(GameEventLog.END, 0);
+            eventLog.close();
+            eventLog = null;
+        }
     }
 
 
@@ -943,7 +1195,7 @@ public class GameEngine implements Runnable{
             this.killShotTrack = board.getKillShotTrack();
         } catch (NotAvailableAttributeException e) {LOGGER.log(Level.SEVERE,KILLSHOT_TRACK_ABSENT_EX, e);}
 
-        BoardConfigurer.configureDecks(board);
+        BoardConfigurer.configureDecks(board, random);
 
         try {
             BoardConfigurer.setAmmoTilesAndWeapons(board);
@@ -0,0 +1,207 @@
+package it.polimi.ingsw.controller;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only binary log of a game, holding everything needed to play it again: the seed of its generator, the
+ * names of its players, and every event the GameEngine reacted to, in the order it reacted to them.
+ *
+ * The log starts with a header: MAGIC, VERSION, the seed, whether the game skipped to the end phase, and the names
+ * of the players. Each event follows as a type byte and the position of the player in the game; answers are
+ * followed by their text. Events are buffered, and forced to the disk at the end of each turn and at most once
+ * per sync interval, so that a crash loses at most the events of the last interval.
+ * If the log cannot be written, the game goes on without it.
+ *
+ * @author marcobaga
+ */
+class GameEventLog {
+
+    static final int MAGIC = 0x41444C47;
+    static final byte VERSION = 1;
+
+    static final byte ANSWER = 1;
+    static final byte DEFAULT = 2;
+    static final byte SLOW = 3;
+    static final byte SUSPEND = 4;
+    static final byte RESUME = 5;
+    static final byte END = 6;
+
+    private final FileOutputStream file;
+    private final DataOutputStream out;
+    private final long syncIntervalMillis;
+    private long lastSync;
+    private boolean failed;
+
+    private static final Logger LOGGER = Logger.getLogger("serverLogger");
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+    private static final int BUFFER_SIZE = 8192;
+    static final long DEFAULT_SYNC_INTERVAL = 1000;
+
+    /**
+     * Creates the log of a game and writes its header.
+     *
+     * @param file                  the file of the log
+     * @param seed                  the seed of the generator of the game
+     * @param endphaseSimulation    whether the game skips to the end phase
+     * @param names                 the names of the players, in the order of the game
+     * @param syncIntervalMillis    the minimum time between two writes to the disk, unless a turn ends
+     * @throws IOException          if the file cannot be created
+     */
+    GameEventLog(File file, long seed, boolean endphaseSimulation, List<String> names, long syncIntervalMillis) throws IOException {
+        this.file = new FileOutputStream(file, true);
+        this.out = new DataOutputStream(new BufferedOutputStream(this.file, BUFFER_SIZE));
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.lastSync = System.currentTimeMillis();
+        this.failed = false;
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeLong(seed);
+        out.writeBoolean(endphaseSimulation);
+        out.writeByte(names.size());
+        for(String name : names){
+            out.writeUTF(name);
+        }
+        sync();
+    }
+
+
+    /**
+     * Opens the log of a new game in a directory, with a name unique within this server.
+     *
+     * @param directory             the directory of the logs, created if missing
+     * @param seed                  the seed of the generator of the game
+     * @param endphaseSimulation    whether the game skips to the end phase
+     * @param names                 the names of the players, in the order of the game
+     * @return                      the log, or null if it cannot be created
+     */
+    static GameEventLog open(String directory, long seed, boolean endphaseSimulation, List<String> names){
+        File dir = new File(directory);
+        if(!dir.isDirectory() && !dir.mkdirs()){
+            LOGGER.log(Level.SEVERE, "Cannot create the directory of the game logs {0}", directory);
+            return null;
+        }
+        File file = new File(dir, "game-" + System.currentTimeMillis() + "-" + COUNTER.incrementAndGet() + ".log");
+        try {
+            GameEventLog log = new GameEventLog(file, seed, endphaseSimulation, names, DEFAULT_SYNC_INTERVAL);
+            LOGGER.log(Level.INFO, "Logging the game to {0}", file);
+            return log;
+        }catch (IOException ex){
+            LOGGER.log(Level.SEVERE, "Cannot create the game log " + file, ex);
+            return null;
+        }
+    }
+
+
+    /**
+     * Appends an answer the game received.
+     *
+     * @param player        the position of the player
+     * @param answer        the answer
+     */
+    synchronized void answer(int player, String answer){
+        if(failed) return;
+        try {
+            out.writeByte(ANSWER);
+            out.writeByte(player);
+            out.writeUTF(answer);
+            syncIfDue();
+        }catch (IOException ex){
+            fail(ex);
+        }
+    }
+
+
+    /**
+     * Appends an event without content: a default answer, a turn timer running out, a suspension, a resume or the
+     * end of the game.
+     *
+     * @param type          the type of the event
+     * @param player        the position of the player
+     */
+    synchronized void event(byte type, int player){
+        if(failed) return;
+        try {
+            out.writeByte(type);
+            out.writeByte(player);
+            if(type == END){
+                sync();
+            }else {
+                syncIfDue();
+            }
+        }catch (IOException ex){
+            fail(ex);
+        }
+    }
+
+
+    /**
+     * Forces the events written so far to the disk. Called at the end of each turn.
+     */
+    synchronized void endTurn(){
+        if(failed) return;
+        try {
+            sync();
+        }catch (IOException ex){
+            fail(ex);
+        }
+    }
+
+
+    /**
+     * Closes the log.
+     */
+    synchronized void close(){
+        try {
+            if(!failed) {
+                sync();
+            }
+            out.close();
+        }catch (IOException ex){
+            LOGGER.log(Level.SEVERE, "Cannot close the game log", ex);
+        }
+        failed = true;
+    }
+
+
+    /**
+     * Forces the buffered events to the disk if the sync interval elapsed.
+     *
+     * @throws IOException  if writing fails
+     */
+    private void syncIfDue() throws IOException {
+        if(System.currentTimeMillis() - lastSync >= syncIntervalMillis){
+            sync();
+        }
+    }
+
+
+    /**
+     * Forces the buffered events to the disk.
+     *
+     * @throws IOException  if writing fails
+     */
+    private void sync() throws IOException {
+        out.flush();
+        file.getFD().sync();
+        lastSync = System.currentTimeMillis();
+    }
+
+
+    /**
+     * Stops logging after an error.
+     *
+     * @param ex            the error
+     */
+    private void fail(IOException ex){
+        LOGGER.log(Level.SEVERE, "Cannot write the game log, the game goes on without it", ex);
+        failed = true;
+    }
+}
@@ -0,0 +1,262 @@
+package it.polimi.ingsw.controller;
+
+import it.polimi.ingsw.model.board.Board;
+import it.polimi.ingsw.model.exceptions.NotEnoughPlayersException;
+import it.polimi.ingsw.model.exceptions.SlowAnswerException;
+import it.polimi.ingsw.network.server.VirtualView;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Plays again a game recorded in a GameEventLog, rebuilding the exact Board it had when the log ends. The game runs
+ * on a GameEngine seeded as the original one, whose players take their answers, timeouts, suspensions and resumes
+ * from the log, in the order the original game reacted to them. Nothing is sent to any client and nothing is waited
+ * for, so a game is replayed much faster than it was played.
+ *
+ * A log cut short by a crash is replayed up to its last complete event. The Board is then left as it was at the
+ * time of the crash, without the final scoring.
+ *
+ * @author marcobaga
+ */
+public class GameReplay {
+
+    private final DataInputStream in;
+    private final long seed;
+    private final boolean endphaseSimulation;
+    private final List<String> names;
+    private byte nextType;
+    private int nextPlayer;
+    private String nextText;
+    private int events;
+
+    private static final byte NONE = 0;
+    private static final String DEFAULT_ANSWER = "1";
+
+    /**
+     * Reads the header of a log.
+     *
+     * @param data          the content of the log
+     * @throws IOException  if the log is not a game event log, or its version is not supported
+     */
+    public GameReplay(byte[] data) throws IOException {
+        this.in = new DataInputStream(new ByteArrayInputStream(data));
+        if(in.readInt() != GameEventLog.MAGIC){
+            throw new IOException("Not a game event log");
+        }
+        byte version = in.readByte();
+        if(version != GameEventLog.VERSION){
+            throw new IOException("Unsupported game event log version " + version);
+        }
+        this.seed = in.readLong();
+        this.endphaseSimulation = in.readBoolean();
+        int count = in.readByte();
+        List<String> read = new ArrayList<>();
+        for(int i = 0; i < count; i++){
+            read.add(in.readUTF());
+        }
+        this.names = Collections.unmodifiableList(read);
+        this.events = 0;
+        advance();
+    }
+
+
+    /**
+     * Replays the logs given as arguments and prints how long each replay took.
+     *
+     * @param args          the paths of the logs
+     */
+    public static void main(String[] args){
+        for(String arg : args){
+            try {
+                GameReplay replay = new GameReplay(Files.readAllBytes(Paths.get(arg)));
+                long start = System.nanoTime();
+                Board board = replay.replay();
+                long elapsed = System.nanoTime() - start;
+                System.out.println(arg + ": " + replay.getEvents() + " events replayed in " + elapsed / 1000000 + " ms, "
+                        + board.getPlayers().size() + " players on map " + board.getId());
+            }catch (IOException | RuntimeException ex){
+                System.out.println(arg + ": replay failed: " + ex);
+            }
+        }
+    }
+
+
+    /**
+     * Loads a log from a file.
+     *
+     * @param path          the file
+     * @return              the replay of the log
+     * @throws IOException  if the file cannot be read or is not a game event log
+     */
+    public static GameReplay load(Path path) throws IOException {
+        return new GameReplay(Files.readAllBytes(path));
+    }
+
+
+    /**
+     * Plays the game again, up to the end of the log.
+     *
+     * @return              the Board of the game
+     * @throws IllegalStateException    if the game does not follow the log, for instance because the rules changed
+     */
+    public Board replay(){
+        List<VirtualView> players = new ArrayList<>();
+        for(String name : names){
+            players.add(new OfflineVirtualView(name));
+        }
+        GameEngine engine = new GameEngine(players);
+        engine.setReplay(this);
+        engine.run();
+        return engine.getBoard();
+    }
+
+
+    /**
+     * Takes the answer of a player to a request with a default answer.
+     *
+     * @param player        the position of the player
+     * @return              the answer, or the default one if the player did not answer in time
+     * @throws NotEnoughPlayersException    if the log is over, to end the game
+     */
+    String nextShortAnswer(int player) throws NotEnoughPlayersException {
+        expect(player);
+        if(nextType != GameEventLog.ANSWER && nextType != GameEventLog.DEFAULT){
+            throw diverged();
+        }
+        String answer = nextType == GameEventLog.DEFAULT ? DEFAULT_ANSWER : nextText;
+        advance();
+        return answer;
+    }
+
+
+    /**
+     * Takes the answer of a player during his turn.
+     *
+     * @param player        the position of the player
+     * @return              the answer
+     * @throws SlowAnswerException          if the turn timer ran out in the original game
+     * @throws NotEnoughPlayersException    if the log is over, to end the game
+     */
+    String nextAnswer(int player) throws SlowAnswerException, NotEnoughPlayersException {
+        expect(player);
+        if(nextType == GameEventLog.SLOW){
+            advance();
+            throw new SlowAnswerException("Maximum time exceeded in the original game.");
+        }
+        if(nextType != GameEventLog.ANSWER){
+            throw diverged();
+        }
+        String answer = nextText;
+        advance();
+        return answer;
+    }
+
+
+    /**
+     * Suspends the players whose suspension is the next event of the log.
+     *
+     * @param players       the players of the game
+     */
+    void applySuspensions(List<VirtualView> players){
+        while(nextType == GameEventLog.SUSPEND){
+            players.get(nextPlayer).suspend();
+            advance();
+        }
+    }
+
+
+    /**
+     * Creates a new connection for the players whose resume is the next event of the log.
+     *
+     * @param players       the players of the game
+     * @return              the connections of the resuming players
+     */
+    List<VirtualView> nextResumes(List<VirtualView> players){
+        List<VirtualView> resumed = new ArrayList<>();
+        while(nextType == GameEventLog.RESUME){
+            resumed.add(new OfflineVirtualView(players.get(nextPlayer).getName()));
+            advance();
+        }
+        return resumed;
+    }
+
+
+    /**
+     * Checks that the next event concerns a player, ending the game if the log is over.
+     *
+     * @param player        the position of the player
+     * @throws NotEnoughPlayersException    if the log is over
+     */
+    private void expect(int player) throws NotEnoughPlayersException {
+        if(isExhausted()){
+            throw new NotEnoughPlayersException("The game log is over");
+        }
+        if(nextPlayer != player){
+            throw diverged();
+        }
+    }
+
+
+    /**
+     * Builds the error for a game which does not follow its log.
+     *
+     * @return              the error
+     */
+    private IllegalStateException diverged(){
+        return new IllegalStateException("The game diverged from its log at event " + events);
+    }
+
+
+    /**
+     * Reads the next event. An event cut short, or the end of the game, ends the log.
+     */
+    private void advance(){
+        try {
+            byte type = in.readByte();
+            int player = in.readByte();
+            String text = type == GameEventLog.ANSWER ? in.readUTF() : null;
+            nextType = type == GameEventLog.END ? NONE : type;
+            nextPlayer = player;
+            nextText = text;
+            events++;
+        }catch (EOFException ex){
+            nextType = NONE;
+        }catch (IOException ex){
+            throw new IllegalStateException("Cannot read the game log", ex);
+        }
+    }
+
+
+    /*
+     * Getters
+     */
+
+    long getSeed() {
+        return seed;
+    }
+
+    boolean isEndphaseSimulation() {
+        return endphaseSimulation;
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    public int getEvents() {
+        return events;
+    }
+
+    boolean isExhausted() {
+        return nextType == NONE;
+    }
+}
@@ -0,0 +1,473 @@
+package it.polimi.ingsw.controller;
+
+import it.polimi.ingsw.model.board.AmmoSquare;
+import it.polimi.ingsw.model.board.Board;
+import it.polimi.ingsw.model.board.Deck;
+import it.polimi.ingsw.model.board.Player;
+import it.polimi.ingsw.model.board.Square;
+import it.polimi.ingsw.model.board.WeaponSquare;
+import it.polimi.ingsw.model.cards.AmmoPack;
+import it.polimi.ingsw.model.cards.AmmoTile;
+import it.polimi.ingsw.model.cards.Card;
+import it.polimi.ingsw.model.cards.Color;
+import it.polimi.ingsw.model.cards.PowerUp;
+import it.polimi.ingsw.model.cards.Weapon;
+import it.polimi.ingsw.model.exceptions.NotAvailableAttributeException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Binary snapshot of a game at the beginning of a turn: the map, the players with their damages, marks, ammo,
+ * weapons and power ups, the cards on the squares and in the decks, the kill shot track, the frenzy option and the
+ * current player. Cards are saved by name, and created again by the factories when the game is restored, so that
+ * their effects refer to the restored Board.
+ *
+ * The snapshot starts with MAGIC and VERSION. A snapshot of an older version, or of a different game format, is
+ * rejected.
+ *
+ * @author marcobaga
+ */
+class GameSnapshot {
+
+    static final int MAGIC = 0x41445350;
+    static final byte VERSION = 1;
+
+    private static final int NO_SQUARE = -1;
+    private static final byte WEAPON = 0;
+    private static final byte POWER_UP = 1;
+    private static final byte AMMO_TILE = 2;
+
+    private final Board board;
+    private final List<String> names;
+    private final int currentPlayer;
+    private final boolean frenzy;
+    private final int frenzyActivator;
+
+    /**
+     * Constructs a restored game.
+     *
+     * @param board             the restored Board
+     * @param names             the names of the players, in the order of the game
+     * @param currentPlayer     the position of the player whose turn begins
+     * @param frenzy            whether the frenzy option is active
+     * @param frenzyActivator   the id of the player who activated the frenzy, 0 if not activated yet
+     */
+    private GameSnapshot(Board board, List<String> names, int currentPlayer, boolean frenzy, int frenzyActivator){
+        this.board = board;
+        this.names = names;
+        this.currentPlayer = currentPlayer;
+        this.frenzy = frenzy;
+        this.frenzyActivator = frenzyActivator;
+    }
+
+
+    /**
+     * Encodes a game at the beginning of a turn.
+     *
+     * @param board             the Board of the game
+     * @param names             the names of the players, in the order of the game
+     * @param currentPlayer     the position of the player whose turn begins
+     * @param frenzy            whether the frenzy option is active
+     * @param frenzyActivator   the id of the player who activated the frenzy, 0 if not activated yet
+     * @return                  the snapshot
+     */
+    static byte[] encode(Board board, List<String> names, int currentPlayer, boolean frenzy, int frenzyActivator){
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)){
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(board.getId());
+            out.writeBoolean(frenzy);
+            out.writeByte(frenzyActivator);
+            out.writeByte(currentPlayer);
+            out.writeByte(names.size());
+            for(String name : names){
+                out.writeUTF(name);
+            }
+
+            List<Player> players = board.getPlayers();
+            out.writeByte(players.size());
+            for(Player p : players){
+                writePlayer(out, p);
+            }
+            for(Player p : players){
+                writeIds(out, p.getDamages());
+                writeIds(out, p.getMarks());
+            }
+
+            out.writeByte(board.getKillShotTrack().getSkullsLeft());
+            writeIds(out, board.getKillShotTrack().getKillers());
+
+            for(Square s : board.getMap()){
+                if(s instanceof WeaponSquare){
+                    writeCards(out, ((WeaponSquare) s).getWeapons());
+                }else {
+                    AmmoSquare a = (AmmoSquare) s;
+                    out.writeBoolean(a.hasAmmoTile());
+                    if(a.hasAmmoTile()){
+                        writeCard(out, a.getAmmoTile());
+                    }
+                }
+            }
+
+            for(Deck d : decks(board)){
+                writeCards(out, d.getDrawable());
+                writeCards(out, d.getDiscarded());
+            }
+        }catch (IOException | NotAvailableAttributeException ex){
+            throw new IllegalStateException("Cannot encode the game", ex);
+        }
+        return bytes.toByteArray();
+    }
+
+
+    /**
+     * Restores a game from a snapshot.
+     *
+     * @param data              the snapshot
+     * @return                  the restored game
+     * @throws IOException      if the snapshot is malformed or of an unsupported version
+     */
+    static GameSnapshot decode(byte[] data) throws IOException{
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if(in.readInt() != MAGIC){
+            throw new IOException("Not a game snapshot");
+        }
+        byte version = in.readByte();
+        if(version != VERSION){
+            throw new IOException("Unsupported game snapshot version " + version);
+        }
+        try {
+            Board board = BoardConfigurer.configureMap(in.readByte());
+            boolean frenzy = in.readBoolean();
+            int frenzyActivator = in.readByte();
+            int currentPlayer = in.readByte();
+            List<String> names = new ArrayList<>();
+            int nameCount = in.readByte();
+            for(int i = 0; i < nameCount; i++){
+                names.add(in.readUTF());
+            }
+            WeaponFactory weapons = new WeaponFactory(board);
+            PowerUpFactory powerUps = new PowerUpFactory(board);
+
+            int playerCount = in.readByte();
+            for(int i = 0; i < playerCount; i++){
+                board.getPlayers().add(readPlayer(in, board, weapons, powerUps));
+            }
+            for(Player p : board.getPlayers()){
+                p.setDamages(readIds(in, board));
+                p.setMarks(readIds(in, board));
+            }
+
+            BoardConfigurer.configureKillShotTrack(in.readByte(), board);
+            board.getKillShotTrack().getKillers().addAll(readIds(in, board));
+
+            for(Square s : board.getMap()){
+                if(s instanceof WeaponSquare){
+                    List<Weapon> onSquare = new ArrayList<>();
+                    for(Card c : readCards(in, weapons, powerUps)){
+                        onSquare.add((Weapon) c);
+                    }
+                    ((WeaponSquare) s).setWeapons(onSquare);
+                }else if(in.readBoolean()){
+                    ((AmmoSquare) s).setAmmoTile((AmmoTile) readCard(in, weapons, powerUps));
+                }
+            }
+
+            for(Deck d : decks(board)){
+                d.getDrawable().addAll(readCards(in, weapons, powerUps));
+                d.getDiscarded().addAll(readCards(in, weapons, powerUps));
+            }
+            if(currentPlayer >= board.getPlayers().size() || names.size() != board.getPlayers().size()){
+                throw new IOException("Inconsistent game snapshot");
+            }
+            board.setCurrentPlayer(board.getPlayers().get(currentPlayer));
+            return new GameSnapshot(board, Collections.unmodifiableList(names), currentPlayer, frenzy, frenzyActivator);
+        }catch (NotAvailableAttributeException | IllegalArgumentException | IndexOutOfBoundsException | ClassCastException ex){
+            throw new IOException("Malformed game snapshot", ex);
+        }
+    }
+
+
+    /**
+     * Lists the decks of a Board, in the order they are saved.
+     *
+     * @param board         the Board
+     * @return              the weapon, power up and ammo decks
+     */
+    private static Deck[] decks(Board board){
+        return new Deck[]{board.getWeaponDeck(), board.getPowerUpDeck(), board.getAmmoDeck()};
+    }
+
+
+    /**
+     * Writes everything about a player but his damages and marks, which refer to the other players.
+     *
+     * @param out           the stream
+     * @param p             the player
+     * @throws IOException  if writing fails
+     */
+    private static void writePlayer(DataOutputStream out, Player p) throws IOException {
+        out.writeByte(p.getId());
+        out.writeByte(p.getName().ordinal());
+        out.writeUTF(p.getUsername());
+        out.writeByte(p.getStatus().ordinal());
+        out.writeInt(p.getPoints());
+        out.writeBoolean(p.isDead());
+        out.writeBoolean(p.isFlipped());
+        out.writeByte(p.getDeaths());
+        out.writeByte(p.getPointsToGive());
+        out.writeBoolean(p.isJustDamaged());
+        out.writeBoolean(p.isOverkilled());
+        out.writeBoolean(p.isInGame());
+        out.writeByte(p.getPreviousPosition() == null ? NO_SQUARE : p.getPreviousPosition().getId());
+        out.writeByte(positionOf(p));
+        AmmoPack ammo = p.getAmmoPack();
+        out.writeByte(ammo.getRedAmmo());
+        out.writeByte(ammo.getBlueAmmo());
+        out.writeByte(ammo.getYellowAmmo());
+        writeCards(out, p.getWeaponList());
+        writeCards(out, p.getPowerUpList());
+    }
+
+
+    /**
+     * Reads everything about a player but his damages and marks, and places him on the Board.
+     *
+     * @param in            the stream
+     * @param board         the restored Board
+     * @param weapons       the factory of the weapons of the Board
+     * @param powerUps      the factory of the power ups of the Board
+     * @return              the player
+     * @throws IOException  if reading fails
+     */
+    private static Player readPlayer(DataInputStream in, Board board, WeaponFactory weapons, PowerUpFactory powerUps) throws IOException {
+        Player p = new Player(in.readByte(), Player.HeroName.values()[in.readByte()], board);
+        p.setUsername(in.readUTF());
+        p.setStatus(Player.Status.values()[in.readByte()]);
+        p.setPoints(in.readInt());
+        p.setDead(in.readBoolean());
+        p.setFlipped(in.readBoolean());
+        p.setDeaths(in.readByte());
+        p.setPointsToGive(in.readByte());
+        p.setJustDamaged(in.readBoolean());
+        p.setOverkilled(in.readBoolean());
+        p.setInGame(in.readBoolean());
+        int previous = in.readByte();
+        int position = in.readByte();
+        if(position != NO_SQUARE){
+            if(previous != NO_SQUARE){
+                p.setPosition(square(board, previous));
+            }
+            p.setPosition(square(board, position));
+        }
+        p.setAmmoPack(new AmmoPack(in.readByte(), in.readByte(), in.readByte()));
+        List<Weapon> weaponList = new ArrayList<>();
+        for(Card c : readCards(in, weapons, powerUps)){
+            Weapon w = (Weapon) c;
+            w.setHolder(p);
+            weaponList.add(w);
+        }
+        p.setWeaponList(weaponList);
+        List<PowerUp> powerUpList = new ArrayList<>();
+        for(Card c : readCards(in, weapons, powerUps)){
+            powerUpList.add((PowerUp) c);
+        }
+        p.setPowerUpList(powerUpList);
+        return p;
+    }
+
+
+    /**
+     * Finds the square of a player.
+     *
+     * @param p             the player
+     * @return              the id of his square, NO_SQUARE if he is not on the Board
+     */
+    private static int positionOf(Player p){
+        try {
+            return p.getPosition().getId();
+        }catch (NotAvailableAttributeException ex){
+            return NO_SQUARE;
+        }
+    }
+
+
+    /**
+     * Finds a square of the Board.
+     *
+     * @param board         the Board
+     * @param id            the id of the square
+     * @return              the square
+     */
+    private static Square square(Board board, int id){
+        for(Square s : board.getMap()){
+            if(s.getId() == id){
+                return s;
+            }
+        }
+        throw new IllegalArgumentException("No square " + id);
+    }
+
+
+    /**
+     * Writes a list of players as their ids.
+     *
+     * @param out           the stream
+     * @param players       the players
+     * @throws IOException  if writing fails
+     */
+    private static void writeIds(DataOutputStream out, List<Player> players) throws IOException {
+        out.writeByte(players.size());
+        for(Player p : players){
+            out.writeByte(p.getId());
+        }
+    }
+
+
+    /**
+     * Reads a list of players saved as their ids.
+     *
+     * @param in            the stream
+     * @param board         the Board the players belong to
+     * @return              the players
+     * @throws IOException  if reading fails
+     */
+    private static List<Player> readIds(DataInputStream in, Board board) throws IOException {
+        int count = in.readByte();
+        List<Player> players = new ArrayList<>(count);
+        for(int i = 0; i < count; i++){
+            int id = in.readByte();
+            Player found = null;
+            for(Player p : board.getPlayers()){
+                if(p.getId() == id){
+                    found = p;
+                }
+            }
+            if(found == null){
+                throw new IOException("No player " + id);
+            }
+            players.add(found);
+        }
+        return players;
+    }
+
+
+    /**
+     * Writes a list of cards.
+     *
+     * @param out           the stream
+     * @param cards         the cards
+     * @throws IOException  if writing fails
+     */
+    private static void writeCards(DataOutputStream out, List<? extends Card> cards) throws IOException {
+        out.writeByte(cards.size());
+        for(Card c : cards){
+            writeCard(out, c);
+        }
+    }
+
+
+    /**
+     * Writes a card: its kind and what is needed to create it again.
+     *
+     * @param out           the stream
+     * @param c             the card
+     * @throws IOException  if writing fails
+     */
+    private static void writeCard(DataOutputStream out, Card c) throws IOException {
+        if(c instanceof Weapon){
+            out.writeByte(WEAPON);
+            out.writeByte(((Weapon) c).getWeaponName().ordinal());
+            out.writeBoolean(((Weapon) c).isLoaded());
+        }else if(c instanceof PowerUp){
+            out.writeByte(POWER_UP);
+            out.writeByte(((PowerUp) c).getName().ordinal());
+            out.writeByte(((PowerUp) c).getColor().ordinal());
+        }else {
+            AmmoTile t = (AmmoTile) c;
+            out.writeByte(AMMO_TILE);
+            out.writeBoolean(t.hasPowerUp());
+            out.writeByte(t.getAmmoPack().getRedAmmo());
+            out.writeByte(t.getAmmoPack().getBlueAmmo());
+            out.writeByte(t.getAmmoPack().getYellowAmmo());
+        }
+    }
+
+
+    /**
+     * Reads a list of cards.
+     *
+     * @param in            the stream
+     * @param weapons       the factory of the weapons of the Board
+     * @param powerUps      the factory of the power ups of the Board
+     * @return              the cards
+     * @throws IOException  if reading fails
+     */
+    private static List<Card> readCards(DataInputStream in, WeaponFactory weapons, PowerUpFactory powerUps) throws IOException {
+        int count = in.readByte();
+        List<Card> cards = new ArrayList<>(count);
+        for(int i = 0; i < count; i++){
+            cards.add(readCard(in, weapons, powerUps));
+        }
+        return cards;
+    }
+
+
+    /**
+     * Reads a card and creates it again.
+     *
+     * @param in            the stream
+     * @param weapons       the factory of the weapons of the Board
+     * @param powerUps      the factory of the power ups of the Board
+     * @return              the card
+     * @throws IOException  if reading fails
+     */
+    private static Card readCard(DataInputStream in, WeaponFactory weapons, PowerUpFactory powerUps) throws IOException {
+        byte kind = in.readByte();
+        switch (kind){
+            case WEAPON:
+                Weapon w = weapons.createWeapon(Weapon.WeaponName.values()[in.readByte()]);
+                w.setLoaded(in.readBoolean());
+                return w;
+            case POWER_UP:
+                return powerUps.createPowerUp(PowerUp.PowerUpName.values()[in.readByte()], Color.values()[in.readByte()]);
+            case AMMO_TILE:
+                return new AmmoTile(in.readBoolean(), new AmmoPack(in.readByte(), in.readByte(), in.readByte()));
+            default:
+                throw new IOException("Unknown card kind " + kind);
+        }
+    }
+
+
+    /*
+     * Getters
+     */
+
+    Board getBoard() {
+        return board;
+    }
+
+    List<String> getNames() {
+        return names;
+    }
+
+    int getCurrentPlayer() {
+        return currentPlayer;
+    }
+
+    boolean isFrenzy() {
+        return frenzy;
+    }
+
+    int getFrenzyActivator() {
+        return frenzyActivator;
+    }
+}
@@ -0,0 +1,55 @@
+package it.polimi.ingsw.controller;
+
+import java.util.Arrays;
+
+/**
+ * Window of the latencies measured most recently, from which percentiles are computed. Each shard keeps its own,
+ * so that games hosted by different shards never record on the same monitor.
+ *
+ * @author marcobaga
+ */
+class LatencyRecorder {
+
+    private final long[] latencies;
+    private int count;
+    private int next;
+
+    private static final int DEFAULT_SAMPLES = 1024;
+
+    /**
+     * Standard constructor.
+     */
+    LatencyRecorder(){
+        this.latencies = new long[DEFAULT_SAMPLES];
+        this.count = 0;
+        this.next = 0;
+    }
+
+
+    /**
+     * Records a latency, replacing the oldest one if the window is full.
+     *
+     * @param millis        the latency in milliseconds
+     */
+    synchronized void record(long millis){
+        latencies[next] = millis;
+        next = (next + 1) % latencies.length;
+        count = Math.min(count + 1, latencies.length);
+    }
+
+
+    /**
+     * Computes a percentile of the latencies in the window.
+     *
+     * @param p             the percentile, between 0 and 1
+     * @return              the latency in milliseconds, 0 if nothing was recorded
+     */
+    synchronized long percentile(double p){
+        if(count == 0){
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        return sorted[(int) Math.min(count - 1L, (long) Math.ceil(p * count) - 1)];
+    }
+}
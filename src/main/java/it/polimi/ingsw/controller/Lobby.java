@@ -0,0 +1,170 @@
+package it.polimi.ingsw.controller;
+
+import it.polimi.ingsw.network.server.VirtualView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Waiting room for players who want a game of a given size, with its own matchmaking timer. Lobbies are managed by
+ * the Matchmaker: logins add players concurrently, while games are formed and the status of the lobby is broadcast
+ * by the matchmaking thread only.
+ *
+ * @author marcobaga
+ */
+class Lobby {
+
+    private final int minPlayers;
+    private final int maxPlayers;
+    private final List<VirtualView> waiting;
+    private final Timer timer;
+    private String lastStatus;
+
+    private static final String TIME_LEFT_MESSAGE = "Time left: ";
+    private static final String STARTING_GAME_MESSAGE = "Game about to start!";
+    private static final String WAITING_MESSAGE = "Waiting for more players";
+    private static final String CONNECTED_LIST_MESSAGE = "Connected players:";
+    private static final String ENTER = "\n";
+    private static final String TAB = "\t";
+
+    /**
+     * Standard constructor.
+     *
+     * @param minPlayers        players needed to start a game once the timer is over
+     * @param maxPlayers        players starting a game immediately
+     * @param matchmakingTime   seconds the lobby waits for more players once it has minPlayers
+     */
+    Lobby(int minPlayers, int maxPlayers, int matchmakingTime){
+        this.minPlayers = minPlayers;
+        this.maxPlayers = maxPlayers;
+        this.waiting = Collections.synchronizedList(new ArrayList<>());
+        this.timer = new Timer(matchmakingTime);
+        this.timer.reset();
+        this.lastStatus = "";
+    }
+
+
+    /**
+     * Adds a player to the lobby.
+     *
+     * @param p         the player
+     */
+    void add(VirtualView p){
+        waiting.add(p);
+    }
+
+
+    /**
+     * Removes the suspended players from the lobby.
+     *
+     * @return          the players removed
+     */
+    List<VirtualView> removeSuspended(){
+        List<VirtualView> removed = new ArrayList<>();
+        synchronized (waiting){
+            for(VirtualView p : waiting){
+                if(p.isSuspended()){
+                    removed.add(p);
+                }
+            }
+            waiting.removeAll(removed);
+        }
+        return removed;
+    }
+
+
+    /**
+     * Takes out of the lobby the players of all the games that can start now: full games first, then, if the timer
+     * ran out, one last game with everybody left, given that they are at least minPlayers. A wave of logins is
+     * therefore turned into games within a single call. Finally, the timer is started or stopped depending on the
+     * number of players left.
+     *
+     * @return          the players of each game to start, in order of arrival
+     */
+    List<List<VirtualView>> formGames(){
+        List<List<VirtualView>> games = new ArrayList<>();
+        synchronized (waiting){
+            while(waiting.size() >= maxPlayers || (timer.isOver() && waiting.size() >= minPlayers)){
+                List<VirtualView> selected = waiting.subList(0, Math.min(waiting.size(), maxPlayers));
+                games.add(new ArrayList<>(selected));
+                selected.clear();
+            }
+            if(waiting.size() < minPlayers){
+                timer.stop();
+            } else if(!timer.isRunning()){
+                timer.start();
+            }
+        }
+        return games;
+    }
+
+
+    /**
+     * Sends the status of the lobby to its players, unless it did not change since the last time. The message is
+     * built once for all of them.
+     */
+    void broadcastStatus(){
+        List<VirtualView> players = getPlayers();
+        String connected = describe(players);
+        String status = connected + TIME_LEFT_MESSAGE + timer.getTimeLeft() + ENTER +
+                (timer.isRunning() ? STARTING_GAME_MESSAGE : WAITING_MESSAGE);
+        if(!connected.isEmpty() && !lastStatus.equals(status)){
+            for(VirtualView v : players){
+                v.display(status);
+            }
+        }
+        lastStatus = status;
+    }
+
+
+    /**
+     * Formats a list of waiting players as a String.
+     *
+     * @param players   the players
+     * @return          the list of names, or an empty String if there are no players
+     */
+    static String describe(List<VirtualView> players){
+        if(players.isEmpty()){
+            return "";
+        }
+        StringBuilder bld = new StringBuilder();
+        bld.append(CONNECTED_LIST_MESSAGE);
+        for(VirtualView v : players){
+            bld.append(ENTER);
+            bld.append(TAB);
+            bld.append(v.getName());
+        }
+        bld.append(ENTER);
+        return bld.toString();
+    }
+
+
+    /**
+     * Copies the list of waiting players, which logins can modify concurrently.
+     *
+     * @return          a copy of the list
+     */
+    List<VirtualView> getPlayers(){
+        synchronized (waiting){
+            return new ArrayList<>(waiting);
+        }
+    }
+
+
+    /*
+     * Getters
+     */
+
+    List<VirtualView> getWaiting() {
+        return waiting;
+    }
+
+    int getMaxPlayers() {
+        return maxPlayers;
+    }
+
+    String getLastStatus() {
+        return lastStatus;
+    }
+}
@@ -0,0 +1,164 @@
+package it.polimi.ingsw.controller;
+
+import it.polimi.ingsw.network.server.VirtualView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static it.polimi.ingsw.controller.ServerMain.MAX_PLAYERS;
+import static it.polimi.ingsw.controller.ServerMain.MIN_PLAYERS;
+
+/**
+ * Matchmaking subsystem of the server. Players wait in lobbies according to the size of the game they prefer: a
+ * lobby for any size, from MIN_PLAYERS to MAX_PLAYERS, always exists, and a lobby for each of the sizes offered by
+ * the server can be added. Every lobby has its own timer and forms its games independently, all the games that can
+ * start at once. The status of the lobbies is sent to their players at most once per interval, so that a wave of
+ * logins does not flood the waiting players with lists.
+ *
+ * @author marcobaga
+ */
+class Matchmaker {
+
+    static final int ANY_SIZE = 0;
+
+    private final Map<Integer, Lobby> lobbies;
+    private final List<Integer> sizes;
+    private final long statusIntervalMillis;
+    private long lastBroadcast;
+
+    /**
+     * Standard constructor.
+     *
+     * @param matchmakingTime       seconds a lobby waits for more players once a game could start
+     * @param sizes                 sizes of game players can ask for, empty to only have the lobby for any size
+     * @param statusIntervalMillis  minimum time between two broadcasts of the status of the lobbies
+     */
+    Matchmaker(int matchmakingTime, List<Integer> sizes, long statusIntervalMillis){
+        this.lobbies = new LinkedHashMap<>();
+        this.sizes = Collections.unmodifiableList(new ArrayList<>(sizes));
+        this.statusIntervalMillis = statusIntervalMillis;
+        this.lastBroadcast = 0;
+        lobbies.put(ANY_SIZE, new Lobby(MIN_PLAYERS, MAX_PLAYERS, matchmakingTime));
+        for(int size : sizes){
+            if(size < MIN_PLAYERS || size > MAX_PLAYERS){
+                throw new IllegalArgumentException("Games must have between " + MIN_PLAYERS + " and " + MAX_PLAYERS + " players");
+            }
+            lobbies.put(size, new Lobby(size, size, matchmakingTime));
+        }
+    }
+
+
+    /**
+     * Parses the sizes of game offered to players, as written in the server properties.
+     *
+     * @param property      comma separated sizes, possibly empty
+     * @return              the sizes
+     */
+    static List<Integer> parseSizes(String property){
+        List<Integer> parsed = new ArrayList<>();
+        for(String s : property.split(",")){
+            if(!s.trim().isEmpty()){
+                parsed.add(Integer.parseInt(s.trim()));
+            }
+        }
+        return parsed;
+    }
+
+
+    /**
+     * Adds a player to the lobby of the size he prefers, or to the lobby for any size if there is none.
+     *
+     * @param p             the player
+     */
+    void add(VirtualView p){
+        lobbies.getOrDefault(p.getPreferredPlayers(), getDefaultLobby()).add(p);
+    }
+
+
+    /**
+     * Removes the suspended players from all lobbies.
+     *
+     * @return              the players removed
+     */
+    List<VirtualView> removeSuspended(){
+        List<VirtualView> removed = new ArrayList<>();
+        for(Lobby lobby : lobbies.values()){
+            removed.addAll(lobby.removeSuspended());
+        }
+        return removed;
+    }
+
+
+    /**
+     * Empties all lobbies.
+     */
+    void clear(){
+        for(Lobby lobby : lobbies.values()){
+            lobby.getWaiting().clear();
+        }
+    }
+
+
+    /**
+     * Takes out of the lobbies the players of all the games that can start now.
+     *
+     * @return              the players of each game to start
+     */
+    List<List<VirtualView>> formGames(){
+        List<List<VirtualView>> games = new ArrayList<>();
+        for(Lobby lobby : lobbies.values()){
+            games.addAll(lobby.formGames());
+        }
+        return games;
+    }
+
+
+    /**
+     * Sends to the players of each lobby its status, if the interval since the last broadcast elapsed.
+     *
+     * @param now           the current time in milliseconds
+     */
+    void broadcastStatus(long now){
+        if(now - lastBroadcast < statusIntervalMillis){
+            return;
+        }
+        lastBroadcast = now;
+        for(Lobby lobby : lobbies.values()){
+            lobby.broadcastStatus();
+        }
+    }
+
+
+    /**
+     * Returns the players waiting in any lobby, formatted as a String.
+     *
+     * @return              a String containing all players waiting for a game
+     */
+    String describeWaiting(){
+        List<VirtualView> waiting = new ArrayList<>();
+        for(Lobby lobby : lobbies.values()){
+            waiting.addAll(lobby.getPlayers());
+        }
+        return Lobby.describe(waiting);
+    }
+
+
+    /*
+     * Getters
+     */
+
+    Lobby getDefaultLobby() {
+        return lobbies.get(ANY_SIZE);
+    }
+
+    Lobby getLobby(int size) {
+        return lobbies.get(size);
+    }
+
+    List<Integer> getSizes() {
+        return sizes;
+    }
+}
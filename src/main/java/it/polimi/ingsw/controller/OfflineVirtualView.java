@@ -0,0 +1,63 @@
+package it.polimi.ingsw.controller;
+
+import com.google.gson.JsonObject;
+import it.polimi.ingsw.model.EncodedUpdate;
+import it.polimi.ingsw.network.server.VirtualView;
+
+import java.util.List;
+
+/**
+ * A player without a client: a player of a replayed game, or the place of a player in a game restored from a
+ * snapshot until he resumes. Everything the game shows him is ignored.
+ *
+ * @author marcobaga
+ */
+class OfflineVirtualView extends VirtualView {
+
+    /**
+     * Standard constructor.
+     *
+     * @param name      the name of the player
+     */
+    OfflineVirtualView(String name){
+        super();
+        setName(name);
+    }
+
+    @Override
+    public void refresh() { }
+
+    @Override
+    public void shutdown() { }
+
+    @Override
+    public void showSuspension() { }
+
+    @Override
+    public void showEnd(String message) { }
+
+    @Override
+    public void choose(String type, String msg, List<?> options) { }
+
+    @Override
+    public void choose(String type, String msg, List<?> options, int timeoutSec) { }
+
+    @Override
+    public void display(String msg) { }
+
+    @Override
+    public String getInputNow(String msg, int max) {
+        return "";
+    }
+
+    @Override
+    public int chooseNow(String type, String msg, List<?> options) {
+        return 1;
+    }
+
+    @Override
+    public void update(JsonObject jsonObject) { }
+
+    @Override
+    public void update(EncodedUpdate update) { }
+}
@@ -8,13 +8,16 @@ import it.polimi.ingsw.model.cards.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static it.polimi.ingsw.model.board.Board.Direction;
 
 /**
- * Simple factory class used to create power ups.
+ * Simple factory class used to create power ups. The definition of each kind of power up is created once and shared
+ * by the power ups of every game: its lambdas reach the board through the players they are given.
  *
  * @author  marcobaga
  */
@@ -26,6 +29,13 @@ public class PowerUpFactory  {
     private static final String TARGETING_SCOPE_DMG = "targetingScopeDmg";
     private static final String NEWTON_MAX_DISTANCE = "newtonMaxDistance";
     private static final String TAGBACK_GRENADE_MARKS = "tagbackGrenadeMarks";
+    private static final Map<PowerUp.PowerUpName, PowerUpDefinition> DEFINITIONS = new EnumMap<>(PowerUp.PowerUpName.class);
+
+    static {
+        for (PowerUp.PowerUpName powerUpName : PowerUp.PowerUpName.values()) {
+            DEFINITIONS.put(powerUpName, createDefinition(powerUpName));
+        }
+    }
 
 
     /**
@@ -37,14 +47,25 @@ public class PowerUpFactory  {
 
 
     /**
-     *Creates a PowerUp object according to its name. The main purpose is that of assigning a lambda function to the three
-     * most important attributes, that are vital to functioning correctly (effect, targetFinder and destinationFinder).
+     *Creates a PowerUp object according to its name, sharing the definition of its kind.
      *
      * @param  powerUpName  the name of the power up to be created
      * @param  color        the color of the power up
      * @return              the PowerUp object created
      */
     public PowerUp createPowerUp(PowerUp.PowerUpName powerUpName, Color color) {
+        return new PowerUp(DEFINITIONS.get(powerUpName), color, board);
+    }
+
+
+    /**
+     * Creates the definition of a kind of power up. The main purpose is that of assigning a lambda function to the three
+     * most important attributes, that are vital to functioning correctly (effect, targetFinder and destinationFinder).
+     *
+     * @param  powerUpName  the name of the power up
+     * @return              the definition of the power up
+     */
+    private static PowerUpDefinition createDefinition(PowerUp.PowerUpName powerUpName) {
 
         Effect effect;
         DestinationFinder destinationFinder;
@@ -53,7 +74,7 @@ public class PowerUpFactory  {
         switch (powerUpName) {
             case TARGETING_SCOPE:
                 effect = (shooter, target, destination)-> target.sufferDamageNoMarksExtra(j.getInt(TARGETING_SCOPE_DMG), shooter);
-                targetFinder = p -> board.getPlayers().stream()
+                targetFinder = p -> p.getBoard().getPlayers().stream()
                         .filter(Player::isJustDamaged)
                         .distinct()
                         .map(Arrays::asList)
@@ -63,7 +84,7 @@ public class PowerUpFactory  {
 
             case NEWTON:
                 effect = (shooter, target, destination)-> target.setPosition(destination);
-                targetFinder = p -> board.getActivePlayers().stream()
+                targetFinder = p -> p.getBoard().getActivePlayers().stream()
                         .filter(x->!x.equals(p))
                         .distinct()
                         .map(Arrays::asList)
@@ -75,8 +96,8 @@ public class PowerUpFactory  {
                     List<Square> res = new ArrayList<>();
                     Square center = t.get(0).getPosition();
                     for (Direction d : Direction.values()) {
-                        res.addAll(board.getSquaresInLine(center, d).stream()
-                                .filter(x->board.getDistance(center, x)< j.getInt(NEWTON_MAX_DISTANCE))
+                        res.addAll(p.getBoard().getSquaresInLine(center, d).stream()
+                                .filter(x->p.getBoard().getDistance(center, x)< j.getInt(NEWTON_MAX_DISTANCE))
                                 .filter(x->!x.equals(center))
                                 .collect(Collectors.toList()));
                     }
@@ -86,22 +107,22 @@ public class PowerUpFactory  {
 
             case TAGBACK_GRENADE:
                 effect = (shooter, target, destination)-> target.addMarks(j.getInt(TAGBACK_GRENADE_MARKS), shooter);
-                targetFinder = p -> !p.isJustDamaged()? new ArrayList<>():Collections.singletonList(Collections.singletonList(board.getCurrentPlayer()));
+                targetFinder = p -> !p.isJustDamaged()? new ArrayList<>():Collections.singletonList(Collections.singletonList(p.getBoard().getCurrentPlayer()));
                 destinationFinder = (p, t) -> new ArrayList<>();
                 break;
 
             case TELEPORTER:
                 effect = (shooter, target, destination)-> target.setPosition(destination);
                 targetFinder = p -> Collections.singletonList(Collections.singletonList(p));
-                destinationFinder = (p, t) -> board.getMap();
+                destinationFinder = (p, t) -> p.getBoard().getMap();
                 break;
 
             default:
                 effect = (shooter, target, destination)-> shooter.setPosition(destination);
                 targetFinder = p -> Collections.singletonList(Collections.singletonList(p));
-                destinationFinder = (p, t) -> board.getMap();
+                destinationFinder = (p, t) -> p.getBoard().getMap();
                 break;
         }
-        return new PowerUp(powerUpName, destinationFinder, targetFinder, effect, color, board);
+        return new PowerUpDefinition(powerUpName, destinationFinder, targetFinder, effect);
     }
 }
@@ -1,13 +1,33 @@
 package it.polimi.ingsw.controller;
 
+import it.polimi.ingsw.model.Updater;
+import it.polimi.ingsw.network.TunedSocketFactory;
+import it.polimi.ingsw.network.node.NodeRouter;
+import it.polimi.ingsw.network.server.HandshakeDriver;
+import it.polimi.ingsw.network.server.HandshakeLimiter;
+import it.polimi.ingsw.network.server.Heartbeat;
+import it.polimi.ingsw.network.server.OutboundQueue;
 import it.polimi.ingsw.network.server.VirtualView;
 import it.polimi.ingsw.network.server.RMIServer;
 import it.polimi.ingsw.network.server.TCPServer;
+import it.polimi.ingsw.network.server.TCPVirtualView;
+import it.polimi.ingsw.network.server.UnixSocketServer;
 
 import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -22,15 +42,23 @@ public class ServerMain {
 
     private static ServerMain instance;
     private List <VirtualView> players;
-    private List <VirtualView> waitingPlayers;
-    private List <GameEngine> currentGames;
+    private Matchmaker matchmaker;
+    private AdmissionController admission;
+    private Shard[] shards;
+    private final Map<GameEngine, Shard> shardOf;
+    private NodeRouter nodes;
+    private final Map<String, VirtualView> playersByName;
+    private Set<GameEngine> currentGames;
     private TCPServer tcpServer;
     private RMIServer rmiServer;
-    private Timer timer;
+    private UnixSocketServer unixSocketServer;
+    private Heartbeat heartbeat;
+    private HandshakeDriver handshakes;
     private ExecutorService executor;
     private BufferedReader in;
     private boolean running;
-    private String oldMessage;
+    private final Map<String, String> sessions;
+    private long sessionRetentionMillis;
 
     private static final Logger LOGGER = Logger.getLogger("serverLogger");
     public static final int SLEEP_TIMEOUT = 100;
@@ -39,33 +67,38 @@ public class ServerMain {
 
     public static final int MAX_PLAYERS = 5;
     public static final int MIN_PLAYERS = 3;
+    private static final int DEFAULT_SESSION_RETENTION = 120;
+    private static final int DEFAULT_MATCHMAKING_TIME = 60;
+    private static final int DEFAULT_LOBBY_STATUS_INTERVAL = 1000;
+    private static final int DEFAULT_GAME_MINUTES = 30;
 
     private static final String SETUP_COMPLETED_MESSAGE = "Setup completed, starting matchmaking, press q to quit";
     private static final String QUITTING_MESSAGE = "Quitting";
     private static final String QUIT_KEY = "q";
     private static final String QUITTING_PROMPT = "Press q to quit";
     private static final String GAME_STARTED_MESSAGE = "Game started with ";
-    private static final String TIME_LEFT_MESSAGE = "Time left: ";
-    private static final String STARTING_GAME_MESSAGE = "Game about to start!";
-    private static final String WAITING_MESSAGE = "Waiting for more players";
-    private static final String CONNECTED_LIST_MESSAGE = "Connected players:";
-
-    private static final String ENTER = "\n";
-    private static final String TAB = "\t";
 
 
     /**
      * Standard private constructor.
      */
     private ServerMain(){
-        players = new ArrayList<>();
-        waitingPlayers = new ArrayList<>();
-        currentGames = new ArrayList<>();
+        players = new CopyOnWriteArrayList<>();
+        matchmaker = new Matchmaker(DEFAULT_MATCHMAKING_TIME, Collections.emptyList(), DEFAULT_LOBBY_STATUS_INTERVAL);
+        admission = new AdmissionController(0, 0, 0, DEFAULT_GAME_MINUTES);
+        shards = createShards(Runtime.getRuntime().availableProcessors());
+        shardOf = new ConcurrentHashMap<>();
+        nodes = new NodeRouter(this::untrackRemoteGame);
+        playersByName = new ConcurrentHashMap<>();
+        currentGames = ConcurrentHashMap.newKeySet();
         tcpServer = null;
         rmiServer = null;
-        timer = null;
+        heartbeat = new Heartbeat();
+        handshakes = new HandshakeDriver(new HandshakeLimiter(HandshakeDriver.DEFAULT_MAX_PENDING,
+                HandshakeDriver.DEFAULT_RATE, HandshakeDriver.DEFAULT_BURST));
         executor = Executors.newCachedThreadPool();
-        oldMessage = "";
+        sessions = new ConcurrentHashMap<>();
+        sessionRetentionMillis = TimeUnit.SECONDS.toMillis(DEFAULT_SESSION_RETENTION);
     }
 
 
@@ -85,29 +118,62 @@ public class ServerMain {
     /**
      * Getter for currentGames. Only for testing.
      *
-     * @return the list of current games.
+     * @return the set of current games.
      */
-    List<GameEngine> getCurrentGames() {
+    Set<GameEngine> getCurrentGames() {
         return currentGames;
     }
 
 
     /**
-     * Getter for waitingPlayers. Only for testing.
+     * Getter for the players waiting in the lobby for any size of game. Only for testing.
      *
      * @return the list of waiting players.
      */
     List<VirtualView> getWaitingPlayers() {
-        return waitingPlayers;
+        return matchmaker.getDefaultLobby().getWaiting();
     }
 
 
     /**
-     * Getter for oldMessage. Only for testing.
+     * Getter for the heartbeat shared by all connections.
+     *
+     * @return the heartbeat checking the liveness of clients.
+     */
+    public Heartbeat getHeartbeat() { return heartbeat; }
+
+
+    /**
+     * Getter for the driver of the login handshakes of socket connections.
+     *
+     * @return the driver shared by TCP and Unix domain socket servers.
+     */
+    public HandshakeDriver getHandshakes() { return handshakes; }
+
+
+    /**
+     * Getter for the shard hosting a game. Only for testing.
+     *
+     * @param engine the game
+     * @return the shard, or null if the game is not hosted.
+     */
+    Shard getShard(GameEngine engine) { return shardOf.get(engine); }
+
+
+    /**
+     * Getter for the last status of the lobby for any size of game. Only for testing.
      *
-     * @return the value of oldMessage.
+     * @return the last status sent.
      */
-    String getOldMessage() { return oldMessage; }
+    String getOldMessage() { return matchmaker.getDefaultLobby().getLastStatus(); }
+
+
+    /**
+     * Getter for the sizes of game players can choose from.
+     *
+     * @return the sizes, empty if players cannot choose
+     */
+    public List<Integer> getLobbySizes() { return matchmaker.getSizes(); }
 
     /**
      * Main method instantiating TCP (on a different thread) and RMI servers. It runs a main loop checking for user input
@@ -124,6 +190,7 @@ public class ServerMain {
             sm.manageInput();
             sm.refreshConnections();
             sm.removeSuspendedPlayers();
+            sm.nodes.check(System.currentTimeMillis());
             sm.matchmaking();
             try {
                 TimeUnit.MILLISECONDS.sleep(SLEEP_TIMEOUT);
@@ -148,15 +215,75 @@ public class ServerMain {
 
         System.setProperty("java.rmi.server.hostname",prop.getProperty("myIP", "localhost"));
 
+        OutboundQueue.configure(Integer.parseInt(prop.getProperty("outboundQueueCapacity", String.valueOf(OutboundQueue.DEFAULT_CAPACITY))),
+                OutboundQueue.OverflowPolicy.valueOf(prop.getProperty("outboundOverflowPolicy", "COALESCE_MODEL")));
+
+        this.sessionRetentionMillis = TimeUnit.SECONDS.toMillis(Integer.parseInt(prop.getProperty("sessionRetention",
+                String.valueOf(DEFAULT_SESSION_RETENTION))));
+
+        TCPVirtualView.configure(Boolean.parseBoolean(prop.getProperty("binaryWire", "true")),
+                Boolean.parseBoolean(prop.getProperty("tcpCompression", "true")),
+                Integer.parseInt(prop.getProperty("compressionThreshold", "512")));
+
+        this.handshakes = new HandshakeDriver(new HandshakeLimiter(
+                Integer.parseInt(prop.getProperty("maxPendingHandshakes", String.valueOf(HandshakeDriver.DEFAULT_MAX_PENDING))),
+                Double.parseDouble(prop.getProperty("handshakeRate", String.valueOf(HandshakeDriver.DEFAULT_RATE))),
+                Integer.parseInt(prop.getProperty("handshakeBurst", String.valueOf(HandshakeDriver.DEFAULT_BURST)))),
+                TimeUnit.SECONDS.toMillis(Long.parseLong(
+                        prop.getProperty("handshakeTimeout", String.valueOf(HandshakeDriver.DEFAULT_TIMEOUT)))));
+        this.handshakes.start();
+        LOGGER.log(Level.FINE, "Handshake driver started");
+
         this.tcpServer = new TCPServer(Integer.parseInt(prop.getProperty("TCPPort", "4197")));
         this.executor.submit(this.tcpServer);
-        this.rmiServer = new RMIServer(Integer.parseInt(prop.getProperty("RMIPort", "3993")));
+        this.rmiServer = new RMIServer(Integer.parseInt(prop.getProperty("RMIPort", "3993")),
+                new TunedSocketFactory(Boolean.parseBoolean(prop.getProperty("rmiNoDelay", "true")),
+                        Integer.parseInt(prop.getProperty("rmiBufferSize", "65536")),
+                        Boolean.parseBoolean(prop.getProperty("rmiCompression", "false"))));
         this.rmiServer.setup();
         LOGGER.log(Level.FINE, "TCPServer and RMIServer running");
 
-        this.timer = new Timer(Integer.parseInt(prop.getProperty("matchmakingTime", "60")));
-        this.timer.reset();
-        LOGGER.log(Level.FINE, "Timer initialized");
+        String unixSocket = prop.getProperty("unixSocket", "").trim();
+        if(!unixSocket.isEmpty()){
+            this.unixSocketServer = new UnixSocketServer(Paths.get(unixSocket));
+            this.executor.submit(this.unixSocketServer);
+        }
+
+        this.heartbeat.start();
+        LOGGER.log(Level.FINE, "Heartbeat started");
+
+        this.matchmaker = new Matchmaker(Integer.parseInt(prop.getProperty("matchmakingTime", String.valueOf(DEFAULT_MATCHMAKING_TIME))),
+                Matchmaker.parseSizes(prop.getProperty("lobbySizes", "")),
+                Integer.parseInt(prop.getProperty("lobbyStatusInterval", String.valueOf(DEFAULT_LOBBY_STATUS_INTERVAL))));
+        LOGGER.log(Level.FINE, "Lobbies initialized");
+
+        this.admission = new AdmissionController(Integer.parseInt(prop.getProperty("maxGames", "0")),
+                Double.parseDouble(prop.getProperty("maxLoadPerCore", "0")),
+                Long.parseLong(prop.getProperty("maxAnswerLatency", "0")),
+                Integer.parseInt(prop.getProperty("expectedGameMinutes", String.valueOf(DEFAULT_GAME_MINUTES))));
+        LOGGER.log(Level.FINE, "Admission control initialized");
+
+        int shardCount = Integer.parseInt(prop.getProperty("shards", "0"));
+        this.shards = createShards(shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors());
+        for(Shard shard : shards){
+            shard.start();
+        }
+        LOGGER.log(Level.FINE, "{0} shards started", shards.length);
+
+        String snapshotDir = prop.getProperty("snapshotDir", "").trim();
+        if(!snapshotDir.isEmpty()){
+            restoreGames(Paths.get(snapshotDir));
+        }
+
+        int nodeCount = Integer.parseInt(prop.getProperty("gameNodes", "0"));
+        for(int i = 0; i < nodeCount; i++){
+            try {
+                nodes.startNode();
+            }catch(IOException ex){
+                LOGGER.log(Level.SEVERE, "Cannot start a game node", ex);
+            }
+        }
+        LOGGER.log(Level.FINE, "{0} game nodes started", nodes.getHealthyNodes());
 
         this.in = new BufferedReader(new InputStreamReader(System.in));
         this.running = true;
@@ -170,18 +297,80 @@ public class ServerMain {
      */
     void untrackGame(GameEngine engine){
         currentGames.remove(engine);
+        admission.finished(engine, System.currentTimeMillis());
+        Shard shard = shardOf.remove(engine);
+        if(shard != null){
+            shard.release(engine);
+        }
         players.removeAll(engine.getPlayers());
+        for(VirtualView p : engine.getPlayers()){
+            playersByName.remove(p.getName(), p);
+            closeSession(p.getName());
+        }
     }
 
 
     /**
-     * Adds a player to the waiting list. A waiting list exist at all times and, when it reach a sufficient sizes,
-     * a set of players is removed from it and starts a game.
+     * Restores the games whose snapshots were left by a previous run of the server, which did not end them. Their
+     * players are suspended, and can resume as if they had lost their connection.
+     *
+     * @param directory     the directory of the snapshots
+     */
+    void restoreGames(Path directory){
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SnapshotFile.EXTENSION)) {
+            for (Path file : files) {
+                try {
+                    GameSnapshot snapshot = GameSnapshot.decode(SnapshotFile.latest(Files.readAllBytes(file)));
+                    List<VirtualView> restored = new ArrayList<>();
+                    for (String name : snapshot.getNames()) {
+                        restored.add(new OfflineVirtualView(name));
+                    }
+                    GameEngine engine = new GameEngine(restored);
+                    engine.restore(snapshot, SnapshotFile.reopen(file));
+                    for (VirtualView p : restored) {
+                        playersByName.put(p.getName(), p);
+                        players.add(p);
+                    }
+                    admission.started(engine, System.currentTimeMillis());
+                    host(engine);
+                    LOGGER.log(Level.INFO, "Restored the game of {0}", snapshot.getNames());
+                } catch (IOException ex) {
+                    LOGGER.log(Level.SEVERE, "Cannot restore the game in " + file, ex);
+                }
+            }
+        } catch (NoSuchFileException ex) {
+            LOGGER.log(Level.FINE, "No snapshots to restore");
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Cannot read the snapshots", ex);
+        }
+    }
+
+
+    /**
+     * Removes a game hosted by a game node from tracked ones, once the node tells it is over or fails.
+     *
+     * @param id            the id of the game
+     * @param gamePlayers   the connections of its players to this server
+     */
+    void untrackRemoteGame(Integer id, List<VirtualView> gamePlayers){
+        admission.finished(id, System.currentTimeMillis());
+        players.removeAll(gamePlayers);
+        for(VirtualView p : gamePlayers){
+            playersByName.remove(p.getName(), p);
+            closeSession(p.getName());
+        }
+    }
+
+
+    /**
+     * Adds a player to the lobby of the game size he prefers. When a lobby reaches a sufficient size, a set of
+     * players is removed from it and starts a game.
      *
      * @param p             the player to be added
      */
     void addPlayer(VirtualView p){
-        waitingPlayers.add(p);
+        playersByName.put(p.getName(), p);
+        matchmaker.add(p);
         players.add(p);
         LOGGER.log(Level.FINE, "Player added: " + p.getName());
     }
@@ -189,19 +378,20 @@ public class ServerMain {
 
     /**
      * Checks if a player can be added to the waiting list and, if it can, adds it. His name must not be already taken.
+     * The name is reserved atomically in the index of names, so that logins neither scan the players nor wait for
+     * the matchmaking.
      *
      * @param p             the player attempting to log in
      * @return              true if login was successful, false if somebody else logged in
      */
-    public synchronized boolean login( VirtualView p){
+    public boolean login( VirtualView p){
         LOGGER.log(Level.FINE, "Someone is attempting to login as {0}.", p.getName());
-        for(VirtualView pc : players){
-            if(pc.getName().equals(p.getName())){
-                LOGGER.log(Level.FINE, "Login unsuccessful for {0}.", p.getName());
-                return false;
-            }
+        if(playersByName.putIfAbsent(p.getName(), p) != null){
+            LOGGER.log(Level.FINE, "Login unsuccessful for {0}.", p.getName());
+            return false;
         }
         addPlayer(p);
+        openSession(p);
         LOGGER.log(Level.INFO,"{0} logged in", p.getName());
         return true;
     }
@@ -213,29 +403,109 @@ public class ServerMain {
      * @param name          the player's name
      * @return              true if the player can resume his game, else false
      */
-    public synchronized boolean canResume(String name){
-        for(VirtualView p : players){
-            if (p.getName().equals(name) && p.isSuspended()){
-                return true;
-            }
+    public boolean canResume(String name){
+        VirtualView p = playersByName.get(name);
+        return p != null && p.isSuspended();
+    }
+
+
+    /**
+     * Resumes a player's game, given that he canResume(). The request is routed to the game of the suspended player
+     * with the same name, either in this process or on the game node hosting it.
+     *
+     * @param p             the player attempting to resume
+     * @return              true if the operation was successful, else false
+     */
+    public boolean resume(VirtualView p) {
+        VirtualView old = playersByName.get(p.getName());
+        GameEngine g = old == null ? null : old.getGame();
+        if (g != null && g.tryResuming(p)) {
+            closeSession(p.getName());
+            openSession(p);
+            return true;
+        }
+        if (g == null && old != null && nodes.resume(old, p)) {
+            replacePlayer(old, p);
+            closeSession(p.getName());
+            openSession(p);
+            return true;
         }
         return false;
     }
 
 
     /**
-     * Resumes a player's game, given that he canResume().
+     * Replaces the connection of a player who resumed, once his game accepted the new one.
+     *
+     * @param old           the connection of the suspended player
+     * @param resumed       the new connection
+     */
+    void replacePlayer(VirtualView old, VirtualView resumed){
+        players.remove(old);
+        players.add(resumed);
+        playersByName.replace(old.getName(), old, resumed);
+        Shard shard = resumed.getGame() == null ? null : shardOf.get(resumed.getGame());
+        if(shard != null){
+            shard.replace(old, resumed);
+        }
+    }
+
+
+    /**
+     * Resumes a player's game on a new connection, after the client lost the previous one. The client proves its
+     * identity with the session token it was given, and states the sequence number of the first update it did not
+     * receive. If the player was suspended long ago, the client will be sent a complete model instead of the updates
+     * it missed.
      *
      * @param p             the player attempting to resume
+     * @param session       the session token and the sequence number, separated by a comma
      * @return              true if the operation was successful, else false
      */
-    public synchronized boolean resume(VirtualView p) {
-        for (GameEngine g : currentGames) {
-            if (g.tryResuming(p)) {
-                return true;
-            }
+    public boolean resumeSession(VirtualView p, String session){
+        String[] fields = session.split(VirtualView.SESSION_PREFIX);
+        if(fields.length != 2 || !sessions.containsKey(fields[0])){
+            LOGGER.log(Level.INFO, "Unknown session, cannot resume");
+            return false;
         }
-        return false;
+        long seq;
+        try {
+            seq = Long.parseLong(fields[1]);
+        }catch(NumberFormatException ex){
+            LOGGER.log(Level.INFO, "Malformed session, cannot resume", ex);
+            return false;
+        }
+        String name = sessions.get(fields[0]);
+        VirtualView old = name == null ? null : playersByName.get(name);
+        if(old == null || (old.getGame() == null && !nodes.hosts(old))){
+            return false;
+        }
+        old.suspend();
+        boolean recent = System.currentTimeMillis() - old.getSuspendedAt() <= sessionRetentionMillis;
+        p.takeOverSession(old, recent ? seq : -1);
+        LOGGER.log(Level.INFO, "{0} is resuming a session", name);
+        return resume(p);
+    }
+
+
+    /**
+     * Gives a player a new session token, which its client can use to resume after losing the connection.
+     *
+     * @param p             the player
+     */
+    private void openSession(VirtualView p){
+        String token = UUID.randomUUID().toString();
+        sessions.put(token, p.getName());
+        p.update(Updater.getSession(token));
+    }
+
+
+    /**
+     * Invalidates the session tokens of a player.
+     *
+     * @param name          the name of the player
+     */
+    private void closeSession(String name){
+        sessions.values().removeIf(name::equals);
     }
 
 
@@ -244,12 +514,15 @@ public class ServerMain {
      * as they have not made any progress in any running game.
      */
     synchronized void removeSuspendedPlayers(){
-        for (VirtualView p : new ArrayList<>(waitingPlayers)){
-            if(p.isSuspended()){
-                players.remove(p);
-                waitingPlayers.remove(p);
-                LOGGER.log(Level.INFO, "{0} was removed", p.getName());
-            }
+        List<VirtualView> suspended = matchmaker.removeSuspended();
+        for (VirtualView p : admission.removeSuspended(suspended)){
+            matchmaker.add(p);
+        }
+        for (VirtualView p : suspended){
+            players.remove(p);
+            playersByName.remove(p.getName(), p);
+            closeSession(p.getName());
+            LOGGER.log(Level.INFO, "{0} was removed", p.getName());
         }
     }
 
@@ -259,7 +532,7 @@ public class ServerMain {
      *
      * @return              the comprehensive list of all players, waiting or in a game
      */
-    public synchronized List<VirtualView> getPlayers() {
+    public List<VirtualView> getPlayers() {
         return players;
     }
 
@@ -318,8 +591,20 @@ public class ServerMain {
                     running = false;
                     tcpServer.shutdown();
                     rmiServer.shutdown();
+                    if(unixSocketServer != null){
+                        unixSocketServer.shutdown();
+                    }
+                    heartbeat.shutdown();
+                    handshakes.shutdown();
                     players.clear();
-                    waitingPlayers.clear();
+                    matchmaker.clear();
+                    admission.clear();
+                    for(Shard shard : shards){
+                        shard.shutdown();
+                    }
+                    shardOf.clear();
+                    nodes.shutdown();
+                    playersByName.clear();
                     currentGames.clear();
                 }else{
                     System.out.println(QUITTING_PROMPT);
@@ -332,13 +617,14 @@ public class ServerMain {
 
 
     /**
-     * Refreshes connections: forwards TCP messages and checks for activity or client disconnection. This class mantains a list
-     * of all connection to waiting, active and suspended players and checks it periodically. Since it runs on a separate thread
-     * from all the GameEngines, this means that messages can be received asynchronously.
+     * Refreshes connections: forwards TCP messages and detects closed sockets. This class mantains a list
+     * of all connection to waiting, active and suspended players, but only refreshes the ones waiting for a game:
+     * players in a game are refreshed by the shard hosting it. Since it runs on a separate thread from all the
+     * GameEngines, this means that messages can be received asynchronously.
      */
     private void refreshConnections(){
-        for (VirtualView p : new ArrayList<>(this.players)) {
-            if(!p.isSuspended()){
+        for (VirtualView p : this.players) {
+            if(!p.isSuspended() && p.getGame() == null){
                 p.refresh();
             }
         }
@@ -346,35 +632,89 @@ public class ServerMain {
 
 
     /**
-     * Start a game if certain conditions are satisfied (more than MAX_PLAYERS waiting or more than MIN_PLAYERS waiting for long enough.
-     * It also handles the matchmaking timer and sends a list of waiting players to all waiting players.
+     * Creates the shards hosting the games.
+     *
+     * @param count         the number of shards
+     * @return              the shards, not started yet
+     */
+    private static Shard[] createShards(int count){
+        Shard[] created = new Shard[count];
+        for(int i = 0; i < count; i++){
+            created[i] = new Shard(i);
+        }
+        return created;
+    }
+
+
+    /**
+     * Chooses the shard for a new game: the one hosting fewest games.
+     *
+     * @return              the shard
+     */
+    private Shard leastLoadedShard(){
+        Shard chosen = shards[0];
+        for(Shard shard : shards){
+            if(shard.getLoad() < chosen.getLoad()){
+                chosen = shard;
+            }
+        }
+        return chosen;
+    }
+
+
+    /**
+     * Computes the answer latency of the games, as the worst one among the shards.
+     *
+     * @return              the 95th percentile of the latency of the slowest shard, in milliseconds
+     */
+    private long shardLatency(){
+        long latency = 0;
+        for(Shard shard : shards){
+            latency = Math.max(latency, shard.getLatency());
+        }
+        return latency;
+    }
+
+
+    /**
+     * Forms all the games that the lobbies allow: full games, and games with enough players whose lobby timer
+     * ran out. A wave of logins is therefore turned into games within a single tick. The games start if the
+     * admission controller accepts them, otherwise they are queued and their players are told how long they will
+     * wait. Games go to the game nodes while any of them is healthy, otherwise to the shards of this process.
+     * Then sends the status of each lobby to its players, at most once per interval.
      */
     synchronized void matchmaking(){
-        List <VirtualView> selectedPlayers = new ArrayList<>();
-        if (waitingPlayers.size() >= MAX_PLAYERS || (timer.isOver() && waitingPlayers.size() >= MIN_PLAYERS)) {
-            for (int i = 0; i < waitingPlayers.size() && i < MAX_PLAYERS; i++) {
-                selectedPlayers.add(waitingPlayers.get(i));
+        for(List<VirtualView> formed : matchmaker.formGames()) {
+            admission.enqueue(formed);
+        }
+        long now = System.currentTimeMillis();
+        for(List<VirtualView> selectedPlayers : admission.admit(AdmissionController.loadPerCore(), shardLatency())) {
+            int remote = nodes.host(selectedPlayers);
+            if(remote >= 0){
+                admission.started(remote, now);
+                System.out.println(GAME_STARTED_MESSAGE + selectedPlayers.size() + " players on a game node");
+                continue;
             }
-            GameEngine current = new GameEngine(new ArrayList<>(selectedPlayers));
-            executor.submit(current);
-            currentGames.add(current);
+            GameEngine current = new GameEngine(selectedPlayers);
+            admission.started(current, now);
+            host(current);
             System.out.println(GAME_STARTED_MESSAGE + selectedPlayers.size() + " players");
-            waitingPlayers.removeAll(selectedPlayers);
-        } else if (waitingPlayers.size() < MIN_PLAYERS) {
-            timer.stop();
-        } else if (!timer.isRunning()) {
-            timer.start();
         }
+        admission.notifyQueued(now);
+        matchmaker.broadcastStatus(now);
+    }
 
-        //makes sure that the list is only sent if it changes
-        String alreadyConnected = getAlreadyConnected();
-        String fullMessage = alreadyConnected + TIME_LEFT_MESSAGE + timer.getTimeLeft() + ENTER + (timer.isRunning()? STARTING_GAME_MESSAGE:WAITING_MESSAGE);
-        if(!alreadyConnected.isEmpty()&&!oldMessage.equals(fullMessage)) {
-            for(VirtualView v : waitingPlayers){
-                    v.display(fullMessage);
-            }
-        }
-        oldMessage = fullMessage;
+
+    /**
+     * Starts a game on the shard hosting fewest games.
+     *
+     * @param engine        the game
+     */
+    private void host(GameEngine engine){
+        currentGames.add(engine);
+        Shard shard = leastLoadedShard();
+        shardOf.put(engine, shard);
+        shard.host(engine);
     }
 
 
@@ -384,17 +724,6 @@ public class ServerMain {
      * @return      a String containing all players already logged in
      */
     public String getAlreadyConnected(){
-        if(waitingPlayers.isEmpty()){
-            return "";
-        }
-        StringBuilder bld = new StringBuilder();
-        bld.append(CONNECTED_LIST_MESSAGE);
-        for(VirtualView v : waitingPlayers){
-            bld.append(ENTER);
-            bld.append(TAB);
-            bld.append(v.getName());
-        }
-        bld.append(ENTER);
-        return bld.toString();
+        return matchmaker.describeWaiting();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,162 @@
+package it.polimi.ingsw.controller;
+
+import it.polimi.ingsw.network.server.VirtualView;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static it.polimi.ingsw.controller.ServerMain.SLEEP_TIMEOUT;
+
+/**
+ * Independent host of a subset of the games of the server. Each shard runs its games on its own threads and has its
+ * own loop refreshing the connections of their players, so that the players of a table are never delayed by the
+ * connections of another shard. Games record the latency of their answers in their shard only. ServerMain only
+ * routes logins and resumes, and assigns each new game to the shard with fewest games.
+ *
+ * @author marcobaga
+ */
+class Shard {
+
+    private final int id;
+    private final List<GameEngine> games;
+    private final List<VirtualView> players;
+    private final LatencyRecorder latencies;
+    private final ScheduledExecutorService loop;
+    private final ExecutorService engines;
+    private boolean running;
+
+    private static final Logger LOGGER = Logger.getLogger("serverLogger");
+
+    /**
+     * Standard constructor. The shard refreshes no connection until start() is called.
+     *
+     * @param id        the number of the shard
+     */
+    Shard(int id){
+        this.id = id;
+        this.games = new CopyOnWriteArrayList<>();
+        this.players = new CopyOnWriteArrayList<>();
+        this.latencies = new LatencyRecorder();
+        this.loop = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "shard-" + id);
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger count = new AtomicInteger();
+        this.engines = Executors.newCachedThreadPool(r -> new Thread(r, "shard-" + id + "-game-" + count.incrementAndGet()));
+        this.running = false;
+    }
+
+
+    /**
+     * Starts the loop refreshing the connections of the shard.
+     */
+    synchronized void start(){
+        if(!running){
+            loop.scheduleWithFixedDelay(this::refreshConnections, SLEEP_TIMEOUT, SLEEP_TIMEOUT, TimeUnit.MILLISECONDS);
+            running = true;
+        }
+    }
+
+
+    /**
+     * Stops the loop and the games of the shard.
+     */
+    synchronized void shutdown(){
+        loop.shutdownNow();
+        engines.shutdownNow();
+        games.clear();
+        players.clear();
+        running = false;
+    }
+
+
+    /**
+     * Starts a game on the shard, whose connections are refreshed by the shard from now on.
+     *
+     * @param engine        the game
+     */
+    void host(GameEngine engine){
+        engine.setShard(this);
+        games.add(engine);
+        players.addAll(engine.getPlayers());
+        engines.submit(engine);
+    }
+
+
+    /**
+     * Forgets a game which is over, with its connections.
+     *
+     * @param engine        the game
+     */
+    void release(GameEngine engine){
+        games.remove(engine);
+        players.removeAll(engine.getPlayers());
+    }
+
+
+    /**
+     * Refreshes the connection of a player who resumed instead of his old one.
+     *
+     * @param old           the connection of the suspended player
+     * @param resumed       the new connection
+     */
+    void replace(VirtualView old, VirtualView resumed){
+        players.remove(old);
+        players.add(resumed);
+    }
+
+
+    /**
+     * Records the time a game of this shard took to handle an answer.
+     *
+     * @param millis        the latency in milliseconds
+     */
+    void recordLatency(long millis){
+        latencies.record(millis);
+    }
+
+
+    /**
+     * Refreshes the connections of the players of the shard. Runs on the loop of the shard.
+     */
+    private void refreshConnections(){
+        for(VirtualView p : players){
+            try {
+                if(!p.isSuspended()){
+                    p.refresh();
+                }
+            }catch(Exception ex){
+                LOGGER.log(Level.SEVERE, "Exception while refreshing a connection on shard " + id, ex);
+            }
+        }
+    }
+
+
+    /*
+     * Getters
+     */
+
+    int getId() {
+        return id;
+    }
+
+    int getLoad() {
+        return games.size();
+    }
+
+    List<VirtualView> getPlayers() {
+        return players;
+    }
+
+    long getLatency() {
+        return latencies.percentile(AdmissionController.LATENCY_PERCENTILE);
+    }
+}
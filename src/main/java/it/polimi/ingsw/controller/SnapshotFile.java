@@ -0,0 +1,297 @@
+package it.polimi.ingsw.controller;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Memory-mapped file holding the latest snapshot of a game. Snapshots are written by a single background thread
+ * shared by all games, so that games never wait for the disk.
+ *
+ * The file has two slots, written in turn. Each slot holds the sequence number of its snapshot, its length and its
+ * CRC32, followed by the snapshot. A crash while writing a slot leaves the other one intact: when the file is read,
+ * the valid slot with the highest sequence number wins. When a snapshot does not fit, it is written into a new file
+ * with larger slots, which then replaces the old one atomically.
+ *
+ * @author marcobaga
+ */
+class SnapshotFile {
+
+    private final Path path;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int slotSize;
+    private long sequence;
+    private boolean closed;
+    private Path replacement;
+
+    private static final Logger LOGGER = Logger.getLogger("serverLogger");
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "snapshot-writer");
+        t.setDaemon(true);
+        return t;
+    });
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    static final String EXTENSION = ".snap";
+    private static final int MAGIC = 0x41444D46;
+    private static final int FILE_HEADER = 8;
+    private static final int SLOT_HEADER = 16;
+    private static final int MIN_SLOT_SIZE = 16 * 1024;
+
+    /**
+     * Opens the file of a game.
+     *
+     * @param path          the file
+     * @param sequence      the sequence number of the latest snapshot already in the file, 0 if none
+     */
+    private SnapshotFile(Path path, long sequence){
+        this.path = path;
+        this.sequence = sequence;
+        this.slotSize = 0;
+        this.closed = false;
+    }
+
+
+    /**
+     * Creates the file of a new game in a directory, with a name unique within this server.
+     *
+     * @param directory     the directory of the snapshots, created if missing
+     * @return              the file, or null if the directory cannot be created
+     */
+    static SnapshotFile create(Path directory){
+        try {
+            Files.createDirectories(directory);
+        }catch (IOException ex){
+            LOGGER.log(Level.SEVERE, "Cannot create the directory of the snapshots " + directory, ex);
+            return null;
+        }
+        return new SnapshotFile(directory.resolve("game-" + System.currentTimeMillis() + "-" + COUNTER.incrementAndGet() + EXTENSION), 0);
+    }
+
+
+    /**
+     * Reopens the file of a restored game, to go on writing its snapshots.
+     *
+     * @param path          the file
+     * @return              the file
+     * @throws IOException  if the file holds no valid snapshot
+     */
+    static SnapshotFile reopen(Path path) throws IOException {
+        SnapshotFile file = new SnapshotFile(path, latestSequence(Files.readAllBytes(path)));
+        file.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        file.buffer = file.channel.map(FileChannel.MapMode.READ_WRITE, 0, file.channel.size());
+        file.slotSize = file.buffer.getInt(4);
+        return file;
+    }
+
+
+    /**
+     * Writes a snapshot in the background.
+     *
+     * @param snapshot      the snapshot
+     */
+    void write(byte[] snapshot){
+        WRITER.execute(() -> {
+            try {
+                writeNow(snapshot);
+            }catch (IOException | RuntimeException ex){
+                LOGGER.log(Level.SEVERE, "Cannot write the snapshot " + path, ex);
+            }
+        });
+    }
+
+
+    /**
+     * Deletes the file in the background, after the pending snapshots are written. Called when the game is over.
+     */
+    void delete(){
+        WRITER.execute(() -> {
+            try {
+                close();
+                Files.deleteIfExists(path);
+            }catch (IOException ex){
+                LOGGER.log(Level.SEVERE, "Cannot delete the snapshot " + path, ex);
+            }
+        });
+    }
+
+
+    /**
+     * Waits until the pending snapshots of all games are written. Only for testing.
+     *
+     * @throws InterruptedException     if interrupted while waiting
+     */
+    static void flush() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        WRITER.execute(latch::countDown);
+        latch.await();
+    }
+
+
+    /**
+     * Writes a snapshot in the slot after the latest one, and forces it to the disk. Runs on the writer thread.
+     *
+     * @param snapshot      the snapshot
+     * @throws IOException  if the file cannot be written
+     */
+    private void writeNow(byte[] snapshot) throws IOException {
+        if(closed) return;
+        int needed = SLOT_HEADER + snapshot.length;
+        if(needed > slotSize){
+            map(Math.max(MIN_SLOT_SIZE, Integer.highestOneBit(needed) << 1));
+        }
+        sequence++;
+        CRC32 crc = new CRC32();
+        crc.update(snapshot);
+        int slot = FILE_HEADER + (int) (sequence % 2) * slotSize;
+        buffer.putLong(slot, sequence);
+        buffer.putInt(slot + 8, snapshot.length);
+        buffer.putInt(slot + 12, (int) crc.getValue());
+        buffer.position(slot + SLOT_HEADER);
+        buffer.put(snapshot);
+        buffer.force();
+        if(replacement != null){
+            Files.move(replacement, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            replacement = null;
+        }
+    }
+
+
+    /**
+     * Maps a new file with larger slots, which replaces the current one once the snapshot about to be written is on
+     * the disk.
+     *
+     * @param size          the new size of a slot
+     * @throws IOException  if the file cannot be mapped
+     */
+    private void map(int size) throws IOException {
+        Path fresh = path.resolveSibling(path.getFileName() + ".tmp");
+        FileChannel c = FileChannel.open(fresh, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer b = c.map(FileChannel.MapMode.READ_WRITE, 0, FILE_HEADER + 2L * size);
+        b.putInt(0, MAGIC);
+        b.putInt(4, size);
+        if(channel != null){
+            channel.close();
+        }
+        channel = c;
+        buffer = b;
+        slotSize = size;
+        replacement = fresh;
+    }
+
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException  if closing fails
+     */
+    private void close() throws IOException {
+        closed = true;
+        buffer = null;
+        if(channel != null){
+            channel.close();
+        }
+    }
+
+
+    /**
+     * Reads the latest valid snapshot of a file.
+     *
+     * @param content       the content of the file
+     * @return              the snapshot
+     * @throws IOException  if the file holds no valid snapshot
+     */
+    static byte[] latest(byte[] content) throws IOException {
+        ByteBuffer b = ByteBuffer.wrap(content);
+        int slot = latestSlot(b);
+        byte[] snapshot = new byte[b.getInt(slot + 8)];
+        b.position(slot + SLOT_HEADER);
+        b.get(snapshot);
+        return snapshot;
+    }
+
+
+    /**
+     * Reads the sequence number of the latest valid snapshot of a file.
+     *
+     * @param content       the content of the file
+     * @return              the sequence number
+     * @throws IOException  if the file holds no valid snapshot
+     */
+    private static long latestSequence(byte[] content) throws IOException {
+        ByteBuffer b = ByteBuffer.wrap(content);
+        return b.getLong(latestSlot(b));
+    }
+
+
+    /**
+     * Finds the valid slot with the highest sequence number.
+     *
+     * @param b             the content of the file
+     * @return              the offset of the slot
+     * @throws IOException  if no slot is valid
+     */
+    private static int latestSlot(ByteBuffer b) throws IOException {
+        if(b.limit() < FILE_HEADER || b.getInt(0) != MAGIC){
+            throw new IOException("Not a snapshot file");
+        }
+        int size = b.getInt(4);
+        int best = -1;
+        long bestSequence = 0;
+        for(int i = 0; i < 2; i++){
+            int slot = FILE_HEADER + i * size;
+            if(size > SLOT_HEADER && valid(b, slot, size) && b.getLong(slot) > bestSequence){
+                best = slot;
+                bestSequence = b.getLong(slot);
+            }
+        }
+        if(best < 0){
+            throw new IOException("No valid snapshot");
+        }
+        return best;
+    }
+
+
+    /**
+     * Checks that a slot holds a complete snapshot.
+     *
+     * @param b             the content of the file
+     * @param slot          the offset of the slot
+     * @param size          the size of a slot
+     * @return              true if the length and the checksum of the snapshot are right
+     */
+    private static boolean valid(ByteBuffer b, int slot, int size){
+        if(slot + SLOT_HEADER > b.limit()){
+            return false;
+        }
+        int length = b.getInt(slot + 8);
+        if(b.getLong(slot) <= 0 || length <= 0 || length > size - SLOT_HEADER || slot + SLOT_HEADER + length > b.limit()){
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        ByteBuffer data = b.duplicate();
+        data.position(slot + SLOT_HEADER);
+        data.limit(slot + SLOT_HEADER + length);
+        crc.update(data);
+        return (int) crc.getValue() == b.getInt(slot + 12);
+    }
+
+
+    Path getPath() {
+        return path;
+    }
+}
@@ -1,13 +1,20 @@
 package it.polimi.ingsw.controller;
 
 import com.google.gson.*;
+import it.polimi.ingsw.codegen.GenerateWeapons;
+import it.polimi.ingsw.codegen.WeaponBehaviour;
 import it.polimi.ingsw.model.board.Board;
 import it.polimi.ingsw.model.board.Player;
 import it.polimi.ingsw.model.board.Square;
 import it.polimi.ingsw.model.cards.*;
 import it.polimi.ingsw.model.exceptions.NotAvailableAttributeException;
 
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -22,17 +29,25 @@ import static it.polimi.ingsw.model.cards.FireMode.FireModeName.*;
  * and each firemode has a TargetFinder (function finding lists of possible targets), a DestinationFinder (function selecting
  * possible destination for the target or the shooter) and an Effect (function applying the firemode effects to the game state).
  * This classes retrieves these three functions and other simple parameters.
+ * Each behaviour is a static method tagged as in the file. At build time the file is compiled into CompiledWeapons,
+ * whose firemodes call these methods directly; the file itself is only read at runtime if the system property
+ * weaponsFile names a modified copy of it. Either way, each weapon has a single WeaponDefinition shared by the weapons
+ * of every game: the behaviours reach the board through the players they are given, so they do not depend on the game.
  *
  * @author  marcobaga
  */
 
+@GenerateWeapons("weapons.json")
 public class WeaponFactory {
 
 
     private Board board;
 
+    private static Map<Weapon.WeaponName, WeaponDefinition> definitions;
+
     private static final Logger LOGGER = Logger.getLogger("serverLogger");
     private static final String WEAPONS_FILE = "weapons.json";
+    private static final String WEAPONS_FILE_PROPERTY = "weaponsFile";
 
     private static final String MODES_TAG = "modes";
     private static final String NAME_TAG = "name";
@@ -111,58 +126,97 @@ public class WeaponFactory {
      * @return      the Weapon created
      */
     public Weapon createWeapon(Weapon.WeaponName weaponName) {
+        return new Weapon(getDefinition(weaponName), board);
+    }
 
-        FireMode fireMode;
-        TargetFinder targetFinder;
-        DestinationFinder destinationFinder;
-        Effect effect;
+    /**
+     * Returns the shared definition of a weapon. The first time, the definitions of all weapons are taken from the
+     * compiled weapons, or read from the file named by the system property weaponsFile, if set.
+     *
+     * @param weaponName    the name of the weapon
+     * @return              its definition
+     */
+    static synchronized WeaponDefinition getDefinition(Weapon.WeaponName weaponName) {
+        if (definitions == null) {
+            String file = System.getProperty(WEAPONS_FILE_PROPERTY);
+            definitions = CompiledWeapons.definitions();
+            if (file != null) {
+                try (Reader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+                    definitions = readDefinitions(getWeaponList(reader));
+                    LOGGER.log(Level.INFO, "Weapons read from {0}", file);
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.log(Level.SEVERE, "Unable to read weapons from " + file + ", using the compiled ones", e);
+                }
+            }
+        }
+        return definitions.get(weaponName);
+    }
+
+    /**
+     * Creates the definitions of all weapons from a file, at runtime.
+     *
+     * @param weaponList    information about the weapons
+     * @return              the definitions, by weapon name
+     */
+    static Map<Weapon.WeaponName, WeaponDefinition> readDefinitions(JsonObject weaponList) {
+        Map<Weapon.WeaponName, WeaponDefinition> read = new EnumMap<>(Weapon.WeaponName.class);
+        for (Weapon.WeaponName name : Weapon.WeaponName.values()) {
+            read.put(name, createDefinition(name, weaponList.getAsJsonObject(name.toString())));
+        }
+        return read;
+    }
 
-        JsonObject weaponTree = getWeaponTree(weaponName);
+    /**
+     * Creates the definition of a weapon from the information in the file.
+     *
+     * @param weaponName    the name of the weapon
+     * @param weaponTree    information about the weapon
+     * @return              the definition of the weapon
+     */
+    private static WeaponDefinition createDefinition(Weapon.WeaponName weaponName, JsonObject weaponTree) {
 
         Color color = getColor(weaponTree);
         AmmoPack fullCost = getFullCost(weaponTree);
         AmmoPack reducedCost = getReducedCost(fullCost, color);
 
         JsonArray fireModeArray = weaponTree.getAsJsonArray(MODES_TAG);
-        List<FireMode> fireModeList = new ArrayList<>(fireModeArray.size());
-        AmmoPack fireModeCost;
+        List<FireModeDefinition> fireModeList = new ArrayList<>(fireModeArray.size());
 
         for (JsonElement firemodeElement : fireModeArray) {
             JsonObject firemode = firemodeElement.getAsJsonObject();
             FireMode.FireModeName name = getFireModeName(firemode.get(NAME_TAG).getAsString());
-            effect = getEffect(firemode);
-            targetFinder = getTargetFinder(firemode);
-            destinationFinder = getDestinationFinder(firemode);
-            fireModeCost = getFireModeCost(firemode);
-
-            fireMode = new FireMode(name, fireModeCost, destinationFinder, targetFinder, effect);
-            fireModeList.add(fireMode);
+            fireModeList.add(new FireModeDefinition(name, getFireModeCost(firemode), getDestinationFinder(firemode),
+                    getTargetFinder(firemode), getEffect(firemode)));
         }
 
-        Weapon weapon = new Weapon(weaponName, color, fullCost, reducedCost, fireModeList, board);
+        return new WeaponDefinition(weaponName, color, fullCost, reducedCost, fireModeList);
+    }
 
-        for (FireMode f : fireModeList) {
-            f.setWeapon(weapon);
-        }
-        return weapon;
+    /**
+     * Retrieves a jsonObject with information about all weapons from the file among the resources.
+     *
+     * @return              information about the weapons
+     */
+    static JsonObject getWeaponList(){
+        return getWeaponList(new InputStreamReader(WeaponFactory.class.getResourceAsStream("/" + WEAPONS_FILE)));
     }
 
     /**
-     * Retrieves a jsonObject with information about the weapon from a file.
-     * @param weaponName    weapon to describe
-     * @return              information about the weapon
+     * Retrieves a jsonObject with information about all weapons from a file.
+     *
+     * @param reader        the content of the file
+     * @return              information about the weapons
      */
-    private JsonObject getWeaponTree(Weapon.WeaponName weaponName){
+    private static JsonObject getWeaponList(Reader reader){
         JsonParser parser = new JsonParser();
-        JsonObject weaponTree = new JsonObject();
+        JsonObject weaponList = new JsonObject();
         try {
-            JsonElement weaponElement = parser.parse(new InputStreamReader(this.getClass().getResourceAsStream("/" + WEAPONS_FILE)));
-            JsonObject weaponList = weaponElement.getAsJsonObject();
-            weaponTree = weaponList.getAsJsonObject(weaponName.toString());
+            JsonElement weaponElement = parser.parse(reader);
+            weaponList = weaponElement.getAsJsonObject();
         }catch (JsonIOException e) {
             LOGGER.log(Level.SEVERE, "Unable to read weapon from file", e);
         }
-        return weaponTree;
+        return weaponList;
     }
 
     /**
@@ -171,7 +225,7 @@ public class WeaponFactory {
      * @param weaponTree    jsonObject to parse
      * @return              the color of the weapon
      */
-    public Color getColor(JsonObject weaponTree) {
+    public static Color getColor(JsonObject weaponTree) {
         String color = "";
         try {
             color = weaponTree.get(COLOR_TAG).getAsString();
@@ -193,7 +247,7 @@ public class WeaponFactory {
      * @param weaponTree    jsonObject to parse
      * @return              the full cost of the weapon
      */
-    private AmmoPack getFullCost(JsonObject weaponTree) {
+    private static AmmoPack getFullCost(JsonObject weaponTree) {
         try {
             int r = weaponTree.get(COST_R).getAsInt();
             int b = weaponTree.get(COST_B).getAsInt();
@@ -212,7 +266,7 @@ public class WeaponFactory {
      * @param color         color of the weapon
      * @return              the reduced cost of the weapon
      */
-    private AmmoPack getReducedCost(AmmoPack ammoPack, Color color) {
+    private static AmmoPack getReducedCost(AmmoPack ammoPack, Color color) {
         AmmoPack reduced = new AmmoPack(ammoPack.getRedAmmo(), ammoPack.getBlueAmmo(), ammoPack.getYellowAmmo());
         if (color == RED ) {
             reduced.subAmmoPack(new AmmoPack(1,0,0));
@@ -232,7 +286,7 @@ public class WeaponFactory {
      * @param name    string to convert
      * @return        proper FireModeName
      */
-    private FireMode.FireModeName getFireModeName (String name){
+    private static FireMode.FireModeName getFireModeName (String name){
         for(FireMode.FireModeName fn : FireMode.FireModeName.values()){
             if(fn.toString().equalsIgnoreCase(name)){
                 return fn;
@@ -248,7 +302,7 @@ public class WeaponFactory {
      * @param fireMode  information about the firemode
      * @return          the cost of the firemode
      */
-    private AmmoPack getFireModeCost (JsonObject fireMode) {
+    private static AmmoPack getFireModeCost (JsonObject fireMode) {
         try {
             if (fireMode.get(NAME_TAG).getAsString().equalsIgnoreCase(MAIN_TAG)) {
                 return new AmmoPack(0, 0, 0);
@@ -270,7 +324,7 @@ public class WeaponFactory {
      * @param firemode  information about the firemode
      * @return          targetFinder logic
      */
-    private TargetFinder getTargetFinder(JsonObject firemode) {
+    private static TargetFinder getTargetFinder(JsonObject firemode) {
 
         String target = "";
         try {
@@ -281,528 +335,71 @@ public class WeaponFactory {
 
         switch(target) {
             case ONE_VISIBLE:
-                return p -> board.getVisible(p.getPosition()).stream()
-                        .map(Square::getPlayers)
-                        .flatMap(List::stream)
-                        .distinct()
-                        .filter(x -> !x.equals(p))
-                        .map(Arrays::asList)
-                        .collect(Collectors.toList());
+                return WeaponFactory::targetsOneVisible;
             case ONE_OTHER_VISIBLE:
-                return p -> (p.getMainTargets().isEmpty() ? new ArrayList<>() : board.getVisible(p.getPosition()).stream()
-                        .map(Square::getPlayers)
-                        .flatMap(List::stream)
-                        .distinct()
-                        .filter(x -> !x.equals(p) && !p.getMainTargets().isEmpty())
-                        .filter(x -> !p.getMainTargets().contains(x))
-                        .map(Arrays::asList)
-                        .collect(Collectors.toList()));
+                return WeaponFactory::targetsOneOtherVisible;
             case ONE_OR_TWO_VISIBLE:
-                return p -> {
-                    List<List<Player>> res = board.getVisible(p.getPosition()).stream()
-                            .map(Square::getPlayers)
-                            .flatMap(List::stream)
-                            .distinct()
-                            .filter(x -> !x.equals(p))
-                            .map(Arrays::asList)
-                            .collect(Collectors.toList());
-                    res.addAll(cartesian(res, res));
-                    return res;
-                };
+                return WeaponFactory::targetsOneOrTwoVisible;
             case ONE_MAIN_TARGET:
-                return p -> (p.getMainTargets().stream()
-                        .distinct()
-                        .filter(x -> !p.getOptionalTargets().contains(x))
-                        .map(Arrays::asList)
-                        .collect(Collectors.toList()));
+                return WeaponFactory::targetsOneMainTarget;
             case ONE_MAIN_TARGET_OR_OTHER_VIISBLE:
-                return p -> {
-                    if(p.getMainTargets().isEmpty()){
-                        return new ArrayList<>();
-                    }
-                    List<List<Player>> pastTargets = p.getMainTargets().stream()
-                            .distinct()
-                            .filter(x -> !p.getOptionalTargets().contains(x))
-                            .map(Arrays::asList)
-                            .collect(Collectors.toList());
-                    List<List<Player>> others = board.getVisible(p.getPosition()).stream()
-                            .map(Square::getPlayers)
-                            .flatMap(List::stream)
-                            .distinct()
-                            .filter(x -> !x.equals(p))
-                            .filter(x -> !(p.getMainTargets().contains(x) || p.getOptionalTargets().contains(x)))
-                            .map(Arrays::asList)
-                            .collect(Collectors.toList());
-                    others.addAll(cartesian(pastTargets, others));
-                    others.addAll(pastTargets);
-                    return others;
-                };
+                return WeaponFactory::targetsOneMainTargetOrOtherVisible;
             case THOR_ONE:
-                return p -> (p.getMainTargets().isEmpty()) ?
-                        new ArrayList<>() : board.getVisible(p.getMainTargets().get(0).getPosition()).stream()
-                        .map(Square::getPlayers)
-                        .flatMap(List::stream)
-                        .distinct()
-                        .filter(x -> !p.getMainTargets().contains(x))
-                        .filter(x -> !x.equals(p))
-                        .map(Arrays::asList)
-                        .collect(Collectors.toList());
+                return WeaponFactory::targetsThorOne;
             case THOR_TWO:
-                return p -> (p.getMainTargets().isEmpty() || p.getOptionalTargets().isEmpty()) ?
-                        new ArrayList<>() : board
-                        .getVisible(p.getOptionalTargets().get(0).getPosition()).stream()
-                        .map(Square::getPlayers)
-                        .flatMap(List::stream)
-                        .distinct()
-                        .filter(x -> !(p.getMainTargets().contains(x) || p.getOptionalTargets().contains(x)))
-                        .filter(x -> !x.equals(p))
-                        .map(Arrays::asList)
-                        .collect(Collectors.toList());
+                return WeaponFactory::targetsThorTwo;
             case PLASMA_GUN_ONE:
-                return p -> {
-                            if (!p.getMainTargets().isEmpty()) {
-                                return Collections.singletonList(Collections.singletonList(p));
-                            }
-                            List<Square> l = board.getReachable(p.getPosition(), 2);
-                            for (Square s : l) {
-                                if (!s.containsPlayer(p)) {
-                                    if (board.getVisible(s).stream()
-                                            .map(Square::getPlayers)
-                                            .flatMap(List::stream)
-                                            .distinct()
-                                            .filter(x -> !x.equals(p))
-                                            .map(Arrays::asList)
-                                            .count()!=0) {
-                                        return Collections.singletonList(Collections.singletonList(p));
-                                    }
-                                }
-                            }
-                            return new ArrayList<>();
-                        };
+                return WeaponFactory::targetsPlasmaGunOne;
             case WHISPER:
-                return p -> board.getVisible(p.getPosition()).stream()
-                        .map(Square::getPlayers)
-                        .flatMap(List::stream)
-                        .distinct()
-                        .filter(x -> !x.equals(p))
-                        .filter(x -> {
-                            try {
-                                return board.getDistance(x.getPosition(), p.getPosition()) >= 2;
-                            } catch (NotAvailableAttributeException e) {
-                                LOGGER.log(Level.SEVERE, MISSING_POSITION, e);
-                                return false;
-                            }
-                        })
-                        .map(Arrays::asList)
-                        .collect(Collectors.toList());
+                return WeaponFactory::targetsWhisper;
             case ALL_SAME_SQUARE:
-                return p -> Collections.singletonList(p.getPosition().getPlayers().stream()
-                        .distinct()
-                        .filter(x -> (!x.equals(p)))
-                        .collect(Collectors.toList()));
+                return WeaponFactory::targetsAllSameSquare;
             case TRACTOR_BEAM_MAIN:
-                return p -> {
-                    List<Square> l = board.getVisible(p.getPosition());
-                    List<Square> temp = new ArrayList<>();
-                    for (Square s : l) {
-                        temp.addAll(board.getReachable(s, 2));
-                    }
-                    return temp.stream()
-                            .distinct()
-                            .map(Square::getPlayers)
-                            .flatMap(List::stream)
-                            .distinct()
-                            .filter(x -> !x.equals(p))
-                            .map(Arrays::asList)
-                            .collect(Collectors.toList());
-                };
+                return WeaponFactory::targetsTractorBeamMain;
             case TRACTOR_BEAM_ALT:
-                return p -> board.getReachable(p.getPosition(), 2).stream()
-                        .map(Square::getPlayers)
-                        .flatMap(List::stream)
-                        .distinct()
-                        .filter(x -> !x.equals(p))
-                        .map(Arrays::asList)
-                        .collect(Collectors.toList());
+                return WeaponFactory::targetsTractorBeamAlt;
             case VORTEX_CANNON_MAIN:
-                return p -> {
-                            List<Square> l = board.getVisible(p.getPosition());
-                            List<Square> temp = new ArrayList<>();
-                            for (Square s : l) {
-                                temp.addAll(board.getReachable(s, 1));
-                            }
-                            return temp.stream()
-                                    .map(Square::getPlayers)
-                                    .flatMap(List::stream)
-                                    .distinct()
-                                    .filter(x -> !x.equals(p))
-                                    .map(Arrays::asList)
-                                    .collect(Collectors.toList());
-                        };
+                return WeaponFactory::targetsVortexCannonMain;
             case VORTEX_CANNON_ONE:
-                return p -> {
-                            if (p.getMainTargets().isEmpty()) {
-                                return new ArrayList<>();
-                            }
-                            List<List<Player>> lp = board.getReachable(p.getMainTargets().get(0).getPosition(), 1).stream()
-                                    .map(Square::getPlayers)
-                                    .flatMap(List::stream)
-                                    .distinct()
-                                    .filter(x -> !x.equals(p))
-                                    .filter(x -> !p.getMainTargets().contains(x))
-                                    .map(Arrays::asList)
-                                    .collect(Collectors.toList());
-                            List<List<Player>> res = cartesian(lp, lp);
-                            res.addAll(lp);
-                            return res;
-                        };
+                return WeaponFactory::targetsVortexCannonOne;
             case OTHER_ROOM:
-                return p -> {
-                            List<List<Square>> roomList = board.getVisible(p.getPosition()).stream()
-                                    .map(Square::getRoomId)
-                                    .distinct()
-                                    .filter(x -> {
-                                        try {
-                                            return x != p.getPosition().getRoomId();
-                                        } catch (NotAvailableAttributeException ex) {
-                                            LOGGER.log(Level.SEVERE, MISSING_POSITION, ex);
-                                            return false;
-                                        }
-                                    })
-                                    .map(x -> board.getSquaresInRoom(x))
-                                    .collect(Collectors.toList());
-                            List<List<Player>> res = new ArrayList<>();
-                            List<Player> temp = new ArrayList<>();
-                            for (List<Square> ls : roomList) {
-                                for (Square s : ls) {
-                                    temp.addAll(s.getPlayers());
-                                }
-                                if (!temp.isEmpty()) {
-                                    res.add(temp);
-                                }
-                                temp = new ArrayList<>();
-                            }
-                            return res;
-                        };
+                return WeaponFactory::targetsOtherRoom;
             case ADJACENT_SQUARE:
-                return p -> board.getReachable(p.getPosition(), 1).stream()
-                        .filter(x -> !x.containsPlayer(p))
-                        .map(Square::getPlayers)
-                        .filter(x -> !x.isEmpty())
-                        .collect(Collectors.toList());
+                return WeaponFactory::targetsAdjacentSquare;
             case NOT_VISIBLE:
-                return p -> board.getMap().stream()
-                        .filter(x -> {
-                            try {
-                                return !board.getVisible(p.getPosition()).contains(x);
-                            } catch (NotAvailableAttributeException e) {
-                                LOGGER.log(Level.SEVERE, MISSING_POSITION, e);
-                                return false;
-                            }
-                        })
-                        .map(Square::getPlayers)
-                        .flatMap(List::stream)
-                        .distinct()
-                        .filter(x -> !x.equals(p))
-                        .map(Arrays::asList)
-                        .collect(Collectors.toList());
+                return WeaponFactory::targetsNotVisible;
             case NOT_SHOOTER_SQUARE_VISIBLE:
-                return p -> board.getVisible(p.getPosition()).stream()
-                        .filter(x -> !x.containsPlayer(p))
-                        .map(Square::getPlayers)
-                        .flatMap(List::stream)
-                        .distinct()
-                        .map(Arrays::asList)
-                        .collect(Collectors.toList());
+                return WeaponFactory::targetsNotShooterSquareVisible;
             case FLAMETHROWER_MAIN:
-                return p -> {
-                            List<List<Player>> targets = new ArrayList<>();
-                            for (Direction d : Direction.values()) {
-                                List<List<Player>> close = board.getSquaresInLine(p.getPosition(), d).stream()
-                                        .filter(x -> {
-                                            try {
-                                                return board.getReachable(p.getPosition(), 1).contains(x);
-                                            } catch (NotAvailableAttributeException e) {
-                                                LOGGER.log(Level.SEVERE, MISSING_POSITION, e);
-                                                return false;
-                                            }
-                                        })
-                                        .map(Square::getPlayers)
-                                        .flatMap(List::stream)
-                                        .distinct()
-                                        .map(Arrays::asList)
-                                        .collect(Collectors.toList());
-                                List<List<Player>> far = board.getSquaresInLine(p.getPosition(), d).stream()
-                                        .filter(x -> {
-                                            try {
-                                                return board.getReachable(p.getPosition(), 2).contains(x) && !board.getReachable(p.getPosition(), 1).contains(x);
-                                            } catch (NotAvailableAttributeException e) {
-                                                LOGGER.log(Level.SEVERE, MISSING_POSITION, e);
-                                                return false;
-                                            }
-                                        })
-                                        .map(Square::getPlayers)
-                                        .flatMap(List::stream)
-                                        .distinct()
-                                        .map(Arrays::asList)
-                                        .collect(Collectors.toList());
-                                targets.addAll(close);
-                                targets.addAll(far);
-                                targets.addAll(cartesian(close, far));
-                            }
-                            return targets;
-                        };
+                return WeaponFactory::targetsFlamethrowerMain;
             case FLAMETHROWER_ALT:
-                return p -> {
-                            List<List<Player>> targets = new ArrayList<>();
-                            for (Direction d : Direction.values()) {
-                                List<Player> line = board.getSquaresInLine(p.getPosition(), d).stream()
-                                        .filter(x -> {
-                                            try {
-                                                return board.getReachable(p.getPosition(), 2).contains(x);
-                                            } catch (NotAvailableAttributeException e) {
-                                                LOGGER.log(Level.SEVERE, MISSING_POSITION, e);
-                                                return false;
-                                            }
-                                        })
-                                        .map(Square::getPlayers)
-                                        .flatMap(List::stream)
-                                        .distinct()
-                                        .collect(Collectors.toList());
-                                if(!line.isEmpty()) {
-                                    targets.add(line);
-                                }
-                            }
-                            return targets;
-                        };
+                return WeaponFactory::targetsFlamethrowerAlt;
             case GRENADE_LAUNCHER:
-                return p -> {
-                            List<List<Player>> l = board.getVisible(p.getPosition()).stream()
-                                    .filter(x -> !x.containsPlayer(p))
-                                    .map(Square::getPlayers)
-                                    .filter(x->!x.isEmpty())
-                                    .collect(Collectors.toList());
-                            List<Player> inSameRoomAsPlayer = p.getPosition().getPlayers().stream().filter(x -> !x.equals(p)).collect(Collectors.toList());
-                            if(!inSameRoomAsPlayer.isEmpty()){
-                                l.add(inSameRoomAsPlayer);
-                            }
-                            return l;
-                        };
+                return WeaponFactory::targetsGrenadeLauncher;
             case ROCKET_LAUNCHER_ONE:
-                return p -> {
-                            if(!p.getMainTargets().isEmpty()){
-                                return Collections.singletonList(Collections.singletonList(p));
-                            }
-                            List<Square> l = board.getReachable(p.getPosition(), 2);
-                            for (Square s : l) {
-                                List<Square> targets = board.getVisible(s).stream()
-                                        .filter(x->!x.containsPlayer(p))
-                                        .filter(x->!x.getPlayers().isEmpty())
-                                        .collect(Collectors.toList());
-                                if (!targets.isEmpty() && !s.containsPlayer(p)) {
-                                    return Collections.singletonList(Collections.singletonList(p));
-                                }
-                            }
-                            return new ArrayList<>();
-                        };
+                return WeaponFactory::targetsRocketLauncherOne;
             case ROCKET_LAUNCHER_TWO:
-                return p -> {
-                            if (p.getMainTargets().isEmpty()) {
-                                return new ArrayList<>();
-                            }
-                            List<Player> l = new ArrayList<>(p.getMainTargets());
-                            for (Player player : p.getMainTargets()) {
-                                for (Player opt2target : player.getPreviousPosition().getPlayers())
-                                    if (!l.contains(opt2target))
-                                        l.add(opt2target);
-                            }
-                            return Collections.singletonList(l);
-                        };
+                return WeaponFactory::targetsRocketLauncherTwo;
             case RAILGUN_MAIN:
-                return p -> {
-                            List<List<Player>> targets = new ArrayList<>();
-                            for (Direction d : Direction.values()) {
-                                List<List<Player>> single = board.getSquaresInLineIgnoringWalls(p.getPosition(), d)
-                                        .stream()
-                                        .map(Square::getPlayers)
-                                        .flatMap(List::stream)
-                                        .distinct()
-                                        .map(Arrays::asList)
-                                        .collect(Collectors.toList());
-                                targets.addAll(single);
-                            }
-                            targets.addAll(p.getPosition().getPlayers().stream()
-                                    .distinct()
-                                    .filter(x -> !x.equals(p))
-                                    .map(Arrays::asList)
-                                    .collect(Collectors.toList())
-                            );
-                            return targets;
-                        };
+                return WeaponFactory::targetsRailgunMain;
             case RAILGUN_ALT:
-                return p -> {
-                            List<List<Player>> targets = new ArrayList<>();
-                            List<List<Player>> close = p.getPosition().getPlayers().stream()
-                                    .distinct()
-                                    .filter(x -> !x.equals(p))
-                                    .map(Arrays::asList)
-                                    .collect(Collectors.toList());
-                            targets.addAll(close);
-                            targets.addAll(cartesian(close, close));
-                            for (Direction d : Direction.values()) {
-                                List<List<Player>> single = board.getSquaresInLineIgnoringWalls(p.getPosition(), d)
-                                        .stream()
-                                        .map(Square::getPlayers)
-                                        .flatMap(List::stream)
-                                        .distinct()
-                                        .map(Arrays::asList)
-                                        .collect(Collectors.toList());
-                                targets.addAll(single);
-                                List<List<Player>> both = new ArrayList<>(close);
-                                both.addAll(single);
-                                targets.addAll(cartesian(both, single));
-                            }
-                            return targets;
-                        };
+                return WeaponFactory::targetsRailgunAlt;
             case ONE_SAME_SQUARE:
-                return p -> p.getPosition().getPlayers().stream()
-                        .distinct()
-                        .filter(x -> !x.equals(p))
-                        .map(Arrays::asList)
-                        .collect(Collectors.toList());
-
+                return WeaponFactory::targetsOneSameSquare;
             case CYBERBLADE_ONE:
-                return p -> {
-                            if(!p.getMainTargets().isEmpty()){
-                                return Collections.singletonList(Collections.singletonList(p));
-                            }
-                            for (Square s : board.getReachable(p.getPosition(), 1)) {
-                                if (!s.containsPlayer(p)&&!s.getPlayers().isEmpty()) {
-                                    return Collections.singletonList(Collections.singletonList(p));
-                                }
-                            }
-                            return new ArrayList<>();
-                        };
+                return WeaponFactory::targetsCyberbladeOne;
             case ONE_OTHER_SAME_SQUARE:
-                return p -> p.getMainTargets().isEmpty()? new ArrayList<>():p.getPosition().getPlayers().stream()
-                        .distinct()
-                        .filter(x -> !x.equals(p))
-                        .filter(x -> !p.getMainTargets().contains(x))
-                        .map(Arrays::asList)
-                        .collect(Collectors.toList());
+                return WeaponFactory::targetsOneOtherSameSquare;
             case THREE_VISIBLE:
-                return p -> {
-                            List<List<Player>> targets = new ArrayList<>();
-                            List<List<Player>> single = board.getVisible(p.getPosition()).stream()
-                                    .map(Square::getPlayers)
-                                    .flatMap(List::stream)
-                                    .distinct()
-                                    .filter(x -> !x.equals(p))
-                                    .map(Arrays::asList)
-                                    .collect(Collectors.toList());
-                            targets.addAll(single);
-                            targets.addAll(cartesian(single, single));
-                            targets.addAll(cartesian(cartesian(single, single), single));
-                            return targets;
-                        };
+                return WeaponFactory::targetsThreeVisible;
             case ONE_STEP_AWAY:
-                return p -> board.getReachable(p.getPosition(), 1).stream()
-                        .filter(x -> (!x.getPlayers().contains(p)))
-                        .map(Square::getPlayers)
-                        .flatMap(List::stream)
-                        .distinct()
-                        .map(Arrays::asList)
-                        .collect(Collectors.toList());
+                return WeaponFactory::targetsOneStepAway;
             case POWER_GLOVE_ALT:
-                return p -> {
-                            List<List<Player>> targets = new ArrayList<>();
-                            for (Direction d : Direction.values()) {
-                                List<List<Player>> close = board.getSquaresInLineIgnoringWalls(p.getPosition(), d)
-                                        .stream()
-                                        .filter(x -> {
-                                            try {
-                                                return board.getReachable(p.getPosition(), 1).contains(x);
-                                            } catch (NotAvailableAttributeException e) {
-                                                LOGGER.log(Level.SEVERE, MISSING_POSITION, e);
-                                                return false;
-                                            }
-                                        })
-                                        .map(Square::getPlayers)
-                                        .flatMap(List::stream)
-                                        .distinct()
-                                        .map(Arrays::asList)
-                                        .collect(Collectors.toList());
-                                List<List<Player>> far = board.getSquaresInLineIgnoringWalls(p.getPosition(), d)
-                                        .stream()
-                                        .filter(x -> {
-                                            try {
-                                                return board.getReachable(p.getPosition(), 2).contains(x);
-                                            } catch (NotAvailableAttributeException e) {
-                                                LOGGER.log(Level.SEVERE, MISSING_POSITION, e);
-                                                return false;
-                                            }
-                                        })
-                                        .filter(x -> {
-                                            try {
-                                                return !board.getReachable(p.getPosition(), 1).contains(x);
-                                            } catch (NotAvailableAttributeException e) {
-                                                LOGGER.log(Level.SEVERE, MISSING_POSITION, e);
-                                                return false;
-                                            }
-                                        })
-                                        .map(Square::getPlayers)
-                                        .flatMap(List::stream)
-                                        .distinct()
-                                        .map(Arrays::asList)
-                                        .collect(Collectors.toList());
-                                targets.addAll(close);
-                                targets.addAll(far);
-                                targets.addAll(cartesian(close, far));
-                            }
-                            return targets;
-                        };
+                return WeaponFactory::targetsPowerGloveAlt;
             case SHOCKWAVE_MAIN:
-                return p -> {
-                            List<List<Player>> targets = new ArrayList<>();
-                            List<List<List<Player>>> directionalTargets = new ArrayList<>();
-                            for (Direction d : Direction.values()) {
-                                List<List<Player>> candidate = board.getReachable(p.getPosition(), 1).stream()
-                                        .filter(x -> {
-                                            try {
-                                                return board.getSquaresInLine(p.getPosition(), d).contains(x);
-                                            } catch (NotAvailableAttributeException e) {
-                                                LOGGER.log(Level.SEVERE, MISSING_POSITION, e);
-                                                return false;
-                                            }
-                                        })
-                                        .map(Square::getPlayers)
-                                        .flatMap(List::stream)
-                                        .distinct()
-                                        .map(Arrays::asList)
-                                        .collect(Collectors.toList());
-                                if (!candidate.isEmpty()) {
-                                    directionalTargets.add(candidate);
-                                }
-                            }
-                            for (int i = 0; i < directionalTargets.size(); i++) {
-                                targets.addAll(directionalTargets.get(i));
-                                for (int j = i + 1; j < directionalTargets.size(); j++) {
-                                    targets.addAll(cartesian(directionalTargets.get(i), directionalTargets.get(j)));
-                                    for (int k = j + 1; k < directionalTargets.size(); k++) {
-                                        targets.addAll(cartesian(cartesian(directionalTargets.get(i), directionalTargets.get(j)), directionalTargets.get(k)));
-                                    }
-                                }
-                            }
-                            return targets;
-                        };
+                return WeaponFactory::targetsShockwaveMain;
             case SHOCKWAVE_ALT:
-                return p -> Collections.singletonList(board.getReachable(p.getPosition(), 1).stream()
-                        .filter(x -> (!x.getPlayers().contains(p)))
-                        .map(Square::getPlayers)
-                        .flatMap(List::stream)
-                        .distinct()
-                        .collect(Collectors.toList()));
-
+                return WeaponFactory::targetsShockwaveAlt;
             default:
                 LOGGER.log(Level.SEVERE, "Target name does not match: {0}", target);
                 return p -> new ArrayList<>();
@@ -816,7 +413,7 @@ public class WeaponFactory {
      * @param firemode  information about the firemode
      * @return          destinationFinder logic
      */
-    private DestinationFinder getDestinationFinder(JsonObject firemode) {
+    private static DestinationFinder getDestinationFinder(JsonObject firemode) {
         String destination = "";
         try {
             destination = firemode.get("destination").getAsString();
@@ -826,123 +423,29 @@ public class WeaponFactory {
 
         switch(destination) {
             case NONE:
-                return (p, t) -> new ArrayList<>();
+                return WeaponFactory::destinationsNone;
             case PLASMA_GUN_ONE:
-                return (p, t) -> {
-                            List<Square> l = board.getReachable(p.getPosition(), 2);
-                            l.remove(p.getPosition());
-                            if (!p.getMainTargets().isEmpty()) {
-                                return l;
-                            }
-                            List<Square> selectable = new ArrayList<>(l);
-                            for (Square s : l) {
-                                if (board.getVisible(s).stream()
-                                        .map(Square::getPlayers)
-                                        .flatMap(List::stream)
-                                        .distinct()
-                                        .filter(x -> !x.equals(p))
-                                        .map(Arrays::asList)
-                                        .count()==0) {
-                                    selectable.remove(s);
-                                }
-                            }
-                            return selectable;
-                        };
+                return WeaponFactory::destinationsPlasmaGunOne;
             case TRACTOR_BEAM_MAIN:
-                return (p, t) -> board.getVisible(p.getPosition()).stream()
-                        .distinct()
-                        .filter(x -> {
-                            try {
-                                return !t.isEmpty() && board.getReachable(t.get(0).getPosition(), 2).contains(x);
-                            } catch (NotAvailableAttributeException e) {
-                                LOGGER.log(Level.SEVERE, MISSING_POSITION, e);
-                                return false;
-                            }
-                        })
-                        .collect(Collectors.toList());
+                return WeaponFactory::destinationsTractorBeamMain;
             case SHOOTER_SQAURE:
-                return (p, t) -> Collections.singletonList(p.getPosition());
+                return WeaponFactory::destinationsShooterSquare;
             case VORTEX_CANNON_MAIN:
-                return (p, t) -> board.getVisible(p.getPosition()).stream()
-                        .filter(x -> {
-                            try {
-                                return !t.isEmpty() && board.getReachable(t.get(0).getPosition(), 1).contains(x);
-                            } catch (NotAvailableAttributeException e) {
-                                LOGGER.log(Level.SEVERE, MISSING_POSITION, e);
-                                return false;
-                            }
-                        })
-                        .filter(x -> !x.containsPlayer(p))
-                        .distinct()
-                        .collect(Collectors.toList());
+                return WeaponFactory::destinationsVortexCannonMain;
             case VORTEX_CANNON_ONE:
-                return (p, t) -> p.getMainTargets().isEmpty() ? new ArrayList<>() : Collections.singletonList(p.getMainTargets().get(0).getPosition());
+                return WeaponFactory::destinationsVortexCannonOne;
             case ADJACENT_TO_TARGET:
-                return (p, t) -> t.isEmpty() ? new ArrayList<>() : board.getReachable(t.get(0).getPosition(), 1);
+                return WeaponFactory::destinationsAdjacentToTarget;
             case ROCKET_LAUNCHER_ONE:
-                return (p, t) -> {
-                            List<Square> l = board.getReachable(p.getPosition(), 2);
-                            l.remove(p.getPosition());
-                            if (!p.getMainTargets().isEmpty()) {
-                                return l;
-                            }
-                            List<Square> res = new ArrayList<>(l);
-                            for (Square s : l) {
-                                if (board.getVisible(s).stream()
-                                        .filter(x -> !x.equals(s))
-                                        .map(Square::getPlayers)
-                                        .flatMap(List::stream)
-                                        .distinct()
-                                        .filter(x -> !x.equals(p))
-                                        .map(Arrays::asList)
-                                        .count()==0) {
-                                    res.remove(s);
-                                }
-                            }
-                            return res;
-                        };
+                return WeaponFactory::destinationsRocketLauncherOne;
             case CYBERBLADE_ONE:
-                return (p, t) -> {
-                            if (p.getMainTargets().isEmpty()) {
-                                return board.getReachable(p.getPosition(), 1).stream().filter(x -> !x.getPlayers().contains(p)&&!x.getPlayers().isEmpty()).collect(Collectors.toList());
-                            }
-                            return board.getReachable(p.getPosition(), 1).stream().filter(x -> !x.containsPlayer(p)).collect(Collectors.toList());
-                        };
+                return WeaponFactory::destinationsCyberbladeOne;
             case TARGET_SQUARE:
-                return (p, t) -> t.isEmpty() ? new ArrayList<>() : Collections.singletonList(t.get(0).getPosition());
+                return WeaponFactory::destinationsTargetSquare;
             case POWER_GLOVE_ALT:
-                return (p, t) -> {
-                            for (Player temp : t) {
-                                if (board.getDistance(p.getPosition(), temp.getPosition()) > 1) {
-                                    return Collections.singletonList(temp.getPosition());
-                                }
-                            }
-                            List<Square> res = new ArrayList<>();
-                            res.add(t.get(0).getPosition());
-                            for (Direction d : Direction.values()) {
-                                if (board.getSquaresInLine(p.getPosition(), d).contains(t.get(0).getPosition())) {
-                                    for (Square sq : board.getSquaresInLine(p.getPosition(), d)) {
-                                        if (board.getDistance(sq, p.getPosition()) == 2) {
-                                            res.add(sq);
-                                        }
-                                    }
-                                }
-
-                            }
-                            return res;
-                        };
+                return WeaponFactory::destinationsPowerGloveAlt;
             case SLEDGEHAMMER_ALT:
-                return (p, t) -> {
-                            List<Square> res = new ArrayList<>();
-                            Square center = p.getPosition();
-                            res.add(center);
-                            for (Direction d : Direction.values()) {
-                                res.addAll(board.getSquaresInLine(center, d).stream()
-                                        .filter(x -> board.getDistance(center, x) < 3)
-                                        .collect(Collectors.toList()));
-                            }
-                            return res;
-                        };
+                return WeaponFactory::destinationsSledgehammerAlt;
             default:
                 LOGGER.log(Level.SEVERE, "Destination name does not match: {0}", destination);
                 return (p, t) -> new ArrayList<>();
@@ -956,7 +459,7 @@ public class WeaponFactory {
      * @param firemode  information about the firemode
      * @return          effect logic
      */
-    private Effect getEffect(JsonObject firemode) {
+    private static Effect getEffect(JsonObject firemode) {
         String effect = "";
         int tmpDmg = 0;
         int tmpMark = 0;
@@ -974,36 +477,17 @@ public class WeaponFactory {
             case STANDARD:
                 return createEffect(dmg, mark);
             case MOVE:
-                return (shooter, target, destination) -> target.setPosition(destination);
+                return (shooter, target, destination) -> effectMove(shooter, target, destination, dmg, mark);
             case MOVE_DAMAGE:
-                return (shooter, target, destination) -> {
-                    target.setPosition(destination);
-                    target.sufferDamage(dmg, shooter);
-                    target.addMarks(mark, shooter);
-                };
+                return (shooter, target, destination) -> effectMoveDamage(shooter, target, destination, dmg, mark);
             case DAMAGE_MOVE:
-                return (shooter, target, destination) -> {
-                    target.sufferDamage(dmg, shooter);
-                    target.addMarks(mark, shooter);
-                    target.setPosition(destination);
-                };
+                return (shooter, target, destination) -> effectDamageMove(shooter, target, destination, dmg, mark);
             case HELLION:
-                return (shooter, target, destination) -> {
-                    target.sufferDamage(dmg, shooter);
-                    board.getPlayersInside(target.getPosition()).forEach(x -> x.addMarks(mark, shooter));
-                };
+                return (shooter, target, destination) -> effectHellion(shooter, target, destination, dmg, mark);
             case FLAMETHROWER_ALT:
-                return (shooter, target, destination) -> {
-                    if (board.getReachable(shooter.getPosition(), 1).contains(target.getPosition())) {
-                        target.sufferDamage(dmg, shooter);
-                    } else target.sufferDamage(1, shooter);
-                };
+                return (shooter, target, destination) -> effectFlamethrowerAlt(shooter, target, destination, dmg, mark);
             case POWER_GLOVE:
-                return (shooter, target, destination) -> {
-                    shooter.setPosition(destination);
-                    target.sufferDamage(dmg, shooter);
-                    target.addMarks(mark, shooter);
-                };
+                return (shooter, target, destination) -> effectPowerGlove(shooter, target, destination, dmg, mark);
             default:
                 LOGGER.log(Level.SEVERE, "Effect name does not match: {0}", effect);
                 return createEffect(dmg, mark);
@@ -1017,22 +501,1187 @@ public class WeaponFactory {
      * @param marks     marks dealt
      * @return          effect
      */
-    private Effect createEffect(int damage, int marks){
+    private static Effect createEffect(int damage, int marks){
 
         if(damage<0 || marks<0){
             throw new IllegalArgumentException("Damage and marks must be positive.");
         }
-        if(damage!=0&&marks!=0) {
-            return (shooter, target, destination) -> {
-                target.sufferDamage(damage, shooter);
-                target.addMarks(marks, shooter);
-            };
+        return (shooter, target, destination) -> effectStandard(shooter, target, destination, damage, marks);
+
+    }
+
+    /**
+     * Applies the most common effect (dealing damage and marks), used by the firemodes tagged "standard" in the file
+     * weapons.json.
+     *
+     * @param shooter       the shooting player
+     * @param target        the target
+     * @param destination   the destination, if relevant
+     * @param dmg           the damage dealt
+     * @param mark          the marks dealt
+     */
+    @WeaponBehaviour(STANDARD)
+    static void effectStandard(Player shooter, Player target, Square destination, int dmg, int mark) {
+        if(dmg!=0) {
+            target.sufferDamage(dmg, shooter);
         }
-        if(damage!=0){
-            return (shooter, target, destination) -> target.sufferDamage(damage, shooter);
+        if(mark!=0 || dmg==0) {
+            target.addMarks(mark, shooter);
         }
-        return (shooter, target, destination) -> target.addMarks(marks, shooter);
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "1visible" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(ONE_VISIBLE)
+    static List<List<Player>> targetsOneVisible(Player p) throws NotAvailableAttributeException {
+        return p.getBoard().getVisible(p.getPosition()).stream()
+                .map(Square::getPlayers)
+                .flatMap(List::stream)
+                .distinct()
+                .filter(x -> !x.equals(p))
+                .map(Arrays::asList)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "1otherVisible" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(ONE_OTHER_VISIBLE)
+    static List<List<Player>> targetsOneOtherVisible(Player p) throws NotAvailableAttributeException {
+        return (p.getMainTargets().isEmpty() ? new ArrayList<>() : p.getBoard().getVisible(p.getPosition()).stream()
+                .map(Square::getPlayers)
+                .flatMap(List::stream)
+                .distinct()
+                .filter(x -> !x.equals(p) && !p.getMainTargets().isEmpty())
+                .filter(x -> !p.getMainTargets().contains(x))
+                .map(Arrays::asList)
+                .collect(Collectors.toList()));
+    }
 
+    /**
+     * Finds the groups of targets of the firemodes tagged "1or2visible" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(ONE_OR_TWO_VISIBLE)
+    static List<List<Player>> targetsOneOrTwoVisible(Player p) throws NotAvailableAttributeException {
+        List<List<Player>> res = p.getBoard().getVisible(p.getPosition()).stream()
+                .map(Square::getPlayers)
+                .flatMap(List::stream)
+                .distinct()
+                .filter(x -> !x.equals(p))
+                .map(Arrays::asList)
+                .collect(Collectors.toList());
+        res.addAll(cartesian(res, res));
+        return res;
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "1mainTarget" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(ONE_MAIN_TARGET)
+    static List<List<Player>> targetsOneMainTarget(Player p) throws NotAvailableAttributeException {
+        return (p.getMainTargets().stream()
+                .distinct()
+                .filter(x -> !p.getOptionalTargets().contains(x))
+                .map(Arrays::asList)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "1mainTargetOrOtherVisible" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(ONE_MAIN_TARGET_OR_OTHER_VIISBLE)
+    static List<List<Player>> targetsOneMainTargetOrOtherVisible(Player p) throws NotAvailableAttributeException {
+        if(p.getMainTargets().isEmpty()){
+            return new ArrayList<>();
+        }
+        List<List<Player>> pastTargets = p.getMainTargets().stream()
+                .distinct()
+                .filter(x -> !p.getOptionalTargets().contains(x))
+                .map(Arrays::asList)
+                .collect(Collectors.toList());
+        List<List<Player>> others = p.getBoard().getVisible(p.getPosition()).stream()
+                .map(Square::getPlayers)
+                .flatMap(List::stream)
+                .distinct()
+                .filter(x -> !x.equals(p))
+                .filter(x -> !(p.getMainTargets().contains(x) || p.getOptionalTargets().contains(x)))
+                .map(Arrays::asList)
+                .collect(Collectors.toList());
+        others.addAll(cartesian(pastTargets, others));
+        others.addAll(pastTargets);
+        return others;
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "thor1" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(THOR_ONE)
+    static List<List<Player>> targetsThorOne(Player p) throws NotAvailableAttributeException {
+        return (p.getMainTargets().isEmpty()) ?
+                new ArrayList<>() : p.getBoard().getVisible(p.getMainTargets().get(0).getPosition()).stream()
+                .map(Square::getPlayers)
+                .flatMap(List::stream)
+                .distinct()
+                .filter(x -> !p.getMainTargets().contains(x))
+                .filter(x -> !x.equals(p))
+                .map(Arrays::asList)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "thor2" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(THOR_TWO)
+    static List<List<Player>> targetsThorTwo(Player p) throws NotAvailableAttributeException {
+        return (p.getMainTargets().isEmpty() || p.getOptionalTargets().isEmpty()) ?
+                new ArrayList<>() : p.getBoard()
+                .getVisible(p.getOptionalTargets().get(0).getPosition()).stream()
+                .map(Square::getPlayers)
+                .flatMap(List::stream)
+                .distinct()
+                .filter(x -> !(p.getMainTargets().contains(x) || p.getOptionalTargets().contains(x)))
+                .filter(x -> !x.equals(p))
+                .map(Arrays::asList)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "plasmaGun1" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(PLASMA_GUN_ONE)
+    static List<List<Player>> targetsPlasmaGunOne(Player p) throws NotAvailableAttributeException {
+        if (!p.getMainTargets().isEmpty()) {
+            return Collections.singletonList(Collections.singletonList(p));
+        }
+        List<Square> l = p.getBoard().getReachable(p.getPosition(), 2);
+        for (Square s : l) {
+            if (!s.containsPlayer(p)) {
+                if (p.getBoard().getVisible(s).stream()
+                        .map(Square::getPlayers)
+                        .flatMap(List::stream)
+                        .distinct()
+                        .filter(x -> !x.equals(p))
+                        .map(Arrays::asList)
+                        .count()!=0) {
+                    return Collections.singletonList(Collections.singletonList(p));
+                }
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "whisper" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(WHISPER)
+    static List<List<Player>> targetsWhisper(Player p) throws NotAvailableAttributeException {
+        return p.getBoard().getVisible(p.getPosition()).stream()
+                .map(Square::getPlayers)
+                .flatMap(List::stream)
+                .distinct()
+                .filter(x -> !x.equals(p))
+                .filter(x -> {
+                    try {
+                        return p.getBoard().getDistance(x.getPosition(), p.getPosition()) >= 2;
+                    } catch (NotAvailableAttributeException e) {
+                        LOGGER.log(Level.SEVERE, MISSING_POSITION, e);
+                        return false;
+                    }
+                })
+                .map(Arrays::asList)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "allSameSquare" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(ALL_SAME_SQUARE)
+    static List<List<Player>> targetsAllSameSquare(Player p) throws NotAvailableAttributeException {
+        return Collections.singletonList(p.getPosition().getPlayers().stream()
+                .distinct()
+                .filter(x -> (!x.equals(p)))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "tractorBeamMain" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(TRACTOR_BEAM_MAIN)
+    static List<List<Player>> targetsTractorBeamMain(Player p) throws NotAvailableAttributeException {
+        List<Square> l = p.getBoard().getVisible(p.getPosition());
+        List<Square> temp = new ArrayList<>();
+        for (Square s : l) {
+            temp.addAll(p.getBoard().getReachable(s, 2));
+        }
+        return temp.stream()
+                .distinct()
+                .map(Square::getPlayers)
+                .flatMap(List::stream)
+                .distinct()
+                .filter(x -> !x.equals(p))
+                .map(Arrays::asList)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "tractorBeamAlt" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(TRACTOR_BEAM_ALT)
+    static List<List<Player>> targetsTractorBeamAlt(Player p) throws NotAvailableAttributeException {
+        return p.getBoard().getReachable(p.getPosition(), 2).stream()
+                .map(Square::getPlayers)
+                .flatMap(List::stream)
+                .distinct()
+                .filter(x -> !x.equals(p))
+                .map(Arrays::asList)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "vortexCannonMain" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(VORTEX_CANNON_MAIN)
+    static List<List<Player>> targetsVortexCannonMain(Player p) throws NotAvailableAttributeException {
+        List<Square> l = p.getBoard().getVisible(p.getPosition());
+        List<Square> temp = new ArrayList<>();
+        for (Square s : l) {
+            temp.addAll(p.getBoard().getReachable(s, 1));
+        }
+        return temp.stream()
+                .map(Square::getPlayers)
+                .flatMap(List::stream)
+                .distinct()
+                .filter(x -> !x.equals(p))
+                .map(Arrays::asList)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "vortexCannon1" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(VORTEX_CANNON_ONE)
+    static List<List<Player>> targetsVortexCannonOne(Player p) throws NotAvailableAttributeException {
+        if (p.getMainTargets().isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<List<Player>> lp = p.getBoard().getReachable(p.getMainTargets().get(0).getPosition(), 1).stream()
+                .map(Square::getPlayers)
+                .flatMap(List::stream)
+                .distinct()
+                .filter(x -> !x.equals(p))
+                .filter(x -> !p.getMainTargets().contains(x))
+                .map(Arrays::asList)
+                .collect(Collectors.toList());
+        List<List<Player>> res = cartesian(lp, lp);
+        res.addAll(lp);
+        return res;
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "otherRoom" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(OTHER_ROOM)
+    static List<List<Player>> targetsOtherRoom(Player p) throws NotAvailableAttributeException {
+        List<List<Square>> roomList = p.getBoard().getVisible(p.getPosition()).stream()
+                .map(Square::getRoomId)
+                .distinct()
+                .filter(x -> {
+                    try {
+                        return x != p.getPosition().getRoomId();
+                    } catch (NotAvailableAttributeException ex) {
+                        LOGGER.log(Level.SEVERE, MISSING_POSITION, ex);
+                        return false;
+                    }
+                })
+                .map(x -> p.getBoard().getSquaresInRoom(x))
+                .collect(Collectors.toList());
+        List<List<Player>> res = new ArrayList<>();
+        List<Player> temp = new ArrayList<>();
+        for (List<Square> ls : roomList) {
+            for (Square s : ls) {
+                temp.addAll(s.getPlayers());
+            }
+            if (!temp.isEmpty()) {
+                res.add(temp);
+            }
+            temp = new ArrayList<>();
+        }
+        return res;
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "adjacentSquare" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(ADJACENT_SQUARE)
+    static List<List<Player>> targetsAdjacentSquare(Player p) throws NotAvailableAttributeException {
+        return p.getBoard().getReachable(p.getPosition(), 1).stream()
+                .filter(x -> !x.containsPlayer(p))
+                .map(Square::getPlayers)
+                .filter(x -> !x.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "notVisible" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(NOT_VISIBLE)
+    static List<List<Player>> targetsNotVisible(Player p) throws NotAvailableAttributeException {
+        return p.getBoard().getMap().stream()
+                .filter(x -> {
+                    try {
+                        return !p.getBoard().getVisible(p.getPosition()).contains(x);
+                    } catch (NotAvailableAttributeException e) {
+                        LOGGER.log(Level.SEVERE, MISSING_POSITION, e);
+                        return false;
+                    }
+                })
+                .map(Square::getPlayers)
+                .flatMap(List::stream)
+                .distinct()
+                .filter(x -> !x.equals(p))
+                .map(Arrays::asList)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "notShooterSquareVisible" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(NOT_SHOOTER_SQUARE_VISIBLE)
+    static List<List<Player>> targetsNotShooterSquareVisible(Player p) throws NotAvailableAttributeException {
+        return p.getBoard().getVisible(p.getPosition()).stream()
+                .filter(x -> !x.containsPlayer(p))
+                .map(Square::getPlayers)
+                .flatMap(List::stream)
+                .distinct()
+                .map(Arrays::asList)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "flamethrowerMain" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(FLAMETHROWER_MAIN)
+    static List<List<Player>> targetsFlamethrowerMain(Player p) throws NotAvailableAttributeException {
+        List<List<Player>> targets = new ArrayList<>();
+        for (Direction d : Direction.values()) {
+            List<List<Player>> close = p.getBoard().getSquaresInLine(p.getPosition(), d).stream()
+                    .filter(x -> {
+                        try {
+                            return p.getBoard().getReachable(p.getPosition(), 1).contains(x);
+                        } catch (NotAvailableAttributeException e) {
+                            LOGGER.log(Level.SEVERE, MISSING_POSITION, e);
+                            return false;
+                        }
+                    })
+                    .map(Square::getPlayers)
+                    .flatMap(List::stream)
+                    .distinct()
+                    .map(Arrays::asList)
+                    .collect(Collectors.toList());
+            List<List<Player>> far = p.getBoard().getSquaresInLine(p.getPosition(), d).stream()
+                    .filter(x -> {
+                        try {
+                            return p.getBoard().getReachable(p.getPosition(), 2).contains(x) && !p.getBoard().getReachable(p.getPosition(), 1).contains(x);
+                        } catch (NotAvailableAttributeException e) {
+                            LOGGER.log(Level.SEVERE, MISSING_POSITION, e);
+                            return false;
+                        }
+                    })
+                    .map(Square::getPlayers)
+                    .flatMap(List::stream)
+                    .distinct()
+                    .map(Arrays::asList)
+                    .collect(Collectors.toList());
+            targets.addAll(close);
+            targets.addAll(far);
+            targets.addAll(cartesian(close, far));
+        }
+        return targets;
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "flamethrowerAlt" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(FLAMETHROWER_ALT)
+    static List<List<Player>> targetsFlamethrowerAlt(Player p) throws NotAvailableAttributeException {
+        List<List<Player>> targets = new ArrayList<>();
+        for (Direction d : Direction.values()) {
+            List<Player> line = p.getBoard().getSquaresInLine(p.getPosition(), d).stream()
+                    .filter(x -> {
+                        try {
+                            return p.getBoard().getReachable(p.getPosition(), 2).contains(x);
+                        } catch (NotAvailableAttributeException e) {
+                            LOGGER.log(Level.SEVERE, MISSING_POSITION, e);
+                            return false;
+                        }
+                    })
+                    .map(Square::getPlayers)
+                    .flatMap(List::stream)
+                    .distinct()
+                    .collect(Collectors.toList());
+            if(!line.isEmpty()) {
+                targets.add(line);
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "grenadeLauncher1" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(GRENADE_LAUNCHER)
+    static List<List<Player>> targetsGrenadeLauncher(Player p) throws NotAvailableAttributeException {
+        List<List<Player>> l = p.getBoard().getVisible(p.getPosition()).stream()
+                .filter(x -> !x.containsPlayer(p))
+                .map(Square::getPlayers)
+                .filter(x->!x.isEmpty())
+                .collect(Collectors.toList());
+        List<Player> inSameRoomAsPlayer = p.getPosition().getPlayers().stream().filter(x -> !x.equals(p)).collect(Collectors.toList());
+        if(!inSameRoomAsPlayer.isEmpty()){
+            l.add(inSameRoomAsPlayer);
+        }
+        return l;
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "rocketLauncher1" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(ROCKET_LAUNCHER_ONE)
+    static List<List<Player>> targetsRocketLauncherOne(Player p) throws NotAvailableAttributeException {
+        if(!p.getMainTargets().isEmpty()){
+            return Collections.singletonList(Collections.singletonList(p));
+        }
+        List<Square> l = p.getBoard().getReachable(p.getPosition(), 2);
+        for (Square s : l) {
+            List<Square> targets = p.getBoard().getVisible(s).stream()
+                    .filter(x->!x.containsPlayer(p))
+                    .filter(x->!x.getPlayers().isEmpty())
+                    .collect(Collectors.toList());
+            if (!targets.isEmpty() && !s.containsPlayer(p)) {
+                return Collections.singletonList(Collections.singletonList(p));
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "rocketLauncher2" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(ROCKET_LAUNCHER_TWO)
+    static List<List<Player>> targetsRocketLauncherTwo(Player p) throws NotAvailableAttributeException {
+        if (p.getMainTargets().isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Player> l = new ArrayList<>(p.getMainTargets());
+        for (Player player : p.getMainTargets()) {
+            for (Player opt2target : player.getPreviousPosition().getPlayers())
+                if (!l.contains(opt2target))
+                    l.add(opt2target);
+        }
+        return Collections.singletonList(l);
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "railgunMain" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(RAILGUN_MAIN)
+    static List<List<Player>> targetsRailgunMain(Player p) throws NotAvailableAttributeException {
+        List<List<Player>> targets = new ArrayList<>();
+        for (Direction d : Direction.values()) {
+            List<List<Player>> single = p.getBoard().getSquaresInLineIgnoringWalls(p.getPosition(), d)
+                    .stream()
+                    .map(Square::getPlayers)
+                    .flatMap(List::stream)
+                    .distinct()
+                    .map(Arrays::asList)
+                    .collect(Collectors.toList());
+            targets.addAll(single);
+        }
+        targets.addAll(p.getPosition().getPlayers().stream()
+                .distinct()
+                .filter(x -> !x.equals(p))
+                .map(Arrays::asList)
+                .collect(Collectors.toList())
+        );
+        return targets;
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "railgunAlt" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(RAILGUN_ALT)
+    static List<List<Player>> targetsRailgunAlt(Player p) throws NotAvailableAttributeException {
+        List<List<Player>> targets = new ArrayList<>();
+        List<List<Player>> close = p.getPosition().getPlayers().stream()
+                .distinct()
+                .filter(x -> !x.equals(p))
+                .map(Arrays::asList)
+                .collect(Collectors.toList());
+        targets.addAll(close);
+        targets.addAll(cartesian(close, close));
+        for (Direction d : Direction.values()) {
+            List<List<Player>> single = p.getBoard().getSquaresInLineIgnoringWalls(p.getPosition(), d)
+                    .stream()
+                    .map(Square::getPlayers)
+                    .flatMap(List::stream)
+                    .distinct()
+                    .map(Arrays::asList)
+                    .collect(Collectors.toList());
+            targets.addAll(single);
+            List<List<Player>> both = new ArrayList<>(close);
+            both.addAll(single);
+            targets.addAll(cartesian(both, single));
+        }
+        return targets;
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "1sameSquare" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(ONE_SAME_SQUARE)
+    static List<List<Player>> targetsOneSameSquare(Player p) throws NotAvailableAttributeException {
+        return p.getPosition().getPlayers().stream()
+                .distinct()
+                .filter(x -> !x.equals(p))
+                .map(Arrays::asList)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "cyberblade1" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(CYBERBLADE_ONE)
+    static List<List<Player>> targetsCyberbladeOne(Player p) throws NotAvailableAttributeException {
+        if(!p.getMainTargets().isEmpty()){
+            return Collections.singletonList(Collections.singletonList(p));
+        }
+        for (Square s : p.getBoard().getReachable(p.getPosition(), 1)) {
+            if (!s.containsPlayer(p)&&!s.getPlayers().isEmpty()) {
+                return Collections.singletonList(Collections.singletonList(p));
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "1otherSameSquare" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(ONE_OTHER_SAME_SQUARE)
+    static List<List<Player>> targetsOneOtherSameSquare(Player p) throws NotAvailableAttributeException {
+        return p.getMainTargets().isEmpty()? new ArrayList<>():p.getPosition().getPlayers().stream()
+                .distinct()
+                .filter(x -> !x.equals(p))
+                .filter(x -> !p.getMainTargets().contains(x))
+                .map(Arrays::asList)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "3visible" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(THREE_VISIBLE)
+    static List<List<Player>> targetsThreeVisible(Player p) throws NotAvailableAttributeException {
+        List<List<Player>> targets = new ArrayList<>();
+        List<List<Player>> single = p.getBoard().getVisible(p.getPosition()).stream()
+                .map(Square::getPlayers)
+                .flatMap(List::stream)
+                .distinct()
+                .filter(x -> !x.equals(p))
+                .map(Arrays::asList)
+                .collect(Collectors.toList());
+        targets.addAll(single);
+        targets.addAll(cartesian(single, single));
+        targets.addAll(cartesian(cartesian(single, single), single));
+        return targets;
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "1stepAway" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(ONE_STEP_AWAY)
+    static List<List<Player>> targetsOneStepAway(Player p) throws NotAvailableAttributeException {
+        return p.getBoard().getReachable(p.getPosition(), 1).stream()
+                .filter(x -> (!x.getPlayers().contains(p)))
+                .map(Square::getPlayers)
+                .flatMap(List::stream)
+                .distinct()
+                .map(Arrays::asList)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "powerGloveAlt" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(POWER_GLOVE_ALT)
+    static List<List<Player>> targetsPowerGloveAlt(Player p) throws NotAvailableAttributeException {
+        List<List<Player>> targets = new ArrayList<>();
+        for (Direction d : Direction.values()) {
+            List<List<Player>> close = p.getBoard().getSquaresInLineIgnoringWalls(p.getPosition(), d)
+                    .stream()
+                    .filter(x -> {
+                        try {
+                            return p.getBoard().getReachable(p.getPosition(), 1).contains(x);
+                        } catch (NotAvailableAttributeException e) {
+                            LOGGER.log(Level.SEVERE, MISSING_POSITION, e);
+                            return false;
+                        }
+                    })
+                    .map(Square::getPlayers)
+                    .flatMap(List::stream)
+                    .distinct()
+                    .map(Arrays::asList)
+                    .collect(Collectors.toList());
+            List<List<Player>> far = p.getBoard().getSquaresInLineIgnoringWalls(p.getPosition(), d)
+                    .stream()
+                    .filter(x -> {
+                        try {
+                            return p.getBoard().getReachable(p.getPosition(), 2).contains(x);
+                        } catch (NotAvailableAttributeException e) {
+                            LOGGER.log(Level.SEVERE, MISSING_POSITION, e);
+                            return false;
+                        }
+                    })
+                    .filter(x -> {
+                        try {
+                            return !p.getBoard().getReachable(p.getPosition(), 1).contains(x);
+                        } catch (NotAvailableAttributeException e) {
+                            LOGGER.log(Level.SEVERE, MISSING_POSITION, e);
+                            return false;
+                        }
+                    })
+                    .map(Square::getPlayers)
+                    .flatMap(List::stream)
+                    .distinct()
+                    .map(Arrays::asList)
+                    .collect(Collectors.toList());
+            targets.addAll(close);
+            targets.addAll(far);
+            targets.addAll(cartesian(close, far));
+        }
+        return targets;
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "shockwaveMain" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(SHOCKWAVE_MAIN)
+    static List<List<Player>> targetsShockwaveMain(Player p) throws NotAvailableAttributeException {
+        List<List<Player>> targets = new ArrayList<>();
+        List<List<List<Player>>> directionalTargets = new ArrayList<>();
+        for (Direction d : Direction.values()) {
+            List<List<Player>> candidate = p.getBoard().getReachable(p.getPosition(), 1).stream()
+                    .filter(x -> {
+                        try {
+                            return p.getBoard().getSquaresInLine(p.getPosition(), d).contains(x);
+                        } catch (NotAvailableAttributeException e) {
+                            LOGGER.log(Level.SEVERE, MISSING_POSITION, e);
+                            return false;
+                        }
+                    })
+                    .map(Square::getPlayers)
+                    .flatMap(List::stream)
+                    .distinct()
+                    .map(Arrays::asList)
+                    .collect(Collectors.toList());
+            if (!candidate.isEmpty()) {
+                directionalTargets.add(candidate);
+            }
+        }
+        for (int i = 0; i < directionalTargets.size(); i++) {
+            targets.addAll(directionalTargets.get(i));
+            for (int j = i + 1; j < directionalTargets.size(); j++) {
+                targets.addAll(cartesian(directionalTargets.get(i), directionalTargets.get(j)));
+                for (int k = j + 1; k < directionalTargets.size(); k++) {
+                    targets.addAll(cartesian(cartesian(directionalTargets.get(i), directionalTargets.get(j)), directionalTargets.get(k)));
+                }
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Finds the groups of targets of the firemodes tagged "shockwaveAlt" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @return          the groups of targets
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(SHOCKWAVE_ALT)
+    static List<List<Player>> targetsShockwaveAlt(Player p) throws NotAvailableAttributeException {
+        return Collections.singletonList(p.getBoard().getReachable(p.getPosition(), 1).stream()
+                .filter(x -> (!x.getPlayers().contains(p)))
+                .map(Square::getPlayers)
+                .flatMap(List::stream)
+                .distinct()
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Finds the destinations of the firemodes tagged "none" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @param t         the selected targets
+     * @return          the destinations
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(NONE)
+    static List<Square> destinationsNone(Player p, List<Player> t) throws NotAvailableAttributeException {
+        return new ArrayList<>();
+    }
+
+    /**
+     * Finds the destinations of the firemodes tagged "plasmaGun1" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @param t         the selected targets
+     * @return          the destinations
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(PLASMA_GUN_ONE)
+    static List<Square> destinationsPlasmaGunOne(Player p, List<Player> t) throws NotAvailableAttributeException {
+        List<Square> l = p.getBoard().getReachable(p.getPosition(), 2);
+        l.remove(p.getPosition());
+        if (!p.getMainTargets().isEmpty()) {
+            return l;
+        }
+        List<Square> selectable = new ArrayList<>(l);
+        for (Square s : l) {
+            if (p.getBoard().getVisible(s).stream()
+                    .map(Square::getPlayers)
+                    .flatMap(List::stream)
+                    .distinct()
+                    .filter(x -> !x.equals(p))
+                    .map(Arrays::asList)
+                    .count()==0) {
+                selectable.remove(s);
+            }
+        }
+        return selectable;
+    }
+
+    /**
+     * Finds the destinations of the firemodes tagged "tractorBeamMain" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @param t         the selected targets
+     * @return          the destinations
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(TRACTOR_BEAM_MAIN)
+    static List<Square> destinationsTractorBeamMain(Player p, List<Player> t) throws NotAvailableAttributeException {
+        return p.getBoard().getVisible(p.getPosition()).stream()
+                .distinct()
+                .filter(x -> {
+                    try {
+                        return !t.isEmpty() && p.getBoard().getReachable(t.get(0).getPosition(), 2).contains(x);
+                    } catch (NotAvailableAttributeException e) {
+                        LOGGER.log(Level.SEVERE, MISSING_POSITION, e);
+                        return false;
+                    }
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the destinations of the firemodes tagged "shooterSquare" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @param t         the selected targets
+     * @return          the destinations
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(SHOOTER_SQAURE)
+    static List<Square> destinationsShooterSquare(Player p, List<Player> t) throws NotAvailableAttributeException {
+        return Collections.singletonList(p.getPosition());
+    }
+
+    /**
+     * Finds the destinations of the firemodes tagged "vortexCannonMain" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @param t         the selected targets
+     * @return          the destinations
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(VORTEX_CANNON_MAIN)
+    static List<Square> destinationsVortexCannonMain(Player p, List<Player> t) throws NotAvailableAttributeException {
+        return p.getBoard().getVisible(p.getPosition()).stream()
+                .filter(x -> {
+                    try {
+                        return !t.isEmpty() && p.getBoard().getReachable(t.get(0).getPosition(), 1).contains(x);
+                    } catch (NotAvailableAttributeException e) {
+                        LOGGER.log(Level.SEVERE, MISSING_POSITION, e);
+                        return false;
+                    }
+                })
+                .filter(x -> !x.containsPlayer(p))
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the destinations of the firemodes tagged "vortexCannon1" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @param t         the selected targets
+     * @return          the destinations
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(VORTEX_CANNON_ONE)
+    static List<Square> destinationsVortexCannonOne(Player p, List<Player> t) throws NotAvailableAttributeException {
+        return p.getMainTargets().isEmpty() ? new ArrayList<>() : Collections.singletonList(p.getMainTargets().get(0).getPosition());
+    }
+
+    /**
+     * Finds the destinations of the firemodes tagged "adjacentToTarget" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @param t         the selected targets
+     * @return          the destinations
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(ADJACENT_TO_TARGET)
+    static List<Square> destinationsAdjacentToTarget(Player p, List<Player> t) throws NotAvailableAttributeException {
+        return t.isEmpty() ? new ArrayList<>() : p.getBoard().getReachable(t.get(0).getPosition(), 1);
+    }
+
+    /**
+     * Finds the destinations of the firemodes tagged "rocketLauncher1" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @param t         the selected targets
+     * @return          the destinations
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(ROCKET_LAUNCHER_ONE)
+    static List<Square> destinationsRocketLauncherOne(Player p, List<Player> t) throws NotAvailableAttributeException {
+        List<Square> l = p.getBoard().getReachable(p.getPosition(), 2);
+        l.remove(p.getPosition());
+        if (!p.getMainTargets().isEmpty()) {
+            return l;
+        }
+        List<Square> res = new ArrayList<>(l);
+        for (Square s : l) {
+            if (p.getBoard().getVisible(s).stream()
+                    .filter(x -> !x.equals(s))
+                    .map(Square::getPlayers)
+                    .flatMap(List::stream)
+                    .distinct()
+                    .filter(x -> !x.equals(p))
+                    .map(Arrays::asList)
+                    .count()==0) {
+                res.remove(s);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Finds the destinations of the firemodes tagged "cyberblade1" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @param t         the selected targets
+     * @return          the destinations
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(CYBERBLADE_ONE)
+    static List<Square> destinationsCyberbladeOne(Player p, List<Player> t) throws NotAvailableAttributeException {
+        if (p.getMainTargets().isEmpty()) {
+            return p.getBoard().getReachable(p.getPosition(), 1).stream().filter(x -> !x.getPlayers().contains(p)&&!x.getPlayers().isEmpty()).collect(Collectors.toList());
+        }
+        return p.getBoard().getReachable(p.getPosition(), 1).stream().filter(x -> !x.containsPlayer(p)).collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the destinations of the firemodes tagged "targetSquare" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @param t         the selected targets
+     * @return          the destinations
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(TARGET_SQUARE)
+    static List<Square> destinationsTargetSquare(Player p, List<Player> t) throws NotAvailableAttributeException {
+        return t.isEmpty() ? new ArrayList<>() : Collections.singletonList(t.get(0).getPosition());
+    }
+
+    /**
+     * Finds the destinations of the firemodes tagged "powerGloveAlt" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @param t         the selected targets
+     * @return          the destinations
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(POWER_GLOVE_ALT)
+    static List<Square> destinationsPowerGloveAlt(Player p, List<Player> t) throws NotAvailableAttributeException {
+        for (Player temp : t) {
+            if (p.getBoard().getDistance(p.getPosition(), temp.getPosition()) > 1) {
+                return Collections.singletonList(temp.getPosition());
+            }
+        }
+        List<Square> res = new ArrayList<>();
+        res.add(t.get(0).getPosition());
+        for (Direction d : Direction.values()) {
+            if (p.getBoard().getSquaresInLine(p.getPosition(), d).contains(t.get(0).getPosition())) {
+                for (Square sq : p.getBoard().getSquaresInLine(p.getPosition(), d)) {
+                    if (p.getBoard().getDistance(sq, p.getPosition()) == 2) {
+                        res.add(sq);
+                    }
+                }
+            }
+
+        }
+        return res;
+    }
+
+    /**
+     * Finds the destinations of the firemodes tagged "sledgehammerAlt" in the file weapons.json.
+     *
+     * @param p         the shooting player
+     * @param t         the selected targets
+     * @return          the destinations
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(SLEDGEHAMMER_ALT)
+    static List<Square> destinationsSledgehammerAlt(Player p, List<Player> t) throws NotAvailableAttributeException {
+        List<Square> res = new ArrayList<>();
+        Square center = p.getPosition();
+        res.add(center);
+        for (Direction d : Direction.values()) {
+            res.addAll(p.getBoard().getSquaresInLine(center, d).stream()
+                    .filter(x -> p.getBoard().getDistance(center, x) < 3)
+                    .collect(Collectors.toList()));
+        }
+        return res;
+    }
+
+    /**
+     * Applies the effect of the firemodes tagged "move" in the file weapons.json.
+     *
+     * @param shooter       the shooting player
+     * @param target        the target
+     * @param destination   the destination, if relevant
+     * @param dmg           the damage dealt
+     * @param mark          the marks dealt
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(MOVE)
+    static void effectMove(Player shooter, Player target, Square destination, int dmg, int mark) throws NotAvailableAttributeException {
+        target.setPosition(destination);
+    }
+
+    /**
+     * Applies the effect of the firemodes tagged "moveDamage" in the file weapons.json.
+     *
+     * @param shooter       the shooting player
+     * @param target        the target
+     * @param destination   the destination, if relevant
+     * @param dmg           the damage dealt
+     * @param mark          the marks dealt
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(MOVE_DAMAGE)
+    static void effectMoveDamage(Player shooter, Player target, Square destination, int dmg, int mark) throws NotAvailableAttributeException {
+        target.setPosition(destination);
+        target.sufferDamage(dmg, shooter);
+        target.addMarks(mark, shooter);
+    }
+
+    /**
+     * Applies the effect of the firemodes tagged "damageMove" in the file weapons.json.
+     *
+     * @param shooter       the shooting player
+     * @param target        the target
+     * @param destination   the destination, if relevant
+     * @param dmg           the damage dealt
+     * @param mark          the marks dealt
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(DAMAGE_MOVE)
+    static void effectDamageMove(Player shooter, Player target, Square destination, int dmg, int mark) throws NotAvailableAttributeException {
+        target.sufferDamage(dmg, shooter);
+        target.addMarks(mark, shooter);
+        target.setPosition(destination);
+    }
+
+    /**
+     * Applies the effect of the firemodes tagged "hellion" in the file weapons.json.
+     *
+     * @param shooter       the shooting player
+     * @param target        the target
+     * @param destination   the destination, if relevant
+     * @param dmg           the damage dealt
+     * @param mark          the marks dealt
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(HELLION)
+    static void effectHellion(Player shooter, Player target, Square destination, int dmg, int mark) throws NotAvailableAttributeException {
+        target.sufferDamage(dmg, shooter);
+        shooter.getBoard().getPlayersInside(target.getPosition()).forEach(x -> x.addMarks(mark, shooter));
+    }
+
+    /**
+     * Applies the effect of the firemodes tagged "flamethrowerAlt" in the file weapons.json.
+     *
+     * @param shooter       the shooting player
+     * @param target        the target
+     * @param destination   the destination, if relevant
+     * @param dmg           the damage dealt
+     * @param mark          the marks dealt
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(FLAMETHROWER_ALT)
+    static void effectFlamethrowerAlt(Player shooter, Player target, Square destination, int dmg, int mark) throws NotAvailableAttributeException {
+        if (shooter.getBoard().getReachable(shooter.getPosition(), 1).contains(target.getPosition())) {
+            target.sufferDamage(dmg, shooter);
+        } else target.sufferDamage(1, shooter);
+    }
+
+    /**
+     * Applies the effect of the firemodes tagged "powerGlove" in the file weapons.json.
+     *
+     * @param shooter       the shooting player
+     * @param target        the target
+     * @param destination   the destination, if relevant
+     * @param dmg           the damage dealt
+     * @param mark          the marks dealt
+     * @throws NotAvailableAttributeException if some players do not have a position
+     */
+    @WeaponBehaviour(POWER_GLOVE)
+    static void effectPowerGlove(Player shooter, Player target, Square destination, int dmg, int mark) throws NotAvailableAttributeException {
+        shooter.setPosition(destination);
+        target.sufferDamage(dmg, shooter);
+        target.addMarks(mark, shooter);
     }
 
     /**
@@ -1042,7 +1691,7 @@ public class WeaponFactory {
      * @param b     second group
      * @return      cartesian product of the two groups
      */
-    private List<List<Player>> cartesian (List<List<Player>> a, List<List<Player>> b){
+    private static List<List<Player>> cartesian (List<List<Player>> a, List<List<Player>> b){
         List<List<Player>> atemp = a.stream()
                 .filter(x->!x.isEmpty())
                 .distinct()
@@ -0,0 +1,303 @@
+package it.polimi.ingsw.model;
+
+import com.google.gson.JsonObject;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable message with a cached serialization. An update broadcast to all players is wrapped once and shared by
+ * all the queues, so that it is serialized once however many clients receive it. A batch is serialized by
+ * concatenating the cached serializations of its updates.
+ * The message also holds the binary encoding computed by the connections which negotiated it, without depending on
+ * the format.
+ * The serialization is computed by the first transport asking for it; concurrent requests may compute it twice,
+ * but always produce the same result.
+ *
+ * @author marcobaga
+ */
+public final class EncodedUpdate {
+
+    private static final String BATCH_PREFIX = "{\"head\":\"UPD\",\"type\":\"" + Updater.BATCH_UPD + "\",\""
+            + Updater.UPDATES_PROP + "\":[";
+    private static final String BATCH_SUFFIX = "],\"" + Updater.RENDER_PROP + "\":";
+    private static final String SEQ_FIELD = ",\"" + Updater.SEQ_PROP + "\":";
+    private static final byte[] BATCH_PREFIX_BYTES = BATCH_PREFIX.getBytes(StandardCharsets.UTF_8);
+    private static final byte NEWLINE = '\n';
+    private static final byte COMMA = ',';
+
+    private final JsonObject json;
+    private final List<EncodedUpdate> parts;
+    private final boolean render;
+    private final long seq;
+    private volatile JsonObject builtJson;
+    private volatile String encoded;
+    private volatile byte[] line;
+    private volatile byte[] binary;
+
+
+    /**
+     * Constructor for a single message.
+     *
+     * @param json      the message, which must not be modified afterwards
+     */
+    private EncodedUpdate(JsonObject json){
+        this.json = json;
+        this.parts = null;
+        this.render = false;
+        this.seq = -1;
+    }
+
+
+    /**
+     * Constructor for a batch of updates.
+     *
+     * @param parts     the updates in the batch
+     * @param render    whether the client should render after applying them
+     * @param seq       the sequence number of the first update following the batch, -1 if not known
+     */
+    private EncodedUpdate(List<EncodedUpdate> parts, boolean render, long seq){
+        this.json = null;
+        this.parts = Collections.unmodifiableList(new ArrayList<>(parts));
+        this.render = render;
+        this.seq = seq;
+    }
+
+
+    /**
+     * Wraps a single message.
+     *
+     * @param json      the message, which must not be modified afterwards
+     * @return          the wrapped message
+     */
+    public static EncodedUpdate of(JsonObject json){
+        return new EncodedUpdate(json);
+    }
+
+
+    /**
+     * Builds a batch of updates, equivalent to Updater.getBatch(). Batches passed as parts are flattened and
+     * render messages are turned into the render flag.
+     *
+     * @param updates   the updates, in the order they must be applied
+     * @param render    whether the client should render after applying the updates
+     * @return          the batch
+     */
+    public static EncodedUpdate batch(List<EncodedUpdate> updates, boolean render){
+        return batch(updates, render, -1);
+    }
+
+
+    /**
+     * Builds a batch of updates carrying a sequence number, which the client keeps to ask for the updates it missed
+     * when it reconnects. A batch containing other batches carries the highest of their sequence numbers.
+     *
+     * @param updates   the updates, in the order they must be applied
+     * @param render    whether the client should render after applying the updates
+     * @param seq       the sequence number of the first update following the batch, -1 if not known
+     * @return          the batch
+     */
+    public static EncodedUpdate batch(List<EncodedUpdate> updates, boolean render, long seq){
+        List<EncodedUpdate> flat = new ArrayList<>();
+        boolean r = render;
+        long s = seq;
+        for(EncodedUpdate u : updates){
+            if(u.isBatch()){
+                flat.addAll(u.parts);
+                r = r || u.render;
+                s = Math.max(s, u.seq);
+            } else if(u.isUpdate(Updater.RENDER_UPD)){
+                r = true;
+            } else {
+                flat.add(u);
+            }
+        }
+        return new EncodedUpdate(flat, r, s);
+    }
+
+
+    /**
+     * States whether this is a batch of updates.
+     *
+     * @return          true if this is a batch, else false
+     */
+    public boolean isBatch(){
+        return parts != null;
+    }
+
+
+    /**
+     * Getter for the updates in a batch.
+     *
+     * @return          the updates in the batch, or an empty list if this is not a batch
+     */
+    public List<EncodedUpdate> getParts(){
+        return parts == null ? Collections.emptyList() : parts;
+    }
+
+
+    /**
+     * Getter for the render flag of a batch.
+     *
+     * @return          true if the client should render after applying the batch
+     */
+    public boolean isRender(){
+        return render;
+    }
+
+
+    /**
+     * Getter for the sequence number of a batch.
+     *
+     * @return          the sequence number of the first update following the batch, -1 if not known
+     */
+    public long getSeq(){
+        return seq;
+    }
+
+
+    /**
+     * States whether this is an update of the given type, without building the JSON of a batch.
+     *
+     * @param type      the type of update
+     * @return          true if this is an update of the given type
+     */
+    public boolean isUpdate(String type){
+        if(isBatch()){
+            return Updater.BATCH_UPD.equals(type);
+        }
+        return Updater.isUpdate(json, type);
+    }
+
+
+    /**
+     * States whether this is an update, of any type.
+     *
+     * @return          true if this is an update
+     */
+    public boolean isUpdate(){
+        return isBatch() || Updater.isUpdate(json);
+    }
+
+
+    /**
+     * Getter for the message as a JsonObject, which must not be modified. The JSON of a batch is only built on
+     * request.
+     *
+     * @return          the message
+     */
+    public JsonObject getJson(){
+        if(!isBatch()){
+            return json;
+        }
+        JsonObject j = builtJson;
+        if(j == null){
+            List<JsonObject> updates = new ArrayList<>();
+            for(EncodedUpdate u : parts){
+                updates.add(u.getJson());
+            }
+            j = Updater.getBatch(updates, render);
+            if(seq >= 0){
+                j.addProperty(Updater.SEQ_PROP, seq);
+            }
+            builtJson = j;
+        }
+        return j;
+    }
+
+
+    /**
+     * Getter for the serialized message.
+     *
+     * @return          the message serialized as a JSON string
+     */
+    public String getEncoded(){
+        String s = encoded;
+        if(s == null){
+            if(isBatch()){
+                StringBuilder builder = new StringBuilder(BATCH_PREFIX);
+                for(int i = 0; i < parts.size(); i++){
+                    if(i > 0){
+                        builder.append(',');
+                    }
+                    builder.append(parts.get(i).getEncoded());
+                }
+                builder.append(BATCH_SUFFIX).append(render);
+                if(seq >= 0){
+                    builder.append(SEQ_FIELD).append(seq);
+                }
+                s = builder.append('}').toString();
+            } else {
+                s = json.toString();
+            }
+            encoded = s;
+        }
+        return s;
+    }
+
+
+    /**
+     * Getter for the serialized message as UTF-8 bytes followed by a newline, as written on line-based streams.
+     * The returned array must not be modified.
+     *
+     * @return          the message serialized as a line of bytes
+     */
+    public byte[] getLine(){
+        byte[] l = line;
+        if(l == null){
+            if(isBatch()){
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                out.write(BATCH_PREFIX_BYTES, 0, BATCH_PREFIX_BYTES.length);
+                for(int i = 0; i < parts.size(); i++){
+                    if(i > 0){
+                        out.write(COMMA);
+                    }
+                    byte[] part = parts.get(i).getLine();
+                    out.write(part, 0, part.length - 1);
+                }
+                String end = BATCH_SUFFIX + render + (seq >= 0 ? SEQ_FIELD + seq : "") + "}";
+                byte[] suffix = end.getBytes(StandardCharsets.UTF_8);
+                out.write(suffix, 0, suffix.length);
+                out.write(NEWLINE);
+                l = out.toByteArray();
+            } else {
+                byte[] payload = getEncoded().getBytes(StandardCharsets.UTF_8);
+                l = new byte[payload.length + 1];
+                System.arraycopy(payload, 0, l, 0, payload.length);
+                l[payload.length] = NEWLINE;
+            }
+            line = l;
+        }
+        return l;
+    }
+
+
+    /**
+     * Getter for the binary encoding of the message, cached by the codec computing it. The returned array must not be
+     * modified.
+     *
+     * @return          the binary encoding, or null if it was not computed yet
+     */
+    public byte[] getBinary(){
+        return binary;
+    }
+
+
+    /**
+     * Caches the binary encoding of the message. Concurrent codecs may set it twice, but always to the same content.
+     *
+     * @param binary    the binary encoding, which must not be modified afterwards
+     */
+    public void setBinary(byte[] binary){
+        this.binary = binary;
+    }
+
+
+    @Override
+    public String toString(){
+        return getEncoded();
+    }
+}
@@ -0,0 +1,161 @@
+package it.polimi.ingsw.model;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.Map;
+
+/**
+ * Class containing static methods to compute and apply structural differences between two JSON trees, used to send
+ * a ClientModel as a change with respect to a model the client already holds.
+ * A difference is a JsonObject containing exactly one of the following:
+ * "v" with the new value, replacing the old one;
+ * "o" with the differences of the changed fields of an object, and possibly "d" with the names of removed fields;
+ * "a" with the differences of the changed elements of an array whose size did not change, by index.
+ * Trees are never modified: unchanged branches are shared between the old and the new tree.
+ *
+ * @author marcobaga
+ */
+public class JsonDiff {
+
+    private static final String VALUE = "v";
+    private static final String OBJECT = "o";
+    private static final String REMOVED = "d";
+    private static final String ARRAY = "a";
+
+    /**
+     * JsonDiff private constructor.
+     */
+    private JsonDiff(){}
+
+
+    /**
+     * Computes the difference turning a tree into another one.
+     *
+     * @param from      the old tree
+     * @param to        the new tree
+     * @return          the difference, or null if the trees are equal
+     */
+    public static JsonObject diff(JsonElement from, JsonElement to) {
+        if (from.isJsonObject() && to.isJsonObject()) {
+            return diffObjects(from.getAsJsonObject(), to.getAsJsonObject());
+        }
+        if (from.isJsonArray() && to.isJsonArray() && from.getAsJsonArray().size() == to.getAsJsonArray().size()) {
+            return diffArrays(from.getAsJsonArray(), to.getAsJsonArray());
+        }
+        return from.equals(to) ? null : replacement(to);
+    }
+
+
+    /**
+     * Applies a difference to a tree.
+     *
+     * @param from      the old tree, which is left untouched
+     * @param diff      the difference, as computed by diff(), or an empty object if nothing changed
+     * @return          the new tree
+     */
+    public static JsonElement apply(JsonElement from, JsonObject diff) {
+        if (diff.has(VALUE)) {
+            return diff.get(VALUE).deepCopy();
+        }
+        if (diff.has(OBJECT)) {
+            JsonObject result = new JsonObject();
+            for (Map.Entry<String, JsonElement> e : from.getAsJsonObject().entrySet()) {
+                result.add(e.getKey(), e.getValue());
+            }
+            for (Map.Entry<String, JsonElement> e : diff.getAsJsonObject(OBJECT).entrySet()) {
+                result.add(e.getKey(), apply(result.get(e.getKey()), e.getValue().getAsJsonObject()));
+            }
+            if (diff.has(REMOVED)) {
+                for (JsonElement key : diff.getAsJsonArray(REMOVED)) {
+                    result.remove(key.getAsString());
+                }
+            }
+            return result;
+        }
+        if (!diff.has(ARRAY)) {
+            return from;
+        }
+        JsonArray old = from.getAsJsonArray();
+        JsonArray result = new JsonArray();
+        for (JsonElement e : old) {
+            result.add(e);
+        }
+        for (Map.Entry<String, JsonElement> e : diff.getAsJsonObject(ARRAY).entrySet()) {
+            int i = Integer.parseInt(e.getKey());
+            result.set(i, apply(old.get(i), e.getValue().getAsJsonObject()));
+        }
+        return result;
+    }
+
+
+    /**
+     * Computes the difference between two objects.
+     *
+     * @param from      the old object
+     * @param to        the new object
+     * @return          the difference, or null if the objects are equal
+     */
+    private static JsonObject diffObjects(JsonObject from, JsonObject to) {
+        JsonObject fields = new JsonObject();
+        JsonArray removed = new JsonArray();
+        for (Map.Entry<String, JsonElement> e : to.entrySet()) {
+            JsonObject d = from.has(e.getKey()) ? diff(from.get(e.getKey()), e.getValue()) : replacement(e.getValue());
+            if (d != null) {
+                fields.add(e.getKey(), d);
+            }
+        }
+        for (String key : from.keySet()) {
+            if (!to.has(key)) {
+                removed.add(key);
+            }
+        }
+        if (fields.size() == 0 && removed.size() == 0) {
+            return null;
+        }
+        JsonObject d = new JsonObject();
+        d.add(OBJECT, fields);
+        if (removed.size() > 0) {
+            d.add(REMOVED, removed);
+        }
+        return d;
+    }
+
+
+    /**
+     * Computes the difference between two arrays of the same size.
+     *
+     * @param from      the old array
+     * @param to        the new array
+     * @return          the difference, or null if the arrays are equal
+     */
+    private static JsonObject diffArrays(JsonArray from, JsonArray to) {
+        JsonObject elements = new JsonObject();
+        for (int i = 0; i < to.size(); i++) {
+            JsonObject d = diff(from.get(i), to.get(i));
+            if (d != null) {
+                elements.add(String.valueOf(i), d);
+            }
+        }
+        if (elements.size() == 0) {
+            return null;
+        }
+        JsonObject d = new JsonObject();
+        d.add(ARRAY, elements);
+        return d;
+    }
+
+
+    /**
+     * Builds a difference replacing a value altogether.
+     *
+     * @param to        the new value
+     * @return          the difference
+     */
+    private static JsonObject replacement(JsonElement to) {
+        JsonObject d = new JsonObject();
+        d.add(VALUE, to);
+        return d;
+    }
+}
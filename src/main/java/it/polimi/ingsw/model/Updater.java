@@ -1,7 +1,7 @@
 package it.polimi.ingsw.model;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import it.polimi.ingsw.model.board.*;
 import it.polimi.ingsw.model.cards.AmmoPack;
@@ -49,7 +49,10 @@ public class Updater {
     public static final String SET_IN_GAME_UPD = "setInGame";
     public static final String REMOVE_AMMO_TILE_UPD = "removeAmmoTile";
     public static final String MODEL_UPD = "model";
+    public static final String MODEL_DIFF_UPD = "modelDiff";
     public static final String RENDER_UPD = "render";
+    public static final String BATCH_UPD = "batch";
+    public static final String SESSION_UPD = "session";
 
     private static final String HEAD_PROP = "head";
     public static final String TYPE_PROP = "type";
@@ -61,8 +64,8 @@ public class Updater {
     public static final String LOADED_PROP = "loaded";
     public static final String CARDS_NUMBER_PROP = "cardNumber";
     public static final String SKULL_NUMBER_PROP = "skullNumber";
-    private static final String KILLER_PROP = "killer";
-    private static final String OVERKILL_PROP = "overkill";
+    public static final String KILLER_PROP = "killer";
+    public static final String OVERKILL_PROP = "overkill";
     public static final String POWER_UP_NAME_PROP = "powerUpName";
     public static final String POWER_UP_COLOR_PROP = "powerUpColor";
     public static final String RED_AMMO_PROP = "redAmmo";
@@ -73,6 +76,13 @@ public class Updater {
     public static final String MODEL_PROP = "model";
     public static final String POINTS_PROP = "points";
     public static final String STATUS_PROP = "status";
+    public static final String UPDATES_PROP = "updates";
+    public static final String RENDER_PROP = "render";
+    public static final String VERSION_PROP = "version";
+    public static final String BASE_PROP = "base";
+    public static final String DIFF_PROP = "diff";
+    public static final String SEQ_PROP = "seq";
+    public static final String TOKEN_PROP = "token";
 
 
     /**
@@ -305,6 +315,7 @@ public class Updater {
 
     /**
      * Creates a message that updates the ClientModel of the specified player on the specified board and returns it.
+     * The model is nested in the message as a JSON object, so that it is serialized only once.
      *
      * @param board         the game board.
      * @param player        the player who will receive the updated model.
@@ -368,18 +379,33 @@ public class Updater {
         cm.setPowerUpInHand(powerUpInHand);
         cm.setColorPowerUpInHand(colorPowerUpInHand);
 
-        Gson gson = new Gson();
-        String json = gson.toJson(cm);
-
         JsonObject jsonObject = new JsonObject();
         jsonObject.addProperty(HEAD_PROP, UPD_HEADER);
         jsonObject.addProperty(TYPE_PROP, MODEL_UPD);
-        jsonObject.addProperty(MODEL_PROP, json);
+        jsonObject.add(MODEL_PROP, ClientModel.getGson().toJsonTree(cm));
 
         return jsonObject;
     }
 
 
+    /**
+     * Builds a message describing a versioned ClientModel as a difference with respect to an older version which the
+     * client acknowledged.
+     *
+     * @param version       the version of the model described
+     * @param base          the version the difference refers to
+     * @param diff          the difference, as computed by JsonDiff
+     * @return              the update message
+     */
+    public static JsonObject getModelDiff(int version, int base, JsonObject diff) {
+        JsonObject j = getFreshUpdate(MODEL_DIFF_UPD);
+        j.addProperty(VERSION_PROP, version);
+        j.addProperty(BASE_PROP, base);
+        j.add(DIFF_PROP, diff == null ? new JsonObject() : diff);
+        return j;
+    }
+
+
     /**
      * Creates a SimplePlayer, hence a simplified version of a specified player to be saved on the client.
      *
@@ -442,6 +468,59 @@ public class Updater {
         return j;
     }
 
+    /**
+     * Builds a message giving the client the token it can use to resume its session after losing the connection.
+     *
+     * @param token     the session token
+     * @return          session message
+     */
+    public static JsonObject getSession(String token) {
+        JsonObject j = getFreshUpdate(SESSION_UPD);
+        j.addProperty(TOKEN_PROP, token);
+        return j;
+    }
+
+    /**
+     * Builds a single message carrying all the updates of a notification cycle, so that they can be sent at once.
+     *
+     * @param updates   the updates, in the order they must be applied
+     * @param render    whether the client should render after applying the updates
+     * @return          the batch message
+     */
+    public static JsonObject getBatch(List<JsonObject> updates, boolean render) {
+        JsonObject j = getFreshUpdate(BATCH_UPD);
+        JsonArray array = new JsonArray(updates.size());
+        for (JsonObject u : updates) {
+            array.add(u);
+        }
+        j.add(UPDATES_PROP, array);
+        j.addProperty(RENDER_PROP, render);
+        return j;
+    }
+
+
+    /**
+     * States whether a message is an update of the given type.
+     *
+     * @param j         the message
+     * @param type      the type of update
+     * @return          true if the message is an update of the given type, else false
+     */
+    public static boolean isUpdate(JsonObject j, String type) {
+        return j.has(HEAD_PROP) && UPD_HEADER.equals(j.get(HEAD_PROP).getAsString())
+                && j.has(TYPE_PROP) && type.equals(j.get(TYPE_PROP).getAsString());
+    }
+
+    /**
+     * States whether a message is an update, of any type.
+     *
+     * @param j         the message
+     * @return          true if the message is an update, else false
+     */
+    public static boolean isUpdate(JsonObject j) {
+        return j.has(HEAD_PROP) && UPD_HEADER.equals(j.get(HEAD_PROP).getAsString());
+    }
+
    /**
      * Converts a Weapon in a SimpleWeapon
      *
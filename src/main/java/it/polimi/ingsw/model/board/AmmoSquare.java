@@ -64,6 +64,16 @@ public class AmmoSquare extends Square  {
 
     }
 
+    /**
+     * Setter for ammoTile. Used to restore a saved game.
+     *
+     * @param ammoTile      the ammo tile on the square, null if empty.
+     */
+    public void setAmmoTile(AmmoTile ammoTile) {
+        this.ammoTile = ammoTile;
+    }
+
+
     /**
      * Returns true if the ammo square does not contain an ammo tile.
      *
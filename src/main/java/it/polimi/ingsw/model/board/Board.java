@@ -1,6 +1,7 @@
 package it.polimi.ingsw.model.board;
 
 import com.google.gson.JsonObject;
+import it.polimi.ingsw.model.EncodedUpdate;
 import it.polimi.ingsw.model.Updater;
 import it.polimi.ingsw.model.cards.Color;
 import it.polimi.ingsw.model.exceptions.NotAvailableAttributeException;
@@ -49,7 +50,7 @@ public class Board {
     private KillShotTrack killShotTrack;
 
     private List<VirtualView> observers;
-    private Map<VirtualView, List<JsonObject>> updates;
+    private UpdateJournal journal;
 
     private boolean reset;
 
@@ -94,7 +95,7 @@ public class Board {
         this.killShotTrack = new KillShotTrack(0, this);
 
         this.observers = new ArrayList<>();
-        this.updates = new HashMap<>();
+        this.journal = new UpdateJournal(UpdateJournal.DEFAULT_CAPACITY);
 
         this.reset = false;
 
@@ -744,7 +745,28 @@ public class Board {
     public void registerObserver(VirtualView p){
         LOGGER.log(Level.FINE, "{0} registered as an observer to Board.", p);
         observers.add(p);
-        updates.put(p, new ArrayList<>());
+        journal.register(p);
+    }
+
+
+    /**
+     * Registers a resuming VirtualView as an observer, letting it catch up from the last update its client received.
+     * If the updates it missed are no longer available, or were partly reverted, the complete model is queued instead.
+     *
+     * @param p     the registering VirtualView
+     * @param seq   the sequence number of the first update the client did not receive, -1 if unknown
+     */
+    public void registerObserver(VirtualView p, long seq){
+        observers.add(p);
+        if(seq >= 0 && journal.since(p.getName(), seq) != null){
+            LOGGER.log(Level.INFO, "{0} resuming from update {1}", new Object[]{p, seq});
+            journal.register(p, seq);
+        } else {
+            journal.register(p);
+            if(p.getModel() != null) {
+                addToUpdateQueue(Updater.getModel(this, p.getModel()), p);
+            }
+        }
     }
 
     /**
@@ -754,7 +776,7 @@ public class Board {
      */
     public void removeObserver(VirtualView p){
         observers.remove(p);
-        updates.remove(p);
+        journal.unregister(p);
     }
 
 
@@ -769,63 +791,53 @@ public class Board {
 
 
     /**
-     * Notifies only VirtualView p
+     * Notifies only VirtualView p, sending all its pending updates and the request to render them as a single batch.
      * @param p     the VirtualView to be notified
      */
     public void notifyObserver(VirtualView p){
         LOGGER.log(Level.FINE, "Notifying observer {0}", p);
-        for(JsonObject update : updates.get(p)) {
-            p.update(update);
+        List<EncodedUpdate> pending = journal.poll(p);
+        if(pending == null){
+            LOGGER.log(Level.INFO, "{0} fell behind the update journal, sending the complete model", p);
+            pending = new ArrayList<>();
+            if(p.getModel() != null) {
+                pending.add(EncodedUpdate.of(Updater.getModel(this, p.getModel())));
+            }
         }
-        p.update(Updater.getRenderMessage());
-        updates.get(p).clear();
+        p.update(EncodedUpdate.batch(pending, true, journal.getCursor(p)));
     }
 
 
     /**
-     * Adds a single update to all update queues.
+     * Adds a single update to the journal, visible to all observers. The update is serialized once for all of them.
      * @param jsonObject    the single update
      */
     public void addToUpdateQueue(JsonObject jsonObject){
 
         LOGGER.log(Level.FINE, "Adding an update to all queues: {0}", jsonObject);
-        //for(VirtualView v : updates.keySet()){
-        //    updates.get(v).add(jsonObject);
-        //}
-        for(Map.Entry<VirtualView, List<JsonObject>> entry : updates.entrySet()){
-            entry.getValue().add(jsonObject);
-        }
+        journal.append(EncodedUpdate.of(jsonObject));
     }
 
 
     /**
-     * Adds a single update to a single update queue
+     * Adds a single update to the journal, visible only to a single observer
      * @param jsonObject    the single update
      * @param p             the VirtualView meant to receive the update
      */
     public void addToUpdateQueue(JsonObject jsonObject, VirtualView p){
         LOGGER.log(Level.FINE, "Adding an update to a single queues");
-        String msg = p + ADDING_UPDATE + jsonObject;
-        LOGGER.log(Level.FINE, msg);
-        try {
-            updates.get(p).add(jsonObject);
-        }catch(NullPointerException ex){
-            LOGGER.log(Level.INFO, "The player had been removed from update lists", ex);
-        }
+        LOGGER.log(Level.FINE, () -> p + ADDING_UPDATE + jsonObject);
+        journal.append(EncodedUpdate.of(jsonObject), p);
     }
 
 
     /**
-     * Removes updates to other players in case the current player reverts an action
+     * Removes updates to other players in case the current player reverts an action, by moving their cursors past them
      * @param p     the current player
      */
     public void revertUpdates(VirtualView p){
-        for(Map.Entry<VirtualView, List<JsonObject>> entry : updates.entrySet()){
-            if(!entry.getKey().equals(p)){
-                entry.getValue().clear();
-                LOGGER.log(Level.FINE, "Removed all updates outgoing to {0}", entry.getKey().getName());
-            }
-        }
+        journal.revert(p);
+        LOGGER.log(Level.FINE, "Removed all updates outgoing to players other than {0}", p.getName());
         //for(VirtualView other : updates.keySet()){
         //    if(!other.equals(p)){
         //        updates.get(other).clear();
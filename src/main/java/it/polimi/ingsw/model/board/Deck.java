@@ -4,8 +4,11 @@ import it.polimi.ingsw.model.cards.Card;
 import it.polimi.ingsw.model.exceptions.NoMoreCardsException;
 import it.polimi.ingsw.model.exceptions.WrongTimeException;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.RandomAccess;
 
 import static java.util.Collections.shuffle;
 
@@ -14,26 +17,40 @@ import static java.util.Collections.shuffle;
  * Allows to addList cards to the drawable cards and to the discarded cards.
  * Allows to draw a card, shuffle the deck or regenerate it by shuffling
  * the discarded cards and adding them to the drawable cards.
+ * Both piles are arrays read from a cursor, so that drawing and discarding a card take constant time.
  *
  * @author  BassaniRiccardo
  */
 
 public class Deck {
 
-    private List<Card> drawable;
-    private List<Card> discarded;
-
-    private static final int DRAWN_CARD_INDEX = 0;
+    private Pile drawable;
+    private Pile discarded;
+    private final Random random;
 
 
     /**
-     * Constructs an empty deck.
+     * Constructs an empty deck, shuffled by an unseeded generator.
      *
      */
     public Deck() {
 
-        drawable = new ArrayList<>();
-        discarded = new ArrayList<>();
+        this(new Random());
+
+    }
+
+
+    /**
+     * Constructs an empty deck, shuffled by the given generator. Decks sharing a seeded generator are shuffled
+     * the same way every time the same game is played again.
+     *
+     * @param random    the generator used to shuffle the deck.
+     */
+    public Deck(Random random) {
+
+        drawable = new Pile();
+        discarded = new Pile();
+        this.random = random;
 
     }
 
@@ -85,15 +102,8 @@ public class Deck {
      */
     public Card drawCard() throws NoMoreCardsException {
 
-        try{
-            Card drawn = drawable.get(DRAWN_CARD_INDEX);
-            drawable.remove(DRAWN_CARD_INDEX);
-            return drawn;
-        }
-        catch (IndexOutOfBoundsException e)
-        {
-            throw new NoMoreCardsException("The deck is empty");
-        }
+        if (drawable.isEmpty()) throw new NoMoreCardsException("The deck is empty");
+        return drawable.remove(0);
 
     }
 
@@ -102,7 +112,7 @@ public class Deck {
      * Shuffles the deck.
      */
     public void shuffleDeck(){
-        shuffle(drawable);
+        shuffle(drawable, random);
     }
 
 
@@ -114,10 +124,166 @@ public class Deck {
     public void regenerate() throws WrongTimeException {
 
         if (!drawable.isEmpty()) throw new WrongTimeException("The deck can be regenerated only if empty.");
-        shuffle(discarded);
-        drawable =  new ArrayList<>(discarded);
-        discarded.clear();
+        shuffle(discarded, random);
+        Pile empty = drawable;
+        drawable = discarded;
+        discarded = empty;
+
+    }
+
+
+
+    /**
+     * A pile of cards stored in an array between a head cursor and a tail cursor. Removing the first card moves the
+     * head, adding a card at the bottom moves the tail, so neither shifts the other cards.
+     */
+    private static class Pile extends AbstractList<Card> implements RandomAccess {
+
+        private Card[] cards;
+        private int head;
+        private int tail;
+
+        private static final int INITIAL_CAPACITY = 16;
+
+
+        /**
+         * Constructs an empty pile.
+         */
+        Pile() {
+            cards = new Card[INITIAL_CAPACITY];
+            head = 0;
+            tail = 0;
+        }
+
+
+        /**
+         * Returns the card at a position, the first card being the top of the pile.
+         *
+         * @param index     the position.
+         * @return          the card.
+         */
+        @Override
+        public Card get(int index) {
+            check(index, size() - 1);
+            return cards[head + index];
+        }
+
+
+        /**
+         * Replaces the card at a position.
+         *
+         * @param index     the position.
+         * @param card      the new card.
+         * @return          the replaced card.
+         */
+        @Override
+        public Card set(int index, Card card) {
+            check(index, size() - 1);
+            Card old = cards[head + index];
+            cards[head + index] = card;
+            return old;
+        }
+
+
+        /**
+         * Returns the number of cards.
+         *
+         * @return          the number of cards.
+         */
+        @Override
+        public int size() {
+            return tail - head;
+        }
+
+
+        /**
+         * Inserts a card at a position. Adding it at the bottom takes constant amortized time.
+         *
+         * @param index     the position.
+         * @param card      the card.
+         */
+        @Override
+        public void add(int index, Card card) {
+            check(index, size());
+            modCount++;
+            if (index == 0 && head > 0) {
+                cards[--head] = card;
+                return;
+            }
+            if (tail == cards.length) {
+                grow();
+            }
+            System.arraycopy(cards, head + index, cards, head + index + 1, size() - index);
+            cards[head + index] = card;
+            tail++;
+        }
+
+
+        /**
+         * Removes the card at a position. Removing the top card takes constant time.
+         *
+         * @param index     the position.
+         * @return          the removed card.
+         */
+        @Override
+        public Card remove(int index) {
+            check(index, size() - 1);
+            modCount++;
+            Card removed = cards[head + index];
+            if (index == 0) {
+                cards[head++] = null;
+            } else {
+                System.arraycopy(cards, head + index + 1, cards, head + index, size() - index - 1);
+                cards[--tail] = null;
+            }
+            if (head == tail) {
+                head = 0;
+                tail = 0;
+            }
+            return removed;
+        }
+
+
+        /**
+         * Removes all the cards.
+         */
+        @Override
+        public void clear() {
+            modCount++;
+            Arrays.fill(cards, head, tail, null);
+            head = 0;
+            tail = 0;
+        }
+
+
+        /**
+         * Makes room at the bottom of the pile, moving the cards back to the start of the array and doubling it if
+         * it is more than half full.
+         */
+        private void grow() {
+            int size = size();
+            Card[] target = size * 2 > cards.length ? new Card[cards.length * 2] : cards;
+            System.arraycopy(cards, head, target, 0, size);
+            if (target == cards) {
+                Arrays.fill(cards, size, tail, null);
+            }
+            cards = target;
+            head = 0;
+            tail = size;
+        }
+
+
+        /**
+         * Checks that a position is within bounds.
+         *
+         * @param index     the position.
+         * @param max       the highest valid position.
+         * @throws IndexOutOfBoundsException    if the position is out of bounds.
+         */
+        private void check(int index, int max) {
+            if (index < 0 || index > max) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
 
     }
 
-}
\ No newline at end of file
+}
@@ -243,6 +243,10 @@ public class Player {
 
     public void setDead(boolean dead) {this.dead = dead;}
 
+    public void setDeaths(int deaths) {this.deaths = deaths;}
+
+    public void setOverkilled(boolean overkilled) {this.overkilled = overkilled;}
+
     public void setDamages(List<Player> damages) {
         this.damages = damages;
     }
@@ -0,0 +1,244 @@
+package it.polimi.ingsw.model.board;
+
+import it.polimi.ingsw.model.EncodedUpdate;
+import it.polimi.ingsw.network.server.VirtualView;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only journal of the updates of a game, shared by all its observers. Updates are kept in a ring buffer and
+ * numbered with a sequence number; every observer holds a cursor pointing to the first update it has not received yet.
+ * Updates addressed to a single player (such as the cards in his hand) are only visible to the observer with the same
+ * name, so that they remain visible after the player resumes on a new connection.
+ * Memory does not depend on the number of observers. An observer falling behind by more than the capacity of the
+ * buffer has lost some updates and must be sent a complete model instead.
+ * When a player reverts an action, the other observers skip the updates it produced. The journal remembers where
+ * this happened, so that a client asking to catch up from before a revert is sent a complete model instead of the
+ * reverted updates.
+ *
+ * @author marcobaga
+ */
+public class UpdateJournal {
+
+    /**
+     * An update with its recipient.
+     */
+    private static class Entry {
+
+        private final EncodedUpdate update;
+        private final String recipient;
+
+        private Entry(EncodedUpdate update, String recipient){
+            this.update = update;
+            this.recipient = recipient;
+        }
+    }
+
+    /**
+     * The point at which the updates of a player were reverted.
+     */
+    private static class RevertMark {
+
+        private final long seq;
+        private final String by;
+
+        private RevertMark(long seq, String by){
+            this.seq = seq;
+            this.by = by;
+        }
+    }
+
+    private final Entry[] ring;
+    private final Map<VirtualView, Long> cursors;
+    private final Deque<RevertMark> reverts;
+    private long head;
+
+    private static final Logger LOGGER = Logger.getLogger("serverLogger");
+    public static final int DEFAULT_CAPACITY = 512;
+
+
+    /**
+     * Standard constructor.
+     *
+     * @param capacity      the number of updates kept
+     */
+    public UpdateJournal(int capacity){
+        this.ring = new Entry[capacity];
+        this.cursors = new HashMap<>();
+        this.reverts = new ArrayDeque<>();
+        this.head = 0;
+    }
+
+
+    /**
+     * Registers an observer, which will receive the updates appended from now on.
+     *
+     * @param v             the observer
+     */
+    public synchronized void register(VirtualView v){
+        cursors.put(v, head);
+    }
+
+
+    /**
+     * Registers an observer which will receive the updates appended since a given sequence number.
+     *
+     * @param v             the observer
+     * @param cursor        the sequence number of the first update to receive
+     */
+    public synchronized void register(VirtualView v, long cursor){
+        cursors.put(v, Math.min(cursor, head));
+    }
+
+
+    /**
+     * Removes an observer.
+     *
+     * @param v             the observer
+     */
+    public synchronized void unregister(VirtualView v){
+        cursors.remove(v);
+    }
+
+
+    /**
+     * Appends an update visible to all observers.
+     *
+     * @param update        the update
+     */
+    public synchronized void append(EncodedUpdate update){
+        add(update, null);
+    }
+
+
+    /**
+     * Appends an update visible to a single observer.
+     *
+     * @param update        the update
+     * @param recipient     the observer meant to receive the update
+     */
+    public synchronized void append(EncodedUpdate update, VirtualView recipient){
+        if(!cursors.containsKey(recipient)){
+            LOGGER.log(Level.INFO, "The player had been removed from update lists");
+            return;
+        }
+        add(update, recipient.getName());
+    }
+
+
+    /**
+     * Returns the updates visible to an observer which it has not received yet and moves its cursor past them.
+     *
+     * @param v             the observer
+     * @return              the updates, in order, or null if some of them were overwritten
+     */
+    public synchronized List<EncodedUpdate> poll(VirtualView v){
+        Long cursor = cursors.get(v);
+        if(cursor == null){
+            return new ArrayList<>();
+        }
+        List<EncodedUpdate> pending = since(v.getName(), cursor);
+        cursors.put(v, head);
+        return pending;
+    }
+
+
+    /**
+     * Returns the updates visible to an observer with the given name, starting from a sequence number. Used to let a
+     * reconnecting client catch up.
+     *
+     * @param name          the name of the observer
+     * @param cursor        the sequence number of the first update to return
+     * @return              the updates, in order, or null if some of them were overwritten or reverted
+     */
+    public synchronized List<EncodedUpdate> since(String name, long cursor){
+        if(cursor < head - ring.length){
+            return null;
+        }
+        for(RevertMark m : reverts){
+            if(m.seq > cursor && !m.by.equals(name)){
+                return null;
+            }
+        }
+        List<EncodedUpdate> updates = new ArrayList<>();
+        for(long seq = cursor; seq < head; seq++){
+            Entry e = ring[(int) (seq % ring.length)];
+            if(e.recipient == null || e.recipient.equals(name)){
+                updates.add(e.update);
+            }
+        }
+        return updates;
+    }
+
+
+    /**
+     * Moves the cursor of an observer past all the updates appended so far, which it will never receive.
+     *
+     * @param v             the observer
+     */
+    public synchronized void skip(VirtualView v){
+        if(cursors.containsKey(v)){
+            cursors.put(v, head);
+        }
+    }
+
+
+    /**
+     * Makes all the observers but the given one skip the updates appended so far, as they were produced by an action
+     * of the given observer which is being reverted.
+     *
+     * @param v             the observer reverting its action
+     */
+    public synchronized void revert(VirtualView v){
+        for(Map.Entry<VirtualView, Long> e : cursors.entrySet()){
+            if(e.getKey() != v){
+                e.setValue(head);
+            }
+        }
+        reverts.addLast(new RevertMark(head, v.getName()));
+        while(!reverts.isEmpty() && reverts.peekFirst().seq < head - ring.length){
+            reverts.pollFirst();
+        }
+    }
+
+
+    /**
+     * Getter for the sequence number the next update will be given.
+     *
+     * @return              the sequence number
+     */
+    public synchronized long getHead(){
+        return head;
+    }
+
+
+    /**
+     * Getter for the cursor of an observer.
+     *
+     * @param v             the observer
+     * @return              the sequence number of the first update the observer has not received, or -1 if it is
+     *                      not registered
+     */
+    public synchronized long getCursor(VirtualView v){
+        return cursors.getOrDefault(v, -1L);
+    }
+
+
+    /**
+     * Writes an update in the ring buffer.
+     *
+     * @param update        the update
+     * @param recipient     the name of the observer meant to receive it, null if it is visible to all
+     */
+    private void add(EncodedUpdate update, String recipient){
+        ring[(int) (head % ring.length)] = new Entry(update, recipient);
+        head++;
+    }
+}
@@ -10,7 +10,8 @@ import java.util.logging.Logger;
 
 /**
  * Class modeling a single firemode of a weapon (a weapon can have up to 3 distinct firemodes). It holds information on how
- * the weapon targets and its effects when when shot in a precise mode.
+ * the weapon targets and its effects when when shot in a precise mode. What the firemode does is held by a
+ * FireModeDefinition shared by every game, while the firemode itself only belongs to a weapon.
  *
  * @author marcobaga
  */
@@ -21,13 +22,9 @@ public class FireMode implements Targeted {
         MAIN, SECONDARY, OPTION1, OPTION2
     }
 
-    private final FireModeName name;
-    private final AmmoPack cost;
+    private final FireModeDefinition definition;
     private Weapon weapon;
 
-    private final Effect effect;
-    private final TargetFinder targetFinder;
-    private final DestinationFinder destinationFinder;
     private static final Logger LOGGER = Logger.getLogger("serverLogger");
 
     /**
@@ -42,11 +39,19 @@ public class FireMode implements Targeted {
      */
     public FireMode(FireModeName name, AmmoPack cost, DestinationFinder destinationFinder, TargetFinder targetFinder, Effect effect){
 
-        this.name = name;
-        this.cost = cost;
-        this.destinationFinder = destinationFinder;
-        this.targetFinder = targetFinder;
-        this.effect = effect;
+        this(new FireModeDefinition(name, cost, destinationFinder, targetFinder, effect));
+
+    }
+
+
+    /**
+     * Constructs a firemode from its shared definition.
+     *
+     * @param definition            the definition of the firemode.
+     */
+    public FireMode(FireModeDefinition definition){
+
+        this.definition = definition;
 
     }
 
@@ -55,13 +60,15 @@ public class FireMode implements Targeted {
      * Getters
      */
 
-    public AmmoPack getCost() { return cost; }
+    public AmmoPack getCost() { return definition.getCost(); }
+
+    public FireModeName getName() { return definition.getName(); }
 
-    public FireModeName getName() { return name; }
+    public TargetFinder getTargetFinder() { return definition.getTargetFinder(); }
 
-    public TargetFinder getTargetFinder() { return targetFinder; }
+    public DestinationFinder getDestinationFinder() { return definition.getDestinationFinder(); }
 
-    public DestinationFinder getDestinationFinder() { return destinationFinder; }
+    public FireModeDefinition getDefinition() { return definition; }
 
     public Weapon getWeapon() { return weapon; }
 
@@ -83,9 +90,9 @@ public class FireMode implements Targeted {
         if(targets == null || targets.isEmpty()){
             throw new IllegalArgumentException("A target is necessary for the effects to be applied.");
         }
-        LOGGER.log(Level.INFO, ()->weapon + "fired (" + name + ") with " + targets + "as targets and " + destination + " as destination." );
+        LOGGER.log(Level.INFO, ()->weapon + "fired (" + getName() + ") with " + targets + "as targets and " + destination + " as destination." );
         for(Player p : new ArrayList<>(targets)){
-            effect.apply(weapon.getHolder(), p, destination);
+            definition.getEffect().apply(weapon.getHolder(), p, destination);
         }
     }
 
@@ -96,8 +103,8 @@ public class FireMode implements Targeted {
      * @throws NotAvailableAttributeException if the targeted implementation does not have an holder.
      */
     public List<List<Player>> findTargets() throws NotAvailableAttributeException{
-        List<List<Player>> targetsFound = targetFinder.find(weapon.getHolder());
-        String msg = name + " " + weapon + "Targets found: " + targetsFound;
+        List<List<Player>> targetsFound = definition.getTargetFinder().find(weapon.getHolder());
+        String msg = getName() + " " + weapon + "Targets found: " + targetsFound;
         LOGGER.log(Level.INFO, msg);
         return targetsFound;
     }
@@ -114,7 +121,7 @@ public class FireMode implements Targeted {
         if(targets == null){
             throw new NullPointerException("The firemode must have some targets.");
         }
-        List<Square> destinationsFound = destinationFinder.find(weapon.getHolder(), targets);
+        List<Square> destinationsFound = definition.getDestinationFinder().find(weapon.getHolder(), targets);
         LOGGER.log(Level.FINE, "Destinations found: {0}", destinationsFound);
         return destinationsFound;
     }
@@ -0,0 +1,54 @@
+package it.polimi.ingsw.model.cards;
+
+/**
+ * Immutable definition of a firemode, holding what it costs and how it finds its targets, its destinations and applies
+ * its effects. A definition does not refer to any game: its finders and effects reach the board through the players
+ * they are given, so the same definition is shared by the firemodes of every game.
+ *
+ * @author marcobaga
+ */
+
+public final class FireModeDefinition {
+
+    private final FireMode.FireModeName name;
+    private final AmmoPack cost;
+    private final DestinationFinder destinationFinder;
+    private final TargetFinder targetFinder;
+    private final Effect effect;
+
+
+    /**
+     * Constructs the definition of a firemode.
+     *
+     * @param name                  the firemode name.
+     * @param cost                  the cost in ammo packs.
+     * @param destinationFinder     the related destination finder.
+     * @param targetFinder          the related target finder.
+     * @param effect                the related effect.
+     */
+    public FireModeDefinition(FireMode.FireModeName name, AmmoPack cost, DestinationFinder destinationFinder, TargetFinder targetFinder, Effect effect){
+
+        this.name = name;
+        this.cost = cost;
+        this.destinationFinder = destinationFinder;
+        this.targetFinder = targetFinder;
+        this.effect = effect;
+
+    }
+
+
+    /*
+     * Getters
+     */
+
+    public FireMode.FireModeName getName() { return name; }
+
+    public AmmoPack getCost() { return cost; }
+
+    public DestinationFinder getDestinationFinder() { return destinationFinder; }
+
+    public TargetFinder getTargetFinder() { return targetFinder; }
+
+    public Effect getEffect() { return effect; }
+
+}
@@ -11,7 +11,8 @@ import java.util.List;
 import static it.polimi.ingsw.model.cards.Color.*;
 
 /**
- * Class modeling a power up card.
+ * Class modeling a power up card. What a power up does is held by a PowerUpDefinition shared by every game, while the
+ * power up only holds its color and its holder.
  *
  * @author  marcobaga
  */
@@ -44,13 +45,10 @@ public class PowerUp implements Targeted, Card {
 
     }
 
-    private PowerUpName name;
+    private final PowerUpDefinition definition;
     private Player holder;
-    private Color color;
-    private Effect effect;
-    private TargetFinder targetFinder;
-    private DestinationFinder destinationFinder;
-    private Board board;
+    private final Color color;
+    private final Board board;
     private static final String RESET = "\u001b[0m";
 
 
@@ -67,12 +65,22 @@ public class PowerUp implements Targeted, Card {
      */
     public PowerUp(PowerUpName powerUpName, DestinationFinder destinationFinder, TargetFinder targetFinder, Effect effect, Color color, Board board){
 
-        this.name = powerUpName;
+        this(new PowerUpDefinition(powerUpName, destinationFinder, targetFinder, effect), color, board);
+    }
+
+
+    /**
+     * Constructs a power up of a game from the shared definition of its kind.
+     *
+     * @param definition            the definition of the power up.
+     * @param color                 the color of the power up.
+     * @param board                 the board of the game.
+     */
+    public PowerUp(PowerUpDefinition definition, Color color, Board board){
+
+        this.definition = definition;
         this.holder = null;
         this.color = color;
-        this.destinationFinder = destinationFinder;
-        this.targetFinder = targetFinder;
-        this.effect = effect;
         this.board = board;
     }
 
@@ -81,15 +89,19 @@ public class PowerUp implements Targeted, Card {
      */
 
     public Effect getEffect() {
-        return effect;
+        return definition.getEffect();
     }
 
     public TargetFinder getTargetFinder() {
-        return targetFinder;
+        return definition.getTargetFinder();
     }
 
     public DestinationFinder getDestinationFinder() {
-        return destinationFinder;
+        return definition.getDestinationFinder();
+    }
+
+    public PowerUpDefinition getDefinition() {
+        return definition;
     }
 
     public void setHolder(Player holder){
@@ -97,7 +109,7 @@ public class PowerUp implements Targeted, Card {
     }
 
     public PowerUpName getName() {
-        return name;
+        return definition.getName();
     }
 
     public Player getHolder() throws NotAvailableAttributeException {
@@ -122,7 +134,7 @@ public class PowerUp implements Targeted, Card {
         if (!this.board.getPlayers().containsAll(playerList)) throw new IllegalArgumentException("The effects can be applied only on players on the board.");
         if (!(this.board.getMap().contains(destination) || destination == null)) throw new IllegalArgumentException("The players can be moved only in squares that belong to the board.");
         for(Player p : playerList){
-            effect.apply(holder, p, destination);
+            definition.getEffect().apply(holder, p, destination);
         }
     }
 
@@ -133,7 +145,7 @@ public class PowerUp implements Targeted, Card {
      * @throws NotAvailableAttributeException if the powerup does not have an holder.
      */
     public List<List<Player>> findTargets() throws NotAvailableAttributeException{
-        return targetFinder.find(holder);
+        return definition.getTargetFinder().find(holder);
     }
 
 
@@ -146,7 +158,7 @@ public class PowerUp implements Targeted, Card {
     public List<Square> findDestinations(List<Player> targets) throws NotAvailableAttributeException{
 
         if (!this.board.getPlayers().containsAll(targets)) throw new IllegalArgumentException("Only on players on the board can be moved.");
-        return destinationFinder.find(holder, targets);
+        return definition.getDestinationFinder().find(holder, targets);
     }
 
 
@@ -176,7 +188,7 @@ public class PowerUp implements Targeted, Card {
      */
     @Override
     public String toString(){
-        return  ClientModel.getEscapeCode(getColor().toStringLowerCase()) + name.toString() + RESET;
+        return  ClientModel.getEscapeCode(getColor().toStringLowerCase()) + getName().toString() + RESET;
     }
 
 
@@ -186,7 +198,7 @@ public class PowerUp implements Targeted, Card {
      * @return the cost of the powerup.
      */
     public AmmoPack getCost(){
-        if (name == PowerUpName.TARGETING_SCOPE){
+        if (getName() == PowerUpName.TARGETING_SCOPE){
             if (color == RED)
                 return new AmmoPack(1, 0, 0);
             else if (color == BLUE)
@@ -0,0 +1,48 @@
+package it.polimi.ingsw.model.cards;
+
+/**
+ * Immutable definition of a kind of power up, holding how it finds its targets, its destinations and applies its
+ * effects. The same definition is shared by the power ups of that kind of every game, whatever their color.
+ *
+ * @author marcobaga
+ */
+
+public final class PowerUpDefinition {
+
+    private final PowerUp.PowerUpName name;
+    private final DestinationFinder destinationFinder;
+    private final TargetFinder targetFinder;
+    private final Effect effect;
+
+
+    /**
+     * Constructs the definition of a kind of power up.
+     *
+     * @param name                  the power up name.
+     * @param destinationFinder     the related destination finder.
+     * @param targetFinder          the related target finder.
+     * @param effect                the related effect.
+     */
+    public PowerUpDefinition(PowerUp.PowerUpName name, DestinationFinder destinationFinder, TargetFinder targetFinder, Effect effect){
+
+        this.name = name;
+        this.destinationFinder = destinationFinder;
+        this.targetFinder = targetFinder;
+        this.effect = effect;
+
+    }
+
+
+    /*
+     * Getters
+     */
+
+    public PowerUp.PowerUpName getName() { return name; }
+
+    public DestinationFinder getDestinationFinder() { return destinationFinder; }
+
+    public TargetFinder getTargetFinder() { return targetFinder; }
+
+    public Effect getEffect() { return effect; }
+
+}
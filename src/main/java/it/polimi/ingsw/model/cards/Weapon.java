@@ -11,7 +11,8 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Class modeling a weapon card.
+ * Class modeling a weapon card. The name, color, costs and firemodes of a weapon are held by a WeaponDefinition shared
+ * by every game, while the weapon only holds the state it has in its own game.
  *
  * @author  marcobaga
  */
@@ -47,11 +48,8 @@ public class Weapon implements Card {
     }
 
 
-    private final WeaponName weaponName;
+    private final WeaponDefinition definition;
     private boolean loaded;
-    private final Color color;
-    private final AmmoPack fullCost;
-    private final AmmoPack reducedCost;
     private Player holder;
     private final List<FireMode> fireModeList;
     private List<Player> mainTargets;
@@ -74,11 +72,40 @@ public class Weapon implements Card {
      */
     public Weapon(WeaponName weaponName, Color color, AmmoPack fullCost, AmmoPack reducedCost, List<FireMode> fireModeList, Board board) {
 
-        this.weaponName = weaponName;
+        this(new WeaponDefinition(weaponName, color, fullCost, reducedCost, definitions(fireModeList)), fireModeList, board);
+
+    }
+
+
+    /**
+     * Constructs a weapon of a game from its shared definition. Its firemodes are created for it.
+     *
+     * @param definition        the definition of the weapon.
+     * @param board             the board of the game.
+     */
+    public Weapon(WeaponDefinition definition, Board board) {
+
+        this(definition, new ArrayList<>(definition.getFireModes().size()), board);
+        for (FireModeDefinition f : definition.getFireModes()) {
+            FireMode fireMode = new FireMode(f);
+            fireMode.setWeapon(this);
+            fireModeList.add(fireMode);
+        }
+
+    }
+
+
+    /**
+     * Constructs a weapon from its definition and its firemodes.
+     *
+     * @param definition        the definition of the weapon.
+     * @param fireModeList      the list of firemodes.
+     * @param board             the board of the game.
+     */
+    private Weapon(WeaponDefinition definition, List<FireMode> fireModeList, Board board) {
+
+        this.definition = definition;
         this.loaded = false;
-        this.color = color;
-        this.fullCost = fullCost;
-        this.reducedCost = reducedCost;
         this.holder = null;
         this.fireModeList = fireModeList;
         this.mainTargets = new ArrayList<>();
@@ -88,24 +115,43 @@ public class Weapon implements Card {
     }
 
 
+    /**
+     * Lists the definitions of some firemodes.
+     *
+     * @param fireModeList      the firemodes.
+     * @return                  their definitions.
+     */
+    private static List<FireModeDefinition> definitions(List<FireMode> fireModeList) {
+
+        List<FireModeDefinition> definitions = new ArrayList<>(fireModeList.size());
+        for (FireMode f : fireModeList) {
+            definitions.add(f.getDefinition());
+        }
+        return definitions;
+
+    }
+
+
     /*
      * Getters
      */
 
-    public WeaponName getWeaponName() { return weaponName; }
+    public WeaponName getWeaponName() { return definition.getWeaponName(); }
 
     public boolean isLoaded() { return loaded; }
 
-    public Color getColor(){ return this.color; }
+    public Color getColor(){ return definition.getColor(); }
 
     public AmmoPack getFullCost() {
-        return fullCost;
+        return definition.getFullCost();
     }
 
     public AmmoPack getReducedCost() {
-        return reducedCost;
+        return definition.getReducedCost();
     }
 
+    public WeaponDefinition getDefinition() { return definition; }
+
     public Player getHolder() throws NotAvailableAttributeException {
         if (holder == null) throw new NotAvailableAttributeException("This weapon does not have an holder.");
         return holder;
@@ -192,7 +238,7 @@ public class Weapon implements Card {
      */
     @Override
     public String toString(){
-        return weaponName.toString();
+        return definition.getWeaponName().toString();
     }
 
 }
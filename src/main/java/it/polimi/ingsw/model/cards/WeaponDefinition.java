@@ -0,0 +1,57 @@
+package it.polimi.ingsw.model.cards;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable definition of a weapon: its name, color, costs and firemodes. Definitions are read once and shared by
+ * the weapons of every game, which only hold their own state (whether they are loaded and who holds them).
+ *
+ * @author marcobaga
+ */
+
+public final class WeaponDefinition {
+
+    private final Weapon.WeaponName weaponName;
+    private final Color color;
+    private final AmmoPack fullCost;
+    private final AmmoPack reducedCost;
+    private final List<FireModeDefinition> fireModes;
+
+
+    /**
+     * Constructs the definition of a weapon.
+     *
+     * @param weaponName        the weapon name.
+     * @param color             the weapon color.
+     * @param fullCost          the cost to reload the weapon after it is been used.
+     * @param reducedCost       the cost to reload the weapon after it is been collected.
+     * @param fireModes         the definitions of the firemodes.
+     */
+    public WeaponDefinition(Weapon.WeaponName weaponName, Color color, AmmoPack fullCost, AmmoPack reducedCost, List<FireModeDefinition> fireModes) {
+
+        this.weaponName = weaponName;
+        this.color = color;
+        this.fullCost = fullCost;
+        this.reducedCost = reducedCost;
+        this.fireModes = Collections.unmodifiableList(new ArrayList<>(fireModes));
+
+    }
+
+
+    /*
+     * Getters
+     */
+
+    public Weapon.WeaponName getWeaponName() { return weaponName; }
+
+    public Color getColor() { return color; }
+
+    public AmmoPack getFullCost() { return fullCost; }
+
+    public AmmoPack getReducedCost() { return reducedCost; }
+
+    public List<FireModeDefinition> getFireModes() { return fireModes; }
+
+}
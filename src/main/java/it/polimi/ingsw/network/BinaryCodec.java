@@ -0,0 +1,703 @@
+package it.polimi.ingsw.network;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import it.polimi.ingsw.model.EncodedUpdate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static it.polimi.ingsw.model.Updater.*;
+
+/**
+ * Compact binary format. Every message is a frame made of its length, as a varint, followed by an opcode and the
+ * fields of the message. Updates are encoded as typed values: update types and property names found in the
+ * dictionaries below are written as small numbers, integers as zigzag varints and strings as UTF-8 bytes preceded
+ * by their length. Messages not described here are sent as JSON text inside a frame. A compressed message is a
+ * frame containing a specific opcode followed by the compressed message.
+ * The encoding of an update does not depend on the connection, so that it is cached by EncodedUpdate and shared by
+ * all the clients receiving it; the encoding of a batch is the concatenation of the encodings of its updates.
+ *
+ * @author marcobaga
+ */
+public class BinaryCodec implements WireCodec {
+
+    public static final String NAME = "binary";
+
+    private static final byte OP_JSON = 0;
+    private static final byte OP_MSG = 1;
+    private static final byte OP_REQ = 2;
+    private static final byte OP_OPT = 3;
+    private static final byte OP_UPD = 4;
+    private static final byte OP_SUSP = 5;
+    private static final byte OP_END = 6;
+    private static final byte OP_PING = 7;
+    private static final byte OP_ANSWER = 8;
+    private static final byte OP_ACK = 9;
+    private static final byte OP_NACK = 10;
+    private static final byte OP_DEFLATE = 11;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_FALSE = 1;
+    private static final byte TAG_TRUE = 2;
+    private static final byte TAG_INT = 3;
+    private static final byte TAG_DOUBLE = 4;
+    private static final byte TAG_STRING = 5;
+    private static final byte TAG_ARRAY = 6;
+    private static final byte TAG_OBJECT = 7;
+    private static final byte TAG_UPDATE = 8;
+
+    private static final String UPD = "UPD";
+    private static final String MSG = "MSG";
+    private static final String REQ = "REQ";
+    private static final String OPT = "OPT";
+    private static final String SUSP = "SUSP";
+    private static final String END = "END";
+    private static final String TYPE = "type";
+    private static final String TEXT = "text";
+    private static final String LENGTH = "length";
+    private static final String OPTIONS = "options";
+    private static final String END_MSG = "msg";
+    private static final String ACK = "ACK";
+    private static final String NACK = "NACK";
+
+    /**
+     * Update types, written as their index plus one. Only to be extended at the end.
+     */
+    private static final String[] TYPES = {
+            RELOAD_UPD, POWER_UP_DECK_REGEN_UPD, REMOVE_SKULL_UPD, DRAW_POWER_UP_UPD, DISCARD_POWER_UP_UPD,
+            DISCARD_WEAPON_UPD, PICKUP_WEAPON_UPD, USE_AMMO_UPD, ADD_AMMO_UPD, MOVE_UPD, STATUS_UPD, ADD_DEATH_UPD,
+            DAMAGE_UPD, MARK_UPD, REMOVE_MARKS, ADD_WEAPON_UPD, REMOVE_WEAPON_UPD, SET_IN_GAME_UPD,
+            REMOVE_AMMO_TILE_UPD, MODEL_UPD, MODEL_DIFF_UPD, RENDER_UPD, BATCH_UPD, SESSION_UPD
+    };
+
+    /**
+     * Property names, written as their index plus one: the properties of the updates, the fields of the ClientModel
+     * and the keys of JsonDiff. Only to be extended at the end.
+     */
+    private static final String[] KEYS = new LinkedHashSet<>(Arrays.asList(
+            PLAYER_PROP, WEAPON_PROP, SQUARE_PROP, LOADED_PROP, CARDS_NUMBER_PROP, SKULL_NUMBER_PROP, KILLER_PROP,
+            OVERKILL_PROP, POWER_UP_NAME_PROP, POWER_UP_COLOR_PROP, RED_AMMO_PROP, BLUE_AMMO_PROP, YELLOW_AMMO_PROP,
+            PLAYER_LIST_PROP, BOOLEAN_PROP, MODEL_PROP, POINTS_PROP, STATUS_PROP, UPDATES_PROP, RENDER_PROP,
+            VERSION_PROP, BASE_PROP, DIFF_PROP, SEQ_PROP, TOKEN_PROP,
+            "squares", "players", "weaponCardsLeft", "powerUpCardsLeft", "mapID", "currentPlayerId",
+            "killShotTrack", "skullsLeft", "powerUpInHand", "colorPowerUpInHand", "playerID", "id", "spawnPoint",
+            "weapons", "powerup", "color", "damage", "marks", "position", "username", "flipped", "inGame", "deaths",
+            "nextDeathAwards", "name",
+            "v", "o", "d", "a"
+    )).toArray(new String[0]);
+
+    private static final Map<String, Integer> TYPE_IDS = index(TYPES);
+    private static final Map<String, Integer> KEY_IDS = index(KEYS);
+    private static final byte[] PING_FRAME = {1, OP_PING};
+
+    private final JsonParser parser = new JsonParser();
+
+
+    @Override
+    public String getName(){
+        return NAME;
+    }
+
+
+    /**
+     * Encodes a message from the server as a frame, reusing the cached encoding of the message, and compresses it
+     * if it is large enough.
+     *
+     * @param message       the message
+     * @param compressor    the compressor of the connection, null if compression was not negotiated
+     * @return              the frame to write
+     */
+    @Override
+    public byte[] encode(EncodedUpdate message, MessageCompressor compressor){
+        byte[] body = encodeMessage(message);
+        if(compressor == null || !compressor.accepts(body.length)){
+            return frame(body);
+        }
+        byte[] compressed = compressor.compress(body, 0, body.length);
+        Output out = new Output();
+        out.writeVarint(compressed.length + 1);
+        out.write(OP_DEFLATE);
+        out.write(compressed, 0, compressed.length);
+        return out.toByteArray();
+    }
+
+
+    @Override
+    public byte[] encodePing(){
+        return PING_FRAME;
+    }
+
+
+    @Override
+    public byte[] encodeAnswer(String answer){
+        Output out = new Output();
+        out.write(OP_ANSWER);
+        out.writeString(answer);
+        return frame(out.toByteArray());
+    }
+
+
+    @Override
+    public byte[] encodeAck(int version, boolean applied){
+        Output out = new Output();
+        out.write(applied ? OP_ACK : OP_NACK);
+        out.writeVarint(version);
+        return frame(out.toByteArray());
+    }
+
+
+    @Override
+    public JsonObject readMessage(WireReader in, MessageDecompressor decompressor) throws IOException{
+        byte[] frame = in.readFrame();
+        if(frame == null){
+            return null;
+        }
+        if(frame.length > 0 && frame[0] == OP_DEFLATE){
+            if(decompressor == null){
+                throw new IOException("Compressed message on an uncompressed connection");
+            }
+            frame = decompressor.decompress(frame, 1, frame.length - 1);
+        }
+        return decodeMessage(frame);
+    }
+
+
+    /**
+     * Reads a message from the client, returning answers as in the JSON line format, pings as the ping line and
+     * acknowledgements as their JSON line.
+     *
+     * @param in        the reader
+     * @return          the message, or null if the stream ended
+     * @throws IOException  if the stream cannot be read or the frame is malformed
+     */
+    @Override
+    public String readText(WireReader in) throws IOException{
+        byte[] frame = in.readFrame();
+        if(frame == null){
+            return null;
+        }
+        Input input = new Input(frame);
+        byte op = input.readByte();
+        switch(op){
+            case OP_PING:   return PING;
+            case OP_ANSWER: String answer = input.readString();
+                            return answer.equals(PING) ? answer.concat(" ") : answer;
+            case OP_ACK:
+            case OP_NACK:   JsonObject j = new JsonObject();
+                            j.addProperty(HEAD_PROP, op == OP_ACK ? ACK : NACK);
+                            j.addProperty(VERSION_PROP, input.readVarint());
+                            return j.toString();
+            default:        throw new IOException("Unexpected opcode from client: " + op);
+        }
+    }
+
+
+    /**
+     * Encodes a message from the server, without the frame length, computing the encoding only the first time the
+     * message is sent. Concurrent requests may compute it twice, but always produce the same result. The returned
+     * array must not be modified.
+     *
+     * @param message   the message
+     * @return          the encoded message
+     */
+    public static byte[] encodeMessage(EncodedUpdate message){
+        byte[] b = message.getBinary();
+        if(b == null){
+            b = message.isBatch() ? encodeBatch(message.getParts(), message.isRender(), message.getSeq())
+                    : encodeMessage(message.getJson());
+            message.setBinary(b);
+        }
+        return b;
+    }
+
+
+    /**
+     * Encodes a message from the server, without the frame length.
+     *
+     * @param message   the message
+     * @return          the encoded message
+     */
+    public static byte[] encodeMessage(JsonObject message){
+        Output out = new Output();
+        String head = message.has(HEAD_PROP) && message.get(HEAD_PROP).isJsonPrimitive()
+                ? message.get(HEAD_PROP).getAsString() : "";
+        if(head.equals(UPD) && isString(message, TYPE)){
+            out.write(OP_UPD);
+            writeValue(out, message);
+        } else if(head.equals(MSG) && hasOnlyStrings(message, TEXT)){
+            out.write(OP_MSG);
+            out.writeString(message.get(TEXT).getAsString());
+        } else if(head.equals(REQ) && hasOnlyStrings(message, TEXT, LENGTH) && isCount(message.get(LENGTH).getAsString())){
+            out.write(OP_REQ);
+            out.writeString(message.get(TEXT).getAsString());
+            out.writeVarint(Integer.parseInt(message.get(LENGTH).getAsString()));
+        } else if(head.equals(OPT) && isOptions(message)){
+            out.write(OP_OPT);
+            out.writeString(message.get(TYPE).getAsString());
+            out.writeString(message.get(TEXT).getAsString());
+            JsonArray options = message.getAsJsonArray(OPTIONS);
+            out.writeVarint(options.size());
+            for(JsonElement o : options){
+                out.writeString(o.getAsString());
+            }
+        } else if(head.equals(SUSP) && message.size() == 1){
+            out.write(OP_SUSP);
+        } else if(head.equals(END) && hasOnlyStrings(message, END_MSG)){
+            out.write(OP_END);
+            out.writeString(message.get(END_MSG).getAsString());
+        } else {
+            out.write(OP_JSON);
+            out.writeString(message.toString());
+        }
+        return out.toByteArray();
+    }
+
+
+    /**
+     * Encodes a batch of updates, without the frame length, from the cached encodings of its updates.
+     *
+     * @param parts     the updates in the batch
+     * @param render    whether the client should render after applying them
+     * @param seq       the sequence number of the batch, not encoded if negative
+     * @return          the encoded batch
+     */
+    private static byte[] encodeBatch(List<EncodedUpdate> parts, boolean render, long seq){
+        Output out = new Output();
+        out.write(OP_UPD);
+        out.write(TAG_UPDATE);
+        writeType(out, BATCH_UPD);
+        out.writeVarint(seq >= 0 ? 3 : 2);
+        writeKey(out, UPDATES_PROP);
+        out.write(TAG_ARRAY);
+        out.writeVarint(parts.size());
+        for(EncodedUpdate u : parts){
+            byte[] part = encodeMessage(u);
+            if(part[0] == OP_UPD){
+                out.write(part, 1, part.length - 1);
+            } else {
+                writeValue(out, u.getJson());
+            }
+        }
+        writeKey(out, RENDER_PROP);
+        out.write(render ? TAG_TRUE : TAG_FALSE);
+        if(seq >= 0){
+            writeKey(out, SEQ_PROP);
+            out.write(TAG_INT);
+            out.writeVarlong(zigzag(seq));
+        }
+        return out.toByteArray();
+    }
+
+
+    /**
+     * Decodes a message from the server, without the frame length, into the JsonObject it was encoded from.
+     *
+     * @param data      the encoded message
+     * @return          the message
+     * @throws IOException  if the message is malformed
+     */
+    public JsonObject decodeMessage(byte[] data) throws IOException{
+        Input in = new Input(data);
+        JsonObject j = new JsonObject();
+        byte op = in.readByte();
+        switch(op){
+            case OP_UPD:    JsonElement e = readValue(in);
+                            if(!e.isJsonObject()){
+                                throw new IOException("Malformed update");
+                            }
+                            return e.getAsJsonObject();
+            case OP_MSG:    j.addProperty(HEAD_PROP, MSG);
+                            j.addProperty(TEXT, in.readString());
+                            return j;
+            case OP_REQ:    j.addProperty(HEAD_PROP, REQ);
+                            j.addProperty(TEXT, in.readString());
+                            j.addProperty(LENGTH, String.valueOf(in.readVarint()));
+                            return j;
+            case OP_OPT:    j.addProperty(HEAD_PROP, OPT);
+                            j.addProperty(TYPE, in.readString());
+                            j.addProperty(TEXT, in.readString());
+                            JsonArray options = new JsonArray();
+                            int n = in.readVarint();
+                            for(int i = 0; i < n; i++){
+                                options.add(new JsonPrimitive(in.readString()));
+                            }
+                            j.add(OPTIONS, options);
+                            return j;
+            case OP_SUSP:   j.addProperty(HEAD_PROP, SUSP);
+                            return j;
+            case OP_END:    j.addProperty(HEAD_PROP, END);
+                            j.addProperty(END_MSG, in.readString());
+                            return j;
+            case OP_PING:   j.addProperty(HEAD_PROP, PING);
+                            return j;
+            case OP_JSON:   return parser.parse(in.readString()).getAsJsonObject();
+            default:        throw new IOException("Unknown opcode: " + op);
+        }
+    }
+
+
+    /**
+     * Prepends the length to an encoded message.
+     *
+     * @param body      the encoded message
+     * @return          the frame
+     */
+    private static byte[] frame(byte[] body){
+        Output out = new Output();
+        out.writeVarint(body.length);
+        out.write(body, 0, body.length);
+        return out.toByteArray();
+    }
+
+
+    /**
+     * Writes a JSON value.
+     *
+     * @param out       the output
+     * @param e         the value
+     */
+    private static void writeValue(Output out, JsonElement e){
+        if(e == null || e.isJsonNull()){
+            out.write(TAG_NULL);
+        } else if(e.isJsonPrimitive()){
+            JsonPrimitive p = e.getAsJsonPrimitive();
+            if(p.isBoolean()){
+                out.write(p.getAsBoolean() ? TAG_TRUE : TAG_FALSE);
+            } else if(p.isNumber()){
+                Long integral = asLong(p.getAsString());
+                if(integral != null){
+                    out.write(TAG_INT);
+                    out.writeVarlong(zigzag(integral));
+                } else {
+                    out.write(TAG_DOUBLE);
+                    long bits = Double.doubleToLongBits(p.getAsDouble());
+                    for(int i = 0; i < 8; i++){
+                        out.write((int) (bits >>> (8 * i)));
+                    }
+                }
+            } else {
+                out.write(TAG_STRING);
+                out.writeString(p.getAsString());
+            }
+        } else if(e.isJsonArray()){
+            out.write(TAG_ARRAY);
+            out.writeVarint(e.getAsJsonArray().size());
+            for(JsonElement element : e.getAsJsonArray()){
+                writeValue(out, element);
+            }
+        } else {
+            JsonObject o = e.getAsJsonObject();
+            boolean update = isString(o, HEAD_PROP) && o.get(HEAD_PROP).getAsString().equals(UPD) && isString(o, TYPE);
+            if(update){
+                out.write(TAG_UPDATE);
+                writeType(out, o.get(TYPE).getAsString());
+                out.writeVarint(o.size() - 2);
+            } else {
+                out.write(TAG_OBJECT);
+                out.writeVarint(o.size());
+            }
+            for(Map.Entry<String, JsonElement> field : o.entrySet()){
+                if(update && (field.getKey().equals(HEAD_PROP) || field.getKey().equals(TYPE))){
+                    continue;
+                }
+                writeKey(out, field.getKey());
+                writeValue(out, field.getValue());
+            }
+        }
+    }
+
+
+    /**
+     * Reads a JSON value.
+     *
+     * @param in        the input
+     * @return          the value
+     * @throws IOException  if the value is malformed
+     */
+    private static JsonElement readValue(Input in) throws IOException{
+        byte tag = in.readByte();
+        switch(tag){
+            case TAG_NULL:      return JsonNull.INSTANCE;
+            case TAG_FALSE:     return new JsonPrimitive(false);
+            case TAG_TRUE:      return new JsonPrimitive(true);
+            case TAG_INT:       long z = in.readVarlong();
+                                return new JsonPrimitive((z >>> 1) ^ -(z & 1));
+            case TAG_DOUBLE:    long bits = 0;
+                                for(int i = 0; i < 8; i++){
+                                    bits |= (in.readByte() & 0xFFL) << (8 * i);
+                                }
+                                return new JsonPrimitive(Double.longBitsToDouble(bits));
+            case TAG_STRING:    return new JsonPrimitive(in.readString());
+            case TAG_ARRAY:     JsonArray array = new JsonArray();
+                                int n = in.readVarint();
+                                for(int i = 0; i < n; i++){
+                                    array.add(readValue(in));
+                                }
+                                return array;
+            case TAG_OBJECT:
+            case TAG_UPDATE:    JsonObject o = new JsonObject();
+                                if(tag == TAG_UPDATE){
+                                    o.addProperty(HEAD_PROP, UPD);
+                                    o.addProperty(TYPE, readName(in, TYPES));
+                                }
+                                int fields = in.readVarint();
+                                for(int i = 0; i < fields; i++){
+                                    String key = readName(in, KEYS);
+                                    o.add(key, readValue(in));
+                                }
+                                return o;
+            default:            throw new IOException("Unknown value tag: " + tag);
+        }
+    }
+
+
+    /**
+     * Writes an update type, as a number if it is in the dictionary.
+     *
+     * @param out       the output
+     * @param type      the type
+     */
+    private static void writeType(Output out, String type){
+        writeName(out, type, TYPE_IDS);
+    }
+
+
+    /**
+     * Writes a property name, as a number if it is in the dictionary.
+     *
+     * @param out       the output
+     * @param key       the property name
+     */
+    private static void writeKey(Output out, String key){
+        writeName(out, key, KEY_IDS);
+    }
+
+
+    /**
+     * Writes a name as its index in a dictionary plus one, or as zero followed by the name itself.
+     *
+     * @param out       the output
+     * @param name      the name
+     * @param ids       the dictionary
+     */
+    private static void writeName(Output out, String name, Map<String, Integer> ids){
+        Integer id = ids.get(name);
+        if(id != null){
+            out.writeVarint(id + 1);
+        } else {
+            out.writeVarint(0);
+            out.writeString(name);
+        }
+    }
+
+
+    /**
+     * Reads a name written by writeName().
+     *
+     * @param in        the input
+     * @param names     the dictionary
+     * @return          the name
+     * @throws IOException  if the name is malformed
+     */
+    private static String readName(Input in, String[] names) throws IOException{
+        int id = in.readVarint();
+        if(id == 0){
+            return in.readString();
+        }
+        if(id > names.length){
+            throw new IOException("Unknown name: " + id);
+        }
+        return names[id - 1];
+    }
+
+
+    /**
+     * Builds the reverse index of a dictionary.
+     *
+     * @param names     the dictionary
+     * @return          the index of each name
+     */
+    private static Map<String, Integer> index(String[] names){
+        Map<String, Integer> ids = new HashMap<>();
+        for(int i = 0; i < names.length; i++){
+            ids.put(names[i], i);
+        }
+        return ids;
+    }
+
+
+    /**
+     * Parses an integral number, as written in JSON.
+     *
+     * @param s         the number
+     * @return          the number, or null if it is not integral or does not fit a long
+     */
+    private static Long asLong(String s){
+        try {
+            return Long.parseLong(s);
+        }catch(NumberFormatException ex){
+            return null;
+        }
+    }
+
+
+    /**
+     * Maps signed integers to unsigned ones, so that small negative numbers are encoded in few bytes.
+     *
+     * @param n         the number
+     * @return          the zigzag encoding of the number
+     */
+    private static long zigzag(long n){
+        return (n << 1) ^ (n >> 63);
+    }
+
+
+    /**
+     * States whether a property is a string.
+     *
+     * @param j         the object
+     * @param key       the name of the property
+     * @return          true if the property is a string
+     */
+    private static boolean isString(JsonObject j, String key){
+        return j.has(key) && j.get(key).isJsonPrimitive() && j.get(key).getAsJsonPrimitive().isString();
+    }
+
+
+    /**
+     * States whether a message only has a head and the given string properties.
+     *
+     * @param j         the message
+     * @param keys      the names of the properties
+     * @return          true if the message has exactly those properties
+     */
+    private static boolean hasOnlyStrings(JsonObject j, String... keys){
+        if(j.size() != keys.length + 1){
+            return false;
+        }
+        for(String key : keys){
+            if(!isString(j, key)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * States whether a string is a non-negative integer written without redundant characters.
+     *
+     * @param s         the string
+     * @return          true if the string is a count
+     */
+    private static boolean isCount(String s){
+        return s.matches("0|[1-9][0-9]{0,8}");
+    }
+
+
+    /**
+     * States whether a message has the structure of a request to choose among options.
+     *
+     * @param j         the message
+     * @return          true if the message can be encoded as an OPT message
+     */
+    private static boolean isOptions(JsonObject j){
+        if(j.size() != 4 || !isString(j, TYPE) || !isString(j, TEXT) || !j.has(OPTIONS) || !j.get(OPTIONS).isJsonArray()){
+            return false;
+        }
+        for(JsonElement o : j.getAsJsonArray(OPTIONS)){
+            if(!o.isJsonPrimitive() || !o.getAsJsonPrimitive().isString()){
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Byte output with varint and string encodings.
+     */
+    private static class Output extends ByteArrayOutputStream {
+
+        private void writeVarint(int n){
+            writeVarlong(n & 0xFFFFFFFFL);
+        }
+
+        private void writeVarlong(long n){
+            while((n & ~0x7FL) != 0){
+                write((int) ((n & 0x7F) | 0x80));
+                n >>>= 7;
+            }
+            write((int) n);
+        }
+
+        private void writeString(String s){
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+    }
+
+
+    /**
+     * Byte input with varint and string decodings.
+     */
+    private static class Input {
+
+        private final byte[] data;
+        private int pos;
+
+        private Input(byte[] data){
+            this.data = data;
+            this.pos = 0;
+        }
+
+        private byte readByte() throws IOException{
+            if(pos >= data.length){
+                throw new IOException("Truncated message");
+            }
+            return data[pos++];
+        }
+
+        private int readVarint() throws IOException{
+            long n = readVarlong();
+            if(n > Integer.MAX_VALUE){
+                throw new IOException("Number too large");
+            }
+            return (int) n;
+        }
+
+        private long readVarlong() throws IOException{
+            long n = 0;
+            for(int shift = 0; shift < 64; shift += 7){
+                byte b = readByte();
+                n |= (long) (b & 0x7F) << shift;
+                if((b & 0x80) == 0){
+                    return n;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        private String readString() throws IOException{
+            int length = readVarint();
+            if(length > data.length - pos){
+                throw new IOException("Truncated string");
+            }
+            String s = new String(data, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return s;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package it.polimi.ingsw.network;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.function.IntSupplier;
+
+/**
+ * Streams over a socket channel, behaving like the streams of a Socket with a read timeout: reads throw
+ * SocketTimeoutException when nothing arrives in time, writes block until everything is written. They let
+ * TCPVirtualView and TCPConnection use Unix domain sockets, which are only available as channels, exactly like
+ * TCP sockets.
+ *
+ * @author marcobaga
+ */
+public class ChannelStreams {
+
+    private static final int WRITE_WAIT_MILLIS = 100;
+
+    /**
+     * Private constructor, as this class only has static methods.
+     */
+    private ChannelStreams(){
+    }
+
+
+    /**
+     * Connects to a Unix domain socket.
+     *
+     * @param path          the path of the socket
+     * @return              the channel, in blocking mode
+     * @throws IOException  if the connection cannot be opened
+     */
+    public static SocketChannel connect(Path path) throws IOException{
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(UnixDomainSocketAddress.of(path));
+        }catch(IOException ex){
+            channel.close();
+            throw ex;
+        }
+        return channel;
+    }
+
+
+    /**
+     * Builds the input stream of a channel. The channel is switched to non-blocking mode.
+     *
+     * @param channel       the channel
+     * @param timeoutMillis the time after which a read throws SocketTimeoutException if nothing arrived
+     * @return              the input stream
+     * @throws IOException  if the channel cannot be configured
+     */
+    public static InputStream input(SocketChannel channel, int timeoutMillis) throws IOException{
+        return input(channel, () -> timeoutMillis);
+    }
+
+
+    /**
+     * Builds the input stream of a channel whose read timeout can change over time. The channel is switched to
+     * non-blocking mode.
+     *
+     * @param channel       the channel
+     * @param timeoutMillis supplier of the time after which a read throws SocketTimeoutException
+     * @return              the input stream
+     * @throws IOException  if the channel cannot be configured
+     */
+    public static InputStream input(SocketChannel channel, IntSupplier timeoutMillis) throws IOException{
+        channel.configureBlocking(false);
+        Selector selector = Selector.open();
+        channel.register(selector, SelectionKey.OP_READ);
+        return new InputStream() {
+            @Override
+            public int read() throws IOException{
+                byte[] b = new byte[1];
+                return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException{
+                if(len == 0){
+                    return 0;
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                int n = channel.read(buffer);
+                if(n == 0){
+                    await(selector, timeoutMillis.getAsInt());
+                    n = channel.read(buffer);
+                    if(n == 0){
+                        throw new SocketTimeoutException();
+                    }
+                }
+                return n;
+            }
+
+            @Override
+            public int available() throws IOException{
+                try {
+                    int ready = selector.selectNow();
+                    selector.selectedKeys().clear();
+                    return ready;
+                }catch(ClosedSelectorException ex){
+                    throw new ClosedChannelException();
+                }
+            }
+
+            @Override
+            public void close() throws IOException{
+                selector.close();
+                channel.close();
+            }
+        };
+    }
+
+
+    /**
+     * Builds the output stream of a channel, whose writes block until all the bytes are written. The channel is
+     * switched to non-blocking mode.
+     *
+     * @param channel       the channel
+     * @return              the output stream
+     * @throws IOException  if the channel cannot be configured
+     */
+    public static OutputStream output(SocketChannel channel) throws IOException{
+        channel.configureBlocking(false);
+        Selector selector = Selector.open();
+        channel.register(selector, SelectionKey.OP_WRITE);
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException{
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException{
+                ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                while(buffer.hasRemaining()){
+                    if(channel.write(buffer) == 0){
+                        await(selector, WRITE_WAIT_MILLIS);
+                    }
+                }
+            }
+
+            @Override
+            public void close() throws IOException{
+                selector.close();
+                channel.close();
+            }
+        };
+    }
+
+
+    /**
+     * Waits for the channel registered with a selector to be ready.
+     *
+     * @param selector      the selector
+     * @param timeoutMillis the maximum time to wait
+     * @throws IOException  if the selector fails, or ClosedChannelException if the streams were closed meanwhile
+     */
+    private static void await(Selector selector, int timeoutMillis) throws IOException{
+        try {
+            selector.select(timeoutMillis);
+            selector.selectedKeys().clear();
+        }catch(ClosedSelectorException ex){
+            throw new ClosedChannelException();
+        }
+    }
+}
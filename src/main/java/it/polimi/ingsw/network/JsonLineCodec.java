@@ -0,0 +1,141 @@
+package it.polimi.ingsw.network;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import it.polimi.ingsw.model.EncodedUpdate;
+import it.polimi.ingsw.model.Updater;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * The original format: every message is a line of text, JSON for messages from the server and plain text for
+ * answers and pings. Compressed messages are lines made of a Z followed by the compressed message in base64.
+ *
+ * @author marcobaga
+ */
+public class JsonLineCodec implements WireCodec {
+
+    public static final String NAME = "json";
+    private static final byte[] PING_LINE = (PING + "\n").getBytes(StandardCharsets.UTF_8);
+    private static final String ACK = "ACK";
+    private static final String NACK = "NACK";
+    private static final String COMPRESSED = "Z";
+
+    private final JsonParser parser = new JsonParser();
+
+
+    @Override
+    public String getName(){
+        return NAME;
+    }
+
+
+    /**
+     * Encodes a message from the server as its cached serialization, compressed if it is large enough.
+     *
+     * @param message       the message
+     * @param compressor    the compressor of the connection, null if compression was not negotiated
+     * @return              the line to write
+     */
+    @Override
+    public byte[] encode(EncodedUpdate message, MessageCompressor compressor){
+        byte[] line = message.getLine();
+        if(compressor == null || !compressor.accepts(line.length - 1)){
+            return line;
+        }
+        byte[] compressed = Base64.getEncoder().encode(compressor.compress(line, 0, line.length - 1));
+        byte[] result = new byte[compressed.length + 2];
+        result[0] = (byte) COMPRESSED.charAt(0);
+        System.arraycopy(compressed, 0, result, 1, compressed.length);
+        result[result.length - 1] = '\n';
+        return result;
+    }
+
+
+    @Override
+    public byte[] encodePing(){
+        return PING_LINE;
+    }
+
+
+    /**
+     * Encodes an answer as a line. An answer equal to the ping line is followed by a space, so that it is not
+     * taken for a ping.
+     *
+     * @param answer    the answer
+     * @return          the line to write
+     */
+    @Override
+    public byte[] encodeAnswer(String answer){
+        if(answer.equals(PING)){
+            answer = answer.concat(" ");
+        }
+        return (answer + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    @Override
+    public byte[] encodeAck(int version, boolean applied){
+        JsonObject j = new JsonObject();
+        j.addProperty(HEAD_PROP, applied ? ACK : NACK);
+        j.addProperty(Updater.VERSION_PROP, version);
+        return (j.toString() + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    @Override
+    public JsonObject readMessage(WireReader in, MessageDecompressor decompressor) throws IOException{
+        String line = in.readLine();
+        if(line == null){
+            return null;
+        }
+        if(line.startsWith(COMPRESSED) && decompressor != null){
+            byte[] compressed = Base64.getDecoder().decode(line.substring(1));
+            line = new String(decompressor.decompress(compressed, 0, compressed.length), StandardCharsets.UTF_8);
+        }
+        if(line.equals(PING)){
+            JsonObject ping = new JsonObject();
+            ping.addProperty(HEAD_PROP, PING);
+            return ping;
+        }
+        return parser.parse(line).getAsJsonObject();
+    }
+
+
+    @Override
+    public String readText(WireReader in) throws IOException{
+        return in.readLine();
+    }
+
+
+    /**
+     * Builds the line with which the two sides agree on a format.
+     *
+     * @param codec     the name of the format offered by the client or chosen by the server
+     * @param compress  true if compression is offered by the client or accepted by the server
+     * @return          the line to write
+     */
+    public static byte[] encodeHello(String codec, boolean compress){
+        JsonObject j = new JsonObject();
+        j.addProperty(HEAD_PROP, HELLO);
+        j.addProperty(CODEC_PROP, codec);
+        if(compress){
+            j.addProperty(COMPRESS_PROP, DEFLATE);
+        }
+        return (j.toString() + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Builds the last line sent by the client before switching to the negotiated format.
+     *
+     * @return          the line to write
+     */
+    public static byte[] encodeSwitch(){
+        JsonObject j = new JsonObject();
+        j.addProperty(HEAD_PROP, SWITCH);
+        return (j.toString() + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,110 @@
+package it.polimi.ingsw.network;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses the large messages sent on a single connection. All the compressed messages of a connection belong to
+ * the same deflate stream, flushed after every message, so that each message is compressed against the previous ones
+ * (e.g. a ClientModel against the previous ClientModel) as well as against a preset dictionary of common fragments.
+ * Messages shorter than the threshold are sent as they are and do not enter the stream.
+ *
+ * @author marcobaga
+ */
+public class MessageCompressor {
+
+    /**
+     * Fragments common to most messages, the most frequent last, shared by the compressor and the decompressor.
+     */
+    static final byte[] DICTIONARY = ("\"text\":\"\"options\":[\"head\":\"MSG\"\"head\":\"OPT\"\"head\":\"END\",\"msg\":\""
+            + "\"powerUpCardsLeft\":\"weaponCardsLeft\":\"currentPlayerId\":\"colorPowerUpInHand\":[\"powerUpInHand\":["
+            + "\"killShotTrack\":[\"skullsLeft\":\"mapID\":\"playerID\":\"nextDeathAwards\":\"deaths\":\"flipped\":"
+            + "\"inGame\":true,\"status\":\"BASIC\"\"points\":0,\"cardNumber\":\"damage\":[],\"marks\":[],"
+            + "\"position\":{\"username\":\"color\":\"YELLOW\"\"color\":\"GREEN\"\"color\":\"GREY\"\"color\":\"BLUE\""
+            + "\"color\":\"VIOLET\"\"spawnPoint\":false,\"powerup\":true,\"redAmmo\":0,\"blueAmmo\":0,\"yellowAmmo\":0,"
+            + "\"weapons\":[{\"name\":\"\",\"loaded\":true},{\"id\":\"players\":[{\"squares\":[{"
+            + "{\"head\":\"UPD\",\"type\":\"model\",\"model\":{\"head\":\"UPD\",\"type\":\"batch\",\"updates\":["
+            + "{\"head\":\"UPD\",\"type\":\"").getBytes(StandardCharsets.UTF_8);
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Deflater deflater;
+    private final byte[] buffer;
+    private final int threshold;
+
+    private long messages;
+    private long compressedMessages;
+    private long bytesIn;
+    private long bytesOut;
+    private long nanos;
+
+
+    /**
+     * Standard constructor.
+     *
+     * @param threshold     the minimum size in bytes of the messages to compress
+     */
+    public MessageCompressor(int threshold){
+        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        this.deflater.setDictionary(DICTIONARY);
+        this.buffer = new byte[BUFFER_SIZE];
+        this.threshold = threshold;
+    }
+
+
+    /**
+     * States whether a message is large enough to be compressed, and counts it.
+     *
+     * @param size          the size of the message in bytes
+     * @return              true if the message should be compressed
+     */
+    public synchronized boolean accepts(int size){
+        messages++;
+        return size >= threshold;
+    }
+
+
+    /**
+     * Compresses a message, continuing the deflate stream of the connection.
+     *
+     * @param data          the array containing the message
+     * @param off           the offset of the message
+     * @param len           the length of the message
+     * @return              the compressed message
+     */
+    public synchronized byte[] compress(byte[] data, int off, int len){
+        long start = System.nanoTime();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(len / 4 + 16);
+        deflater.setInput(data, off, len);
+        int n;
+        do {
+            n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+            out.write(buffer, 0, n);
+        } while(n == buffer.length);
+        nanos += System.nanoTime() - start;
+        compressedMessages++;
+        bytesIn += len;
+        bytesOut += out.size();
+        return out.toByteArray();
+    }
+
+
+    /*
+     * Metrics
+     */
+
+    public synchronized long getCompressedMessages() { return compressedMessages; }
+
+    public synchronized double getRatio() { return bytesIn == 0 ? 1 : (double) bytesOut / bytesIn; }
+
+    public synchronized long getCpuMillis() { return TimeUnit.NANOSECONDS.toMillis(nanos); }
+
+    @Override
+    public synchronized String toString() {
+        return "compressed " + compressedMessages + "/" + messages + " messages, " + bytesIn + " to " + bytesOut
+                + " bytes (ratio " + String.format("%.2f", getRatio()) + "), " + String.format("%.2f", nanos / 1e6)
+                + " ms of CPU";
+    }
+}
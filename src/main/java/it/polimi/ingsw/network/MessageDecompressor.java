@@ -0,0 +1,73 @@
+package it.polimi.ingsw.network;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses the messages compressed by the MessageCompressor on the other side of a connection. Messages must be
+ * decompressed in the order they were compressed, as they belong to the same deflate stream.
+ *
+ * @author marcobaga
+ */
+public class MessageDecompressor {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Inflater inflater;
+    private final byte[] buffer;
+    private long bytesIn;
+    private long bytesOut;
+    private long nanos;
+
+
+    /**
+     * Standard constructor.
+     */
+    public MessageDecompressor(){
+        this.inflater = new Inflater();
+        this.buffer = new byte[BUFFER_SIZE];
+    }
+
+
+    /**
+     * Decompresses a message.
+     *
+     * @param data          the array containing the compressed message
+     * @param off           the offset of the compressed message
+     * @param len           the length of the compressed message
+     * @return              the message
+     * @throws IOException  if the message is not part of the deflate stream
+     */
+    public synchronized byte[] decompress(byte[] data, int off, int len) throws IOException{
+        long start = System.nanoTime();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(len * 4);
+        inflater.setInput(data, off, len);
+        try {
+            while(true){
+                int n = inflater.inflate(buffer);
+                if(n > 0){
+                    out.write(buffer, 0, n);
+                } else if(inflater.needsDictionary()){
+                    inflater.setDictionary(MessageCompressor.DICTIONARY);
+                } else {
+                    break;
+                }
+            }
+        }catch(DataFormatException ex){
+            throw new IOException("Malformed compressed message", ex);
+        }
+        nanos += System.nanoTime() - start;
+        bytesIn += len;
+        bytesOut += out.size();
+        return out.toByteArray();
+    }
+
+
+    @Override
+    public synchronized String toString() {
+        return "decompressed " + bytesIn + " to " + bytesOut + " bytes, " + String.format("%.2f", nanos / 1e6)
+                + " ms of CPU";
+    }
+}
@@ -0,0 +1,322 @@
+package it.polimi.ingsw.network;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.rmi.server.RMIClientSocketFactory;
+import java.rmi.server.RMIServerSocketFactory;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Socket factory used to export remote objects. The sockets disable Nagle's algorithm, so that the short calls
+ * of the game (choose, display, ping) are not delayed waiting for an acknowledgement, use the configured buffer
+ * sizes and may compress their streams.
+ * The client half of the factory travels with the stubs, so the side exporting an object decides how the other
+ * side connects to it. Two factories with the same settings are equal, which lets RMI reuse the connections opened
+ * through either of them.
+ *
+ * @author marcobaga
+ */
+public class TunedSocketFactory implements RMIClientSocketFactory, RMIServerSocketFactory, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final AtomicLong opened = new AtomicLong();
+    private static final AtomicLong accepted = new AtomicLong();
+    private static final AtomicLong closed = new AtomicLong();
+    private static final AtomicLong bytesIn = new AtomicLong();
+    private static final AtomicLong bytesOut = new AtomicLong();
+
+    private final boolean noDelay;
+    private final int bufferSize;
+    private final boolean compress;
+
+
+    /**
+     * Standard constructor.
+     *
+     * @param noDelay       true to disable Nagle's algorithm
+     * @param bufferSize    the size of the send and receive buffers of the sockets, 0 to keep the system default
+     * @param compress      true to deflate the streams of the sockets
+     */
+    public TunedSocketFactory(boolean noDelay, int bufferSize, boolean compress){
+        this.noDelay = noDelay;
+        this.bufferSize = bufferSize;
+        this.compress = compress;
+    }
+
+
+    /**
+     * Opens a connection to an exported object.
+     *
+     * @param host          the host of the object
+     * @param port          the port of the object
+     * @return              the socket
+     * @throws IOException  if the connection cannot be opened
+     */
+    @Override
+    public Socket createSocket(String host, int port) throws IOException{
+        Socket socket = compress ? new DeflatingSocket() : new CountingSocket();
+        tune(socket);
+        socket.connect(new InetSocketAddress(host, port));
+        opened.incrementAndGet();
+        return socket;
+    }
+
+
+    /**
+     * Opens the server socket on which exported objects are reached.
+     *
+     * @param port          the port, 0 for any
+     * @return              the server socket
+     * @throws IOException  if the port cannot be bound
+     */
+    @Override
+    public ServerSocket createServerSocket(int port) throws IOException{
+        ServerSocket serverSocket = new ServerSocket(){
+            @Override
+            public Socket accept() throws IOException{
+                Socket socket = compress ? new DeflatingSocket() : new CountingSocket();
+                implAccept(socket);
+                tune(socket);
+                accepted.incrementAndGet();
+                return socket;
+            }
+        };
+        if(bufferSize > 0){
+            serverSocket.setReceiveBufferSize(bufferSize);
+        }
+        serverSocket.bind(new InetSocketAddress(port));
+        return serverSocket;
+    }
+
+
+    /**
+     * Applies the settings to a socket.
+     *
+     * @param socket        the socket
+     * @throws IOException  if an option cannot be set
+     */
+    private void tune(Socket socket) throws IOException{
+        socket.setTcpNoDelay(noDelay);
+        if(bufferSize > 0){
+            socket.setSendBufferSize(bufferSize);
+            socket.setReceiveBufferSize(bufferSize);
+        }
+    }
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TunedSocketFactory that = (TunedSocketFactory) o;
+        return noDelay == that.noDelay && bufferSize == that.bufferSize && compress == that.compress;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(noDelay, bufferSize, compress);
+    }
+
+    @Override
+    public String toString() {
+        return "TunedSocketFactory{noDelay=" + noDelay + ", bufferSize=" + bufferSize + ", compress=" + compress + "}";
+    }
+
+
+    /*
+     * Statistics of all the factories of this JVM
+     */
+
+    public static long getOpened() { return opened.get(); }
+
+    public static long getAccepted() { return accepted.get(); }
+
+    public static long getClosed() { return closed.get(); }
+
+    /**
+     * Describes the connections opened and accepted so far and, if any stream was compressed, the compression ratio.
+     *
+     * @return              the statistics
+     */
+    public static String getStatistics(){
+        StringBuilder s = new StringBuilder();
+        s.append(opened.get()).append(" connections opened, ").append(accepted.get()).append(" accepted, ")
+                .append(opened.get() + accepted.get() - closed.get()).append(" still open");
+        if(bytesIn.get() > 0){
+            s.append(", streams deflated from ").append(bytesIn.get()).append(" to ").append(bytesOut.get())
+                    .append(" bytes");
+        }
+        return s.toString();
+    }
+
+
+    /**
+     * Socket counting its closure, so that connections kept open for reuse can be told from the ones RMI dropped.
+     */
+    private static class CountingSocket extends Socket {
+
+        private boolean counted;
+
+        @Override
+        public synchronized void close() throws IOException{
+            if(!counted){
+                counted = true;
+                closed.incrementAndGet();
+            }
+            super.close();
+        }
+    }
+
+
+    /**
+     * Socket whose output is deflated and whose input is inflated. Every flush of the output ends the data written so
+     * far, so that RMI messages are not held back by the compressor.
+     */
+    private static class DeflatingSocket extends CountingSocket {
+
+        private OutputStream out;
+        private InputStream in;
+
+        @Override
+        public synchronized OutputStream getOutputStream() throws IOException{
+            if(out == null){
+                out = new DeflaterOutputStream(new CountingOutputStream(super.getOutputStream()),
+                        new Deflater(Deflater.BEST_SPEED), true){
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException{
+                        bytesIn.addAndGet(len);
+                        super.write(b, off, len);
+                    }
+                };
+            }
+            return out;
+        }
+
+        @Override
+        public synchronized InputStream getInputStream() throws IOException{
+            if(in == null){
+                in = new InflatingInputStream(super.getInputStream());
+            }
+            return in;
+        }
+    }
+
+
+    /**
+     * Stream counting the bytes actually written on a compressed socket.
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        CountingOutputStream(OutputStream out){
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException{
+            bytesOut.addAndGet(len);
+            out.write(b, off, len);
+        }
+    }
+
+
+    /**
+     * Stream inflating the input of a compressed socket. Unlike InflaterInputStream it only reports as available
+     * the bytes already inflated, so that buffered readers do not block waiting for data the other side never sent.
+     */
+    private static class InflatingInputStream extends InputStream {
+
+        private final InputStream in;
+        private final Inflater inflater;
+        private final byte[] input;
+        private final byte[] output;
+        private int pos;
+        private int limit;
+
+        InflatingInputStream(InputStream in){
+            this.in = in;
+            this.inflater = new Inflater();
+            this.input = new byte[8192];
+            this.output = new byte[8192];
+        }
+
+        /**
+         * Inflates the input already received, without blocking.
+         *
+         * @return              true if some bytes were inflated
+         * @throws IOException  if the input is not a deflate stream
+         */
+        private boolean inflate() throws IOException{
+            try {
+                pos = 0;
+                limit = inflater.inflate(output);
+                return limit > 0;
+            }catch(DataFormatException ex){
+                throw new IOException("Malformed compressed stream", ex);
+            }
+        }
+
+        /**
+         * Makes sure some inflated bytes are ready, reading from the socket if needed.
+         *
+         * @return              false if the stream ended
+         * @throws IOException  if the socket cannot be read
+         */
+        private boolean fill() throws IOException{
+            while(pos >= limit && !inflate()){
+                if(inflater.finished()){
+                    return false;
+                }
+                int n = in.read(input);
+                if(n < 0){
+                    return false;
+                }
+                inflater.setInput(input, 0, n);
+            }
+            return true;
+        }
+
+        @Override
+        public synchronized int read() throws IOException{
+            return fill() ? output[pos++] & 0xFF : -1;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) throws IOException{
+            if(len == 0){
+                return 0;
+            }
+            if(!fill()){
+                return -1;
+            }
+            int n = Math.min(len, limit - pos);
+            System.arraycopy(output, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public synchronized int available() throws IOException{
+            if(pos >= limit && !inflater.needsInput()){
+                inflate();
+            }
+            return limit - pos;
+        }
+
+        @Override
+        public void close() throws IOException{
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package it.polimi.ingsw.network;
+
+import com.google.gson.JsonObject;
+import it.polimi.ingsw.model.EncodedUpdate;
+
+import java.io.IOException;
+
+/**
+ * Format of the messages exchanged by TCPVirtualView and TCPConnection. Messages from the server are JsonObjects,
+ * messages from the client are answers, pings and model acknowledgements, which are read back as the lines of the
+ * original JSON protocol, so that the rest of the code does not depend on the format.
+ * The JSON line format is always understood; the client may offer a more compact one when it connects, as well as
+ * the compression of the large messages coming from the server.
+ *
+ * @author marcobaga
+ */
+public interface WireCodec {
+
+    String PING = "PING";
+    String HEAD_PROP = "head";
+    String HELLO = "HELLO";
+    String SWITCH = "SWITCH";
+    String CODEC_PROP = "codec";
+    String COMPRESS_PROP = "compress";
+    String DEFLATE = "deflate";
+
+    /**
+     * Getter for the name of the format, used during negotiation.
+     *
+     * @return          the name of the format
+     */
+    String getName();
+
+
+    /**
+     * Encodes a message from the server.
+     *
+     * @param message   the message
+     * @return          the bytes to write
+     */
+    default byte[] encode(EncodedUpdate message){
+        return encode(message, null);
+    }
+
+
+    /**
+     * Encodes a message from the server, compressing it if it is large enough.
+     *
+     * @param message       the message
+     * @param compressor    the compressor of the connection, null if compression was not negotiated
+     * @return              the bytes to write
+     */
+    byte[] encode(EncodedUpdate message, MessageCompressor compressor);
+
+
+    /**
+     * Encodes a ping, in either direction.
+     *
+     * @return          the bytes to write
+     */
+    byte[] encodePing();
+
+
+    /**
+     * Encodes the answer of the client to a request.
+     *
+     * @param answer    the answer
+     * @return          the bytes to write
+     */
+    byte[] encodeAnswer(String answer);
+
+
+    /**
+     * Encodes the acknowledgement of a versioned model.
+     *
+     * @param version   the version of the model
+     * @param applied   true if the model was applied, false if it could not be
+     * @return          the bytes to write
+     */
+    byte[] encodeAck(int version, boolean applied);
+
+
+    /**
+     * Reads a message from the server. Pings are returned as messages with PING head.
+     *
+     * @param in        the reader
+     * @return          the message, or null if the stream ended
+     * @throws IOException  if the stream cannot be read, or SocketTimeoutException if no message arrived in time
+     */
+    default JsonObject readMessage(WireReader in) throws IOException{
+        return readMessage(in, null);
+    }
+
+
+    /**
+     * Reads a message from the server, decompressing it if needed. Pings are returned as messages with PING head.
+     *
+     * @param in            the reader
+     * @param decompressor  the decompressor of the connection, null if compression was not negotiated
+     * @return              the message, or null if the stream ended
+     * @throws IOException  if the stream cannot be read, or SocketTimeoutException if no message arrived in time
+     */
+    JsonObject readMessage(WireReader in, MessageDecompressor decompressor) throws IOException;
+
+
+    /**
+     * Reads a message from the client, as a line of the JSON line format.
+     *
+     * @param in        the reader
+     * @return          the message, or null if the stream ended
+     * @throws IOException  if the stream cannot be read, or SocketTimeoutException if no message arrived in time
+     */
+    String readText(WireReader in) throws IOException;
+}
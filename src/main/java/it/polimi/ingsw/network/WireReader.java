@@ -0,0 +1,178 @@
+package it.polimi.ingsw.network;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Buffered reader of a socket input stream, able to read both text lines and length-prefixed binary frames from the
+ * same stream, so that the format can change after the connection has been negotiated.
+ * Like a BufferedReader on a socket with a timeout, it throws SocketTimeoutException when no complete message is
+ * available yet and returns null at the end of the stream. Partially received messages are kept and completed by
+ * the following calls. Messages longer than the limit given at construction are refused, and at most that many
+ * bytes are buffered while waiting for a message, so a peer cannot make the reader grow or keep it busy by sending
+ * a line that never ends.
+ *
+ * @author marcobaga
+ */
+public class WireReader {
+
+    private final InputStream in;
+    private final int maxMessage;
+    private byte[] buffer;
+    private int start;
+    private int end;
+
+    private static final int INITIAL_SIZE = 8192;
+    private static final int MAX_PREFIX = 5;
+    public static final int MAX_FRAME = 16 * 1024 * 1024;
+
+
+    /**
+     * Constructor accepting messages up to MAX_FRAME bytes.
+     *
+     * @param in        the stream to read from
+     */
+    public WireReader(InputStream in){
+        this(in, MAX_FRAME);
+    }
+
+
+    /**
+     * Standard constructor.
+     *
+     * @param in            the stream to read from
+     * @param maxMessage    the maximum length in bytes of a line or of the content of a frame
+     */
+    public WireReader(InputStream in, int maxMessage){
+        this.in = in;
+        this.maxMessage = maxMessage;
+        this.buffer = new byte[Math.min(INITIAL_SIZE, maxMessage + 1)];
+        this.start = 0;
+        this.end = 0;
+    }
+
+
+    /**
+     * Reads a line of UTF-8 text, without the line terminator.
+     *
+     * @return          the line, or null if the stream ended
+     * @throws IOException              if the stream cannot be read or the line is too long
+     * @throws SocketTimeoutException   if no complete line arrived in time
+     */
+    public String readLine() throws IOException{
+        int scanned = 0;
+        while(true){
+            for(int i = start + scanned; i < end; i++){
+                if(buffer[i] == '\n'){
+                    int last = i > start && buffer[i - 1] == '\r' ? i - 1 : i;
+                    String line = new String(buffer, start, last - start, StandardCharsets.UTF_8);
+                    start = i + 1;
+                    return line;
+                }
+            }
+            scanned = end - start;
+            if(scanned > maxMessage){
+                throw new IOException("Line too long: more than " + maxMessage + " bytes");
+            }
+            if(!fill()){
+                return null;
+            }
+        }
+    }
+
+
+    /**
+     * States whether some bytes can be read without waiting, either already buffered or received by the stream.
+     * A complete message is not guaranteed to be available.
+     *
+     * @return          true if a read would not have to wait for the first bytes
+     * @throws IOException              if the stream cannot be read
+     */
+    public boolean ready() throws IOException{
+        return end > start || in.available() > 0;
+    }
+
+
+    /**
+     * Reads a frame made of its length, as a varint, followed by its content.
+     *
+     * @return          the content of the frame, or null if the stream ended
+     * @throws IOException              if the stream cannot be read or the frame is too long
+     * @throws SocketTimeoutException   if no complete frame arrived in time
+     */
+    public byte[] readFrame() throws IOException{
+        while(true){
+            int length = 0;
+            int shift = 0;
+            int pos = start;
+            boolean complete = false;
+            while(pos < end){
+                byte b = buffer[pos++];
+                length |= (b & 0x7F) << shift;
+                if((b & 0x80) == 0){
+                    complete = true;
+                    break;
+                }
+                shift += 7;
+                if(shift > 28){
+                    throw new IOException("Malformed frame length");
+                }
+            }
+            if(complete){
+                if(length < 0 || length > maxMessage){
+                    throw new IOException("Frame too long: " + length);
+                }
+                if(end - pos >= length){
+                    byte[] frame = Arrays.copyOfRange(buffer, pos, pos + length);
+                    start = pos + length;
+                    return frame;
+                }
+                ensureCapacity(pos - start + length);
+            }
+            if(!fill()){
+                return null;
+            }
+        }
+    }
+
+
+    /**
+     * Reads more bytes from the stream into the buffer, without making it hold more than a message of the maximum
+     * length with its line terminator or frame length.
+     *
+     * @return          true if some bytes were read, false if the stream ended
+     * @throws IOException              if the stream cannot be read
+     * @throws SocketTimeoutException   if no bytes arrived in time
+     */
+    private boolean fill() throws IOException{
+        if(end == buffer.length){
+            ensureCapacity(Math.min(end - start + 1, maxMessage + MAX_PREFIX));
+        }
+        int n = in.read(buffer, end, Math.min(buffer.length - end, maxMessage + MAX_PREFIX - (end - start)));
+        if(n < 0){
+            return false;
+        }
+        end += n;
+        return true;
+    }
+
+
+    /**
+     * Moves the unread bytes to the beginning of the buffer and enlarges it if needed.
+     *
+     * @param size      the number of bytes, starting from the first unread one, the buffer must be able to hold
+     */
+    private void ensureCapacity(int size){
+        if(start > 0){
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            start = 0;
+        }
+        if(size > buffer.length){
+            buffer = Arrays.copyOf(buffer, Math.max(size, buffer.length * 2));
+        }
+    }
+}
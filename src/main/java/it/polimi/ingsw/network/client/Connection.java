@@ -0,0 +1,27 @@
+package it.polimi.ingsw.network.client;
+
+/**
+ * Interface of the connections to the server, hiding the underlying implementation from ClientMain.
+ * Connections run on their own thread.
+ *
+ * @author marcobaga
+ */
+public interface Connection extends Runnable {
+
+    /**
+     * Tells the server whether a versioned model was applied, so that it can send the following ones as
+     * differences, or a complete model if it could not. Never blocks the caller.
+     *
+     * @param version       the version of the model
+     * @param applied       true if the model was applied, false if it could not be
+     */
+    void acknowledgeModel(int version, boolean applied);
+
+
+    /**
+     * States whether the connection to the server was established and is still open.
+     *
+     * @return              true if the connection is open, else false
+     */
+    boolean isConnected();
+}
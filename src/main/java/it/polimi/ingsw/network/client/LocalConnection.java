@@ -0,0 +1,162 @@
+package it.polimi.ingsw.network.client;
+
+import com.google.gson.JsonObject;
+import it.polimi.ingsw.network.server.LocalVirtualView;
+import it.polimi.ingsw.view.ClientMain;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Connection to a server running in the same JVM. The server reaches the client through the methods of this class,
+ * called by a LocalVirtualView, while the client's answers are returned directly to it.
+ * Running the connection carries out the login procedure of the VirtualView, so that the client joins the games
+ * of the ServerMain exactly like a remote one.
+ *
+ * @author marcobaga
+ */
+public class LocalConnection implements Connection {
+
+    private ClientMain clientMain;
+    private LocalVirtualView view;
+    private volatile boolean connected;
+    private static final Logger LOGGER = Logger.getLogger("clientLogger");
+
+
+    /**
+     * Class constructor. Creates the VirtualView representing this client on the server.
+     *
+     * @param clientMain        reference to the main class
+     */
+    public LocalConnection(ClientMain clientMain){
+        this.clientMain = clientMain;
+        this.view = new LocalVirtualView(this);
+        this.connected = true;
+    }
+
+
+    /**
+     * Logs in, with the VirtualView querying the client on this thread like a thread of TCPServer would.
+     */
+    public void run(){
+        try {
+            view.run();
+        }catch(Exception ex){
+            LOGGER.log(Level.SEVERE, "Login failed", ex);
+            close();
+        }
+    }
+
+
+    /**
+     * Getter for the VirtualView representing this client on the server.
+     *
+     * @return              the VirtualView
+     */
+    public LocalVirtualView getView(){
+        return view;
+    }
+
+
+    /**
+     * Asks clientMain to carry out a decision
+     *
+     * @param type      the type of options
+     * @param msg       message to display
+     * @param options   options between which to choose
+     * @return          int corresponding to the choice
+     */
+    public int choose(String type, String msg, List<String> options){
+        return clientMain.choose(type, msg, options);
+    }
+
+
+    /**
+     * Asks clientMain to display a message
+     *
+     * @param msg           message to display
+     */
+    public void display(String msg){
+        clientMain.display(msg);
+    }
+
+
+    /**
+     * Asks clientMain to provide a String
+     *
+     * @param msg       message to display
+     * @param max       max length of the answer
+     * @return          clientMain's response
+     */
+    public String getInput(String msg, int max){
+        return clientMain.getInput(msg, max);
+    }
+
+
+    /**
+     * Passes an update to clientMain
+     *
+     * @param update        the update, which the client may keep
+     */
+    public void update(JsonObject update){
+        try {
+            clientMain.update(update);
+        }catch(Exception ex){
+            LOGGER.log(Level.SEVERE, "Exception in applying update", ex);
+        }
+    }
+
+
+    /**
+     * Tells the server whether a versioned model was applied.
+     *
+     * @param version       the version of the model
+     * @param applied       true if the model was applied, false if it could not be
+     */
+    @Override
+    public void acknowledgeModel(int version, boolean applied){
+        if(connected){
+            view.acknowledgeModel(version, applied);
+        }
+    }
+
+
+    /**
+     * States whether the server has not closed the connection yet.
+     *
+     * @return              true if the connection is open, else false
+     */
+    @Override
+    public boolean isConnected(){
+        return connected;
+    }
+
+
+    /**
+     * Closes the connection. Called by the server when it shuts the VirtualView down.
+     */
+    public void close(){
+        connected = false;
+    }
+
+
+    /**
+     * Asks the ClientMain to show the suspension screen and eventually terminate.
+     */
+    public void showSuspension(){
+        close();
+        clientMain.showSuspension();
+    }
+
+
+    /**
+     * Asks the ClientMain to show the end screen and eventually terminate
+     *
+     * @param message           message to display at the end
+     */
+    public void showEnd(String message){
+        close();
+        clientMain.showEnd(message);
+    }
+}
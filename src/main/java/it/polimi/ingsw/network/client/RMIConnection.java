@@ -1,6 +1,7 @@
 package it.polimi.ingsw.network.client;
 
-import com.google.gson.JsonParser;
+import it.polimi.ingsw.network.BinaryCodec;
+import it.polimi.ingsw.network.TunedSocketFactory;
 import it.polimi.ingsw.network.server.RemoteController;
 import it.polimi.ingsw.network.server.RemoteServer;
 import it.polimi.ingsw.view.ClientMain;
@@ -16,6 +17,7 @@ import java.util.concurrent.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import static it.polimi.ingsw.controller.ServerMain.SLEEP_TIMEOUT;
+import static it.polimi.ingsw.network.server.Heartbeat.PING_INTERVAL_MILLIS;
 
 /**
  * Class implementing remote functions to be called by the server when needed.
@@ -23,14 +25,15 @@ import static it.polimi.ingsw.controller.ServerMain.SLEEP_TIMEOUT;
  *
  * @author marcobaga
  */
-public class RMIConnection implements Runnable, RemoteView {
+public class RMIConnection implements Connection, RemoteView {
 
     private RemoteController playerStub;
     private ClientMain clientMain;
     private static final Logger LOGGER = Logger.getLogger("clientLogger");
-    private JsonParser jsonParser;
+    private BinaryCodec codec;
     private ExecutorService executor;
-
+    private volatile long lastReceived;
+    private volatile boolean connected;
 
 
     /**
@@ -41,20 +44,28 @@ public class RMIConnection implements Runnable, RemoteView {
      * @param clientMain        reference to the main class
      * @param address           IP to connect to
      * @param port              port to connect to
+     * @param socketFactory     factory of the sockets through which the server calls this connection
      */
-    public RMIConnection(ClientMain clientMain, String address, int port){
+    public RMIConnection(ClientMain clientMain, String address, int port, TunedSocketFactory socketFactory){
         this.clientMain = clientMain;
-        this.jsonParser = new JsonParser();
+        this.codec = new BinaryCodec();
         this.executor = Executors.newCachedThreadPool();
+        this.lastReceived = System.currentTimeMillis();
         try {
             Registry reg = LocateRegistry.getRegistry(address, port);
             RemoteServer serverStub = (RemoteServer) reg.lookup("RMIServer");
-            String pcLookup = serverStub.getVirtualView((RemoteView) UnicastRemoteObject.exportObject(this, 0));
+            String pcLookup = serverStub.getVirtualView((RemoteView) UnicastRemoteObject.exportObject(this, 0,
+                    socketFactory, socketFactory));
             playerStub = (RemoteController) reg.lookup(pcLookup);
+            connected = true;
 
             executor.submit(()->{
                 while(Thread.currentThread().isAlive()){
 
+                    if(System.currentTimeMillis() - lastReceived < PING_INTERVAL_MILLIS){
+                        sleep();
+                        continue;
+                    }
                     try{
                         Future<Void> future = executor.submit(new Callable<Void>() {
                             public Void call() throws Exception {
@@ -63,18 +74,14 @@ public class RMIConnection implements Runnable, RemoteView {
                             }
                         });
                         future.get(1, TimeUnit.SECONDS);
+                        lastReceived = System.currentTimeMillis();
                     }catch (Exception ex){
                         LOGGER.log(Level.INFO, "Unable to ping RMI server", ex);
                         shutdown();
                         clientMain.showDisconnection();
                         break;
                     }
-                    try {
-                        TimeUnit.MILLISECONDS.sleep(SLEEP_TIMEOUT);
-                    }catch(InterruptedException ex){
-                        LOGGER.log(Level.INFO,"Skipped waiting time.");
-                        Thread.currentThread().interrupt();
-                    }
+                    sleep();
                 }
             });
         }catch(NotBoundException ex){
@@ -91,6 +98,26 @@ public class RMIConnection implements Runnable, RemoteView {
         //empty method as we do not need to periodically check for incoming messages
     }
 
+    /**
+     * Waits before checking the connection again.
+     */
+    private void sleep(){
+        try {
+            TimeUnit.MILLISECONDS.sleep(SLEEP_TIMEOUT);
+        }catch(InterruptedException ex){
+            LOGGER.log(Level.INFO,"Skipped waiting time.");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Records a call coming from the server. Any call proves that the server is alive, so the server only needs
+     * to be pinged when the connection is idle.
+     */
+    private void received(){
+        lastReceived = System.currentTimeMillis();
+    }
+
     /**
      * Asks clientMain to carry out a decision
      *
@@ -101,6 +128,7 @@ public class RMIConnection implements Runnable, RemoteView {
      * @throws RemoteException according to RMI principles
      */
     public int choose(String type, String msg, List<String> options) throws RemoteException{
+        received();
         return clientMain.choose(type, msg, options);
     }
 
@@ -111,6 +139,7 @@ public class RMIConnection implements Runnable, RemoteView {
      * @throws RemoteException according to RMI principles
      */
     public void display(String msg) throws RemoteException{
+        received();
         clientMain.display(msg);
     }
 
@@ -123,6 +152,7 @@ public class RMIConnection implements Runnable, RemoteView {
      * @throws RemoteException according to RMI principles
      */
     public String getInput(String msg, int max) throws RemoteException{
+        received();
         return clientMain.getInput(msg, max);
     }
 
@@ -131,27 +161,62 @@ public class RMIConnection implements Runnable, RemoteView {
      * @throws RemoteException according to RMI principles
      */
     public void ping() throws RemoteException{
-        //empty method useful for checking whether the server can callback remote functions from the client
+        received();
     }
 
     /**
-     * Passes an update to clientMain
+     * Passes an update to clientMain. A batch is applied as a whole and rendered once.
      *
-     * @param jsonObject        encoded update
+     * @param update            update encoded as by BinaryCodec
      * @throws RemoteException according to RMI principles
      */
-    public void update(String jsonObject) throws RemoteException{
+    public void update(byte[] update) throws RemoteException{
+        received();
         try {
-            clientMain.update(jsonParser.parse(jsonObject).getAsJsonObject());
+            clientMain.update(codec.decodeMessage(update));
         }catch(Exception ex){
-            LOGGER.log(Level.SEVERE, "Exception in parsing jsonObject", ex);
+            LOGGER.log(Level.SEVERE, "Exception in decoding update", ex);
         }
     }
 
+    /**
+     * Tells the server whether a versioned model was applied. The remote call is carried out on a separate thread,
+     * as this is usually called while the server is waiting for update() to return.
+     *
+     * @param version       the version of the model
+     * @param applied       true if the model was applied, false if it could not be
+     */
+    @Override
+    public void acknowledgeModel(int version, boolean applied){
+        try {
+            executor.submit(() -> {
+                try {
+                    playerStub.acknowledgeModel(version, applied);
+                } catch (RemoteException ex) {
+                    LOGGER.log(Level.INFO, "Unable to acknowledge model", ex);
+                }
+            });
+        }catch(RejectedExecutionException ex){
+            LOGGER.log(Level.INFO, "Connection closed, model not acknowledged", ex);
+        }
+    }
+
+    /**
+     * States whether the remote objects were found and the server has not been lost since.
+     *
+     * @return              true if the connection is open, else false
+     */
+    @Override
+    public boolean isConnected(){
+        return connected;
+    }
+
     /**
      * Closes the connection
      */
     private void shutdown(){
+        connected = false;
+        LOGGER.log(Level.INFO, () -> "RMI sockets: " + TunedSocketFactory.getStatistics());
         try {
             executor.shutdown();
             UnicastRemoteObject.unexportObject(this, false);
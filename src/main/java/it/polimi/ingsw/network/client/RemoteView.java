@@ -52,12 +52,12 @@ public interface RemoteView extends Remote {
 
 
     /**
-     * Passes an update to clientMain
+     * Passes an update, usually a batch of updates, to clientMain
      *
-     * @param jsonObject        encoded update
+     * @param update            update encoded as by BinaryCodec
      * @throws RemoteException according to RMI principles
      */
-    void update(String jsonObject) throws RemoteException;
+    void update(byte[] update) throws RemoteException;
 
 
     /**
@@ -2,16 +2,23 @@ package it.polimi.ingsw.network.client;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import it.polimi.ingsw.network.BinaryCodec;
+import it.polimi.ingsw.network.ChannelStreams;
+import it.polimi.ingsw.network.JsonLineCodec;
+import it.polimi.ingsw.network.MessageDecompressor;
+import it.polimi.ingsw.network.WireCodec;
+import it.polimi.ingsw.network.WireReader;
 import it.polimi.ingsw.view.ClientMain;
 
-import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.ConnectException;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
@@ -21,25 +28,33 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static it.polimi.ingsw.controller.ServerMain.SLEEP_TIMEOUT;
+import static it.polimi.ingsw.network.server.Heartbeat.PING_INTERVAL_MILLIS;
 
 /**
  * Implementation of Socket connection to server. It is one of the two alternatives for connecting
- * to the server.
+ * to the server. Messages are JSON lines, unless the binary format is offered and the server accepts it. Large
+ * messages from the server may be compressed, if the server accepts to.
  *
  * @author marcobaga
  */
-public class TCPConnection implements Runnable {
+public class TCPConnection implements Connection {
 
-    private Socket socket;
-    private BufferedReader in;
-    private PrintWriter out;
+    private volatile Closeable connection;
+    private WireReader in;
+    private OutputStream out;
     private ClientMain clientMain;
     private static final Logger LOGGER = Logger.getLogger("clientLogger");
     private ExecutorService executor = Executors.newCachedThreadPool();
     private static final int SOTIMEOUT = 100;
-    private boolean shutdown;
-    private long lastPingReceived;
-    private boolean pingReceived;
+    private static final int PING_TIMEOUT_MILLIS = 5000;
+    private static final String PING = WireCodec.PING;
+    private volatile boolean shutdown;
+    private volatile long lastPingReceived;
+    private volatile boolean pingReceived;
+    private volatile long lastSent;
+    private volatile WireCodec readCodec;
+    private WireCodec writeCodec;
+    private MessageDecompressor decompressor;
 
     /**
      * Constructor establishing a standard TCP connection
@@ -47,18 +62,67 @@ public class TCPConnection implements Runnable {
      * @param clientMain        reference to the main class
      * @param address           IP to connect to
      * @param port              port to connect to
+     * @param binary            true if the binary format should be offered to the server
+     * @param compress          true if the server should be asked to compress large messages
      */
-    public TCPConnection(ClientMain clientMain, String address, int port){
+    public TCPConnection(ClientMain clientMain, String address, int port, boolean binary, boolean compress){
+        this(clientMain, address, port, null, binary, compress);
+    }
+
+    /**
+     * Constructor establishing a connection through the Unix domain socket of a server running on the same host
+     *
+     * @param clientMain        reference to the main class
+     * @param unixSocket        path of the socket
+     * @param binary            true if the binary format should be offered to the server
+     * @param compress          true if the server should be asked to compress large messages
+     */
+    public TCPConnection(ClientMain clientMain, Path unixSocket, boolean binary, boolean compress){
+        this(clientMain, null, 0, unixSocket, binary, compress);
+    }
+
+    /**
+     * Constructor establishing a connection through either a TCP socket or a Unix domain socket
+     *
+     * @param clientMain        reference to the main class
+     * @param address           IP to connect to, if unixSocket is null
+     * @param port              port to connect to, if unixSocket is null
+     * @param unixSocket        path of the socket, or null to connect through TCP
+     * @param binary            true if the binary format should be offered to the server
+     * @param compress          true if the server should be asked to compress large messages
+     */
+    private TCPConnection(ClientMain clientMain, String address, int port, Path unixSocket, boolean binary,
+                          boolean compress){
         this.clientMain = clientMain;
         this.shutdown = false;
         this.lastPingReceived = System.currentTimeMillis();
         this.pingReceived = false;
+        this.lastSent = System.currentTimeMillis();
+        this.readCodec = new JsonLineCodec();
+        this.writeCodec = readCodec;
         LOGGER.log(Level.INFO, "Starting TCP connection");
         try {
-            socket = new Socket(address, port);
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            out = new PrintWriter(socket.getOutputStream());
-            socket.setSoTimeout(SOTIMEOUT);
+            if(unixSocket != null){
+                SocketChannel channel = ChannelStreams.connect(unixSocket);
+                connection = channel;
+                InputStream channelIn = ChannelStreams.input(channel, SOTIMEOUT);
+                OutputStream channelOut = ChannelStreams.output(channel);
+                in = new WireReader(channelIn);
+                out = channelOut;
+                connection = () -> {
+                    channelIn.close();
+                    channelOut.close();
+                };
+            } else {
+                Socket socket = new Socket(address, port);
+                connection = socket;
+                in = new WireReader(socket.getInputStream());
+                out = socket.getOutputStream();
+                socket.setSoTimeout(SOTIMEOUT);
+            }
+            if(binary || compress){
+                write(JsonLineCodec.encodeHello(binary ? BinaryCodec.NAME : JsonLineCodec.NAME, compress));
+            }
             LOGGER.log(Level.INFO, "Connected to TCP server");
         }catch (ConnectException ex){
             LOGGER.log(Level.SEVERE, "Cannot connect to server. Closing", ex);
@@ -71,10 +135,13 @@ public class TCPConnection implements Runnable {
         }
         executor.submit(()->{
            while(Thread.currentThread().isAlive()&&!shutdown){
-               out.println("PING");
-               out.flush();
+               if(System.currentTimeMillis() - lastSent >= PING_INTERVAL_MILLIS) {
+                   synchronized (out) {
+                       write(writeCodec.encodePing());
+                   }
+               }
                try {
-                   TimeUnit.MILLISECONDS.sleep(1000);
+                   TimeUnit.MILLISECONDS.sleep(PING_INTERVAL_MILLIS);
                } catch (InterruptedException ex) {
                    LOGGER.log(Level.SEVERE, "Skipped waiting time");
                    Thread.currentThread().interrupt();
@@ -90,18 +157,18 @@ public class TCPConnection implements Runnable {
      * or waits a little before reiterating.
      */
     public void run(){
-        JsonParser jsonParser = new JsonParser();
         while(Thread.currentThread().isAlive()&&!shutdown){
             try {
-                String message = receive();
-                JsonObject jMessage = (JsonObject) jsonParser.parse(message);
-                LOGGER.log(Level.INFO, "Received message: " + jMessage.get("head").getAsString());
-                handleRequest(jMessage);
+                JsonObject jMessage = receive();
+                if(jMessage != null) {
+                    LOGGER.log(Level.INFO, "Received message: " + jMessage.get("head").getAsString());
+                    handleRequest(jMessage);
+                }
             }catch (SocketTimeoutException ex) {
                 LOGGER.log(Level.FINEST, "No incoming message from TCPVirtualView", ex);
-                if(pingReceived && System.currentTimeMillis() - lastPingReceived > 5000){
+                if(pingReceived && System.currentTimeMillis() - lastPingReceived > PING_TIMEOUT_MILLIS){
                     shutdown();
-                    clientMain.showSuspension();
+                    clientMain.showDisconnection();
                 }
             }catch(Exception ex){
                 LOGGER.log(Level.SEVERE, "Received string cannot be parsed to Json", ex);
@@ -155,44 +222,108 @@ public class TCPConnection implements Runnable {
             case "END" :    shutdown();
                             clientMain.showEnd(jMessage.get("msg").getAsString());
                             break;
+            case WireCodec.HELLO :
+                            if(jMessage.has(WireCodec.COMPRESS_PROP)){
+                                decompressor = new MessageDecompressor();
+                            }
+                            switchCodec(jMessage.get(WireCodec.CODEC_PROP).getAsString());
+                            break;
             default:        break;
         }
     }
 
+    /**
+     * Tells the server whether a versioned model was applied, with a JSON line.
+     *
+     * @param version       the version of the model
+     * @param applied       true if the model was applied, false if it could not be
+     */
+    @Override
+    public void acknowledgeModel(int version, boolean applied){
+        synchronized (out) {
+            write(writeCodec.encodeAck(version, applied));
+        }
+    }
+
+    /**
+     * Switches to the format chosen by the server, which writes in that format from its next message on.
+     * The client sends a SWITCH line before its first message in the new format.
+     *
+     * @param codec         the name of the format chosen by the server
+     */
+    private void switchCodec(String codec){
+        if(!codec.equals(BinaryCodec.NAME)){
+            LOGGER.log(Level.INFO, "Server chose format {0}", codec);
+            return;
+        }
+        WireCodec binary = new BinaryCodec();
+        readCodec = binary;
+        synchronized (out) {
+            write(JsonLineCodec.encodeSwitch());
+            writeCodec = binary;
+        }
+        LOGGER.log(Level.INFO, "Switched to binary format");
+    }
+
+    /**
+     * States whether the socket is still open.
+     *
+     * @return              true if the connection is open, else false
+     */
+    @Override
+    public boolean isConnected(){
+        return !shutdown;
+    }
+
     /**
      * Sends a message through the socket (NOT blocking)
      *
      * @param message       message to send
      */
     private void send(String message){
-        if(message.equals("PING")){
-            message = message.concat(" ");
+        synchronized (out) {
+            write(writeCodec.encodeAnswer(message));
         }
-        out.println(message);
-        out.flush();
         LOGGER.log(Level.FINE, "Message sent to TCP server: {0}", message);
     }
 
     /**
-     * Checks the socket input stream for new messages (NOT blocking)
+     * Writes an encoded message to the socket. Write errors are only logged, as a closed connection is detected
+     * while receiving.
      *
-     * @return          the string received (empty if no message arrived)
+     * @param data          the encoded message
+     */
+    private void write(byte[] data){
+        try {
+            out.write(data);
+            out.flush();
+            lastSent = System.currentTimeMillis();
+        }catch(IOException ex){
+            LOGGER.log(Level.INFO, "Cannot write to server", ex);
+        }
+    }
+
+    /**
+     * Checks the socket input stream for new messages (NOT blocking). Any message received proves that the server
+     * is alive, pings only arrive when the connection is otherwise idle.
+     *
+     * @return          the message received, or null if the connection was closed
      * @throws SocketTimeoutException       if no message arrives before socket timeout
      */
-    private String receive() throws SocketTimeoutException{
-        JsonObject jsonObject = new JsonObject();
-        jsonObject.addProperty("head", "PING");
-        String message = jsonObject.toString();
+    private JsonObject receive() throws SocketTimeoutException{
+        JsonObject message = null;
         try {
-            message = in.readLine();
+            message = readCodec.readMessage(in, decompressor);
             if (message == null) {
                 LOGGER.log(Level.INFO, "TCPConnection: server disconnected, shutting down");
                 shutdown();
                 clientMain.showDisconnection();
-            } else if (message.equals("PING")){
+            } else {
                 lastPingReceived = System.currentTimeMillis();
                 pingReceived = true;
-                throw new SocketTimeoutException();
+                if (message.get("head").getAsString().equals(PING)) {
+                    throw new SocketTimeoutException();
+                }
             }
         }catch(SocketTimeoutException ex) {
             throw new SocketTimeoutException();
@@ -209,8 +340,11 @@ public class TCPConnection implements Runnable {
      */
     private void shutdown(){
         shutdown=true;
+        if(decompressor != null){
+            LOGGER.log(Level.INFO, () -> "TCPConnection: " + decompressor);
+        }
         try {
-            socket.close();
+            connection.close();
         }catch (Exception ex){
             LOGGER.log(Level.SEVERE, "Error while closing connection", ex);
         }
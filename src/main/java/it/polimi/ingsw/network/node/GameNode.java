@@ -0,0 +1,181 @@
+package it.polimi.ingsw.network.node;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import it.polimi.ingsw.controller.GameEngine;
+import it.polimi.ingsw.network.server.VirtualView;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Process hosting games on behalf of a gateway. The node listens on a loopback port, prints it on the standard
+ * output and serves a single gateway: it starts the games the gateway assigns to it, with a ProxyVirtualView for
+ * each player, resumes the players the gateway reconnects with a new ProxyVirtualView, and answers health checks.
+ * The node exits when the gateway closes the link.
+ *
+ * @author marcobaga
+ */
+public class GameNode {
+
+    private final Map<Integer, List<ProxyVirtualView>> games;
+    private final ExecutorService executor;
+    private NodeLink gateway;
+
+    private static final Logger LOGGER = Logger.getLogger("serverLogger");
+    public static final String PORT_PREFIX = "PORT ";
+
+    /**
+     * Standard constructor.
+     */
+    public GameNode(){
+        this.games = new ConcurrentHashMap<>();
+        this.executor = Executors.newCachedThreadPool();
+    }
+
+
+    /**
+     * Starts a node and waits for its gateway.
+     *
+     * @param args      unused
+     */
+    public static void main(String[] args){
+        try(ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())){
+            System.out.println(PORT_PREFIX + server.getLocalPort());
+            System.out.flush();
+            new GameNode().serve(server.accept(), () -> System.exit(0));
+        }catch(IOException ex){
+            LOGGER.log(Level.SEVERE, "Game node failed", ex);
+            System.exit(1);
+        }
+    }
+
+
+    /**
+     * Serves a gateway on a connected socket. Returns immediately: the messages are handled by the thread of the link.
+     *
+     * @param socket        the socket connected to the gateway
+     * @param onClose       called when the gateway closes the link
+     * @throws IOException  if the link cannot be opened
+     */
+    public void serve(Socket socket, Runnable onClose) throws IOException{
+        gateway = new NodeLink(socket);
+        gateway.listen("node", this::handle, () -> {
+            executor.shutdownNow();
+            onClose.run();
+        });
+    }
+
+
+    /**
+     * Handles a message of the gateway.
+     *
+     * @param message       the message
+     */
+    private void handle(JsonObject message){
+        switch (message.get(NodeLink.HEAD).getAsString()){
+            case NodeLink.GAME:
+                startGame(message.get(NodeLink.ID).getAsInt(), message.getAsJsonArray(NodeLink.PLAYERS));
+                break;
+            case NodeLink.IN:
+                ProxyVirtualView p = player(message);
+                if(p != null){
+                    p.receive(message.get(NodeLink.MESSAGE).getAsString());
+                }
+                break;
+            case NodeLink.SUSP:
+                ProxyVirtualView s = player(message);
+                if(s != null){
+                    s.suspendByGateway();
+                }
+                break;
+            case NodeLink.RESUME:
+                resume(message);
+                break;
+            case NodeLink.PING:
+                JsonObject pong = NodeLink.message(NodeLink.PONG);
+                pong.addProperty(NodeLink.GAMES, games.size());
+                gateway.send(pong);
+                break;
+            default:
+                LOGGER.log(Level.WARNING, "Unknown message from gateway: {0}", message);
+        }
+    }
+
+
+    /**
+     * Starts a game assigned by the gateway, and tells the gateway when it is over.
+     *
+     * @param id            the id of the game
+     * @param players       the name and battlecry of each player
+     */
+    private void startGame(int id, JsonArray players){
+        List<ProxyVirtualView> views = new ArrayList<>();
+        for(JsonElement e : players){
+            JsonObject p = e.getAsJsonObject();
+            views.add(new ProxyVirtualView(gateway, id, views.size(), p.get(NodeLink.NAME).getAsString(),
+                    p.get(NodeLink.BATTLECRY).getAsString()));
+        }
+        games.put(id, views);
+        GameEngine engine = new GameEngine(new ArrayList<VirtualView>(views));
+        executor.submit(() -> {
+            try {
+                engine.run();
+            }catch(Exception ex){
+                LOGGER.log(Level.SEVERE, "Game " + id + " failed", ex);
+            }
+            games.remove(id);
+            JsonObject over = NodeLink.message(NodeLink.OVER);
+            over.addProperty(NodeLink.ID, id);
+            gateway.send(over);
+        });
+        LOGGER.log(Level.INFO, "Game {0} started", id);
+    }
+
+
+    /**
+     * Resumes a suspended player on a new ProxyVirtualView, which his game swaps in at the end of the current turn,
+     * as for a player resuming on the gateway.
+     *
+     * @param message       the RESUME message of the gateway
+     */
+    private void resume(JsonObject message){
+        ProxyVirtualView old = player(message);
+        if(old == null || old.getGame() == null){
+            return;
+        }
+        int id = message.get(NodeLink.ID).getAsInt();
+        int position = message.get(NodeLink.PLAYER).getAsInt();
+        ProxyVirtualView resumed = new ProxyVirtualView(gateway, id, position, old.getName(), old.getBattlecry());
+        resumed.takeOverSession(old, message.get(NodeLink.SEQ).getAsLong());
+        if(old.getGame().tryResuming(resumed)){
+            games.get(id).set(position, resumed);
+        } else {
+            LOGGER.log(Level.WARNING, "Game {0} refused the resumption of {1}", new Object[]{id, old.getName()});
+        }
+    }
+
+
+    /**
+     * Finds the player a message of the gateway refers to.
+     *
+     * @param message       the message
+     * @return              the player, or null if his game is over
+     */
+    private ProxyVirtualView player(JsonObject message){
+        List<ProxyVirtualView> views = games.get(message.get(NodeLink.ID).getAsInt());
+        int position = message.get(NodeLink.PLAYER).getAsInt();
+        return views == null || position >= views.size() ? null : views.get(position);
+    }
+}
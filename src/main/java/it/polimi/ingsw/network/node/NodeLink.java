@@ -0,0 +1,162 @@
+package it.polimi.ingsw.network.node;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Connection between the gateway and a game node, carrying the internal protocol: one JSON object per line, whose
+ * head states its meaning. A thread reads the incoming messages and hands them to a handler in order, while
+ * messages can be sent from any thread.
+ *
+ * Messages from the gateway to a node:
+ *  - GAME: start a game, with its id and the name and battlecry of its players;
+ *  - IN: the answer of a player, identified by game id and position in the game;
+ *  - SUSP: a player was suspended by the gateway;
+ *  - RESUME: a suspended player resumed on the gateway, with the sequence number of the first update his client
+ *    did not receive, or -1;
+ *  - PING: health check.
+ * Messages from a node to the gateway:
+ *  - OUT: a message for a player, with the same content a VirtualView would send to its client;
+ *  - OVER: a game is over;
+ *  - PONG: answer to a health check, with the number of games running.
+ *
+ * @author marcobaga
+ */
+public class NodeLink implements Closeable {
+
+    public static final String HEAD = "head";
+    public static final String GAME = "GAME";
+    public static final String IN = "IN";
+    public static final String OUT = "OUT";
+    public static final String SUSP = "SUSP";
+    public static final String RESUME = "RESUME";
+    public static final String OVER = "OVER";
+    public static final String PING = "PING";
+    public static final String PONG = "PONG";
+    public static final String ID = "id";
+    public static final String PLAYER = "player";
+    public static final String PLAYERS = "players";
+    public static final String NAME = "name";
+    public static final String BATTLECRY = "battlecry";
+    public static final String MESSAGE = "msg";
+    public static final String GAMES = "games";
+    public static final String SEQ = "seq";
+
+    private final Socket socket;
+    private final BufferedReader in;
+    private final OutputStream out;
+    private volatile boolean closed;
+    private static final Logger LOGGER = Logger.getLogger("serverLogger");
+
+    /**
+     * Standard constructor.
+     *
+     * @param socket        the connected socket
+     * @throws IOException  if the streams cannot be opened
+     */
+    public NodeLink(Socket socket) throws IOException{
+        this.socket = socket;
+        this.socket.setTcpNoDelay(true);
+        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        this.out = socket.getOutputStream();
+        this.closed = false;
+    }
+
+
+    /**
+     * Starts the thread reading the incoming messages.
+     *
+     * @param name          the name of the thread
+     * @param handler       the handler of each message, called on the reading thread
+     * @param onClose       called once the link is closed, by either side
+     */
+    public void listen(String name, Consumer<JsonObject> handler, Runnable onClose){
+        Thread reader = new Thread(() -> {
+            try {
+                String line;
+                while((line = in.readLine()) != null){
+                    try {
+                        handler.accept(new JsonParser().parse(line).getAsJsonObject());
+                    }catch(RuntimeException ex){
+                        LOGGER.log(Level.SEVERE, "Cannot handle message from " + name, ex);
+                    }
+                }
+            }catch(IOException ex){
+                if(!closed) {
+                    LOGGER.log(Level.INFO, "Link " + name + " broken", ex);
+                }
+            }
+            close();
+            onClose.run();
+        }, name);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+
+    /**
+     * Sends a message. Errors only close the link, which the reading thread then reports.
+     *
+     * @param message       the message
+     */
+    public void send(JsonObject message){
+        byte[] line = (message.toString() + "\n").getBytes(StandardCharsets.UTF_8);
+        synchronized (out){
+            try {
+                out.write(line);
+                out.flush();
+            }catch(IOException ex){
+                LOGGER.log(Level.INFO, "Cannot write on link", ex);
+                close();
+            }
+        }
+    }
+
+
+    /**
+     * Builds a message with the given head.
+     *
+     * @param head          the head
+     * @return              the message
+     */
+    public static JsonObject message(String head){
+        JsonObject j = new JsonObject();
+        j.addProperty(HEAD, head);
+        return j;
+    }
+
+
+    /**
+     * States whether the link was closed.
+     *
+     * @return              true if closed
+     */
+    public boolean isClosed(){
+        return closed;
+    }
+
+
+    /**
+     * Closes the link.
+     */
+    @Override
+    public void close(){
+        closed = true;
+        try {
+            socket.close();
+        }catch(IOException ex){
+            LOGGER.log(Level.FINE, "Exception while closing link", ex);
+        }
+    }
+}
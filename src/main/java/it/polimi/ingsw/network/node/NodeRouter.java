@@ -0,0 +1,175 @@
+package it.polimi.ingsw.network.node;
+
+import it.polimi.ingsw.network.server.VirtualView;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Router of the gateway, assigning the games formed by matchmaking to game nodes. Nodes are separate processes on
+ * the same host, started by the router itself or attached to it. Each new game goes to the healthy node hosting
+ * fewest games, so that new games move away from loaded or failed nodes.
+ *
+ * @author marcobaga
+ */
+public class NodeRouter {
+
+    private final List<RemoteNode> nodes;
+    private final AtomicInteger gameIds;
+    private final BiConsumer<Integer, List<VirtualView>> onGameOver;
+
+    private static final Logger LOGGER = Logger.getLogger("serverLogger");
+
+    /**
+     * Standard constructor. The router has no nodes until they are started or attached.
+     *
+     * @param onGameOver    called with the id and the players of each game which is over
+     */
+    public NodeRouter(BiConsumer<Integer, List<VirtualView>> onGameOver){
+        this.nodes = new CopyOnWriteArrayList<>();
+        this.gameIds = new AtomicInteger();
+        this.onGameOver = onGameOver;
+    }
+
+
+    /**
+     * Starts a game node process with the same Java runtime and class path as the gateway, and attaches it.
+     *
+     * @throws IOException  if the process cannot be started or does not tell its port
+     */
+    public void startNode() throws IOException{
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), GameNode.class.getName())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line = out.readLine();
+        if(line == null || !line.startsWith(GameNode.PORT_PREFIX)){
+            process.destroy();
+            throw new IOException("Game node did not start");
+        }
+        int port = Integer.parseInt(line.substring(GameNode.PORT_PREFIX.length()).trim());
+        attach(new Socket(InetAddress.getLoopbackAddress(), port), process);
+    }
+
+
+    /**
+     * Attaches a game node listening on a connected socket.
+     *
+     * @param socket        the socket connected to the node
+     * @param process       the process of the node, or null if the router did not start it
+     * @throws IOException  if the link cannot be opened
+     */
+    public void attach(Socket socket, Process process) throws IOException{
+        RemoteNode node = new RemoteNode(nodes.size(), socket, process, onGameOver);
+        nodes.add(node);
+        LOGGER.log(Level.INFO, "Game node {0} attached", node.getId());
+    }
+
+
+    /**
+     * Assigns a game to the healthy node hosting fewest games.
+     *
+     * @param players       the players of the game
+     * @return              the id of the game, or -1 if no node is healthy
+     */
+    public int host(List<VirtualView> players){
+        RemoteNode chosen = null;
+        for(RemoteNode node : nodes){
+            if(node.isHealthy() && (chosen == null || node.getLoad() < chosen.getLoad())){
+                chosen = node;
+            }
+        }
+        if(chosen == null){
+            return -1;
+        }
+        int id = gameIds.incrementAndGet();
+        chosen.startGame(id, players);
+        LOGGER.log(Level.INFO, "Game {0} assigned to node {1}", new Object[]{id, chosen.getId()});
+        return id;
+    }
+
+
+    /**
+     * States whether a player is in a game hosted by a healthy node.
+     *
+     * @param v             the connection of the player
+     * @return              true if his game runs on a healthy node, else false
+     */
+    public boolean hosts(VirtualView v){
+        for(RemoteNode node : nodes){
+            if(node.hosts(v)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Resumes a suspended player whose game is hosted by a node on a new connection, forwarding the resumption to
+     * the node.
+     *
+     * @param old           the connection of the suspended player
+     * @param resumed       the new connection
+     * @return              true if a healthy node hosts the player's game, else false
+     */
+    public boolean resume(VirtualView old, VirtualView resumed){
+        for(RemoteNode node : nodes){
+            if(node.resume(old, resumed, resumed.getResumeSeq())){
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Checks the health of the nodes and propagates suspensions. Called periodically by the gateway.
+     *
+     * @param now           the current time in milliseconds
+     */
+    public void check(long now){
+        for(RemoteNode node : nodes){
+            node.check(now);
+        }
+    }
+
+
+    /**
+     * Counts the healthy nodes.
+     *
+     * @return              the number of nodes able to host new games
+     */
+    public int getHealthyNodes(){
+        int healthy = 0;
+        for(RemoteNode node : nodes){
+            if(node.isHealthy()){
+                healthy++;
+            }
+        }
+        return healthy;
+    }
+
+
+    /**
+     * Stops all nodes.
+     */
+    public void shutdown(){
+        for(RemoteNode node : nodes){
+            node.shutdown();
+        }
+        nodes.clear();
+    }
+}
@@ -0,0 +1,238 @@
+package it.polimi.ingsw.network.node;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import it.polimi.ingsw.model.EncodedUpdate;
+import it.polimi.ingsw.network.server.VirtualView;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class extending VirtualView for a player of a game hosted by a game node, whose client is connected to the
+ * gateway. Every message for the client is forwarded to the gateway, which delivers it through the real connection;
+ * answers come back from the gateway. Updates are forwarded as they are: the connection on the gateway turns them
+ * into versioned differences for its client.
+ *
+ * @author marcobaga
+ */
+public class ProxyVirtualView extends VirtualView {
+
+    private final NodeLink gateway;
+    private final int gameId;
+    private final int position;
+    private volatile boolean suspendedByGateway;
+
+    private static final Logger LOGGER = Logger.getLogger("serverLogger");
+    private static final String HEAD_PROP = "head";
+
+    /**
+     * Standard constructor.
+     *
+     * @param gateway       the link to the gateway
+     * @param gameId        the id of the game
+     * @param position      the position of the player in the game
+     * @param name          the name of the player
+     * @param battlecry     the battlecry of the player
+     */
+    public ProxyVirtualView(NodeLink gateway, int gameId, int position, String name, String battlecry){
+        super();
+        this.gateway = gateway;
+        this.gameId = gameId;
+        this.position = position;
+        this.suspendedByGateway = false;
+        setName(name);
+        setBattlecry(battlecry);
+    }
+
+
+    /**
+     * Handles an answer of the client forwarded by the gateway.
+     *
+     * @param message       the answer
+     */
+    void receive(String message){
+        if(isSuspended()) return;
+        notifyObservers(message);
+    }
+
+
+    /**
+     * Suspends the player because the gateway lost its client, without telling the gateway back.
+     */
+    void suspendByGateway(){
+        suspendedByGateway = true;
+        suspend();
+    }
+
+
+    /**
+     * Answers arrive from the gateway, so there is nothing to poll.
+     */
+    @Override
+    public void refresh(){
+        //answers are pushed by the gateway
+    }
+
+
+    /**
+     * The connection belongs to the gateway, so there is nothing to close.
+     */
+    @Override
+    public void shutdown(){
+        //the gateway closes the connection
+    }
+
+
+    /**
+     * Tells the gateway to suspend the player, unless the suspension comes from the gateway itself.
+     */
+    @Override
+    public void showSuspension(){
+        if(suspendedByGateway) return;
+        JsonObject j = new JsonObject();
+        j.addProperty(HEAD_PROP, "SUSP");
+        forward(j);
+    }
+
+
+    /**
+     * Forwards the ending message of the game.
+     *
+     * @param message       the message to display
+     */
+    @Override
+    public void showEnd(String message){
+        JsonObject j = new JsonObject();
+        j.addProperty(HEAD_PROP, "END");
+        j.addProperty("msg", message);
+        forward(j);
+    }
+
+
+    /**
+     * Forwards a request to choose among a list of options.
+     *
+     * @param type      type of the request
+     * @param msg       message to be displayed
+     * @param options   list of options to choose from
+     */
+    @Override
+    public void choose(String type, String msg, List<?> options){
+        choose(type, msg, options, -1);
+    }
+
+
+    /**
+     * Forwards a request to choose among a list of options, to be answered in a maximum time. The gateway discards
+     * late answers.
+     *
+     * @param type      type of the request
+     * @param msg       message to display
+     * @param options   list of options to choose from
+     * @param timeoutSec    maximum time given to the client to provide an answer, negative for no limit
+     */
+    @Override
+    public void choose(String type, String msg, List<?> options, int timeoutSec){
+        if(game != null){
+            synchronized (game.getNotifications()){
+                game.getNotifications().remove(this);
+            }
+        }
+        if(isSuspended()) return;
+        JsonObject j = new JsonObject();
+        j.addProperty(HEAD_PROP, "OPT");
+        j.addProperty("type", type);
+        j.addProperty("text", msg);
+        JsonArray array = new JsonArray();
+        for (Object o : options) {
+            array.add(new JsonPrimitive(o.toString()));
+        }
+        j.add("options", array);
+        j.addProperty("timeout", timeoutSec);
+        forward(j);
+    }
+
+
+    /**
+     * Players log in on the gateway, so there is nothing to ask.
+     *
+     * @param type      the request's type
+     * @param msg       message to display
+     * @param options   options to choose from
+     * @return          the first option
+     */
+    @Override
+    public int chooseNow(String type, String msg, List<?> options){
+        LOGGER.log(Level.WARNING, "Synchronous request on a game node");
+        return 1;
+    }
+
+
+    /**
+     * Forwards a message for the client to display.
+     *
+     * @param msg       message to display
+     */
+    @Override
+    public void display(String msg){
+        if(isSuspended()) return;
+        JsonObject j = new JsonObject();
+        j.addProperty(HEAD_PROP, "MSG");
+        j.addProperty("text", msg);
+        forward(j);
+    }
+
+
+    /**
+     * Players log in on the gateway, so there is nothing to ask.
+     *
+     * @param msg       message to display
+     * @param max       max length of the answer
+     * @return          an empty String
+     */
+    @Override
+    public String getInputNow(String msg, int max){
+        LOGGER.log(Level.WARNING, "Synchronous request on a game node");
+        return "";
+    }
+
+
+    /**
+     * Forwards an update.
+     *
+     * @param jsonObject    encoded update
+     */
+    @Override
+    public void update(JsonObject jsonObject){
+        if(isSuspended()) return;
+        forward(jsonObject);
+    }
+
+
+    /**
+     * Forwards an update, without turning it into a versioned difference.
+     *
+     * @param update        the update
+     */
+    @Override
+    public void update(EncodedUpdate update){
+        update(update.getJson());
+    }
+
+
+    /**
+     * Wraps a message for the client into an OUT message for the gateway.
+     *
+     * @param message       the message for the client
+     */
+    private void forward(JsonObject message){
+        JsonObject j = NodeLink.message(NodeLink.OUT);
+        j.addProperty(NodeLink.ID, gameId);
+        j.addProperty(NodeLink.PLAYER, position);
+        j.add(NodeLink.MESSAGE, message);
+        gateway.send(j);
+    }
+}
@@ -0,0 +1,325 @@
+package it.polimi.ingsw.network.node;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import it.polimi.ingsw.model.EncodedUpdate;
+import it.polimi.ingsw.network.server.VirtualView;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Gateway side of a game node. Forwards the messages of the games hosted by the node to the connections of their
+ * players on the gateway, and the answers, suspensions and resumptions of the players to the node. The node is healthy as long
+ * as it answers health checks in time; when it fails, its games end for their players.
+ *
+ * @author marcobaga
+ */
+public class RemoteNode {
+
+    private final int id;
+    private final NodeLink link;
+    private final Process process;
+    private final Map<Integer, List<VirtualView>> games;
+    private final Set<VirtualView> reportedSuspended;
+    private final BiConsumer<Integer, List<VirtualView>> onGameOver;
+    private volatile long lastPong;
+    private volatile long lastPing;
+    private volatile boolean healthy;
+
+    private static final Logger LOGGER = Logger.getLogger("serverLogger");
+    public static final long HEALTH_TIMEOUT_MILLIS = 5000;
+    private static final long PING_PERIOD_MILLIS = 1000;
+    private static final String NODE_FAILED_MESSAGE = "The server hosting your game failed. The game is over.";
+
+    /**
+     * Standard constructor. Starts reading the messages of the node.
+     *
+     * @param id            the number of the node
+     * @param socket        the socket connected to the node
+     * @param process       the process of the node, or null if it was not started by the gateway
+     * @param onGameOver    called with the id and the players of each game which is over
+     * @throws IOException  if the link cannot be opened
+     */
+    public RemoteNode(int id, Socket socket, Process process, BiConsumer<Integer, List<VirtualView>> onGameOver) throws IOException{
+        this.id = id;
+        this.link = new NodeLink(socket);
+        this.process = process;
+        this.games = new ConcurrentHashMap<>();
+        this.reportedSuspended = ConcurrentHashMap.newKeySet();
+        this.onGameOver = onGameOver;
+        this.lastPong = System.currentTimeMillis();
+        this.lastPing = 0;
+        this.healthy = true;
+        link.listen("gateway-node-" + id, this::handle, this::fail);
+    }
+
+
+    /**
+     * Starts a game on the node. From now on the answers of the players are relayed to the node.
+     *
+     * @param gameId        the id of the game
+     * @param players       the players
+     */
+    void startGame(int gameId, List<VirtualView> players){
+        games.put(gameId, new CopyOnWriteArrayList<>(players));
+        JsonObject j = NodeLink.message(NodeLink.GAME);
+        j.addProperty(NodeLink.ID, gameId);
+        JsonArray array = new JsonArray();
+        for(int i = 0; i < players.size(); i++){
+            VirtualView v = players.get(i);
+            JsonObject p = new JsonObject();
+            p.addProperty(NodeLink.NAME, v.getName());
+            p.addProperty(NodeLink.BATTLECRY, v.getBattlecry() == null ? "" : v.getBattlecry());
+            array.add(p);
+            relay(v, gameId, i);
+        }
+        j.add(NodeLink.PLAYERS, array);
+        link.send(j);
+    }
+
+
+    /**
+     * Relays the answers of a player to the node.
+     *
+     * @param v             the connection of the player
+     * @param gameId        the id of the game
+     * @param position      the position of the player in the game
+     */
+    private void relay(VirtualView v, int gameId, int position){
+        v.setRelay(answer -> {
+            JsonObject in = NodeLink.message(NodeLink.IN);
+            in.addProperty(NodeLink.ID, gameId);
+            in.addProperty(NodeLink.PLAYER, position);
+            in.addProperty(NodeLink.MESSAGE, answer);
+            link.send(in);
+        });
+    }
+
+
+    /**
+     * States whether a player is in one of the games of this node, which is still healthy.
+     *
+     * @param v             the connection of the player
+     * @return              true if his game runs on this node, else false
+     */
+    boolean hosts(VirtualView v){
+        if(!healthy) return false;
+        for(List<VirtualView> players : games.values()){
+            if(players.contains(v)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * Replaces the connection of a suspended player with a new one and tells the node that he resumed. The node is
+     * told about the suspension first if it was not yet, so that its game accepts the resumption.
+     *
+     * @param old           the connection of the suspended player
+     * @param resumed       the new connection
+     * @param seq           the sequence number of the first update the client did not receive, -1 if not known
+     * @return              true if the player's game runs on this node, else false
+     */
+    synchronized boolean resume(VirtualView old, VirtualView resumed, long seq){
+        if(!healthy || !old.isSuspended()) return false;
+        for(Map.Entry<Integer, List<VirtualView>> game : games.entrySet()){
+            List<VirtualView> players = game.getValue();
+            int position = players.indexOf(old);
+            if(position < 0){
+                continue;
+            }
+            if(reportedSuspended.add(old)){
+                JsonObject susp = NodeLink.message(NodeLink.SUSP);
+                susp.addProperty(NodeLink.ID, game.getKey());
+                susp.addProperty(NodeLink.PLAYER, position);
+                link.send(susp);
+            }
+            reportedSuspended.remove(old);
+            old.setRelay(null);
+            relay(resumed, game.getKey(), position);
+            players.set(position, resumed);
+            JsonObject j = NodeLink.message(NodeLink.RESUME);
+            j.addProperty(NodeLink.ID, game.getKey());
+            j.addProperty(NodeLink.PLAYER, position);
+            j.addProperty(NodeLink.SEQ, seq);
+            link.send(j);
+            return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Sends a health check if the period elapsed, tells the node about players suspended on the gateway, and
+     * detects a node which stopped answering. Called periodically by the router.
+     *
+     * @param now           the current time in milliseconds
+     */
+    synchronized void check(long now){
+        if(!healthy) return;
+        if(now - lastPong > HEALTH_TIMEOUT_MILLIS){
+            LOGGER.log(Level.SEVERE, "Game node {0} stopped answering", id);
+            fail();
+            return;
+        }
+        if(now - lastPing >= PING_PERIOD_MILLIS){
+            lastPing = now;
+            link.send(NodeLink.message(NodeLink.PING));
+        }
+        for(Map.Entry<Integer, List<VirtualView>> game : games.entrySet()){
+            List<VirtualView> players = game.getValue();
+            for(int i = 0; i < players.size(); i++){
+                VirtualView v = players.get(i);
+                if(v.isSuspended() && reportedSuspended.add(v)){
+                    JsonObject j = NodeLink.message(NodeLink.SUSP);
+                    j.addProperty(NodeLink.ID, game.getKey());
+                    j.addProperty(NodeLink.PLAYER, i);
+                    link.send(j);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Handles a message of the node.
+     *
+     * @param message       the message
+     */
+    private void handle(JsonObject message){
+        switch (message.get(NodeLink.HEAD).getAsString()){
+            case NodeLink.OUT:
+                List<VirtualView> players = games.get(message.get(NodeLink.ID).getAsInt());
+                if(players != null){
+                    deliver(players.get(message.get(NodeLink.PLAYER).getAsInt()), message.getAsJsonObject(NodeLink.MESSAGE));
+                }
+                break;
+            case NodeLink.OVER:
+                gameOver(message.get(NodeLink.ID).getAsInt());
+                break;
+            case NodeLink.PONG:
+                lastPong = System.currentTimeMillis();
+                break;
+            default:
+                LOGGER.log(Level.WARNING, "Unknown message from game node: {0}", message);
+        }
+    }
+
+
+    /**
+     * Delivers a message of the node to the connection of a player, as if his game ran on the gateway.
+     *
+     * @param v             the connection of the player
+     * @param message       the message, with the content a VirtualView would send to its client
+     */
+    private static void deliver(VirtualView v, JsonObject message){
+        String head = message.has("head") ? message.get("head").getAsString() : "";
+        switch (head){
+            case "OPT":
+                List<String> options = new ArrayList<>();
+                for(JsonElement e : message.getAsJsonArray("options")){
+                    options.add(e.getAsString());
+                }
+                int timeout = message.get("timeout").getAsInt();
+                if(timeout < 0){
+                    v.choose(message.get("type").getAsString(), message.get("text").getAsString(), options);
+                } else {
+                    v.choose(message.get("type").getAsString(), message.get("text").getAsString(), options, timeout);
+                }
+                break;
+            case "MSG":
+                v.display(message.get("text").getAsString());
+                break;
+            case "END":
+                v.showEnd(message.get("msg").getAsString());
+                break;
+            case "SUSP":
+                v.suspend();
+                break;
+            default:
+                v.update(EncodedUpdate.of(message));
+        }
+    }
+
+
+    /**
+     * Forgets a game which is over.
+     *
+     * @param gameId        the id of the game
+     */
+    private void gameOver(int gameId){
+        List<VirtualView> players = games.remove(gameId);
+        if(players != null){
+            for(VirtualView v : players){
+                v.setRelay(null);
+                reportedSuspended.remove(v);
+            }
+            onGameOver.accept(gameId, players);
+        }
+    }
+
+
+    /**
+     * Marks the node as failed: its games end for their players, and its process is stopped.
+     */
+    private synchronized void fail(){
+        if(!healthy) return;
+        healthy = false;
+        link.close();
+        for(Integer gameId : new ArrayList<>(games.keySet())){
+            for(VirtualView v : games.get(gameId)){
+                v.showEnd(NODE_FAILED_MESSAGE);
+            }
+            gameOver(gameId);
+        }
+        if(process != null){
+            process.destroy();
+        }
+    }
+
+
+    /**
+     * Stops the node.
+     */
+    void shutdown(){
+        healthy = false;
+        link.close();
+        if(process != null){
+            process.destroy();
+        }
+    }
+
+
+    /*
+     * Getters
+     */
+
+    int getId() {
+        return id;
+    }
+
+    boolean isHealthy() {
+        return healthy;
+    }
+
+    int getLoad() {
+        return games.size();
+    }
+
+    Map<Integer, List<VirtualView>> getGames() {
+        return games;
+    }
+}
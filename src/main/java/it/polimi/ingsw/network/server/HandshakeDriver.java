@@ -0,0 +1,156 @@
+package it.polimi.ingsw.network.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Single thread carrying out the login handshakes of all socket connections. Every few milliseconds it visits the
+ * connections still logging in and reads only the messages which already arrived, so a client slow to answer does
+ * not hold any thread. Connections are admitted by a HandshakeLimiter: the ones refused are closed immediately.
+ * Clients which disappear during the handshake are suspended by the Heartbeat and dropped at the following visit,
+ * while clients which never complete it, even without ever sending a byte, are suspended when its deadline expires,
+ * so that idle connections cannot hold the places of the limiter.
+ *
+ * @author marcobaga
+ */
+public class HandshakeDriver {
+
+    private final HandshakeLimiter limiter;
+    private final long timeoutMillis;
+    private final Queue<TCPVirtualView> incoming;
+    private final Map<TCPVirtualView, Long> pending;
+    private final ScheduledExecutorService scheduler;
+    private boolean running;
+
+    private static final Logger LOGGER = Logger.getLogger("serverLogger");
+    private static final int POLL_PERIOD_MILLIS = 20;
+    public static final int DEFAULT_MAX_PENDING = 1000;
+    public static final double DEFAULT_RATE = 5;
+    public static final int DEFAULT_BURST = 20;
+    public static final int DEFAULT_TIMEOUT = 120;
+
+    /**
+     * Constructor using the default deadline of DEFAULT_TIMEOUT seconds. The driver is idle until start() is called.
+     *
+     * @param limiter   the limiter admitting new handshakes
+     */
+    public HandshakeDriver(HandshakeLimiter limiter){
+        this(limiter, TimeUnit.SECONDS.toMillis(DEFAULT_TIMEOUT));
+    }
+
+    /**
+     * Standard constructor. The driver is idle until start() is called.
+     *
+     * @param limiter       the limiter admitting new handshakes
+     * @param timeoutMillis the time a client is given to complete the handshake, from when it is started
+     */
+    public HandshakeDriver(HandshakeLimiter limiter, long timeoutMillis){
+        this.limiter = limiter;
+        this.timeoutMillis = timeoutMillis;
+        this.incoming = new ConcurrentLinkedQueue<>();
+        this.pending = new LinkedHashMap<>();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "handshake");
+            t.setDaemon(true);
+            return t;
+        });
+        this.running = false;
+    }
+
+    /**
+     * Starts visiting the pending handshakes.
+     */
+    public synchronized void start(){
+        if(!running) {
+            scheduler.scheduleWithFixedDelay(this::poll, POLL_PERIOD_MILLIS, POLL_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+            running = true;
+        }
+    }
+
+    /**
+     * Stops the driver. Handshakes still pending are abandoned.
+     */
+    public synchronized void shutdown(){
+        scheduler.shutdownNow();
+        incoming.clear();
+        running = false;
+    }
+
+    /**
+     * Hands a newly accepted connection over to the driver, if the limiter admits it; otherwise closes it.
+     *
+     * @param view          the connection
+     * @param address       the address of the client, used for rate limiting, or null for local clients
+     * @param connection    what to close if the connection is refused
+     * @return              true if the handshake will be carried out, false if the connection was refused
+     */
+    public boolean submit(TCPVirtualView view, String address, Closeable connection){
+        if(!limiter.tryAcquire(address, System.currentTimeMillis())){
+            LOGGER.log(Level.INFO, "Connection from {0} refused, too many pending handshakes", address);
+            try {
+                connection.close();
+            }catch(IOException ex){
+                LOGGER.log(Level.FINE, "Cannot close refused connection", ex);
+            }
+            return false;
+        }
+        incoming.add(view);
+        return true;
+    }
+
+    /**
+     * Starts the handshakes of the new connections, then advances all pending handshakes with the messages already
+     * received. Clients past the deadline are suspended. Handshakes which are over, or whose client was suspended,
+     * are released.
+     */
+    private void poll(){
+        long now = System.currentTimeMillis();
+        TCPVirtualView view;
+        while((view = incoming.poll()) != null){
+            if(view.startHandshake()){
+                pending.put(view, now + timeoutMillis);
+            } else {
+                limiter.release();
+            }
+        }
+        Iterator<Map.Entry<TCPVirtualView, Long>> it = pending.entrySet().iterator();
+        while(it.hasNext()){
+            Map.Entry<TCPVirtualView, Long> e = it.next();
+            TCPVirtualView v = e.getKey();
+            try {
+                if(now > e.getValue()){
+                    LOGGER.log(Level.INFO, "Handshake not completed in time, suspending");
+                    v.suspend();
+                } else {
+                    v.pollHandshake();
+                }
+            }catch(Exception ex){
+                LOGGER.log(Level.SEVERE, "Exception during handshake", ex);
+                v.suspend();
+            }
+            if(!v.isHandshaking()){
+                it.remove();
+                limiter.release();
+            }
+        }
+    }
+
+    /**
+     * Getter for the number of handshakes being carried out.
+     *
+     * @return          the number of connections admitted and still logging in
+     */
+    public int getPending(){
+        return limiter.getPending();
+    }
+}
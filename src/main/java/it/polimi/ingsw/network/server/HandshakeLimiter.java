@@ -0,0 +1,101 @@
+package it.polimi.ingsw.network.server;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Admission control for the login handshakes of socket connections. A global cap bounds the handshakes pending at
+ * the same time, while a token bucket for each address bounds how fast a single host can open new ones: every
+ * handshake takes a token, and tokens are given back at a fixed rate up to a maximum burst. Connections which are
+ * not admitted are closed right after being accepted, so that a reconnect storm costs neither threads nor memory.
+ *
+ * @author marcobaga
+ */
+public class HandshakeLimiter {
+
+    private final int maxPending;
+    private final double ratePerSecond;
+    private final int burst;
+    private final Map<String, double[]> buckets;
+    private int pending;
+
+    private static final int MAX_TRACKED_ADDRESSES = 4096;
+
+    /**
+     * Standard constructor.
+     *
+     * @param maxPending        handshakes that can be pending at the same time
+     * @param ratePerSecond     handshakes per second an address can start in the long run
+     * @param burst             handshakes an address can start at once
+     */
+    public HandshakeLimiter(int maxPending, double ratePerSecond, int burst){
+        this.maxPending = maxPending;
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.buckets = new HashMap<>();
+        this.pending = 0;
+    }
+
+
+    /**
+     * Reserves a pending handshake for a connection, if both the global cap and the rate of its address allow it.
+     * A successful call must be matched by a call to release() when the handshake is over.
+     *
+     * @param address       the address of the client, or null for local clients, which are only subject to the cap
+     * @param now           the current time in milliseconds
+     * @return              true if the handshake can start, false if the connection must be refused
+     */
+    public synchronized boolean tryAcquire(String address, long now){
+        if(pending >= maxPending){
+            return false;
+        }
+        if(address == null){
+            pending++;
+            return true;
+        }
+        if(buckets.size() >= MAX_TRACKED_ADDRESSES){
+            buckets.values().removeIf(b -> refill(b, now) >= burst);
+        }
+        double[] bucket = buckets.computeIfAbsent(address, a -> new double[]{burst, now});
+        if(refill(bucket, now) < 1){
+            return false;
+        }
+        bucket[0]--;
+        pending++;
+        return true;
+    }
+
+
+    /**
+     * Frees the place of a handshake which is over, successfully or not.
+     */
+    public synchronized void release(){
+        if(pending > 0){
+            pending--;
+        }
+    }
+
+
+    /**
+     * Gives back to a bucket the tokens accumulated since it was last refilled.
+     *
+     * @param bucket        the tokens and the time of the last refill
+     * @param now           the current time in milliseconds
+     * @return              the tokens in the bucket
+     */
+    private double refill(double[] bucket, long now){
+        bucket[0] = Math.min(burst, bucket[0] + (now - bucket[1]) * ratePerSecond / 1000);
+        bucket[1] = now;
+        return bucket[0];
+    }
+
+
+    /**
+     * Getter for the number of pending handshakes.
+     *
+     * @return              the handshakes reserved and not released yet
+     */
+    public synchronized int getPending(){
+        return pending;
+    }
+}
@@ -0,0 +1,128 @@
+package it.polimi.ingsw.network.server;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Shared liveness checker for all the connections of the server. A single scheduled thread periodically visits every
+ * registered VirtualView: links on which nothing was sent for PING_INTERVAL_MILLIS receive a ping, while links from
+ * which nothing was received for PING_TIMEOUT_MILLIS are suspended. Any incoming message counts as a sign of life,
+ * so pings are only exchanged on idle links. Pings which may block (RMI calls, writes to a slow TCP client) are run
+ * on a separate pool and never delay the checks on other connections.
+ *
+ * @author marcobaga
+ */
+public class Heartbeat {
+
+    private final Set<VirtualView> views;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService pingers;
+    private boolean running;
+
+    private static final Logger LOGGER = Logger.getLogger("serverLogger");
+    public static final int PING_INTERVAL_MILLIS = 1000;
+    private static final int CHECK_PERIOD_MILLIS = 250;
+
+    /**
+     * Standard constructor. The heartbeat is idle until start() is called.
+     */
+    public Heartbeat(){
+        this.views = ConcurrentHashMap.newKeySet();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        this.pingers = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "heartbeat-ping");
+            t.setDaemon(true);
+            return t;
+        });
+        this.running = false;
+    }
+
+    /**
+     * Starts the periodic checks.
+     */
+    public synchronized void start(){
+        if(!running) {
+            scheduler.scheduleWithFixedDelay(this::beat, CHECK_PERIOD_MILLIS, CHECK_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+            running = true;
+        }
+    }
+
+    /**
+     * Stops the periodic checks and any outstanding ping.
+     */
+    public synchronized void shutdown(){
+        scheduler.shutdownNow();
+        pingers.shutdownNow();
+        views.clear();
+        running = false;
+    }
+
+    /**
+     * Starts monitoring a connection.
+     *
+     * @param view      the connection to monitor
+     */
+    public void register(VirtualView view){
+        view.setHeartbeat(this);
+        views.add(view);
+    }
+
+    /**
+     * Stops monitoring a connection.
+     *
+     * @param view      the connection to forget
+     */
+    public void unregister(VirtualView view){
+        views.remove(view);
+    }
+
+    /**
+     * Getter for the number of monitored connections.
+     *
+     * @return          the number of connections currently registered
+     */
+    public int size(){
+        return views.size();
+    }
+
+    /**
+     * Runs a potentially blocking ping on the shared ping pool.
+     *
+     * @param ping      the task sending the ping
+     */
+    void submitPing(Runnable ping){
+        try {
+            pingers.execute(ping);
+        }catch(Exception ex){
+            LOGGER.log(Level.FINE, "Ping rejected, heartbeat is shutting down", ex);
+        }
+    }
+
+    /**
+     * Visits all registered connections once.
+     */
+    private void beat(){
+        long now = System.currentTimeMillis();
+        for(VirtualView v : views){
+            if(v.isSuspended()){
+                views.remove(v);
+                continue;
+            }
+            try {
+                v.heartbeat(now);
+            }catch(Exception ex){
+                LOGGER.log(Level.SEVERE, "Exception while checking connection " + v, ex);
+            }
+        }
+    }
+}
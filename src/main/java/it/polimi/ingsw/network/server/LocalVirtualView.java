@@ -0,0 +1,270 @@
+package it.polimi.ingsw.network.server;
+
+import com.google.gson.JsonObject;
+import it.polimi.ingsw.model.EncodedUpdate;
+import it.polimi.ingsw.network.client.LocalConnection;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+/**
+ * Class extending VirtualView for a client running in the same JVM as the server, reached through method calls
+ * instead of a network connection. Messages are delivered through the outbound queue like for RMI clients, so that
+ * their order and batching are the same; updates are handed over as JsonObjects, without any serialization.
+ * Used by in-process bots and to measure the server without network noise.
+ *
+ * @author marcobaga
+ */
+public class LocalVirtualView extends VirtualView {
+
+    private LocalConnection client;
+    private ExecutorService executor = Executors.newCachedThreadPool();
+    private volatile boolean closed;
+
+    private static final String HEAD_PROP = "head";
+    private static final String MSG_HEAD = "MSG";
+    private static final String TEXT_PROP = "text";
+
+    /**
+     * Standard constructor
+     *
+     * @param client        the connection of the client
+     */
+    public LocalVirtualView(LocalConnection client){
+        super();
+        this.client = client;
+        this.closed = false;
+        this.outbound = new OutboundQueue(this::deliver, this::suspend);
+        this.outbound.batchOnDrain();
+    }
+
+
+    /**
+     * This method is periodically called by ServerMain. Messages from the client arrive through method calls, so
+     * there is nothing to poll.
+     */
+    @Override
+    public void refresh(){
+        //method calls are received synchronously
+    }
+
+
+    /**
+     * Closes the connection to the client and the separate thread.
+     */
+    @Override
+    public void shutdown(){
+        LOGGER.log(Level.INFO, () -> "Outbound queue of " + name + ": " + outbound);
+        closed = true;
+        executor.shutdownNow();
+        client.close();
+    }
+
+
+    /**
+     * Method called by the client to answer a versioned model.
+     *
+     * @param version       the version of the model
+     * @param applied       true if the client applied the model, false if it could not
+     */
+    public void acknowledgeModel(int version, boolean applied){
+        received();
+        modelReceived(version, applied);
+    }
+
+
+    /**
+     * States whether the connection was closed by the server.
+     *
+     * @return              true if the connection was closed, else false
+     */
+    public boolean isClosed(){
+        return closed;
+    }
+
+
+    /**
+     * Commands the client to show the suspension message and eventually shutdown.
+     */
+    @Override
+    public void showSuspension(){
+        if(suspended) return;
+        outbound.clear();
+        executor.submit(() -> client.showSuspension());
+    }
+
+
+    /**
+     * Commands the client to show an ending message and eventually shutdown.
+     *
+     * @param message       the message to display
+     */
+    @Override
+    public void showEnd(String message){
+        if(suspended) return;
+        outbound.flush();
+        executor.submit(() -> client.showEnd(message));
+    }
+
+
+    /**
+     * Asks the client to choose among a list of options on a separate thread, not to block the caller of this
+     * function (usually the TurnManager). Pending messages are delivered before the request, to preserve their order.
+     *
+     * @param type      type of the request
+     * @param msg       message to be displayed
+     * @param options   list of options to choose from
+     */
+    @Override
+    public void choose(String type, String msg, List<?> options){
+        choose(type, msg, options, -1);
+    }
+
+
+    /**
+     * Asks the client to choose among a list of options on a separate thread. The client's answer is ignored after
+     * a maximum time.
+     *
+     * @param type      type of the request
+     * @param msg       message to display
+     * @param options   list of options to choose from
+     * @param timeoutSec    maximum time given to the client to provide an answer, negative for no limit
+     */
+    @Override
+    public void choose(String type, String msg, List<?> options, int timeoutSec){
+        try {
+            synchronized (game.getNotifications()){
+                game.getNotifications().remove(this);
+            }
+        }catch(NullPointerException ex){
+            LOGGER.log(Level.FINEST, "No old notifications to remove", ex);
+        }
+        if(busy||suspended) return;
+        busy=true;
+        long timestamp = timeoutSec < 0 ? Long.MAX_VALUE : System.currentTimeMillis() + timeoutSec*1000;
+        try {
+            executor.submit(
+                    ()-> {
+                        outbound.flush();
+                        int i = client.choose(type, msg, toStrings(options));
+                        received();
+                        if(busy&&System.currentTimeMillis()<timestamp) {
+                            notifyObservers(String.valueOf(i));
+                        } else {
+                            display("Your answer was too slow! Wait for the next prompt and be quick next time!");
+                        }
+                        busy=false;
+                    }
+            );
+        }catch(RejectedExecutionException ex){
+            busy=false;
+            LOGGER.log(Level.INFO, "Connection closed, request not sent", ex);
+        }
+    }
+
+
+    /**
+     * Queries the client to choose from a list of options. Only to be called before this VirtualView is
+     * referenced by a GameEngine.
+     *
+     * @param type      the request's type
+     * @param msg       message to display
+     * @param options   options to choose from
+     * @return          the client's answer
+     */
+    @Override
+    public int chooseNow(String type, String msg, List<?> options){
+        if(busy||suspended) return 1;
+        busy = true;
+        int answer = client.choose(type, msg, toStrings(options));
+        busy = false;
+        return answer;
+    }
+
+
+    /**
+     * Enqueues a message for the client to display
+     *
+     * @param msg       message to display
+     */
+    @Override
+    public void display(String msg){
+        if(suspended) return;
+        JsonObject jsonObject = new JsonObject();
+        jsonObject.addProperty(HEAD_PROP, MSG_HEAD);
+        jsonObject.addProperty(TEXT_PROP, msg);
+        outbound.offer(jsonObject);
+    }
+
+
+    /**
+     * Queries the client for input. Only to be called before this VirtualView is referred by a GameEngine.
+     *
+     * @param msg       message to display
+     * @param max       max length of the answer
+     * @return          client's answer
+     */
+    @Override
+    public String getInputNow(String msg, int max) {
+        if(busy||suspended) return "";
+        busy = true;
+        String answer = client.getInput(msg, max);
+        busy = false;
+        return answer;
+    }
+
+
+    /**
+     * Commands the client to update its model or to render his UI. The update is enqueued and delivered by the
+     * outbound queue.
+     *
+     * @param jsonObject    encoded update
+     */
+    @Override
+    public void update(JsonObject jsonObject){
+        update(EncodedUpdate.of(jsonObject));
+    }
+
+
+    /**
+     * Commands the client to update its model or to render his UI.
+     *
+     * @param update        the update
+     */
+    @Override
+    public void update(EncodedUpdate update){
+        if(suspended) return;
+        outbound.offer(encodeUpdate(update));
+    }
+
+
+    /**
+     * Hands an enqueued message to the client. Called by the outbound queue. Updates are shared with the other
+     * recipients, so the client receives a copy it is free to keep.
+     *
+     * @param message       the message to deliver
+     */
+    private void deliver(EncodedUpdate message){
+        if(suspended) return;
+        sent();
+        if(message.isUpdate()){
+            client.update(message.getJson().deepCopy());
+        } else {
+            client.display(message.getJson().get(TEXT_PROP).getAsString());
+        }
+        received();
+    }
+
+
+    /**
+     * Converts a list of options to the strings shown to the client.
+     *
+     * @param options   the options
+     * @return          the strings describing the options
+     */
+    private static List<String> toStrings(List<?> options){
+        return options.stream().map(Object::toString).collect(Collectors.toList());
+    }
+}
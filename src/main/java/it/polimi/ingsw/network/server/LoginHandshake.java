@@ -0,0 +1,264 @@
+package it.polimi.ingsw.network.server;
+
+import it.polimi.ingsw.controller.ServerMain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * State machine of the login dialogue of a client: name (or session token), battlecry, size of game, and resuming
+ * a suspended player with the same name. The handshake does not read anything by itself: it exposes the request
+ * the client must answer next, and is advanced by each answer. VirtualViews of clients reached by remote calls drive
+ * it from their login thread, while socket connections are driven by the messages they receive, so that no thread
+ * waits for a client still logging in.
+ *
+ * @author marcobaga
+ */
+public class LoginHandshake {
+
+    private enum Step { NAME, BATTLECRY, LOBBY, RESUME, DONE }
+
+    private final VirtualView view;
+    private Step step;
+    private boolean sessionAllowed;
+    private boolean battlecryChosen;
+    private String text;
+    private int maxLength;
+    private List<String> options;
+    private List<Integer> sizes;
+
+    private static final Logger LOGGER = Logger.getLogger("serverLogger");
+    private static final int MAX_LENGTH_NAME = 16;
+    private static final int MAX_LENGTH_BATTLECRY = 32;
+    private static final String CHOOSE_NAME = "Select a name.";
+    private static final String MALFORMED_NAME = "Your name should not be empty or contain commas. Try again.";
+    private static final String CHOOSE_BATTLECRY = "Now, choose your battlecry!";
+    private static final String CHOOSE_RESUME = "Do you want to resume?";
+    private static final String CHOOSE_LOBBY = "How many players do you want in your game?";
+    private static final String ANY_SIZE = "Any";
+    private static final String ALREADY_RESUMED = "Somebody already resumed with your name.";
+    private static final String ALREADY_TAKEN = "Name already taken. Try another one.";
+    private static final String NAME_ACCEPTED = "Name accepted. About to join the game...";
+    private static final String SESSION_EXPIRED = "Your session could not be resumed. ";
+
+    /**
+     * Standard constructor. The first request asks for the name.
+     *
+     * @param view      the connection of the client logging in
+     */
+    public LoginHandshake(VirtualView view){
+        this.view = view;
+        this.sessionAllowed = true;
+        this.battlecryChosen = false;
+        this.sizes = new ArrayList<>();
+        askName(CHOOSE_NAME);
+    }
+
+
+    /**
+     * Advances the handshake with the client's answer to the current request.
+     *
+     * @param answer    the answer: the text entered or the number of the option chosen
+     */
+    public void answer(String answer){
+        switch (step){
+            case NAME:
+                answerName(answer);
+                break;
+            case BATTLECRY:
+                view.setBattlecry(answer);
+                battlecryChosen = true;
+                sizes = ServerMain.getInstance().getLobbySizes();
+                if(sizes.isEmpty()){
+                    view.setPreferredPlayers(0);
+                    login();
+                } else {
+                    List<String> choices = new ArrayList<>();
+                    choices.add(ANY_SIZE);
+                    for(int size : sizes){
+                        choices.add(String.valueOf(size));
+                    }
+                    askChoice(Step.LOBBY, CHOOSE_LOBBY, choices);
+                }
+                break;
+            case LOBBY:
+                int size = parseChoice(answer);
+                if(size > 0) {
+                    view.setPreferredPlayers(size == 1 ? 0 : sizes.get(size - 2));
+                    login();
+                }
+                break;
+            case RESUME:
+                int resume = parseChoice(answer);
+                if(resume == 1){
+                    if(ServerMain.getInstance().resume(view)){
+                        accept();
+                        return;
+                    }
+                    view.display(ALREADY_RESUMED);
+                }
+                if(resume > 0) {
+                    askName(ALREADY_TAKEN);
+                }
+                break;
+            default:
+                LOGGER.log(Level.FINE, "Answer received after the login of {0}", view.getName());
+        }
+    }
+
+
+    /**
+     * Handles an answer to a request for a name: resumes a session if the client sent its token, asks again for
+     * malformed names, otherwise goes on to the battlecry or, if already chosen, to the login attempt.
+     *
+     * @param name      the answer
+     */
+    private void answerName(String name){
+        if(sessionAllowed && name.startsWith(VirtualView.SESSION_PREFIX)){
+            sessionAllowed = false;
+            view.setName(name);
+            if(ServerMain.getInstance().resumeSession(view, name.substring(VirtualView.SESSION_PREFIX.length()))){
+                accept();
+            } else {
+                askName(SESSION_EXPIRED + CHOOSE_NAME);
+            }
+            return;
+        }
+        sessionAllowed = false;
+        if(name.contains(",") || name.isEmpty()){
+            askName(MALFORMED_NAME);
+            return;
+        }
+        view.setName(name);
+        if(battlecryChosen){
+            login();
+        } else {
+            LOGGER.log(Level.INFO, "Login procedure initiated for {0}", name);
+            askText(Step.BATTLECRY, CHOOSE_BATTLECRY, MAX_LENGTH_BATTLECRY);
+        }
+    }
+
+
+    /**
+     * Attempts to log in with the chosen name. If it is taken, offers to resume when its owner is suspended, or asks
+     * for another one.
+     */
+    private void login(){
+        if(ServerMain.getInstance().login(view)){
+            accept();
+        } else if(ServerMain.getInstance().canResume(view.getName())){
+            askChoice(Step.RESUME, CHOOSE_RESUME, Arrays.asList("Yes", "No"));
+        } else {
+            askName(ALREADY_TAKEN);
+        }
+    }
+
+
+    /**
+     * Concludes the handshake.
+     */
+    private void accept(){
+        step = Step.DONE;
+        text = null;
+        options = null;
+        view.display(NAME_ACCEPTED);
+    }
+
+
+    /**
+     * Parses the answer to a choice. If it is not one of the options, the same request is asked again.
+     *
+     * @param answer    the answer
+     * @return          the number of the option, starting from 1, or 0 if the answer is not valid
+     */
+    private int parseChoice(String answer){
+        try {
+            int choice = Integer.parseInt(answer.trim());
+            if(choice >= 1 && choice <= options.size()){
+                return choice;
+            }
+        }catch(NumberFormatException ex){
+            LOGGER.log(Level.FINE, "Malformed choice", ex);
+        }
+        return 0;
+    }
+
+
+    /**
+     * Sets the next request to a name, listing the players already connected.
+     *
+     * @param message   the message following the list
+     */
+    private void askName(String message){
+        askText(Step.NAME, ServerMain.getInstance().getAlreadyConnected() + message, MAX_LENGTH_NAME);
+    }
+
+
+    /**
+     * Sets the next request to a text input.
+     *
+     * @param next      the step the answer belongs to
+     * @param message   the message to display
+     * @param max       max length of the answer
+     */
+    private void askText(Step next, String message, int max){
+        step = next;
+        text = message;
+        maxLength = max;
+        options = null;
+    }
+
+
+    /**
+     * Sets the next request to a choice among options.
+     *
+     * @param next      the step the answer belongs to
+     * @param message   the message to display
+     * @param choices   the options
+     */
+    private void askChoice(Step next, String message, List<String> choices){
+        step = next;
+        text = message;
+        options = choices;
+    }
+
+
+    /**
+     * States whether the handshake is over, because the player logged in or resumed.
+     *
+     * @return          true if the handshake is over
+     */
+    public boolean isOver(){
+        return step == Step.DONE;
+    }
+
+
+    /**
+     * States whether the current request is a choice among options rather than a text input.
+     *
+     * @return          true if the client must choose an option
+     */
+    public boolean isChoice(){
+        return options != null;
+    }
+
+
+    /*
+     * Getters
+     */
+
+    public String getText() {
+        return text;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public List<String> getOptions() {
+        return options;
+    }
+}
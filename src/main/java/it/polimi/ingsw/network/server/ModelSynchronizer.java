@@ -0,0 +1,145 @@
+package it.polimi.ingsw.network.server;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import it.polimi.ingsw.model.EncodedUpdate;
+import it.polimi.ingsw.model.JsonDiff;
+import it.polimi.ingsw.model.Updater;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps track of the ClientModel versions sent to a single client. Every complete model leaving the server is given
+ * a version number; once the client acknowledges a version, the following models are sent as a difference with
+ * respect to it. A complete model is sent when no version was acknowledged yet, that is on first join, on resume
+ * (which creates a new VirtualView) and after the client reports that it could not apply a difference.
+ *
+ * @author marcobaga
+ */
+public class ModelSynchronizer {
+
+    private int lastVersion;
+    private int ackedVersion;
+    private JsonObject ackedModel;
+    private final Map<Integer, JsonObject> pending;
+
+    private static final Logger LOGGER = Logger.getLogger("serverLogger");
+    private static final int MAX_PENDING = 16;
+
+
+    /**
+     * Standard constructor.
+     */
+    ModelSynchronizer(){
+        this.lastVersion = 0;
+        this.ackedVersion = 0;
+        this.ackedModel = null;
+        this.pending = new LinkedHashMap<>();
+    }
+
+
+    /**
+     * Encodes the complete models contained in an outgoing message, either standalone or inside a batch.
+     * Other messages are returned unchanged, keeping their cached serialization.
+     *
+     * @param message       the outgoing message
+     * @return              the message to send
+     */
+    synchronized EncodedUpdate encode(EncodedUpdate message){
+        if(message.isUpdate(Updater.MODEL_UPD)){
+            return EncodedUpdate.of(encodeModel(message.getJson()));
+        }
+        if(message.isBatch()){
+            List<EncodedUpdate> updates = new ArrayList<>();
+            boolean changed = false;
+            for(EncodedUpdate u : message.getParts()){
+                if(u.isUpdate(Updater.MODEL_UPD)){
+                    u = EncodedUpdate.of(encodeModel(u.getJson()));
+                    changed = true;
+                }
+                updates.add(u);
+            }
+            if(changed){
+                return EncodedUpdate.batch(updates, message.isRender(), message.getSeq());
+            }
+        }
+        return message;
+    }
+
+
+    /**
+     * Records that the client holds a version of the model, so that it can be used as a base for differences.
+     *
+     * @param version       the version acknowledged
+     */
+    synchronized void acknowledge(int version){
+        JsonObject model = pending.get(version);
+        if(model == null || version < ackedVersion){
+            return;
+        }
+        ackedVersion = version;
+        ackedModel = model;
+        Iterator<Integer> it = pending.keySet().iterator();
+        while(it.hasNext()){
+            if(it.next() <= version){
+                it.remove();
+            }
+        }
+    }
+
+
+    /**
+     * Records that the client could not apply a version of the model, so that the next one is sent complete.
+     *
+     * @param version       the version rejected
+     */
+    synchronized void reject(int version){
+        LOGGER.log(Level.INFO, "Model version {0} rejected, next model will be complete", version);
+        ackedVersion = 0;
+        ackedModel = null;
+        pending.clear();
+    }
+
+
+    /**
+     * Getter for the version the client acknowledged last.
+     *
+     * @return              the version, or 0 if no version was acknowledged
+     */
+    synchronized int getAckedVersion(){
+        return ackedVersion;
+    }
+
+
+    /**
+     * Gives a version number to a complete model and encodes it as a difference if possible.
+     *
+     * @param message       the model update
+     * @return              the versioned update
+     */
+    private JsonObject encodeModel(JsonObject message){
+        JsonObject model = message.getAsJsonObject(Updater.MODEL_PROP);
+        int version = ++lastVersion;
+        pending.put(version, model);
+        if(pending.size() > MAX_PENDING){
+            Iterator<Integer> it = pending.keySet().iterator();
+            it.next();
+            it.remove();
+        }
+        if(ackedModel == null){
+            JsonObject full = new JsonObject();
+            for(Map.Entry<String, JsonElement> e : message.entrySet()){
+                full.add(e.getKey(), e.getValue());
+            }
+            full.addProperty(Updater.VERSION_PROP, version);
+            return full;
+        }
+        return Updater.getModelDiff(version, ackedVersion, JsonDiff.diff(ackedModel, model));
+    }
+}
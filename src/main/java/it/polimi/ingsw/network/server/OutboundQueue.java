@@ -0,0 +1,473 @@
+package it.polimi.ingsw.network.server;
+
+import com.google.gson.JsonObject;
+import it.polimi.ingsw.model.EncodedUpdate;
+import it.polimi.ingsw.model.Updater;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded queue of messages waiting to be sent to a single client. Producers (usually the GameEngine notifying the
+ * Board's observers) only enqueue and never wait for the network; the queue is drained by the transport on a
+ * separate thread, so that a slow client only delays itself. When the queue is full the overflow policy decides
+ * how to make room: policies are ordered by leniency and each one also applies the measures of the stricter ones.
+ * If no room can be made the queue is cleared and the client is disconnected on the draining executor, never on the
+ * producer's thread.
+ *
+ * @author marcobaga
+ */
+public class OutboundQueue {
+
+    /**
+     * What to do when a message is offered to a full queue.
+     */
+    public enum OverflowPolicy {
+
+        /**
+         * The client is suspended.
+         */
+        SUSPEND,
+
+        /**
+         * Consecutive updates waiting to be sent are merged into a single batch which is rendered only once,
+         * dropping the stale render markers. The client is suspended if no room can be made.
+         */
+        DROP_STALE_RENDERS,
+
+        /**
+         * Like DROP_STALE_RENDERS, but the updates of the board preceding a complete model in the merged batch are
+         * dropped too, as the model replaces everything they describe. Other updates, such as session tokens, are
+         * kept.
+         */
+        COALESCE_MODEL
+    }
+
+    /**
+     * A message with the time it was enqueued at.
+     */
+    private static class Entry {
+
+        private final EncodedUpdate message;
+        private final long enqueuedAt;
+
+        private Entry(EncodedUpdate message){
+            this(message, System.nanoTime());
+        }
+
+        private Entry(EncodedUpdate message, long enqueuedAt){
+            this.message = message;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    private final Deque<Entry> entries;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final Consumer<EncodedUpdate> sink;
+    private final Runnable onOverflow;
+    private final AtomicBoolean scheduled;
+    private final AtomicBoolean overflowed;
+    private final ReentrantLock drainLock;
+    private volatile boolean batchOnDrain;
+    private Executor executor;
+
+    private int maxDepth;
+    private long sentCount;
+    private long droppedCount;
+    private long totalLagNanos;
+    private long maxLagNanos;
+
+    private static final Logger LOGGER = Logger.getLogger("serverLogger");
+    private static final ExecutorService SHARED_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "outbound");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public static final int DEFAULT_CAPACITY = 256;
+    private static int defaultCapacity = DEFAULT_CAPACITY;
+    private static final Set<String> REPLACED_BY_MODEL = new HashSet<>(Arrays.asList(
+            Updater.RELOAD_UPD, Updater.POWER_UP_DECK_REGEN_UPD, Updater.REMOVE_SKULL_UPD, Updater.DRAW_POWER_UP_UPD,
+            Updater.DISCARD_POWER_UP_UPD, Updater.DISCARD_WEAPON_UPD, Updater.PICKUP_WEAPON_UPD, Updater.USE_AMMO_UPD,
+            Updater.ADD_AMMO_UPD, Updater.MOVE_UPD, Updater.STATUS_UPD, Updater.ADD_DEATH_UPD, Updater.DAMAGE_UPD,
+            Updater.MARK_UPD, Updater.REMOVE_MARKS, Updater.ADD_WEAPON_UPD, Updater.REMOVE_WEAPON_UPD,
+            Updater.SET_IN_GAME_UPD, Updater.REMOVE_AMMO_TILE_UPD, Updater.MODEL_UPD, Updater.MODEL_DIFF_UPD));
+    private static OverflowPolicy defaultPolicy = OverflowPolicy.COALESCE_MODEL;
+
+
+    /**
+     * Constructor using the capacity and policy set through configure().
+     *
+     * @param sink          the transport actually sending messages, called on the draining thread
+     * @param onOverflow    called on the draining executor when no room can be made for a new message
+     */
+    OutboundQueue(Consumer<EncodedUpdate> sink, Runnable onOverflow){
+        this(sink, onOverflow, defaultCapacity, defaultPolicy);
+    }
+
+
+    /**
+     * Standard constructor.
+     *
+     * @param sink          the transport actually sending messages, called on the draining thread
+     * @param onOverflow    called on the draining executor when no room can be made for a new message
+     * @param capacity      the maximum number of messages waiting to be sent
+     * @param policy        the policy applied when the queue is full
+     */
+    OutboundQueue(Consumer<EncodedUpdate> sink, Runnable onOverflow, int capacity, OverflowPolicy policy){
+        this.entries = new ArrayDeque<>();
+        this.capacity = capacity;
+        this.policy = policy;
+        this.sink = sink;
+        this.onOverflow = onOverflow;
+        this.scheduled = new AtomicBoolean(false);
+        this.overflowed = new AtomicBoolean(false);
+        this.drainLock = new ReentrantLock();
+        this.executor = SHARED_EXECUTOR;
+    }
+
+
+    /**
+     * Sets capacity and overflow policy of the queues created from now on.
+     *
+     * @param capacity      the maximum number of messages waiting to be sent
+     * @param policy        the policy applied when a queue is full
+     */
+    public static synchronized void configure(int capacity, OverflowPolicy policy){
+        defaultCapacity = capacity;
+        defaultPolicy = policy;
+    }
+
+
+    /**
+     * Sets the executor draining the queue.
+     *
+     * @param executor      the executor draining the queue
+     */
+    void setExecutor(Executor executor){
+        this.executor = executor;
+    }
+
+
+    /**
+     * Makes the queue merge the consecutive updates pending when it drains into a single batch, so that a transport
+     * paying a round trip per message sends them with one call.
+     */
+    void batchOnDrain(){
+        this.batchOnDrain = true;
+    }
+
+
+    /**
+     * Enqueues a message and schedules the draining of the queue. Never blocks on the network.
+     *
+     * @param message       the message to send
+     * @return              true if the message was accepted, false if the queue overflowed
+     */
+    boolean offer(JsonObject message){
+        return offer(EncodedUpdate.of(message));
+    }
+
+
+    /**
+     * Enqueues a message, keeping its cached serialization, and schedules the draining of the queue.
+     * Never blocks on the network: on overflow the pending messages are dropped and the overflow is handled
+     * on the draining executor.
+     *
+     * @param message       the message to send
+     * @return              true if the message was accepted, false if the queue overflowed
+     */
+    boolean offer(EncodedUpdate message){
+        boolean overflow = false;
+        synchronized (this){
+            if(entries.size() < capacity){
+                entries.addLast(new Entry(message));
+            } else if(!makeRoom(message)){
+                droppedCount += entries.size();
+                entries.clear();
+                overflow = true;
+            }
+            maxDepth = Math.max(maxDepth, entries.size());
+        }
+        if(overflow){
+            LOGGER.log(Level.WARNING, "Outbound queue overflow: {0}", this);
+            if(overflowed.compareAndSet(false, true)){
+                execute(onOverflow);
+            }
+            return false;
+        }
+        schedule();
+        return true;
+    }
+
+
+    /**
+     * Sends all the pending messages on the calling thread, after any draining already in progress.
+     */
+    void flush(){
+        drain();
+    }
+
+
+    /**
+     * Sends the pending messages and then closes the transport, both on the draining executor. If the messages
+     * cannot be sent within the given time, because a write is stuck on an unresponsive client, the transport is
+     * closed anyway, which also releases the stuck write.
+     *
+     * @param closer        the task closing the transport
+     * @param timeoutMillis the maximum time spent waiting for the draining in progress
+     */
+    void close(Runnable closer, long timeoutMillis){
+        execute(() -> {
+            try {
+                if(drainLock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS)){
+                    try {
+                        drain();
+                    } finally {
+                        drainLock.unlock();
+                    }
+                } else {
+                    LOGGER.log(Level.INFO, "Closing a connection with pending messages: {0}", this);
+                }
+            }catch(InterruptedException ex){
+                Thread.currentThread().interrupt();
+            }finally {
+                closer.run();
+            }
+        });
+    }
+
+
+    /**
+     * Discards all the pending messages.
+     */
+    synchronized void clear(){
+        droppedCount += entries.size();
+        entries.clear();
+    }
+
+
+    /**
+     * Enqueues a message beyond capacity and applies the overflow policy to get back within it.
+     *
+     * @param incoming      the message to enqueue
+     * @return              true if the queue is back within capacity, else false
+     */
+    private boolean makeRoom(EncodedUpdate incoming){
+        entries.addLast(new Entry(incoming));
+        if(policy.compareTo(OverflowPolicy.DROP_STALE_RENDERS) >= 0){
+            mergeUpdates(policy.compareTo(OverflowPolicy.COALESCE_MODEL) >= 0);
+        }
+        return entries.size() <= capacity;
+    }
+
+
+    /**
+     * Merges every run of consecutive updates into a single batch. Other messages keep their position.
+     *
+     * @param coalesceModels    true if updates preceding a complete model should be dropped
+     */
+    private void mergeUpdates(boolean coalesceModels){
+        Deque<Entry> merged = new ArrayDeque<>();
+        List<EncodedUpdate> run = new ArrayList<>();
+        long runStart = 0;
+        for(Entry e : entries){
+            if(e.message.isUpdate()){
+                if(run.isEmpty()){
+                    runStart = e.enqueuedAt;
+                }
+                run.add(e.message);
+            } else {
+                closeRun(merged, run, runStart, coalesceModels);
+                merged.addLast(e);
+            }
+        }
+        closeRun(merged, run, runStart, coalesceModels);
+        entries.clear();
+        entries.addAll(merged);
+    }
+
+
+    /**
+     * Appends a run of consecutive updates, merged into a single batch, to a list of entries.
+     *
+     * @param merged            the entries built so far
+     * @param run               the run of updates, cleared afterwards
+     * @param runStart          the time the first update of the run was enqueued at
+     * @param coalesceModels    true if updates preceding a complete model should be dropped
+     */
+    private void closeRun(Deque<Entry> merged, List<EncodedUpdate> run, long runStart, boolean coalesceModels){
+        if(run.isEmpty()){
+            return;
+        }
+        if(run.size() == 1){
+            merged.addLast(new Entry(run.get(0), runStart));
+        } else {
+            EncodedUpdate batch = EncodedUpdate.batch(run, false);
+            if(coalesceModels){
+                List<EncodedUpdate> updates = dropSupersededUpdates(batch.getParts());
+                droppedCount += batch.getParts().size() - updates.size();
+                batch = EncodedUpdate.batch(updates, batch.isRender(), batch.getSeq());
+            }
+            merged.addLast(new Entry(batch, runStart));
+        }
+        run.clear();
+    }
+
+
+    /**
+     * Removes from a list of updates the updates of the board preceding the last complete model, which replaces
+     * them. A difference between models also describes a complete model, as it refers to a version acknowledged by
+     * the client. Updates the model does not describe keep their position.
+     *
+     * @param updates       the list of updates
+     * @return              the updates which are still relevant
+     */
+    private List<EncodedUpdate> dropSupersededUpdates(List<EncodedUpdate> updates){
+        for(int i = updates.size() - 1; i > 0; i--){
+            EncodedUpdate u = updates.get(i);
+            if(u.isUpdate(Updater.MODEL_UPD) || u.isUpdate(Updater.MODEL_DIFF_UPD)){
+                List<EncodedUpdate> kept = new ArrayList<>();
+                for(EncodedUpdate old : updates.subList(0, i)){
+                    if(!REPLACED_BY_MODEL.contains(old.getJson().get(Updater.TYPE_PROP).getAsString())){
+                        kept.add(old);
+                    }
+                }
+                kept.addAll(updates.subList(i, updates.size()));
+                return kept;
+            }
+        }
+        return updates;
+    }
+
+
+    /**
+     * Schedules the draining of the queue, unless it is already scheduled.
+     */
+    private void schedule(){
+        if(scheduled.compareAndSet(false, true) && !execute(() -> {
+                    scheduled.set(false);
+                    drain();
+                })){
+            scheduled.set(false);
+        }
+    }
+
+
+    /**
+     * Runs a task on the draining executor.
+     *
+     * @param task          the task
+     * @return              true if the task was accepted, else false
+     */
+    private boolean execute(Runnable task){
+        try {
+            executor.execute(task);
+            return true;
+        }catch(Exception ex){
+            LOGGER.log(Level.SEVERE, "Cannot schedule outbound queue", ex);
+            return false;
+        }
+    }
+
+
+    /**
+     * Passes the pending messages to the sink, in order.
+     */
+    private void drain(){
+        drainLock.lock();
+        try {
+            Entry e = poll();
+            while(e != null){
+                EncodedUpdate message = e.message;
+                if(batchOnDrain && message.isUpdate()){
+                    List<EncodedUpdate> run = new ArrayList<>();
+                    run.add(message);
+                    for(Entry next = pollUpdate(); next != null; next = pollUpdate()){
+                        run.add(next.message);
+                    }
+                    if(run.size() > 1){
+                        message = EncodedUpdate.batch(run, false);
+                    }
+                }
+                try {
+                    sink.accept(message);
+                }catch(Exception ex){
+                    LOGGER.log(Level.SEVERE, "Exception while sending a message", ex);
+                }
+                e = poll();
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+
+    /**
+     * Removes the first pending message if it is an update.
+     *
+     * @return              the first pending message, or null if there is none or it is not an update
+     */
+    private synchronized Entry pollUpdate(){
+        Entry e = entries.peekFirst();
+        return e != null && e.message.isUpdate() ? poll() : null;
+    }
+
+
+    /**
+     * Removes the first pending message and updates lag statistics.
+     *
+     * @return              the first pending message, or null if there is none
+     */
+    private synchronized Entry poll(){
+        Entry e = entries.pollFirst();
+        if(e != null){
+            long lag = System.nanoTime() - e.enqueuedAt;
+            sentCount++;
+            totalLagNanos += lag;
+            maxLagNanos = Math.max(maxLagNanos, lag);
+        }
+        return e;
+    }
+
+
+    /*
+     * Metrics
+     */
+
+    public synchronized int getDepth() { return entries.size(); }
+
+    public synchronized int getMaxDepth() { return maxDepth; }
+
+    public synchronized long getSentCount() { return sentCount; }
+
+    public synchronized long getDroppedCount() { return droppedCount; }
+
+    public synchronized long getMaxLagMillis() { return TimeUnit.NANOSECONDS.toMillis(maxLagNanos); }
+
+    public synchronized double getAverageLagMillis() {
+        return sentCount == 0 ? 0 : (double) totalLagNanos / sentCount / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "depth " + entries.size() + "/" + capacity + ", max depth " + maxDepth + ", sent " + sentCount
+                + ", dropped " + droppedCount + ", average lag " + String.format("%.2f", getAverageLagMillis())
+                + " ms, max lag " + getMaxLagMillis() + " ms";
+    }
+}
@@ -1,5 +1,6 @@
 package it.polimi.ingsw.network.server;
 
+import it.polimi.ingsw.network.TunedSocketFactory;
 import it.polimi.ingsw.network.client.RemoteView;
 
 import java.rmi.AlreadyBoundException;
@@ -24,15 +25,18 @@ public class RMIServer implements RemoteServer {
     private Registry reg;
     private int id;
     private int port;
+    private TunedSocketFactory socketFactory;
     private static final Logger LOGGER = Logger.getLogger("serverLogger");
 
     /**
      * Standard constructor
      *
      * @param port              the RMIRegistry's port (default 1420)
+     * @param socketFactory     the factory of the sockets through which the exported objects are reached
      */
-    public RMIServer(int port){
+    public RMIServer(int port, TunedSocketFactory socketFactory){
         this.port = port;
+        this.socketFactory = socketFactory;
         id = 0;
         executor = Executors.newCachedThreadPool();
     }
@@ -42,7 +46,7 @@ public class RMIServer implements RemoteServer {
      */
     public void setup() {
         try {
-            RemoteServer stub = (RemoteServer) UnicastRemoteObject.exportObject(this, 0);
+            RemoteServer stub = (RemoteServer) UnicastRemoteObject.exportObject(this, 0, socketFactory, socketFactory);
             LocateRegistry.createRegistry(port);
             reg = LocateRegistry.getRegistry(port);
             reg.bind("RMIServer", stub);
@@ -62,7 +66,8 @@ public class RMIServer implements RemoteServer {
         RMIVirtualView rmiVirtualView = new RMIVirtualView(view);
         LOGGER.log(Level.FINE, "New VirtualView created");
         try {
-            RemoteController stub = (RemoteController) UnicastRemoteObject.exportObject(rmiVirtualView, 0);
+            RemoteController stub = (RemoteController) UnicastRemoteObject.exportObject(rmiVirtualView, 0, socketFactory,
+                    socketFactory);
             reg.bind(remoteName, stub);
         }catch(RemoteException ex) {
             LOGGER.log(Level.SEVERE, "Failed to retrieve RMI register for server binding while creating PC", ex);
@@ -80,6 +85,7 @@ public class RMIServer implements RemoteServer {
         try {
             reg.unbind("RMIServer");
             UnicastRemoteObject.unexportObject(this, true);
+            LOGGER.log(Level.INFO, () -> "RMI sockets: " + TunedSocketFactory.getStatistics());
         }catch(Exception ex){ LOGGER.log(Level.SEVERE, "Exception caught while shutting down RMIServer", ex);}
     }
 }
\ No newline at end of file
@@ -1,6 +1,8 @@
 package it.polimi.ingsw.network.server;
 
 import com.google.gson.JsonObject;
+import it.polimi.ingsw.model.EncodedUpdate;
+import it.polimi.ingsw.network.BinaryCodec;
 import it.polimi.ingsw.network.client.RemoteView;
 
 import java.rmi.NoSuchObjectException;
@@ -23,6 +25,11 @@ public class RMIVirtualView extends VirtualView implements RemoteController {
 
     private RemoteView remoteView;
     private ExecutorService executor = Executors.newCachedThreadPool();
+    private volatile long pingStarted;
+
+    private static final String HEAD_PROP = "head";
+    private static final String MSG_HEAD = "MSG";
+    private static final String TEXT_PROP = "text";
 
     /**
      * Standard constructor
@@ -30,38 +37,59 @@ public class RMIVirtualView extends VirtualView implements RemoteController {
     RMIVirtualView(RemoteView remoteView){
         super();
         this.remoteView = remoteView;
+        this.outbound = new OutboundQueue(this::deliver, this::suspend);
+        this.outbound.batchOnDrain();
     }
 
 
     /**
-     * This method is periodically called by ServerMain and checks if it is possible to call the client's remote functions.
+     * This method is periodically called by ServerMain. Messages from the client arrive through remote calls, so there
+     * is nothing to poll; liveness is checked asynchronously by the Heartbeat.
      */
     @Override
     public void refresh(){
+        //remote calls are received asynchronously
+    }
+
+
+    /**
+     * Pings the client on the Heartbeat's pool without blocking the caller. If the previous ping is still pending
+     * after PING_TIMEOUT_MILLIS, the player is suspended.
+     */
+    @Override
+    protected void sendPing(){
         if(suspended) return;
-        if(pinged&&System.currentTimeMillis()-lastPing>PING_TIMEOUT_MILLIS){
-            suspend();
-        }
-        try{
-            Future<Void> future = executor.submit(new Callable<Void>() {
-                public Void call() throws Exception {
-                    remoteView.ping();
-                    return null;
-                }
-            });
-            future.get(PING_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
-        }catch (Exception ex){
-            suspend();
+        long now = System.currentTimeMillis();
+        if(pingStarted>0){
+            if(now - pingStarted > PING_TIMEOUT_MILLIS){
+                LOGGER.log(Level.INFO, "Ping to {0} timed out", name);
+                suspend();
+            }
+            return;
         }
+        pingStarted = now;
+        sent();
+        getHeartbeat().submitPing(() -> {
+            try {
+                remoteView.ping();
+                pingStarted = 0;
+                received();
+            }catch(RemoteException ex){
+                LOGGER.log(Level.INFO, "Cannot ping client", ex);
+                suspend();
+            }
+        });
     }
 
 
     /**
-     * Closes the connection to the client and the separate thread.
+     * Closes the connection to the client and the separate thread, once the remote calls already submitted, such as
+     * the suspension message, are over.
      */
     @Override
     public void shutdown(){
-        executor.shutdownNow();
+        LOGGER.log(Level.INFO, () -> "Outbound queue of " + name + ": " + outbound);
+        executor.shutdown();
         try {
             UnicastRemoteObject.unexportObject(this, false);
         }catch(NoSuchObjectException ex){
@@ -75,56 +103,64 @@ public class RMIVirtualView extends VirtualView implements RemoteController {
      */
     @Override
     public void ping(){
-        pinged = true;
-        lastPing = System.currentTimeMillis();
+        received();
     }
 
 
     /**
-     * Commands the client to show the suspension message and eventually shutdown.
+     * Method called by the client to answer a versioned model.
+     *
+     * @param version       the version of the model
+     * @param applied       true if the client applied the model, false if it could not
+     */
+    @Override
+    public void acknowledgeModel(int version, boolean applied){
+        received();
+        modelReceived(version, applied);
+    }
+
+
+    /**
+     * Commands the client to show the suspension message and eventually shutdown. The remote call is made on a
+     * separate thread without waiting for it, as the caller may be the Heartbeat.
      */
     @Override
     public void showSuspension(){
         if(suspended) return;
-        try{
-            Future<Void> future = executor.submit(new Callable<Void>() {
-                public Void call() throws Exception {
-                    remoteView.showSuspension();
-                    return null;
-                }
-            });
-            future.get(PING_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
-        }catch (Exception ex){
-            //suspend();
-        }
+        outbound.clear();
+        executor.submit(() -> {
+            try {
+                remoteView.showSuspension();
+            }catch (RemoteException ex){
+                LOGGER.log(Level.INFO, "Cannot reach client", ex);
+            }
+        });
     }
 
     /**
-     * Commands the client to show an ending mesage and eventually shutdown.
+     * Commands the client to show an ending mesage and eventually shutdown. Pending messages are delivered before
+     * it on a separate thread, without the caller waiting for them.
      *
      * @param message       the message to display
      */
     @Override
     public void showEnd(String message){
         if(suspended) return;
-
-        try{
-            Future<Void> future = executor.submit(new Callable<Void>() {
-                public Void call() throws Exception {
-                    remoteView.showEnd(message);
-                    return null;
-                }
-            });
-            future.get(PING_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
-        }catch (Exception ex){
-            //suspend();
-        }
+        executor.submit(() -> {
+            try {
+                outbound.flush();
+                remoteView.showEnd(message);
+            }catch (RemoteException ex){
+                LOGGER.log(Level.INFO, "Cannot reach client", ex);
+            }
+        });
     }
 
 
     /**
      * Class calling a remote client function to let him choose among a list of options.
      * A separate thread is needed not to block the caller of this function (usually the TurnManager).
+     * Pending messages are delivered before the request, to preserve their order.
      *
      * @param type      type of the request
      * @param msg       message to be displayed
@@ -144,7 +180,9 @@ public class RMIVirtualView extends VirtualView implements RemoteController {
         executor.submit(
             ()-> {
                 try {
+                    outbound.flush();
                     int i = remoteView.choose(type, msg, options.stream().map(x -> (x).toString()).collect(Collectors.toList()));
+                    received();
                     if(busy) {
                         notifyObservers(String.valueOf(i));
                     }
@@ -181,7 +219,9 @@ public class RMIVirtualView extends VirtualView implements RemoteController {
         executor.submit(
                 ()-> {
                     try {
+                        outbound.flush();
                         int i = remoteView.choose(type, msg, options.stream().map(x -> (x).toString()).collect(Collectors.toList()));
+                        received();
                         if(busy&&System.currentTimeMillis()<timestamp) {
                             notifyObservers(String.valueOf(i));
                         } else {
@@ -222,24 +262,17 @@ public class RMIVirtualView extends VirtualView implements RemoteController {
 
 
     /**
-     * Sends a message for the client to display
+     * Enqueues a message for the client to display
      *
      * @param msg       message to display
      */
     @Override
     public void display(String msg){
         if(suspended) return;
-        try{
-            Future<Void> future = executor.submit(new Callable<Void>() {
-                public Void call() throws Exception {
-                    remoteView.display(msg);
-                    return null;
-                }
-            });
-            future.get(PING_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
-        }catch (Exception ex){
-            //suspend();
-        }
+        JsonObject jsonObject = new JsonObject();
+        jsonObject.addProperty(HEAD_PROP, MSG_HEAD);
+        jsonObject.addProperty(TEXT_PROP, msg);
+        outbound.offer(jsonObject);
     }
 
 
@@ -267,23 +300,48 @@ public class RMIVirtualView extends VirtualView implements RemoteController {
 
 
     /**
-     * Commands the client to update its model or to render his UI.
+     * Commands the client to update its model or to render his UI. The update is enqueued and the remote call
+     * is carried out by the outbound queue.
      *
      * @param jsonObject    encoded update
      */
     @Override
     public void update(JsonObject jsonObject){
+        update(EncodedUpdate.of(jsonObject));
+    }
+
+
+    /**
+     * Commands the client to update its model or to render his UI, passing the cached serialization of the update.
+     *
+     * @param update        the update
+     */
+    @Override
+    public void update(EncodedUpdate update){
         if(suspended) return;
+        outbound.offer(encodeUpdate(update));
+    }
 
-        try{
-            Future<Void> future = executor.submit(new Callable<Void>() {
-                public Void call() throws Exception {
-                    remoteView.update(jsonObject.toString());
-                    return null;
-                }
-            });
-            future.get(PING_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
-        }catch (Exception ex){
+
+    /**
+     * Carries out the remote call corresponding to an enqueued message. Called by the outbound queue, which merges
+     * the updates pending at once into a single batch. Updates are passed in the binary format of BinaryCodec, so
+     * that the client neither parses text nor renders more than once per call.
+     *
+     * @param message       the message to deliver
+     */
+    private void deliver(EncodedUpdate message){
+        if(suspended) return;
+        sent();
+        try {
+            if(message.isUpdate()){
+                remoteView.update(BinaryCodec.encodeMessage(message));
+            } else {
+                remoteView.display(message.getJson().get(TEXT_PROP).getAsString());
+            }
+            received();
+        }catch (RemoteException ex){
+            LOGGER.log(Level.INFO, "Cannot reach client", ex);
             suspend();
         }
     }
@@ -16,4 +16,14 @@ public interface RemoteController extends Remote{
      * @throws RemoteException  if connection problems subsist
      */
     void ping() throws RemoteException;
-}
\ No newline at end of file
+
+
+    /**
+     * Method called by the client to answer a versioned model
+     *
+     * @param version       the version of the model
+     * @param applied       true if the model was applied, false if it could not be
+     * @throws RemoteException  if connection problems subsist
+     */
+    void acknowledgeModel(int version, boolean applied) throws RemoteException;
+}
@@ -1,15 +1,16 @@
 package it.polimi.ingsw.network.server;
 
+import it.polimi.ingsw.controller.ServerMain;
+
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Server for TCP connections running on a separate thread and capable of accepting parallel connection requests.
+ * Accepted connections log in through the HandshakeDriver of the ServerMain, which may refuse them.
  *
  * @author marcobaga
  */
@@ -34,13 +35,14 @@ public class TCPServer implements Runnable {
      */
     public void run(){
         running = true;
-        ExecutorService executor = Executors.newCachedThreadPool();
+        HandshakeDriver handshakes = ServerMain.getInstance().getHandshakes();
         try(ServerSocket serverSocket = new ServerSocket(port)){
             LOGGER.log(Level.INFO, "TCPServer ready on port {0}", port);
             while (running){
                 Socket socket = serverSocket.accept();
-                executor.submit(new TCPVirtualView(socket));
-                LOGGER.log(Level.INFO, "Accepted new connection");
+                if(handshakes.submit(new TCPVirtualView(socket), socket.getInetAddress().getHostAddress(), socket)) {
+                    LOGGER.log(Level.INFO, "Accepted new connection");
+                }
             }
             serverSocket.close();
             LOGGER.log(Level.INFO, "TCPServer shutting down");
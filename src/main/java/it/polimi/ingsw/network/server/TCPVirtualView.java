@@ -1,30 +1,65 @@
 package it.polimi.ingsw.network.server;
 
 import com.google.gson.*;
+import it.polimi.ingsw.controller.ServerMain;
+import it.polimi.ingsw.model.EncodedUpdate;
+import it.polimi.ingsw.model.Updater;
+import it.polimi.ingsw.network.BinaryCodec;
+import it.polimi.ingsw.network.ChannelStreams;
+import it.polimi.ingsw.network.JsonLineCodec;
+import it.polimi.ingsw.network.MessageCompressor;
+import it.polimi.ingsw.network.WireCodec;
+import it.polimi.ingsw.network.WireReader;
 
-import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
+import java.nio.channels.SocketChannel;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 
 /**
- * Implementation of VirtualView communicating through a socket
+ * Implementation of VirtualView communicating through a socket. Messages are JSON lines unless the client offers
+ * the binary format when it connects: the server then answers with a HELLO line and writes binary frames from the
+ * following message on, while the client sends a SWITCH line before its first binary frame. In the same way, the
+ * client may ask for the large messages to be compressed.
  *
  * @author marcobaga
  */
 public class TCPVirtualView extends VirtualView {
 
     private Socket socket;
-    private BufferedReader in;
-    private PrintWriter out;
+    private SocketChannel channel;
+    private volatile Closeable connection;
+    private WireReader in;
+    private OutputStream out;
     private boolean waiting;
+    private static final String PING = WireCodec.PING;
+    private static final int SO_TIMEOUT = 100;
+    private static final int HANDSHAKE_SO_TIMEOUT = 1;
+    private static final int MAX_CLIENT_MESSAGE = 4096;
+    private static final String ACK = "ACK";
+    private static final String NACK = "NACK";
+    private static final String HEAD_PROP = WireCodec.HEAD_PROP;
+    private static final WireCodec JSON_CODEC = new JsonLineCodec();
+    private static boolean binaryWire = true;
+    private static boolean compression = true;
+    private static int compressionThreshold = 512;
     private String answer;
-    private long lastPingSent;
+    private final AtomicBoolean pinging;
+    private WireCodec readCodec;
+    private WireCodec writeCodec;
+    private WireCodec negotiatedCodec;
+    private MessageCompressor compressor;
+    private MessageCompressor negotiatedCompressor;
+    private EncodedUpdate hello;
+    private LoginHandshake handshake;
+    private volatile int readTimeout;
 
     /**
      * Constructor for TCPVirtualView.
@@ -32,51 +67,192 @@ public class TCPVirtualView extends VirtualView {
      * @param socket the socket of the virtual view.
      */
     public TCPVirtualView(Socket socket){
+        this(socket, null);
+    }
+
+    /**
+     * Builds a TCPVirtualView communicating through a Unix domain socket, which speaks the same protocol as a TCP
+     * socket.
+     *
+     * @param channel the channel of the Unix domain socket.
+     * @return the virtual view.
+     */
+    public static TCPVirtualView overChannel(SocketChannel channel){
+        return new TCPVirtualView(null, channel);
+    }
+
+    /**
+     * Constructor for a TCPVirtualView communicating through either a socket or a channel.
+     *
+     * @param socket    the socket, or null
+     * @param channel   the channel, or null
+     */
+    private TCPVirtualView(Socket socket, SocketChannel channel){
         super();
         this.socket = socket;
+        this.channel = channel;
+        this.connection = socket != null ? socket : channel;
         this.waiting = false;
         this.answer = "default";
-        this.lastPingSent = System.currentTimeMillis();
+        this.pinging = new AtomicBoolean(false);
+        this.readCodec = JSON_CODEC;
+        this.writeCodec = JSON_CODEC;
+        this.negotiatedCodec = JSON_CODEC;
+        this.hello = null;
+        this.handshake = null;
+        this.readTimeout = SO_TIMEOUT;
+        this.outbound = new OutboundQueue(this::write, this::suspend);
     }
 
     /**
-     * Initializes the connection (this happens on a separate thread from the main one so that the server can manage multiple requests in short time)
+     * Sets the formats the connections created from now on accept when the client offers them.
+     *
+     * @param binary        true if the binary format is allowed, false to always use JSON lines
+     * @param compress      true if large messages can be compressed
+     * @param threshold     the minimum size in bytes of the messages to compress
+     */
+    public static synchronized void configure(boolean binary, boolean compress, int threshold){
+        binaryWire = binary;
+        compression = compress;
+        compressionThreshold = threshold;
+    }
+
+    /**
+     * Initializes the connection and carries out the login on the calling thread, waiting for each answer of the
+     * client. Servers use startHandshake() instead, not to hold a thread for each client logging in.
      */
     @Override
     public void run (){
-        try {
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            out = new PrintWriter(socket.getOutputStream());
-            socket.setSoTimeout(100);
+        if(open()) {
             super.run();
+        }
+    }
+
+    /**
+     * Opens the streams of the connection.
+     *
+     * @return          true if the streams were opened, false if the connection was suspended
+     */
+    private boolean open(){
+        try {
+            if(channel != null){
+                InputStream channelIn = ChannelStreams.input(channel, () -> readTimeout);
+                OutputStream channelOut = ChannelStreams.output(channel);
+                in = new WireReader(channelIn, MAX_CLIENT_MESSAGE);
+                out = channelOut;
+                connection = () -> {
+                    channelIn.close();
+                    channelOut.close();
+                };
+            } else {
+                in = new WireReader(socket.getInputStream(), MAX_CLIENT_MESSAGE);
+                out = socket.getOutputStream();
+                socket.setSoTimeout(readTimeout);
+            }
+            return true;
         }catch(Exception ex){
             LOGGER.log(Level.SEVERE, "Cannot create TCPVirtualView", ex);
             suspend();
+            return false;
         }
     }
 
     /**
-     * Forwards the messages through the connection and receives them. Detects disconnected clients and allows for non-blocking send and receive methods.
+     * Initializes the connection and sends the first request of the login handshake. The following ones are sent
+     * as the answers are received by pollHandshake(), so that no thread waits for the client. Reads only wait for
+     * the rest of a message already arriving until the handshake is over.
+     *
+     * @return          true if the handshake started, false if the connection was suspended
+     */
+    synchronized boolean startHandshake(){
+        readTimeout = HANDSHAKE_SO_TIMEOUT;
+        if(!open()){
+            return false;
+        }
+        ServerMain.getInstance().getHeartbeat().register(this);
+        handshake = new LoginHandshake(this);
+        prompt();
+        return true;
+    }
+
+    /**
+     * Reads a message of the client if some bytes already arrived, advancing the handshake if it is an answer.
+     * Called periodically by the HandshakeDriver, never waits for the client and reads at most MAX_CLIENT_MESSAGE
+     * bytes per call: a client sending longer messages is suspended.
+     */
+    synchronized void pollHandshake(){
+        if(!isHandshaking()) return;
+        try {
+            if(in.ready()){
+                refresh();
+            }
+        }catch(IOException ex){
+            LOGGER.log(Level.INFO, "Cannot reach client", ex);
+            suspend();
+        }
+    }
+
+    /**
+     * States whether the login handshake is being carried out.
+     *
+     * @return          true if the client is logging in through startHandshake()
+     */
+    synchronized boolean isHandshaking(){
+        return handshake != null && !suspended;
+    }
+
+    /**
+     * Sends the current request of the handshake or, if it is over, restores the normal read timeout.
+     */
+    private void prompt(){
+        if(handshake.isOver()){
+            handshake = null;
+            readTimeout = SO_TIMEOUT;
+            try {
+                if(socket != null) {
+                    socket.setSoTimeout(SO_TIMEOUT);
+                }
+            }catch(IOException ex){
+                LOGGER.log(Level.INFO, "Cannot set read timeout", ex);
+            }
+            return;
+        }
+        if(handshake.isChoice()){
+            sendOptions(ChooseOptionsType.CHOOSE_STRING.toString(), handshake.getText(), handshake.getOptions());
+        } else {
+            sendRequest(handshake.getText(), handshake.getMaxLength());
+        }
+        busy = true;
+        waiting = true;
+    }
+
+    /**
+     * Receives the messages coming through the connection and forwards them. Detects closed connections and allows for
+     * non-blocking send and receive methods. Idle connections are pinged and timed out by the Heartbeat.
      */
     @Override
     public synchronized void refresh() {
         if(!suspended) {
             try {
-                String message = in.readLine();
+                String message = readCodec.readText(in);
                 if (message == null) {
                     suspend();
                 } else {
                     LOGGER.log(Level.FINE, "Received a message over TCP connection");
-                    if (message.equals("PING")){
-                        pinged=true;
-                        lastPing = System.currentTimeMillis();
+                    received();
+                    if (message.equals(PING) || handleSync(message)){
                         return;
                     }
                     if(!busy) return;
                     busy = false;
                     if(waiting){
-                        answer = message;
                         waiting = false;
+                        if(handshake != null){
+                            handshake.answer(message);
+                            prompt();
+                        } else {
+                            answer = message;
+                        }
                         return;
                     }
                     if(timeout){
@@ -94,26 +270,115 @@ public class TCPVirtualView extends VirtualView {
                 LOGGER.log(Level.SEVERE, "Cannot reach client", ex);
                 suspend();
             }
-            if(pinged&&System.currentTimeMillis()-lastPing>PING_TIMEOUT_MILLIS){
-                suspend();
-            }
+        }
+    }
+
 
-            if(System.currentTimeMillis() - lastPingSent > 1000){
-                out.println("PING");
-                out.flush();
-                lastPingSent = System.currentTimeMillis();
+    /**
+     * Handles the client's answers to versioned models, which are JSON lines with ACK or NACK head, and the
+     * negotiation of the format.
+     *
+     * @param message       the line received
+     * @return              true if the line was an answer to a versioned model or part of the negotiation
+     */
+    private boolean handleSync(String message){
+        if(!message.startsWith("{")){
+            return false;
+        }
+        try {
+            JsonObject j = new JsonParser().parse(message).getAsJsonObject();
+            String head = j.has(HEAD_PROP) ? j.get(HEAD_PROP).getAsString() : "";
+            if(head.equals(ACK) || head.equals(NACK)){
+                modelReceived(j.get(Updater.VERSION_PROP).getAsInt(), head.equals(ACK));
+                return true;
+            }
+            if(head.equals(WireCodec.HELLO)){
+                negotiate(j.get(WireCodec.CODEC_PROP).getAsString(), j.has(WireCodec.COMPRESS_PROP)
+                        && j.get(WireCodec.COMPRESS_PROP).getAsString().equals(WireCodec.DEFLATE));
+                return true;
             }
+            if(head.equals(WireCodec.SWITCH)){
+                readCodec = negotiatedCodec;
+                LOGGER.log(Level.FINE, "Reading {0} messages from {1}", new Object[]{readCodec.getName(), name});
+                return true;
+            }
+        }catch(RuntimeException ex){
+            LOGGER.log(Level.FINE, "Not a synchronization message", ex);
+        }
+        return false;
+    }
+
+
+    /**
+     * Chooses the format and the compression offered by the client if they are allowed, and tells the client.
+     * The answer is queued like any other message, and the format changes right after it is written.
+     *
+     * @param codec         the name of the format offered by the client
+     * @param compress      true if the client offered to decompress large messages
+     */
+    private void negotiate(String codec, boolean compress){
+        boolean binary;
+        int threshold;
+        synchronized (TCPVirtualView.class){
+            binary = binaryWire;
+            compress = compress && compression;
+            threshold = compressionThreshold;
+        }
+        negotiatedCodec = binary && codec.equals(BinaryCodec.NAME) ? new BinaryCodec() : JSON_CODEC;
+        negotiatedCompressor = compress ? new MessageCompressor(threshold) : null;
+        JsonObject reply = new JsonObject();
+        reply.addProperty(HEAD_PROP, WireCodec.HELLO);
+        reply.addProperty(WireCodec.CODEC_PROP, negotiatedCodec.getName());
+        if(compress){
+            reply.addProperty(WireCodec.COMPRESS_PROP, WireCodec.DEFLATE);
         }
+        hello = EncodedUpdate.of(reply);
+        outbound.offer(hello);
+        LOGGER.log(Level.INFO, "Wire format {0} negotiated, compression {1}", new Object[]{negotiatedCodec.getName(), compress});
+    }
+
+
+    /**
+     * Sends a ping to the client on the Heartbeat's pool, as the write may block behind a message being written to
+     * a slow client. Called by the Heartbeat only when the connection is idle; a ping is not sent while the previous
+     * one is still being written.
+     */
+    @Override
+    protected void sendPing(){
+        if(suspended || out == null || !pinging.compareAndSet(false, true)) return;
+        getHeartbeat().submitPing(() -> {
+            try {
+                synchronized (out) {
+                    writeBytes(writeCodec.encodePing());
+                }
+            } finally {
+                pinging.set(false);
+            }
+        });
     }
 
 
     /**
-     * Closes the connection to the client and the separate thread.
+     * Closes the connection to the client once the pending messages are written, on the outbound queue's thread.
+     * The connection is closed anyway if they cannot be written within PING_TIMEOUT_MILLIS.
      */
     @Override
     public void shutdown(){
+        outbound.close(this::close, PING_TIMEOUT_MILLIS);
+    }
+
+
+    /**
+     * Closes the connection to the client.
+     */
+    private void close(){
+        LOGGER.log(Level.INFO, () -> "Outbound queue of " + name + ": " + outbound);
+        MessageCompressor c = negotiatedCompressor;
+        if(c != null){
+            LOGGER.log(Level.INFO, () -> "Compression on " + name + ": " + c);
+        }
         try {
-            socket.close();
+            connection.close();
         }catch (IOException ex){
             LOGGER.log(Level.SEVERE, "Error while closing connection", ex);
         }
@@ -121,10 +386,12 @@ public class TCPVirtualView extends VirtualView {
 
 
     /**
-     * Commands the client to show the suspension message and eventually shutdown.
+     * Commands the client to show the suspension message and eventually shutdown. The message is only queued,
+     * shutdown() writes it before closing the connection.
      */
     @Override
     public void showSuspension(){
+        outbound.clear();
         JsonObject jsonObject = new JsonObject();
         jsonObject.addProperty("head", "SUSP");
         send(jsonObject);
@@ -165,6 +432,18 @@ public class TCPVirtualView extends VirtualView {
             return;
         }
         busy = true;
+        sendOptions(type, msg, options);
+    }
+
+
+    /**
+     * Sends a request to choose among a list of options.
+     *
+     * @param type      type of the request
+     * @param msg       message to be displayed
+     * @param options   list of options to choose from
+     */
+    private void sendOptions(String type, String msg, List<?> options){
         JsonObject jsonObject = new JsonObject();
         jsonObject.addProperty("head", "OPT");
         jsonObject.addProperty("type", type);
@@ -240,14 +519,25 @@ public class TCPVirtualView extends VirtualView {
     @Override
     public String getInputNow(String msg, int max){
         if(busy||suspended) return "";
+        sendRequest(msg, max);
+        busy = true;
+        waiting = true;
+        return receive();
+    }
+
+
+    /**
+     * Sends a request for input.
+     *
+     * @param msg       message to display
+     * @param max       max length of the answer
+     */
+    private void sendRequest(String msg, int max){
         JsonObject jsonObject = new JsonObject();
         jsonObject.addProperty("head", "REQ");
         jsonObject.addProperty("text", msg);
         jsonObject.addProperty("length", String.valueOf(max));
         send(jsonObject);
-        busy = true;
-        waiting = true;
-        return receive();
     }
 
 
@@ -258,7 +548,19 @@ public class TCPVirtualView extends VirtualView {
      */
     @Override
     public void update (JsonObject jsonObject){
-        send(jsonObject);
+        update(EncodedUpdate.of(jsonObject));
+    }
+
+
+    /**
+     * Commands the client to update its model or to render his UI, writing the cached serialization of the update.
+     *
+     * @param update        the update
+     */
+    @Override
+    public void update (EncodedUpdate update){
+        if(suspended) return;
+        outbound.offer(encodeUpdate(update));
     }
 
 
@@ -281,14 +583,46 @@ public class TCPVirtualView extends VirtualView {
     }
 
     /**
-     * Sends a message serialized as a JsonObject through the socket
+     * Enqueues a message to be sent through the socket
      *
      * @param jmessage  message to send
      */
     private void send (JsonObject jmessage){
         if(suspended) return;
-        out.println(jmessage.toString());
-        out.flush();
+        outbound.offer(jmessage);
+    }
+
+    /**
+     * Writes the cached serialization of a message to the socket, in the negotiated format. Called by the outbound
+     * queue.
+     *
+     * @param jmessage  message to send
+     */
+    private void write (EncodedUpdate jmessage){
+        if(out==null) return;
+        synchronized (out) {
+            writeBytes(writeCodec.encode(jmessage, compressor));
+            if(jmessage == hello){
+                writeCodec = negotiatedCodec;
+                compressor = negotiatedCompressor;
+            }
+        }
         LOGGER.log(Level.FINE, "Sending a message over TCP connection");
     }
+
+    /**
+     * Writes a message to the socket with a single write call, however long the message is. Write errors are only
+     * logged, as a closed connection is detected by refresh(). Must be called holding the lock on the stream.
+     *
+     * @param data      the encoded message
+     */
+    private void writeBytes(byte[] data){
+        try {
+            out.write(data);
+            out.flush();
+            sent();
+        }catch(IOException ex){
+            LOGGER.log(Level.INFO, "Cannot write to client", ex);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package it.polimi.ingsw.network.server;
+
+import it.polimi.ingsw.controller.ServerMain;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Server accepting connections on a Unix domain socket, for clients running on the same host as the server. The
+ * connections speak the same protocol as TCP ones and are handled by TCPVirtualViews, but skip the TCP stack.
+ *
+ * @author marcobaga
+ */
+public class UnixSocketServer implements Runnable {
+
+    private Path path;
+    private volatile boolean running;
+    private volatile ServerSocketChannel serverChannel;
+    private static final Logger LOGGER = Logger.getLogger("serverLogger");
+
+    /**
+     * Constructor for UnixSocketServer.
+     *
+     * @param path  the path of the socket file, replaced if it already exists
+     */
+    public UnixSocketServer(Path path){
+        this.path = path;
+        this.running = false;
+    }
+
+    /**
+     * Loop for accepting connections
+     */
+    public void run(){
+        running = true;
+        HandshakeDriver handshakes = ServerMain.getInstance().getHandshakes();
+        try(ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)){
+            Files.deleteIfExists(path);
+            server.bind(UnixDomainSocketAddress.of(path));
+            serverChannel = server;
+            LOGGER.log(Level.INFO, "UnixSocketServer ready on {0}", path);
+            while (running){
+                SocketChannel channel = server.accept();
+                if(handshakes.submit(TCPVirtualView.overChannel(channel), null, channel)) {
+                    LOGGER.log(Level.INFO, "Accepted new local connection");
+                }
+            }
+        } catch (IOException ex) {
+            if(running) {
+                LOGGER.log(Level.SEVERE, "UnixSocketServer failed", ex);
+            }
+        } finally {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ex) {
+                LOGGER.log(Level.INFO, "Cannot delete socket file", ex);
+            }
+            LOGGER.log(Level.INFO, "UnixSocketServer shutting down");
+        }
+    }
+
+    /**
+     * Getter for the path of the socket.
+     *
+     * @return the path of the socket file.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Stops the loop for accepting connections and closes the socket.
+     */
+    public void shutdown(){
+        this.running = false;
+        ServerSocketChannel server = serverChannel;
+        if(server != null) {
+            try {
+                server.close();
+            } catch (IOException ex) {
+                LOGGER.log(Level.INFO, "Exception caught while shutting down UnixSocketServer", ex);
+            }
+        }
+    }
+}
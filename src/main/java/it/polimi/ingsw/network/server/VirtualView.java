@@ -3,9 +3,10 @@ package it.polimi.ingsw.network.server;
 import com.google.gson.JsonObject;
 import it.polimi.ingsw.controller.GameEngine;
 import it.polimi.ingsw.controller.ServerMain;
+import it.polimi.ingsw.model.EncodedUpdate;
 import it.polimi.ingsw.model.board.Player;
-import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -45,22 +46,23 @@ public abstract class VirtualView implements Runnable{
     private boolean justSuspended;
     private Player model;
     static final Logger LOGGER = Logger.getLogger("serverLogger");
-    private static final int MAX_LENGTH_BATTLECRY = 32;
     protected static final int PING_TIMEOUT_MILLIS = 5000;
     boolean busy;
     boolean timeout;
     long timestamp;
     private String battlecry;
-    protected long lastPing;
-    protected boolean pinged;
-
-    private static final String CHOOSE_NAME = "Select a name.";
-    private static final String MALFORMED_NAME = "Your name should not be empty or contain commas. Try again.";
-    private static final String CHOOSE_BATTLECRY = "Now, choose your battlecry!";
-    private static final String CHOOSE_RESUME = "Do you want to resume?";
-    private static final String ALREADY_RESUMED = "Somebody already resumed with your name.";
-    private static final String ALREADY_TAKEN = "Name already taken. Try another one.";
-    private static final String NAME_ACCEPTED = "Name accepted. About to join the game...";
+    protected volatile long lastPing;
+    protected volatile long lastSent;
+    protected volatile boolean pinged;
+    private Heartbeat heartbeat;
+    protected OutboundQueue outbound;
+    private ModelSynchronizer synchronizer;
+    private volatile long suspendedAt;
+    private long resumeSeq;
+    private volatile int preferredPlayers;
+    private volatile Consumer<String> relay;
+
+    public static final String SESSION_PREFIX = ",";
 
     public VirtualView(){
         this.game = null;
@@ -74,53 +76,66 @@ public abstract class VirtualView implements Runnable{
         this.battlecry = "";
         this.pinged =false;
         this.lastPing = System.currentTimeMillis();
+        this.lastSent = System.currentTimeMillis();
+        this.heartbeat = null;
+        this.outbound = null;
+        this.synchronizer = new ModelSynchronizer();
+        this.suspendedAt = 0;
+        this.resumeSeq = -1;
     }
 
     /**
-     * Manages the login procedure with the client. A VirtualView requires a separate thread until the player has
-     * logged in to guarantee parallel login attempts.
+     * Manages the login procedure with the client, answering the requests of a LoginHandshake one at a time.
+     * A VirtualView requires a separate thread until the player has logged in to guarantee parallel login attempts.
      */
     public void run(){
 
-        String playersAlreadyConnected = ServerMain.getInstance().getAlreadyConnected();
-        name = getInputNow(playersAlreadyConnected+CHOOSE_NAME, 16);
-        while(name.contains(",")||name.isEmpty()){
-            name = getInputNow(playersAlreadyConnected+MALFORMED_NAME, 16);
-        }
-        battlecry = getInputNow(CHOOSE_BATTLECRY, MAX_LENGTH_BATTLECRY);
-        LOGGER.log(Level.INFO, "Login procedure initiated for {0}", name);
-
-        while(!ServerMain.getInstance().login(this)){
-            if(ServerMain.getInstance().canResume(name)){
-                int ans = chooseNow(ChooseOptionsType.CHOOSE_STRING.toString(), CHOOSE_RESUME, Arrays.asList("Yes", "No"));
-
-                if(ans==1) {
-                    if(ServerMain.getInstance().resume(this)){
-                        break;
-                    } else {
-                        display(ALREADY_RESUMED);
-                    }
-                }
-            }
-            playersAlreadyConnected = ServerMain.getInstance().getAlreadyConnected();
-            name=getInputNow(playersAlreadyConnected + ALREADY_TAKEN, 16);
-            while(name.contains(",")||name.isEmpty()){
-                name = getInputNow(playersAlreadyConnected+MALFORMED_NAME, 16);
+        ServerMain.getInstance().getHeartbeat().register(this);
+        LoginHandshake handshake = new LoginHandshake(this);
+        while(!handshake.isOver() && !suspended){
+            if(handshake.isChoice()){
+                handshake.answer(String.valueOf(chooseNow(ChooseOptionsType.CHOOSE_STRING.toString(), handshake.getText(), handshake.getOptions())));
+            } else {
+                handshake.answer(getInputNow(handshake.getText(), handshake.getMaxLength()));
             }
         }
-        display(NAME_ACCEPTED);
     }
 
     //Getters and Setters
 
+    /**
+     * Getter for the size of game the player prefers.
+     *
+     * @return              the number of players, 0 if any size is fine
+     */
+    public int getPreferredPlayers() {
+        return preferredPlayers;
+    }
+
+    public void setPreferredPlayers(int preferredPlayers) {
+        this.preferredPlayers = preferredPlayers;
+    }
+
+
     public String getName() {
         return name;
     }
 
     public String getBattlecry(){ return battlecry; }
 
+    public void setBattlecry(String battlecry){ this.battlecry = battlecry; }
+
     public GameEngine getGame() { return game;  }
 
+    /**
+     * Sends the answers of the client to a game hosted elsewhere instead of the GameEngine of this process.
+     *
+     * @param relay         the receiver of the answers, null to notify the GameEngine again
+     */
+    public void setRelay(Consumer<String> relay) { this.relay = relay; }
+
+    public boolean isRelayed() { return relay != null; }
+
     public void setGame(GameEngine game){this.game = game;}
 
     public Player getModel() {return model; }
@@ -149,9 +164,121 @@ public abstract class VirtualView implements Runnable{
         this.name = name;
     }
 
+    void setHeartbeat(Heartbeat heartbeat) {
+        this.heartbeat = heartbeat;
+    }
+
+    Heartbeat getHeartbeat() {
+        return heartbeat;
+    }
+
+    public OutboundQueue getOutboundQueue() {
+        return outbound;
+    }
+
+    ModelSynchronizer getModelSynchronizer() {
+        return synchronizer;
+    }
+
+    public long getSuspendedAt() {
+        return suspendedAt;
+    }
+
+    public long getResumeSeq() {
+        return resumeSeq;
+    }
+
+
+    /**
+     * Takes over the session of a suspended player on the same client. The ClientModel versions acknowledged on the
+     * old connection are still held by the client, so that models keep being sent as differences.
+     *
+     * @param old           the VirtualView of the suspended player
+     * @param seq           the sequence number of the first update the client did not receive, -1 to send a
+     *                      complete model instead
+     */
+    public void takeOverSession(VirtualView old, long seq){
+        this.name = old.getName();
+        this.battlecry = old.getBattlecry();
+        this.resumeSeq = seq;
+        if(seq >= 0){
+            this.synchronizer = old.synchronizer;
+        }
+    }
+
+
+    /**
+     * Records that a message was received from the client. Any message is a sign of life, so that pings are only
+     * needed on idle links.
+     */
+    protected void received(){
+        pinged = true;
+        lastPing = System.currentTimeMillis();
+    }
+
+
+    /**
+     * Records that a message was sent to the client.
+     */
+    protected void sent(){
+        lastSent = System.currentTimeMillis();
+    }
+
+
+    /**
+     * Encodes an outgoing update, turning complete models into versioned differences when the client allows it.
+     *
+     * @param jsonObject    the update
+     * @return              the update to send
+     */
+    protected EncodedUpdate encodeUpdate(EncodedUpdate jsonObject){
+        return synchronizer.encode(jsonObject);
+    }
+
 
     /**
-     * Checks for connection with client and forwards messages
+     * Records the client's answer to a versioned model.
+     *
+     * @param version       the version of the model
+     * @param applied       true if the client applied the model, false if it could not
+     */
+    protected void modelReceived(int version, boolean applied){
+        if(applied){
+            synchronizer.acknowledge(version);
+        } else {
+            synchronizer.reject(version);
+        }
+    }
+
+
+    /**
+     * Called periodically by the Heartbeat. Suspends the player if the client has been silent for too long and
+     * pings it if nothing was sent to it recently.
+     *
+     * @param now       the current time in milliseconds
+     */
+    void heartbeat(long now){
+        if(suspended) return;
+        if(pinged && now - lastPing > PING_TIMEOUT_MILLIS){
+            LOGGER.log(Level.INFO, "No message from {0} in time, suspending", name);
+            suspend();
+        } else if(now - lastSent >= Heartbeat.PING_INTERVAL_MILLIS){
+            sendPing();
+        }
+    }
+
+
+    /**
+     * Sends a ping to the client without waiting for an answer. Connections which do not need to be pinged can
+     * rely on this empty implementation.
+     */
+    protected void sendPing(){
+        //nothing to do by default
+    }
+
+
+    /**
+     * Forwards messages received from the client. Liveness is checked separately by the Heartbeat.
      */
     public abstract void refresh();
 
@@ -180,13 +307,17 @@ public abstract class VirtualView implements Runnable{
      * Suspends the player. This causes the client to shutdown, but the VirtualView is kept alive until the player
      * resumes or the game ends.
      */
-    public void suspend() {
+    public synchronized void suspend() {
         if(!suspended) {
+            if(heartbeat!=null){
+                heartbeat.unregister(this);
+            }
             showSuspension();
             shutdown();
             busy=false;
             this.suspended = true;
             this.justSuspended = true;
+            this.suspendedAt = System.currentTimeMillis();
             LOGGER.log(Level.INFO, "Player {0} was suspended", name);
         }
     }
@@ -244,13 +375,25 @@ public abstract class VirtualView implements Runnable{
 
 
     /**
-     * Sends a request for an update to the client
+     * Sends a request for an update to the client. Implementations only enqueue the update, so that a slow client
+     * does not delay the caller.
      *
      * @param jsonObject    encoded update
      */
     public abstract void update(JsonObject jsonObject);
 
 
+    /**
+     * Sends an update whose serialization may be shared with other clients. Transports able to send the cached
+     * serialization override this method, the others receive the update as a JsonObject.
+     *
+     * @param update        the update
+     */
+    public void update(EncodedUpdate update){
+        update(update.getJson());
+    }
+
+
     /**
      * Notifies the GameEngine of messages received from the client. The GameEngine is forced as an observer and does not
      * need to subscribe.
@@ -258,7 +401,10 @@ public abstract class VirtualView implements Runnable{
      * @param ans   message received from the client
      */
     protected void notifyObservers(String ans){
-        if(game!=null) {
+        Consumer<String> r = relay;
+        if(r != null) {
+            r.accept(ans);
+        } else if(game!=null) {
             game.notify(this, ans);
         }
     }
@@ -1,12 +1,16 @@
 package it.polimi.ingsw.view;
 
 import com.google.gson.*;
+import it.polimi.ingsw.network.TunedSocketFactory;
+import it.polimi.ingsw.network.client.Connection;
+import it.polimi.ingsw.network.client.LocalConnection;
 import it.polimi.ingsw.network.client.RMIConnection;
 import it.polimi.ingsw.network.client.TCPConnection;
 
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -14,6 +18,7 @@ import java.util.Properties;
 import java.util.Scanner;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.FileHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -21,6 +26,7 @@ import java.util.logging.SimpleFormatter;
 
 import static it.polimi.ingsw.model.Updater.*;
 import static it.polimi.ingsw.network.server.VirtualView.ChooseOptionsType.CHOOSE_STRING;
+import static it.polimi.ingsw.network.server.VirtualView.SESSION_PREFIX;
 
 /**
  * Main client class, containing most of the client's logic and structures. It handles requests and messages
@@ -36,13 +42,29 @@ public class ClientMain {
     private static final String CHOOSE_CONNECTION_MSG = "Which type of connection do you want to use?\n(if unsure, choose 1)";
     private static final String SELECTED_MSG = " selected.";
     private static final String ERROR_GUI = "GUI not available, rerun the client and try again. If the problem persists select CLI";
+    private static final String RECONNECTING_MSG = "Connection lost, trying to resume your game...";
+    private static final int RECONNECT_ATTEMPTS = 5;
+    private static final int RECONNECT_DELAY_MILLIS = 2000;
 
     private UI ui;
     private ExecutorService executor;
     private static final Logger LOGGER = Logger.getLogger("clientLogger");
     private ClientModel clientModel;
     private ClientUpdater clientUpdater;
-    private boolean gameOver;
+    private volatile Connection connection;
+    private volatile boolean gameOver;
+    private boolean embedded;
+    private boolean rmi;
+    private boolean binaryWire;
+    private boolean compression;
+    private TunedSocketFactory rmiSocketFactory;
+    private String unixSocket;
+    private String serverAddress;
+    private int serverPort;
+    private volatile String sessionToken;
+    private volatile long lastSeq;
+    private volatile String resumeAnswer;
+    private volatile boolean reconnecting;
 
     /**
      * Constructor
@@ -52,6 +74,23 @@ public class ClientMain {
         clientModel = null;
         clientUpdater = new ClientUpdater();
         gameOver = false;
+        sessionToken = null;
+        lastSeq = -1;
+        resumeAnswer = null;
+        reconnecting = false;
+        embedded = false;
+    }
+
+    /**
+     * Constructor for clients running in the same JVM as the server, such as bots. The client uses the given UI and
+     * does not terminate the JVM when its game is over.
+     *
+     * @param ui    the user interface, usually a HeadlessUI
+     */
+    public ClientMain(UI ui) {
+        this();
+        this.ui = ui;
+        this.embedded = true;
     }
 
     /**
@@ -117,7 +156,6 @@ public class ClientMain {
     private void setup(String[] args) {
 
         Properties prop = loadConfig(args);
-        Runnable connection;
 
         Scanner in = new Scanner(System.in);
         System.out.println(CHOOSE_UI_MSG);
@@ -153,15 +191,50 @@ public class ClientMain {
             ui.display(INVALID_CHOICE_MSG);
             buff = ui.get(new ArrayList<>(Arrays.asList("Socket", "RMI")));
         }
+        serverAddress = prop.getProperty("serverIP", "localhost");
+        binaryWire = Boolean.parseBoolean(prop.getProperty("binaryWire", "true"));
+        compression = Boolean.parseBoolean(prop.getProperty("compression", "true"));
+        unixSocket = prop.getProperty("unixSocket", "").trim();
         if (buff.equals("2")) {
             System.setProperty("java.rmi.server.hostname", prop.getProperty("myIP", "localhost"));
-            connection = new RMIConnection(this, prop.getProperty("serverIP", "localhost"), Integer.parseInt(prop.getProperty("RMIPort", "3994")));
+            rmi = true;
+            rmiSocketFactory = new TunedSocketFactory(Boolean.parseBoolean(prop.getProperty("rmiNoDelay", "true")),
+                    Integer.parseInt(prop.getProperty("rmiBufferSize", "65536")),
+                    Boolean.parseBoolean(prop.getProperty("rmiCompression", "false")));
+            serverPort = Integer.parseInt(prop.getProperty("RMIPort", "3994"));
         } else {
-            connection = new TCPConnection(this, prop.getProperty("serverIP", "localhost"), Integer.parseInt(prop.getProperty("TCPPort", "4198")));
+            rmi = false;
+            serverPort = Integer.parseInt(prop.getProperty("TCPPort", "4198"));
+        }
+        connect();
+    }
+
+    /**
+     * Opens a connection of the type chosen by the user and starts it on a separate thread.
+     */
+    private void connect() {
+        if (rmi) {
+            connection = new RMIConnection(this, serverAddress, serverPort, rmiSocketFactory);
+        } else if (!unixSocket.isEmpty()) {
+            connection = new TCPConnection(this, Paths.get(unixSocket), binaryWire, compression);
+        } else {
+            connection = new TCPConnection(this, serverAddress, serverPort, binaryWire, compression);
         }
         executor.submit(connection);
     }
 
+    /**
+     * Joins the server running in the same JVM through a LocalConnection, which logs in on a separate thread.
+     *
+     * @return      the connection
+     */
+    public LocalConnection connectLocally() {
+        LocalConnection local = new LocalConnection(this);
+        connection = local;
+        executor.submit(local);
+        return local;
+    }
+
     /**
      * Prompts the UI to choose from a list of options through two separate calls to UI functions.
      * The first call displays the request, while the second returns the user's input.
@@ -195,24 +268,46 @@ public class ClientMain {
      * @return      user's input
      */
     public String getInput(String msg, int max){
+        String answer = resumeAnswer;
+        if (answer != null) {
+            resumeAnswer = null;
+            return answer;
+        }
         ui.display(msg, Integer.toString(max));
         return ui.get(Integer.toString(max));
     }
 
     /**
-     * Passes an update message to the ClientUpdater which will apply and possibly display it
+     * Passes an update message to the ClientUpdater which will apply and possibly display it. Updates are applied
+     * one message at a time, so that a batch is never interleaved with other updates.
      *
      * @param j     serialized update
      */
-    public void update(JsonObject j) {
+    public synchronized void update(JsonObject j) {
         LOGGER.log(Level.INFO, "Update received: " + j.get(TYPE_PROP).getAsString());
         clientUpdater.update(j, clientModel, this, ui);
     }
 
+    /**
+     * Tells the server whether a versioned model was applied.
+     *
+     * @param version       the version of the model
+     * @param applied       true if the model was applied, false if it could not be
+     */
+    void acknowledgeModel(int version, boolean applied) {
+        if (connection != null) {
+            connection.acknowledgeModel(version, applied);
+        }
+    }
+
     /*
      * Getters and setters
      */
 
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
     public ClientModel getClientModel() {
         return clientModel;
     }
@@ -221,6 +316,14 @@ public class ClientMain {
         this.clientModel = clientModel;
     }
 
+    void setSessionToken(String sessionToken) {
+        this.sessionToken = sessionToken;
+    }
+
+    void setLastSeq(long lastSeq) {
+        this.lastSeq = lastSeq;
+    }
+
     /**
      * Closes the game when the player gets suspended. Execution on a parallel thread is needed to return without
      * delays.
@@ -229,20 +332,57 @@ public class ClientMain {
         gameOver = true;
         executor.submit(() ->{
             ui.displaySuspension();
-            System.exit(0);
+            exit();
         });
     }
 
     /**
-     * Closes the game when connection with the server is lost.
+     * Closes the game when connection with the server is lost, unless the session can be resumed on a new
+     * connection. Connections failing while a new one is being opened are ignored.
      */
     public void showDisconnection(){
-        if(!gameOver) {
+        if(gameOver || reconnecting) {
+            return;
+        }
+        if(!reconnect()) {
             ui.displayDisconnection();
-            System.exit(0);
+            exit();
         }
     }
 
+    /**
+     * Tries to open a new connection and resume the session, answering the server's first request with the session
+     * token and the sequence number of the last update received, so that only the missing updates are sent.
+     *
+     * @return      true if a new connection was opened, false if the session cannot be resumed
+     */
+    private boolean reconnect() {
+        String token = sessionToken;
+        if (token == null || embedded) {
+            return false;
+        }
+        reconnecting = true;
+        try {
+            ui.display(RECONNECTING_MSG);
+            for (int i = 0; i < RECONNECT_ATTEMPTS; i++) {
+                TimeUnit.MILLISECONDS.sleep(RECONNECT_DELAY_MILLIS);
+                resumeAnswer = SESSION_PREFIX + token + SESSION_PREFIX + lastSeq;
+                connect();
+                if (connection.isConnected()) {
+                    LOGGER.log(Level.INFO, "Reconnected, resuming session");
+                    return true;
+                }
+            }
+        } catch (InterruptedException ex) {
+            LOGGER.log(Level.INFO, "Skipped waiting time");
+            Thread.currentThread().interrupt();
+        } finally {
+            reconnecting = false;
+        }
+        resumeAnswer = null;
+        return false;
+    }
+
     /**
      * Closes the game when it is over.
      *
@@ -252,7 +392,18 @@ public class ClientMain {
         gameOver = true;
         executor.submit(() ->{
             ui.displayEnd(message);
-            System.exit(0);
+            exit();
         });
     }
-}
\ No newline at end of file
+
+    /**
+     * Terminates the client. Clients embedded in the server's JVM only release their threads.
+     */
+    private void exit(){
+        if(embedded) {
+            executor.shutdown();
+        } else {
+            System.exit(0);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package it.polimi.ingsw.view;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.InstanceCreator;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import java.util.ArrayList;
@@ -31,6 +34,21 @@ public class ClientModel {
     private List<String> colorPowerUpInHand;
     private int playerID;
 
+    private static final ThreadLocal<ClientModel> deserializing = new ThreadLocal<>();
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(ClientModel.class, (InstanceCreator<ClientModel>) type -> {
+                ClientModel model = new ClientModel();
+                deserializing.set(model);
+                return model;
+            })
+            .registerTypeAdapter(SimpleSquare.class, (InstanceCreator<SimpleSquare>) type ->
+                    deserializing.get().new SimpleSquare(0, false, new ArrayList<>(), 0, 0, 0, false))
+            .registerTypeAdapter(SimplePlayer.class, (InstanceCreator<SimplePlayer>) type ->
+                    deserializing.get().new SimplePlayer(0, "", 0, new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), null, "", 0, 0, 0, false, false, 0, 0, 0, ""))
+            .registerTypeAdapter(SimpleWeapon.class, (InstanceCreator<SimpleWeapon>) type ->
+                    deserializing.get().new SimpleWeapon("", false))
+            .create();
+
     /**
      * Standard constructor.
      */
@@ -38,6 +56,30 @@ public class ClientModel {
         //attributes in this class need to be initialized one at a time
     }
 
+    /**
+     * Getter for the Gson instance shared by server and client to serialize ClientModels. Inner classes deserialized
+     * through it are bound to the ClientModel they belong to.
+     *
+     * @return      the shared Gson instance
+     */
+    public static Gson getGson() {
+        return GSON;
+    }
+
+    /**
+     * Builds a ClientModel from its serialization.
+     *
+     * @param json      the serialized model
+     * @return          the model
+     */
+    public static ClientModel fromJson(JsonElement json) {
+        try {
+            return GSON.fromJson(json, ClientModel.class);
+        } finally {
+            deserializing.remove();
+        }
+    }
+
     /**
      * A simplified version of Square, containing what the user should see.
      */
@@ -1,8 +1,11 @@
 package it.polimi.ingsw.view;
 
-import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import it.polimi.ingsw.model.JsonDiff;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -24,9 +27,19 @@ public class ClientUpdater {
     private static final String DAMAGED_MSG = " took damage!";
     private static final String MARK_MSG = " was marked!";
     private static final String DMG_INCREMENTED_MSG = " took more damage because of the marks he had!";
+    private static final int MAX_MODELS = 8;
+
+    private final Map<Integer, JsonObject> models = new LinkedHashMap<Integer, JsonObject>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, JsonObject> eldest) {
+            return size() > MAX_MODELS;
+        }
+    };
 
     /**
-     * Applies updates to the ClientModel.
+     * Applies updates to the ClientModel. A batch of updates is applied as a whole and rendered only once at the end.
+     * Since the model may be replaced by an update, updates in a batch are applied to the model currently held by
+     * the ClientMain.
      *
      * @param   j update message
      * @param   clientModel reference to the model to update
@@ -37,6 +50,20 @@ public class ClientUpdater {
 
         switch (j.get(TYPE_PROP).getAsString()) {
 
+            case (BATCH_UPD):
+                for (JsonElement u : j.getAsJsonArray(UPDATES_PROP)) {
+                    update(u.getAsJsonObject(), clientMain.getClientModel(), clientMain, ui);
+                }
+                if (j.has(SEQ_PROP)) {
+                    clientMain.setLastSeq(j.get(SEQ_PROP).getAsLong());
+                }
+                if (j.get(RENDER_PROP).getAsBoolean()) {
+                    ui.render();
+                }
+                break;
+            case (SESSION_UPD):
+                clientMain.setSessionToken(j.get(TOKEN_PROP).getAsString());
+                break;
             case (RENDER_UPD):
                 ui.render();
                 break;
@@ -120,12 +147,55 @@ public class ClientUpdater {
                 clientModel.getSquare(j.get(SQUARE_PROP).getAsInt()).setPowerup(false);
                 break;
             case (MODEL_UPD):
-                    JsonObject mod = new JsonParser().parse(j.get(MODEL_PROP).getAsString()).getAsJsonObject();
-                    clientMain.setClientModel(new Gson().fromJson(mod, ClientModel.class));
+                    JsonObject mod = j.getAsJsonObject(MODEL_PROP);
+                    clientMain.setClientModel(ClientModel.fromJson(mod));
+                    if (j.has(VERSION_PROP)) {
+                        storeModel(j.get(VERSION_PROP).getAsInt(), mod, clientMain);
+                    }
+                break;
+            case (MODEL_DIFF_UPD):
+                applyModelDiff(j, clientMain);
                 break;
             default:
                 LOGGER.log(Level.SEVERE, "Malformed update header: " + j.get(TYPE_PROP).getAsString());
                 break;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Rebuilds a versioned model from a difference with respect to an older version and replaces the ClientModel.
+     * If the older version is not available anymore, the server is asked for a complete model.
+     *
+     * @param j             the update message
+     * @param clientMain    reference to main class, used for replacing the model
+     */
+    private void applyModelDiff(JsonObject j, ClientMain clientMain) {
+        int version = j.get(VERSION_PROP).getAsInt();
+        JsonObject base = models.get(j.get(BASE_PROP).getAsInt());
+        if (base == null) {
+            LOGGER.log(Level.WARNING, "Missing base for model version {0}", version);
+            clientMain.acknowledgeModel(version, false);
+            return;
+        }
+        try {
+            JsonObject mod = JsonDiff.apply(base, j.getAsJsonObject(DIFF_PROP)).getAsJsonObject();
+            clientMain.setClientModel(ClientModel.fromJson(mod));
+            storeModel(version, mod, clientMain);
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.SEVERE, "Cannot apply model difference", ex);
+            clientMain.acknowledgeModel(version, false);
+        }
+    }
+
+    /**
+     * Keeps a versioned model as a possible base for the following differences and acknowledges it.
+     *
+     * @param version       the version of the model
+     * @param mod           the serialized model
+     * @param clientMain    reference to main class, used to acknowledge the model
+     */
+    private void storeModel(int version, JsonObject mod, ClientMain clientMain) {
+        models.put(version, mod);
+        clientMain.acknowledgeModel(version, true);
+    }
+}
@@ -0,0 +1,139 @@
+package it.polimi.ingsw.view;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * User interface without any output, playing on its own: every request is answered with a random option and every
+ * text input with a name unique in the JVM. Used by bots and benchmarks running clients in the same JVM as the
+ * server; the end of the game can be awaited.
+ *
+ * @author  marcobaga
+ */
+public class HeadlessUI implements UI {
+
+    private static final AtomicInteger ids = new AtomicInteger();
+
+    private final String prefix;
+    private final Random random;
+    private final CountDownLatch over;
+    private int inputs;
+    private volatile String lastMessage;
+    private volatile String result;
+
+    /**
+     * Standard constructor.
+     *
+     * @param seed      the seed of the choices, so that a bot can be replayed
+     */
+    public HeadlessUI(long seed) {
+        this.prefix = "bot" + ids.incrementAndGet() + ".";
+        this.random = new Random(seed);
+        this.over = new CountDownLatch(1);
+        this.inputs = 0;
+        this.lastMessage = "";
+        this.result = null;
+    }
+
+    @Override
+    public void run() {
+        //nothing to poll
+    }
+
+    @Override
+    public void display(String message) {
+        lastMessage = message;
+    }
+
+    @Override
+    public void display(String message, String max) {
+        lastMessage = message;
+    }
+
+    @Override
+    public void display(String type, String message, List<String> options) {
+        lastMessage = message;
+    }
+
+    /**
+     * Answers a text request with a new name, shortened to the character limit.
+     *
+     * @param max   the character limit
+     * @return      the answer
+     */
+    @Override
+    public synchronized String get(String max) {
+        String answer = prefix + inputs++;
+        int limit = Integer.parseInt(max);
+        return answer.length() > limit ? answer.substring(answer.length() - limit) : answer;
+    }
+
+    /**
+     * Chooses a random option.
+     *
+     * @param list  options to choose from
+     * @return      the number of the option, starting from 1
+     */
+    @Override
+    public synchronized String get(List<String> list) {
+        return String.valueOf(list.isEmpty() ? 1 : random.nextInt(list.size()) + 1);
+    }
+
+    @Override
+    public void render() {
+        //nothing to draw
+    }
+
+    @Override
+    public void displayDisconnection() {
+        finish("disconnected");
+    }
+
+    @Override
+    public void displaySuspension() {
+        finish("suspended");
+    }
+
+    @Override
+    public void displayEnd(String message) {
+        finish(message);
+    }
+
+    @Override
+    public void addHistory(String message) {
+        //no history is kept
+    }
+
+    /**
+     * Records the outcome of the game and wakes up whoever is waiting for it.
+     *
+     * @param message   the outcome
+     */
+    private void finish(String message) {
+        result = message;
+        over.countDown();
+    }
+
+    /**
+     * Waits for the game of this client to be over.
+     *
+     * @param timeoutMillis     maximum time to wait
+     * @return                  the final message, or null if the game is not over yet
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public String awaitEnd(long timeoutMillis) throws InterruptedException {
+        over.await(timeoutMillis, TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+    /*
+     * Getters
+     */
+
+    public String getLastMessage() {
+        return lastMessage;
+    }
+}
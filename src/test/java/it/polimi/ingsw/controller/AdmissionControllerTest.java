@@ -0,0 +1,164 @@
+package it.polimi.ingsw.controller;
+
+import com.google.gson.JsonObject;
+import it.polimi.ingsw.network.server.VirtualView;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the admission and queueing of new games.
+ *
+ * @author marcobaga
+ */
+public class AdmissionControllerTest {
+
+    /**
+     * A subclass of VirtualView keeping the last message displayed.
+     */
+    class DummyVirtualView extends VirtualView{
+
+        String lastMessage = "";
+
+        @Override
+        public void refresh() {        }
+
+        @Override
+        public void shutdown() {        }
+
+        @Override
+        public void showSuspension() {        }
+
+        @Override
+        public void showEnd(String message) {      }
+
+        @Override
+        public void choose(String type, String msg, List<?> options) {        }
+
+        @Override
+        public void choose(String type, String msg, List<?> options, int timeoutSec) {        }
+
+        @Override
+        public void display(String msg) { lastMessage = msg; }
+
+        @Override
+        public String getInputNow(String msg, int max) {
+            return "1";
+        }
+
+        @Override
+        public int chooseNow(String type, String msg, List<?> options) {
+            return 1;
+        }
+
+        @Override
+        public void update(JsonObject jsonObject) {        }
+    }
+
+
+    /**
+     * Builds the players of a game.
+     *
+     * @param size      the number of players
+     * @return          the players
+     */
+    private List<VirtualView> game(int size) {
+        List<VirtualView> players = new ArrayList<>();
+        for(int i = 0; i < size; i++){
+            players.add(new DummyVirtualView());
+        }
+        return players;
+    }
+
+
+    /**
+     * Checks that games over the maximum are queued with an estimated wait, and start when a game is over.
+     */
+    @Test
+    public void maxGames() {
+        AdmissionController a = new AdmissionController(2, 0, 0, 30);
+        for(int i = 0; i < 4; i++){
+            a.enqueue(game(3));
+        }
+        List<List<VirtualView>> admitted = a.admit(0.1, 0);
+        assertEquals(2, admitted.size());
+        GameEngine first = new GameEngine(admitted.get(0));
+        a.started(first, 0);
+        a.started(new GameEngine(admitted.get(1)), TimeUnit.MINUTES.toMillis(10));
+        assertEquals(2, a.getQueued());
+        assertTrue(a.admit(0.1, 0).isEmpty());
+
+        long now = TimeUnit.MINUTES.toMillis(20);
+        assertEquals(TimeUnit.MINUTES.toMillis(10), a.eta(0, now));
+        assertEquals(TimeUnit.MINUTES.toMillis(20), a.eta(1, now));
+
+        a.finished(first, now);
+        assertEquals(1, a.admit(0.1, 0).size());
+        assertEquals(1, a.getQueued());
+        a.notifyQueued(now);
+    }
+
+
+    /**
+     * Checks that slow answers and a loaded machine keep new games queued, but never stop the first game.
+     */
+    @Test
+    public void overload() {
+        AdmissionController a = new AdmissionController(0, 2, 500, 30);
+        a.enqueue(game(3));
+        a.enqueue(game(3));
+        List<List<VirtualView>> admitted = a.admit(3, 2000);
+        assertEquals(1, admitted.size());
+        a.started(new GameEngine(admitted.get(0)), 0);
+        assertTrue(a.admit(3, 0).isEmpty());
+        assertTrue(a.admit(1, 2000).isEmpty());
+        assertEquals(1, a.admit(1, 400).size());
+    }
+
+
+    /**
+     * Checks the percentiles of the latencies recorded most recently.
+     */
+    @Test
+    public void latencyPercentile() {
+        LatencyRecorder r = new LatencyRecorder();
+        assertEquals(0, r.percentile(0.95));
+        for(int i = 0; i < 90; i++){
+            r.record(100);
+        }
+        for(int i = 0; i < 10; i++){
+            r.record(2000);
+        }
+        assertEquals(2000, r.percentile(0.95));
+        assertEquals(100, r.percentile(0.5));
+        for(int i = 0; i < 1024; i++){
+            r.record(50);
+        }
+        assertEquals(50, r.percentile(0.95));
+    }
+
+
+    /**
+     * Checks that queued games left with too few players give their players back to matchmaking.
+     */
+    @Test
+    public void suspendedWhileQueued() {
+        AdmissionController a = new AdmissionController(1, 0, 0, 30);
+        a.started(new GameEngine(game(3)), 0);
+        List<VirtualView> queued = game(3);
+        a.enqueue(queued);
+        queued.get(0).setSuspended(true);
+        a.notifyQueued(0);
+        assertTrue(((DummyVirtualView) queued.get(1)).lastMessage.contains("queued"));
+
+        List<VirtualView> suspended = new ArrayList<>();
+        List<VirtualView> requeued = a.removeSuspended(suspended);
+        assertEquals(1, suspended.size());
+        assertEquals(2, requeued.size());
+        assertEquals(0, a.getQueued());
+    }
+}
@@ -0,0 +1,122 @@
+package it.polimi.ingsw.controller;
+
+import it.polimi.ingsw.model.board.Board;
+import it.polimi.ingsw.model.board.Player;
+import it.polimi.ingsw.model.board.Square;
+import it.polimi.ingsw.model.cards.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the weapons compiled from weapons.json at build time behave as the ones read from it at runtime.
+ * WeaponFactoryTest runs on the compiled weapons, which are the default.
+ *
+ * @author marcobaga
+ */
+public class CompiledWeaponsTest {
+
+    private static final Map<Weapon.WeaponName, WeaponDefinition> COMPILED = CompiledWeapons.definitions();
+    private static final Map<Weapon.WeaponName, WeaponDefinition> READ = WeaponFactory.readDefinitions(WeaponFactory.getWeaponList());
+
+
+    /**
+     * Checks that both paths give the same names, colors, costs and firemodes, and that the factory uses the
+     * compiled weapons.
+     */
+    @Test
+    public void sameDefinitions() {
+        assertEquals(Weapon.WeaponName.values().length, COMPILED.size());
+        for (Weapon.WeaponName name : Weapon.WeaponName.values()) {
+            WeaponDefinition compiled = COMPILED.get(name);
+            WeaponDefinition read = READ.get(name);
+            assertEquals(name, compiled.getWeaponName());
+            assertEquals(read.getColor(), compiled.getColor());
+            assertEquals(read.getFullCost().toString(), compiled.getFullCost().toString());
+            assertEquals(read.getReducedCost().toString(), compiled.getReducedCost().toString());
+            assertEquals(read.getFireModes().size(), compiled.getFireModes().size());
+            for (int i = 0; i < read.getFireModes().size(); i++) {
+                assertEquals(read.getFireModes().get(i).getName(), compiled.getFireModes().get(i).getName());
+                assertEquals(read.getFireModes().get(i).getCost().toString(), compiled.getFireModes().get(i).getCost().toString());
+            }
+        }
+        assertSame(CompiledWeapons.class,
+                WeaponFactory.getDefinition(Weapon.WeaponName.THOR).getFireModes().get(0).getEffect().getClass().getEnclosingClass());
+    }
+
+
+    /**
+     * Fires every firemode of every weapon from every player of the test scenario, once with the compiled weapon and
+     * once with the weapon read at runtime, and checks that the targets, the destinations and the resulting state of
+     * the players are the same.
+     *
+     * @throws Exception    if the scenario cannot be set up
+     */
+    @Test
+    public void sameBehaviour() throws Exception {
+        for (Weapon.WeaponName name : Weapon.WeaponName.values()) {
+            for (int mode = 0; mode < COMPILED.get(name).getFireModes().size(); mode++) {
+                for (int shooter = 0; shooter < BoardConfigurer.simulateScenario().getPlayers().size(); shooter++) {
+                    assertEquals(name + " " + mode + " " + shooter,
+                            fire(COMPILED.get(name), mode, shooter), fire(READ.get(name), mode, shooter));
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Fires a firemode at the first group of targets it finds, to its first destination, in a new test scenario.
+     *
+     * @param definition    the weapon
+     * @param mode          the position of the firemode
+     * @param shooter       the position of the shooting player
+     * @return              a description of the targets, the destinations and the players after the shot
+     * @throws Exception    if the scenario cannot be set up
+     */
+    private static List<String> fire(WeaponDefinition definition, int mode, int shooter) throws Exception {
+        Board board = BoardConfigurer.simulateScenario();
+        Weapon weapon = new Weapon(definition, board);
+        weapon.setHolder(board.getPlayers().get(shooter));
+        FireMode fireMode = weapon.getFireModeList().get(mode);
+        List<String> result = new ArrayList<>();
+        try {
+            List<List<Player>> targets = fireMode.findTargets();
+            for (List<Player> group : targets) {
+                result.add("targets " + ids(group));
+            }
+            if (!targets.isEmpty() && !targets.get(0).isEmpty()) {
+                List<Square> destinations = fireMode.findDestinations(targets.get(0));
+                for (Square s : destinations) {
+                    result.add("destination " + s.getId());
+                }
+                fireMode.applyEffects(targets.get(0), destinations.isEmpty() ? null : destinations.get(0));
+            }
+        } catch (Exception ex) {
+            result.add("thrown " + ex.getClass());
+        }
+        for (Player p : board.getPlayers()) {
+            result.add(p.getId() + " damages " + ids(p.getDamages()) + " marks " + ids(p.getMarks()) + " in " + p.getPosition().getId());
+        }
+        return result;
+    }
+
+
+    /**
+     * Lists the ids of some players.
+     *
+     * @param players       the players
+     * @return              their ids
+     */
+    private static List<Integer> ids(List<Player> players) {
+        List<Integer> ids = new ArrayList<>();
+        for (Player p : players) {
+            ids.add(p.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,133 @@
+package it.polimi.ingsw.controller;
+
+import it.polimi.ingsw.model.board.Board;
+import it.polimi.ingsw.model.cards.Card;
+import it.polimi.ingsw.model.exceptions.NotEnoughPlayersException;
+import it.polimi.ingsw.model.exceptions.SlowAnswerException;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the event log of a game and its replay.
+ *
+ * @author marcobaga
+ */
+public class GameReplayTest {
+
+    private static final List<String> NAMES = Arrays.asList("a", "b", "c");
+
+
+    /**
+     * Writes a log with the given events, through the same class used by the games.
+     *
+     * @param answers       the answers of each player in turn, or null for a default answer
+     * @return              the content of the log
+     * @throws IOException  if the temporary file cannot be used
+     */
+    private static byte[] log(long seed, String... answers) throws IOException {
+        File file = File.createTempFile("game", ".log");
+        file.deleteOnExit();
+        GameEventLog log = new GameEventLog(file, seed, false, NAMES, GameEventLog.DEFAULT_SYNC_INTERVAL);
+        for(int i = 0; i < answers.length; i++){
+            if(answers[i] == null){
+                log.event(GameEventLog.DEFAULT, i % NAMES.size());
+            }else {
+                log.answer(i % NAMES.size(), answers[i]);
+            }
+        }
+        log.endTurn();
+        log.close();
+        return Files.readAllBytes(file.toPath());
+    }
+
+
+    /**
+     * Checks that the events are read back in order, including timeouts, and that the end of the log, even if cut
+     * short by a crash, ends the game.
+     *
+     * @throws Exception    if the log cannot be used
+     */
+    @Test
+    public void events() throws Exception {
+        byte[] data = log(42, "2", null, "3");
+        GameReplay replay = new GameReplay(data);
+        assertEquals(42, replay.getSeed());
+        assertEquals(NAMES, replay.getNames());
+        assertEquals("2", replay.nextShortAnswer(0));
+        assertEquals("1", replay.nextShortAnswer(1));
+        assertFalse(replay.isExhausted());
+        try {
+            replay.nextShortAnswer(0);
+            fail();
+        }catch(IllegalStateException ex){
+            //the answer belongs to another player
+        }
+
+        GameReplay truncated = new GameReplay(Arrays.copyOf(data, data.length - 2));
+        truncated.nextShortAnswer(0);
+        truncated.nextShortAnswer(1);
+        assertTrue(truncated.isExhausted());
+        try {
+            truncated.nextAnswer(2);
+            fail();
+        }catch(NotEnoughPlayersException ex){
+            //the log is over
+        }
+
+        File file = File.createTempFile("game", ".log");
+        file.deleteOnExit();
+        GameEventLog log = new GameEventLog(file, 1, false, NAMES, 0);
+        log.event(GameEventLog.SLOW, 2);
+        log.close();
+        try {
+            new GameReplay(Files.readAllBytes(file.toPath())).nextAnswer(2);
+            fail();
+        }catch(SlowAnswerException ex){
+            //the turn timer ran out in the original game
+        }
+    }
+
+
+    /**
+     * Checks that replaying the same log twice rebuilds the same Board, with the decks shuffled the same way.
+     *
+     * @throws Exception    if the log cannot be used
+     */
+    @Test
+    public void deterministicReplay() throws Exception {
+        byte[] data = log(7, "1", "2", "3", "1", "1", "1", "1", "2", "1", "1", "1", "1");
+        Board first = new GameReplay(data).replay();
+        Board second = new GameReplay(data).replay();
+        assertEquals(NAMES.size(), first.getPlayers().size());
+        assertEquals(cards(first), cards(second));
+
+        Board other = new GameReplay(log(8, "1", "2", "3", "1", "1", "1", "1", "2", "1", "1", "1", "1")).replay();
+        assertNotEquals(cards(first), cards(other));
+    }
+
+
+    /**
+     * Lists the cards left in the decks of a Board.
+     *
+     * @param board         the Board
+     * @return              the cards, in order
+     */
+    private static List<String> cards(Board board){
+        List<String> cards = new ArrayList<>();
+        for(Card c : board.getWeaponDeck().getDrawable()){
+            cards.add(c.toString());
+        }
+        for(Card c : board.getPowerUpDeck().getDrawable()){
+            cards.add(c.toString());
+        }
+        return cards;
+    }
+}
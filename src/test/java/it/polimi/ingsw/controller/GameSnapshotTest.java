@@ -0,0 +1,154 @@
+package it.polimi.ingsw.controller;
+
+import it.polimi.ingsw.model.board.Board;
+import it.polimi.ingsw.model.board.Deck;
+import it.polimi.ingsw.model.board.Player;
+import it.polimi.ingsw.model.cards.AmmoTile;
+import it.polimi.ingsw.model.cards.Card;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the snapshots of a game and the file holding them.
+ *
+ * @author marcobaga
+ */
+public class GameSnapshotTest {
+
+    private static final List<String> NAMES = Arrays.asList("a", "b", "c", "d", "e");
+
+
+    /**
+     * Checks that a Board is rebuilt with the same players, positions, damages, cards and decks.
+     *
+     * @throws Exception    if the scenario cannot be set up
+     */
+    @Test
+    public void roundTrip() throws Exception {
+        Board board = BoardConfigurer.simulateScenario();
+        GameSnapshot snapshot = GameSnapshot.decode(GameSnapshot.encode(board, NAMES, 2, true, 1));
+        Board restored = snapshot.getBoard();
+
+        assertEquals(NAMES, snapshot.getNames());
+        assertEquals(2, snapshot.getCurrentPlayer());
+        assertTrue(snapshot.isFrenzy());
+        assertEquals(1, snapshot.getFrenzyActivator());
+        assertEquals(board.getId(), restored.getId());
+        assertEquals(board.getPlayers().size(), restored.getPlayers().size());
+        for(int i = 0; i < board.getPlayers().size(); i++){
+            Player p = board.getPlayers().get(i);
+            Player r = restored.getPlayers().get(i);
+            assertEquals(p.getName(), r.getName());
+            assertEquals(p.getPoints(), r.getPoints());
+            assertEquals(p.getPosition().getId(), r.getPosition().getId());
+            assertEquals(ids(p.getDamages()), ids(r.getDamages()));
+            assertEquals(ids(p.getMarks()), ids(r.getMarks()));
+            assertEquals(p.getAmmoPack().toString(), r.getAmmoPack().toString());
+            assertEquals(cards(p.getWeaponList()), cards(r.getWeaponList()));
+            assertEquals(cards(p.getPowerUpList()), cards(r.getPowerUpList()));
+            assertSame(restored, r.getBoard());
+        }
+        assertEquals(cards(board.getWeaponDeck()), cards(restored.getWeaponDeck()));
+        assertEquals(cards(board.getPowerUpDeck()), cards(restored.getPowerUpDeck()));
+        assertEquals(cards(board.getAmmoDeck()), cards(restored.getAmmoDeck()));
+        assertEquals(board.getKillShotTrack().getSkullsLeft(), restored.getKillShotTrack().getSkullsLeft());
+
+        try {
+            GameSnapshot.decode(new byte[]{1, 2, 3});
+            fail();
+        }catch (IOException ex){
+            //not a snapshot
+        }
+    }
+
+
+    /**
+     * Checks that the latest snapshot is read back, and that a snapshot torn by a crash leaves the previous one.
+     *
+     * @throws Exception    if the temporary files cannot be used
+     */
+    @Test
+    public void file() throws Exception {
+        Path dir = Files.createTempDirectory("snapshots");
+        SnapshotFile file = SnapshotFile.create(dir);
+        file.write(new byte[]{1});
+        file.write(new byte[]{2, 2});
+        SnapshotFile.flush();
+        assertArrayEquals(new byte[]{2, 2}, SnapshotFile.latest(Files.readAllBytes(file.getPath())));
+
+        byte[] big = new byte[40000];
+        Arrays.fill(big, (byte) 3);
+        file.write(big);
+        SnapshotFile.flush();
+        byte[] content = Files.readAllBytes(file.getPath());
+        assertArrayEquals(big, SnapshotFile.latest(content));
+
+        SnapshotFile reopened = SnapshotFile.reopen(file.getPath());
+        reopened.write(new byte[]{4});
+        SnapshotFile.flush();
+        content = Files.readAllBytes(file.getPath());
+        assertArrayEquals(new byte[]{4}, SnapshotFile.latest(content));
+
+        content[content.length / 2] ^= 1;
+        content[content.length / 4] ^= 1;
+        byte[] previous = SnapshotFile.latest(content);
+        assertTrue(Arrays.equals(big, previous) || Arrays.equals(new byte[]{4}, previous));
+
+        reopened.delete();
+        SnapshotFile.flush();
+        assertFalse(Files.exists(file.getPath()));
+        Files.delete(dir);
+    }
+
+
+    /**
+     * Lists the ids of some players.
+     *
+     * @param players       the players
+     * @return              their ids
+     */
+    private static List<Integer> ids(List<Player> players){
+        List<Integer> ids = new ArrayList<>();
+        for(Player p : players){
+            ids.add(p.getId());
+        }
+        return ids;
+    }
+
+
+    /**
+     * Lists the names of some cards.
+     *
+     * @param cards         the cards
+     * @return              their names
+     */
+    private static List<String> cards(List<? extends Card> cards){
+        List<String> names = new ArrayList<>();
+        for(Card c : cards){
+            names.add(c instanceof AmmoTile ? ((AmmoTile) c).getAmmoPack() + "/" + ((AmmoTile) c).hasPowerUp() : c.toString());
+        }
+        return names;
+    }
+
+
+    /**
+     * Lists the cards of a deck, drawable ones first.
+     *
+     * @param deck          the deck
+     * @return              their names
+     */
+    private static List<String> cards(Deck deck){
+        List<String> names = cards(deck.getDrawable());
+        names.add("|");
+        names.addAll(cards(deck.getDiscarded()));
+        return names;
+    }
+}
@@ -0,0 +1,137 @@
+package it.polimi.ingsw.controller;
+
+import com.google.gson.JsonObject;
+import it.polimi.ingsw.network.server.VirtualView;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the forming of games in the lobbies of the Matchmaker.
+ *
+ * @author marcobaga
+ */
+public class MatchmakerTest {
+
+    /**
+     * A subclass of VirtualView counting the messages it receives.
+     */
+    class DummyVirtualView extends VirtualView{
+
+        int displayed = 0;
+
+        DummyVirtualView(String name, int preferredPlayers){
+            setName(name);
+            setPreferredPlayers(preferredPlayers);
+        }
+
+        @Override
+        public void refresh() {        }
+
+        @Override
+        public void shutdown() {        }
+
+        @Override
+        public void showSuspension() {        }
+
+        @Override
+        public void showEnd(String message) {      }
+
+        @Override
+        public void choose(String type, String msg, List<?> options) {        }
+
+        @Override
+        public void choose(String type, String msg, List<?> options, int timeoutSec) {        }
+
+        @Override
+        public void display(String msg) { displayed++; }
+
+        @Override
+        public String getInputNow(String msg, int max) {
+            return "1";
+        }
+
+        @Override
+        public int chooseNow(String type, String msg, List<?> options) {
+            return 1;
+        }
+
+        @Override
+        public void update(JsonObject jsonObject) {        }
+    }
+
+
+    /**
+     * Checks that a wave of players is turned into all the full games it allows at once, leaving the others waiting.
+     */
+    @Test
+    public void formsManyGames() {
+        Matchmaker m = new Matchmaker(60, Collections.emptyList(), 1000);
+        for(int i = 0; i < 12; i++){
+            m.add(new DummyVirtualView("p" + i, 0));
+        }
+        List<List<VirtualView>> games = m.formGames();
+        assertEquals(2, games.size());
+        assertEquals(5, games.get(0).size());
+        assertEquals("p5", games.get(1).get(0).getName());
+        assertEquals(2, m.getDefaultLobby().getWaiting().size());
+        assertTrue(m.formGames().isEmpty());
+    }
+
+
+    /**
+     * Checks that players wait in the lobby of the size they prefer, and that each lobby forms its own games.
+     */
+    @Test
+    public void lobbiesBySize() {
+        Matchmaker m = new Matchmaker(60, Arrays.asList(3, 4), 1000);
+        assertEquals(Arrays.asList(3, 4), m.getSizes());
+        for(int i = 0; i < 4; i++){
+            m.add(new DummyVirtualView("three" + i, 3));
+            m.add(new DummyVirtualView("four" + i, 4));
+        }
+        m.add(new DummyVirtualView("any", 0));
+        m.add(new DummyVirtualView("five", 5));
+
+        List<List<VirtualView>> games = m.formGames();
+        assertEquals(2, games.size());
+        assertEquals(3, games.get(0).size());
+        assertEquals(4, games.get(1).size());
+        assertEquals(2, m.getDefaultLobby().getWaiting().size());
+        assertEquals(1, m.getLobby(3).getWaiting().size());
+        assertEquals("Connected players:\n\tany\n\tfive\n\tthree3\n", m.describeWaiting());
+    }
+
+
+    /**
+     * Checks that the status of the lobbies is sent at most once per interval.
+     */
+    @Test
+    public void batchedStatus() {
+        Matchmaker m = new Matchmaker(60, Collections.emptyList(), 1000);
+        DummyVirtualView first = new DummyVirtualView("first", 0);
+        m.add(first);
+        m.broadcastStatus(5000);
+        assertEquals(1, first.displayed);
+        m.add(new DummyVirtualView("second", 0));
+        m.broadcastStatus(5500);
+        assertEquals(1, first.displayed);
+        m.broadcastStatus(6000);
+        assertEquals(2, first.displayed);
+        m.broadcastStatus(7000);
+        assertEquals(2, first.displayed);
+    }
+
+
+    /**
+     * Checks that sizes outside the limits of the game are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidSize() {
+        new Matchmaker(60, Matchmaker.parseSizes("3, 6"), 1000);
+    }
+}
@@ -121,6 +121,35 @@ public class ServerMainTest {
     }
 
 
+    /**
+     * Tests the method login(), which reserves names through the index of players.
+     */
+    @Test
+    public void login() {
+
+        ServerMain sm = ServerMain.getInstance();
+        sm.getPlayers().clear();
+        sm.getWaitingPlayers().clear();
+        VirtualView first = new DummyVirtualView();
+        VirtualView second = new DummyVirtualView();
+        first.setName("sameName");
+        second.setName("sameName");
+
+        assertTrue(sm.login(first));
+        assertFalse(sm.login(second));
+        assertFalse(sm.canResume("sameName"));
+
+        first.setSuspended(true);
+        assertTrue(sm.canResume("sameName"));
+        assertFalse(sm.resume(second));
+
+        sm.removeSuspendedPlayers();
+        assertFalse(sm.canResume("sameName"));
+        assertTrue(sm.login(second));
+        assertEquals(Collections.singletonList(second), sm.getWaitingPlayers());
+    }
+
+
     /**
      * Tests the method initializeLogger().
      */
@@ -0,0 +1,94 @@
+package it.polimi.ingsw.controller;
+
+import com.google.gson.JsonObject;
+import it.polimi.ingsw.network.server.VirtualView;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the hosting of games by a shard.
+ *
+ * @author marcobaga
+ */
+public class ShardTest {
+
+    /**
+     * A subclass of VirtualView counting how many times it is refreshed.
+     */
+    class DummyVirtualView extends VirtualView{
+
+        AtomicInteger refreshed = new AtomicInteger();
+
+        @Override
+        public void refresh() { refreshed.incrementAndGet(); }
+
+        @Override
+        public void shutdown() {        }
+
+        @Override
+        public void showSuspension() {        }
+
+        @Override
+        public void showEnd(String message) {      }
+
+        @Override
+        public void choose(String type, String msg, List<?> options) {        }
+
+        @Override
+        public void choose(String type, String msg, List<?> options, int timeoutSec) {        }
+
+        @Override
+        public void display(String msg) { }
+
+        @Override
+        public String getInputNow(String msg, int max) {
+            return "1";
+        }
+
+        @Override
+        public int chooseNow(String type, String msg, List<?> options) {
+            return 1;
+        }
+
+        @Override
+        public void update(JsonObject jsonObject) {        }
+    }
+
+
+    /**
+     * Checks that the shard refreshes the connections of its games on its own loop, switches to the connection of
+     * a resumed player and forgets the games which are over.
+     *
+     * @throws InterruptedException     if interrupted while waiting
+     */
+    @Test
+    public void hostedConnections() throws InterruptedException {
+        Shard shard = new Shard(0);
+        List<VirtualView> players = new ArrayList<>(Arrays.asList(new DummyVirtualView(), new DummyVirtualView(), new DummyVirtualView()));
+        GameEngine engine = new GameEngine(players);
+        shard.getPlayers().addAll(engine.getPlayers());
+        assertEquals(3, shard.getPlayers().size());
+
+        DummyVirtualView resumed = new DummyVirtualView();
+        shard.replace(players.get(0), resumed);
+        assertFalse(shard.getPlayers().contains(players.get(0)));
+        assertTrue(shard.getPlayers().contains(resumed));
+
+        shard.start();
+        TimeUnit.MILLISECONDS.sleep(400);
+        assertTrue(resumed.refreshed.get() > 0);
+        assertEquals(0, ((DummyVirtualView) players.get(0)).refreshed.get());
+        shard.shutdown();
+
+        shard.recordLatency(30);
+        assertEquals(30, shard.getLatency());
+        assertEquals(0, shard.getLoad());
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import static org.junit.Assert.*;
 
 /**
@@ -33,6 +34,40 @@ public class WeaponFactoryTest {
          assertEquals("Blue", w.getColor().toString());
      }
 
+    /**
+     * Checks that weapons and power ups of different games share their definitions but not their state, and that
+     * the shared finders look for targets on the board of the player using them.
+     *
+     * @throws Exception                            if thrown by simulateScenario() or findTargets().
+     */
+    @Test
+    public void sharedDefinitions() throws Exception {
+        Board b1 = BoardConfigurer.simulateScenario();
+        Board b2 = BoardConfigurer.simulateScenario();
+        Weapon w1 = new WeaponFactory(b1).createWeapon(Weapon.WeaponName.LOCK_RIFLE);
+        Weapon w2 = new WeaponFactory(b2).createWeapon(Weapon.WeaponName.LOCK_RIFLE);
+        assertSame(w1.getDefinition(), w2.getDefinition());
+        assertSame(w1.getFireModeList().get(0).getDefinition(), w2.getFireModeList().get(0).getDefinition());
+        assertNotSame(w1.getFireModeList().get(0), w2.getFireModeList().get(0));
+        assertSame(w1, w1.getFireModeList().get(0).getWeapon());
+
+        w1.setHolder(b1.getPlayers().get(0));
+        w2.setHolder(b2.getPlayers().get(0));
+        w1.setLoaded(true);
+        assertFalse(w2.isLoaded());
+        for (List<Player> targets : w1.getFireModeList().get(0).findTargets()) {
+            assertTrue(b1.getPlayers().containsAll(targets));
+        }
+        for (List<Player> targets : w2.getFireModeList().get(0).findTargets()) {
+            assertTrue(b2.getPlayers().containsAll(targets));
+        }
+
+        PowerUp p1 = new PowerUpFactory(b1).createPowerUp(PowerUp.PowerUpName.NEWTON, Color.RED);
+        PowerUp p2 = new PowerUpFactory(b2).createPowerUp(PowerUp.PowerUpName.NEWTON, Color.BLUE);
+        assertSame(p1.getDefinition(), p2.getDefinition());
+        assertEquals(Color.BLUE, p2.getColor());
+    }
+
     /**
      * Creates the first weapon and checks that it is initialized correctly.
      *
@@ -15,6 +15,7 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import static it.polimi.ingsw.model.cards.Color.*;
 import static it.polimi.ingsw.model.cards.PowerUp.PowerUpName.*;
@@ -315,4 +316,58 @@ public class DeckTest {
         assertEquals(23, powerUpDeck.getDrawable().size());
 
     }
-}
\ No newline at end of file
+
+
+    /**
+     * Tests that the cards are drawn in order while other cards are added and discarded, and that two decks sharing
+     * a seed are shuffled and regenerated the same way.
+     *
+     * @throws NoMoreCardsException if a deck runs out of cards.
+     * @throws WrongTimeException if thrown by regenerate().
+     */
+    @Test
+    public void drawManyCardsSeeded() throws NoMoreCardsException, WrongTimeException {
+
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            cards.add(new AmmoTile(i % 2 == 0, new AmmoPack(i % 3, i % 2, i % 4)));
+        }
+
+        //draws a card every two added, so that the pile both grows and moves along its array
+        Deck deck = new Deck();
+        List<Card> drawn = new ArrayList<>();
+        for (int i = 0; i < cards.size(); i++) {
+            deck.addCard(cards.get(i));
+            if (i % 2 == 1) {
+                drawn.add(deck.drawCard());
+                deck.addDiscardedCard(drawn.get(drawn.size() - 1));
+            }
+        }
+        while (!deck.getDrawable().isEmpty()) {
+            drawn.add(deck.drawCard());
+        }
+        assertEquals(cards, drawn);
+        assertEquals(cards.subList(0, 50), deck.getDiscarded());
+
+        //two decks with the same seed
+        Deck first = new Deck(new Random(3));
+        Deck second = new Deck(new Random(3));
+        for (Card c : cards) {
+            first.addCard(c);
+            second.addCard(c);
+        }
+        first.shuffleDeck();
+        second.shuffleDeck();
+        assertEquals(first.getDrawable(), second.getDrawable());
+        assertNotEquals(cards, first.getDrawable());
+        while (!first.getDrawable().isEmpty()) {
+            first.addDiscardedCard(first.drawCard());
+            second.addDiscardedCard(second.drawCard());
+        }
+        first.regenerate();
+        second.regenerate();
+        assertEquals(first.getDrawable(), second.getDrawable());
+        assertTrue(first.getDiscarded().isEmpty());
+
+    }
+}
@@ -0,0 +1,57 @@
+package it.polimi.ingsw.model;
+
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the cached serialization of updates and batches.
+ *
+ * @author marcobaga
+ */
+public class EncodedUpdateTest {
+
+    /**
+     * Checks that a batch assembled from cached serializations is the same as the serialization of the equivalent
+     * JsonObject, and that the serialization of a shared update is computed once.
+     */
+    @Test
+    public void batch() {
+        JsonObject skull = Updater.get(Updater.REMOVE_SKULL_UPD, 1);
+        skull.addProperty("text", "città");
+        EncodedUpdate shared = EncodedUpdate.of(skull);
+        EncodedUpdate batch = EncodedUpdate.batch(Arrays.asList(shared, EncodedUpdate.of(Updater.getRenderMessage()),
+                EncodedUpdate.of(Updater.get(Updater.POWER_UP_DECK_REGEN_UPD, 3))), false);
+
+        String expected = Updater.getBatch(Arrays.asList(skull, Updater.get(Updater.POWER_UP_DECK_REGEN_UPD, 3)), true).toString();
+        assertTrue(batch.isRender());
+        assertEquals(2, batch.getParts().size());
+        assertEquals(expected, batch.getEncoded());
+        assertEquals(expected + "\n", new String(batch.getLine(), StandardCharsets.UTF_8));
+        assertEquals(expected, batch.getJson().toString());
+        assertSame(shared.getEncoded(), shared.getEncoded());
+        assertSame(shared.getLine(), shared.getLine());
+    }
+
+    /**
+     * Checks that the sequence number of a batch is serialized consistently and survives merging.
+     */
+    @Test
+    public void seq() {
+        EncodedUpdate first = EncodedUpdate.batch(Arrays.asList(EncodedUpdate.of(Updater.get(Updater.REMOVE_SKULL_UPD, 1))), true, 4);
+        EncodedUpdate second = EncodedUpdate.batch(Arrays.asList(EncodedUpdate.of(Updater.get(Updater.REMOVE_SKULL_UPD, 1))), true, 7);
+        EncodedUpdate merged = EncodedUpdate.batch(Arrays.asList(first, second), false);
+
+        assertEquals(7, merged.getSeq());
+        assertEquals(2, merged.getParts().size());
+        assertEquals(merged.getJson().toString(), merged.getEncoded());
+        assertEquals(merged.getEncoded() + "\n", new String(merged.getLine(), StandardCharsets.UTF_8));
+        assertEquals(4, first.getJson().get(Updater.SEQ_PROP).getAsLong());
+        assertFalse(EncodedUpdate.batch(Arrays.asList(first), true).getEncoded().equals(
+                EncodedUpdate.batch(first.getParts(), true).getEncoded()));
+    }
+}
@@ -0,0 +1,47 @@
+package it.polimi.ingsw.model;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the computation and application of differences between JSON trees.
+ *
+ * @author marcobaga
+ */
+public class JsonDiffTest {
+
+    private JsonParser parser = new JsonParser();
+
+    /**
+     * Checks that applying the difference between two trees to the first one gives the second one,
+     * and that the first one is left untouched.
+     */
+    @Test
+    public void roundTrip() {
+        String oldString = "{\"players\":[{\"id\":1,\"damage\":[]},{\"id\":2,\"damage\":[1]}],\"skulls\":8,\"removed\":true}";
+        JsonElement from = parser.parse(oldString);
+        JsonElement to = parser.parse("{\"players\":[{\"id\":1,\"damage\":[2,2]},{\"id\":2,\"damage\":[1]}],\"skulls\":7,\"mapID\":3}");
+
+        JsonObject diff = JsonDiff.diff(from, to);
+        assertNotNull(diff);
+        assertEquals(to, JsonDiff.apply(from, diff));
+        assertEquals(parser.parse(oldString), from);
+        assertFalse(diff.toString().contains("\"id\""));
+    }
+
+    /**
+     * Checks that equal trees have no difference and that an empty difference leaves a tree unchanged.
+     */
+    @Test
+    public void noChange() {
+        JsonElement from = parser.parse("{\"squares\":[{\"id\":0}],\"skulls\":8}");
+        JsonElement to = parser.parse("{\"squares\":[{\"id\":0}],\"skulls\":8}");
+
+        assertNull(JsonDiff.diff(from, to));
+        assertEquals(from, JsonDiff.apply(from, new JsonObject()));
+    }
+}
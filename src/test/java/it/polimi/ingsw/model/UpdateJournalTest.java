@@ -0,0 +1,129 @@
+package it.polimi.ingsw.model;
+
+import com.google.gson.JsonObject;
+import it.polimi.ingsw.model.board.UpdateJournal;
+import it.polimi.ingsw.network.server.VirtualView;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the cursors and the visibility rules of the UpdateJournal.
+ *
+ * @author marcobaga
+ */
+public class UpdateJournalTest {
+
+    /**
+     * A VirtualView which is never connected.
+     */
+    class SilentVirtualView extends VirtualView {
+
+        SilentVirtualView(String name) { setName(name); }
+
+        @Override
+        public void refresh() {        }
+
+        @Override
+        public void shutdown() {        }
+
+        @Override
+        public void showSuspension() {        }
+
+        @Override
+        public void showEnd(String message) {      }
+
+        @Override
+        public void choose(String type, String msg, List<?> options) {        }
+
+        @Override
+        public void choose(String type, String msg, List<?> options, int timeoutSec) {        }
+
+        @Override
+        public void display(String msg) {        }
+
+        @Override
+        public String getInputNow(String msg, int max) {
+            return "1";
+        }
+
+        @Override
+        public int chooseNow(String type, String msg, List<?> options) {
+            return 1;
+        }
+
+        @Override
+        public void update(JsonObject jsonObject) {        }
+    }
+
+    /**
+     * Checks that every observer receives public updates once and only its own private updates.
+     */
+    @Test
+    public void cursorsAndVisibility() {
+        UpdateJournal journal = new UpdateJournal(8);
+        VirtualView alice = new SilentVirtualView("alice");
+        VirtualView bob = new SilentVirtualView("bob");
+        journal.register(alice);
+        journal.register(bob);
+        EncodedUpdate shared = EncodedUpdate.of(Updater.get(Updater.REMOVE_SKULL_UPD, 1));
+        journal.append(shared);
+        journal.append(EncodedUpdate.of(Updater.get(Updater.POWER_UP_DECK_REGEN_UPD, 3)), alice);
+
+        List<EncodedUpdate> forAlice = journal.poll(alice);
+        assertEquals(2, forAlice.size());
+        assertSame(shared, forAlice.get(0));
+        assertTrue(journal.poll(alice).isEmpty());
+
+        List<EncodedUpdate> forBob = journal.poll(bob);
+        assertEquals(1, forBob.size());
+        assertSame(shared, forBob.get(0));
+
+        journal.append(shared);
+        journal.skip(bob);
+        assertTrue(journal.poll(bob).isEmpty());
+        assertEquals(3, journal.since("alice", 0).size());
+        assertEquals(2, journal.since("bob", 0).size());
+    }
+
+    /**
+     * Checks that an observer falling behind the capacity of the journal is told that updates were lost.
+     */
+    @Test
+    public void overrun() {
+        UpdateJournal journal = new UpdateJournal(4);
+        VirtualView alice = new SilentVirtualView("alice");
+        journal.register(alice);
+        for (int i = 0; i < 5; i++) {
+            journal.append(EncodedUpdate.of(Updater.get(Updater.REMOVE_SKULL_UPD, 1)));
+        }
+        assertNull(journal.poll(alice));
+        assertEquals(5, journal.getCursor(alice));
+        assertNotNull(journal.since("alice", 1));
+    }
+
+    /**
+     * Checks that a client asking to catch up from before a revert by another player is refused, while the player who
+     * reverted can still catch up.
+     */
+    @Test
+    public void revert() {
+        UpdateJournal journal = new UpdateJournal(8);
+        VirtualView alice = new SilentVirtualView("alice");
+        VirtualView bob = new SilentVirtualView("bob");
+        journal.register(alice);
+        journal.register(bob);
+        journal.append(EncodedUpdate.of(Updater.get(Updater.REMOVE_SKULL_UPD, 1)));
+        assertEquals(1, journal.poll(bob).size());
+        journal.append(EncodedUpdate.of(Updater.get(Updater.REMOVE_SKULL_UPD, 1)));
+        journal.revert(alice);
+        assertTrue(journal.poll(bob).isEmpty());
+        assertEquals(2, journal.poll(alice).size());
+
+        assertNull(journal.since("bob", 1));
+        assertEquals(1, journal.since("alice", 1).size());
+        assertTrue(journal.since("bob", 2).isEmpty());
+    }
+}
@@ -0,0 +1,181 @@
+package it.polimi.ingsw.network;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import it.polimi.ingsw.model.EncodedUpdate;
+import it.polimi.ingsw.model.Updater;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the binary format reproduces the messages of the JSON line format and that frames can be read in
+ * pieces.
+ *
+ * @author marcobaga
+ */
+public class BinaryCodecTest {
+
+    private final BinaryCodec codec = new BinaryCodec();
+
+    /**
+     * Encodes a message and reads it back.
+     *
+     * @param message       the message
+     * @return              the message read
+     * @throws IOException  if the message cannot be read
+     */
+    private JsonObject roundTrip(JsonObject message) throws IOException {
+        byte[] frame = codec.encode(EncodedUpdate.of(message));
+        return codec.readMessage(new WireReader(new ByteArrayInputStream(frame)));
+    }
+
+    /**
+     * Checks that server messages of every kind, including messages the format does not describe, are read back
+     * unchanged.
+     *
+     * @throws IOException  if a message cannot be read
+     */
+    @Test
+    public void serverMessages() throws IOException {
+        JsonParser parser = new JsonParser();
+        String[] messages = {
+                "{\"head\":\"MSG\",\"text\":\"città\"}",
+                "{\"head\":\"REQ\",\"text\":\"Select a name.\",\"length\":\"16\"}",
+                "{\"head\":\"REQ\",\"text\":\"Select a name.\",\"length\":\"016\"}",
+                "{\"head\":\"OPT\",\"type\":\"string\",\"text\":\"Choose\",\"options\":[\"Yes\",\"No\"]}",
+                "{\"head\":\"SUSP\"}",
+                "{\"head\":\"END\",\"msg\":\"You won\"}",
+                "{\"head\":\"HELLO\",\"codec\":\"binary\"}",
+                "{\"head\":\"UPD\",\"type\":\"damage\",\"player\":-3,\"other\":[1.5,null,true,{\"x\":\"y\"}]}"
+        };
+        for (String m : messages) {
+            JsonObject j = parser.parse(m).getAsJsonObject();
+            assertEquals(j, roundTrip(j));
+        }
+        JsonObject model = Updater.getModelDiff(3, 2, parser.parse("{\"o\":{\"points\":{\"v\":7}}}").getAsJsonObject());
+        assertEquals(model, roundTrip(model));
+    }
+
+    /**
+     * Checks that a batch assembled from the cached encodings of its updates is read back as the equivalent
+     * JsonObject, and is encoded like it.
+     *
+     * @throws IOException  if the batch cannot be read
+     */
+    @Test
+    public void batch() throws IOException {
+        EncodedUpdate skull = EncodedUpdate.of(Updater.get(Updater.REMOVE_SKULL_UPD, 1));
+        EncodedUpdate session = EncodedUpdate.of(Updater.getSession("token"));
+        EncodedUpdate batch = EncodedUpdate.batch(Arrays.asList(skull, session), true, 42);
+
+        assertArrayEquals(BinaryCodec.encodeMessage(batch.getJson()), BinaryCodec.encodeMessage(batch));
+        assertSame(BinaryCodec.encodeMessage(batch), BinaryCodec.encodeMessage(batch));
+        assertEquals(batch.getJson(), roundTrip(batch.getJson()));
+        assertTrue(BinaryCodec.encodeMessage(batch).length < batch.getLine().length);
+    }
+
+    /**
+     * Checks that the messages of the client are read back as the lines of the JSON line format.
+     *
+     * @throws IOException  if a message cannot be read
+     */
+    @Test
+    public void clientMessages() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(codec.encodeAnswer("2"));
+        out.write(codec.encodePing());
+        out.write(codec.encodeAnswer(WireCodec.PING));
+        out.write(codec.encodeAck(5, false));
+        WireReader in = new WireReader(new ByteArrayInputStream(out.toByteArray()));
+
+        JsonLineCodec json = new JsonLineCodec();
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        lines.write(json.encodeAnswer("2"));
+        lines.write(json.encodePing());
+        lines.write(json.encodeAnswer(WireCodec.PING));
+        lines.write(json.encodeAck(5, false));
+        WireReader expected = new WireReader(new ByteArrayInputStream(lines.toByteArray()));
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(json.readText(expected), codec.readText(in));
+        }
+        assertNull(codec.readText(in));
+    }
+
+    /**
+     * Checks that a frame arriving in pieces, separated by socket timeouts, is read once complete, and that a line
+     * preceding it in the same stream is read too.
+     *
+     * @throws IOException  if the stream cannot be read
+     */
+    @Test
+    public void partialFrames() throws IOException {
+        JsonObject message = new JsonObject();
+        message.addProperty("head", "MSG");
+        JsonArray big = new JsonArray();
+        for (int i = 0; i < 3000; i++) {
+            big.add(new JsonPrimitive("option " + i));
+        }
+        message.add("text", new JsonPrimitive(big.toString()));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(JsonLineCodec.encodeHello(BinaryCodec.NAME, true));
+        out.write(codec.encode(EncodedUpdate.of(message)));
+        byte[] data = out.toByteArray();
+
+        InputStream trickle = new InputStream() {
+            private int pos = 0;
+            private boolean pause = false;
+
+            @Override
+            public int read() {
+                return pos < data.length ? data[pos++] & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                pause = !pause;
+                if (pause) {
+                    throw new SocketTimeoutException();
+                }
+                if (pos >= data.length) {
+                    return -1;
+                }
+                int n = Math.min(Math.min(len, 1000), data.length - pos);
+                System.arraycopy(data, pos, b, off, n);
+                pos += n;
+                return n;
+            }
+        };
+        WireReader in = new WireReader(trickle);
+        String line = null;
+        while (line == null) {
+            try {
+                line = in.readLine();
+            } catch (SocketTimeoutException ex) {
+                //more data will arrive
+            }
+        }
+        assertTrue(line.contains(WireCodec.HELLO));
+        JsonObject read = null;
+        int timeouts = 0;
+        while (read == null) {
+            try {
+                read = codec.readMessage(in);
+            } catch (SocketTimeoutException ex) {
+                timeouts++;
+            }
+        }
+        assertEquals(message, read);
+        assertTrue(timeouts > 1);
+    }
+}
@@ -0,0 +1,82 @@
+package it.polimi.ingsw.network;
+
+import com.google.gson.JsonObject;
+import it.polimi.ingsw.model.EncodedUpdate;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the streams used to speak the socket protocol over Unix domain sockets.
+ *
+ * @author marcobaga
+ */
+public class ChannelStreamsTest {
+
+    /**
+     * Checks that reads time out while nothing arrives, that lines and frames written on one side are read on the
+     * other one, and that the end of the stream is detected.
+     *
+     * @throws IOException  if the socket cannot be used
+     */
+    @Test
+    public void exchange() throws IOException {
+        Path dir = Files.createTempDirectory("adrenaline");
+        Path path = dir.resolve("server.sock");
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(path));
+            SocketChannel client = ChannelStreams.connect(path);
+            SocketChannel accepted = server.accept();
+
+            WireReader in = new WireReader(ChannelStreams.input(accepted, 50));
+            OutputStream out = ChannelStreams.output(client);
+            try {
+                in.readLine();
+                fail();
+            } catch (SocketTimeoutException ex) {
+                //nothing was written yet
+            }
+
+            JsonObject message = new JsonObject();
+            message.addProperty("head", "MSG");
+            message.addProperty("text", "local");
+            BinaryCodec codec = new BinaryCodec();
+            out.write(JsonLineCodec.encodeSwitch());
+            out.write(codec.encode(EncodedUpdate.of(message)));
+            assertTrue(in.readLine().contains(WireCodec.SWITCH));
+            JsonObject read = null;
+            while (read == null) {
+                try {
+                    read = codec.readMessage(in);
+                } catch (SocketTimeoutException ex) {
+                    //more data will arrive
+                }
+            }
+            assertEquals(message, read);
+
+            out.close();
+            String end = "";
+            while (end != null) {
+                try {
+                    end = in.readLine();
+                } catch (SocketTimeoutException ex) {
+                    //the end of the stream will arrive
+                }
+            }
+            accepted.close();
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(dir);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package it.polimi.ingsw.network;
+
+import com.google.gson.JsonObject;
+import it.polimi.ingsw.model.EncodedUpdate;
+import it.polimi.ingsw.model.Updater;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the compression of large messages in both wire formats.
+ *
+ * @author marcobaga
+ */
+public class MessageCompressorTest {
+
+    /**
+     * Builds a message of roughly the given size, made of repeated text like the leaderboard.
+     *
+     * @param lines         the number of lines of text
+     * @return              the message
+     */
+    private EncodedUpdate leaderboard(int lines) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            text.append("Player ").append(i).append(": ").append(i * 3).append(" points\n");
+        }
+        JsonObject j = new JsonObject();
+        j.addProperty("head", "MSG");
+        j.addProperty("text", text.toString());
+        return EncodedUpdate.of(j);
+    }
+
+    /**
+     * Sends a sequence of messages through a codec with compression and reads them back with a single decompressor,
+     * as the client does.
+     *
+     * @param codec         the codec
+     * @throws IOException  if a message cannot be read
+     */
+    private void roundTrip(WireCodec codec) throws IOException {
+        MessageCompressor compressor = new MessageCompressor(256);
+        EncodedUpdate[] messages = {leaderboard(40), EncodedUpdate.of(Updater.get(Updater.REMOVE_SKULL_UPD, 1)),
+                leaderboard(40), leaderboard(50)};
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long plain = 0;
+        for (EncodedUpdate m : messages) {
+            out.write(codec.encode(m, compressor));
+            plain += codec.encode(m).length;
+        }
+        assertEquals(3, compressor.getCompressedMessages());
+        assertTrue(out.size() < plain / 3);
+        assertTrue(compressor.getRatio() < 0.3);
+
+        WireReader in = new WireReader(new ByteArrayInputStream(out.toByteArray()));
+        MessageDecompressor decompressor = new MessageDecompressor();
+        for (EncodedUpdate m : messages) {
+            assertEquals(m.getJson(), codec.readMessage(in, decompressor));
+        }
+    }
+
+    /**
+     * Checks compression in the JSON line format.
+     *
+     * @throws IOException  if a message cannot be read
+     */
+    @Test
+    public void jsonLines() throws IOException {
+        roundTrip(new JsonLineCodec());
+    }
+
+    /**
+     * Checks compression in the binary format.
+     *
+     * @throws IOException  if a message cannot be read
+     */
+    @Test
+    public void binary() throws IOException {
+        roundTrip(new BinaryCodec());
+    }
+}
@@ -0,0 +1,82 @@
+package it.polimi.ingsw.network;
+
+import org.junit.Test;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests remote calls through the sockets of the TunedSocketFactory.
+ *
+ * @author marcobaga
+ */
+public class TunedSocketFactoryTest {
+
+    /**
+     * Remote object repeating what it receives.
+     */
+    public interface Echo extends Remote {
+        String echo(String s) throws RemoteException;
+    }
+
+    /**
+     * Exports an Echo object through a factory and calls it several times, with both short and long arguments.
+     *
+     * @param factory       the factory
+     * @throws RemoteException  if a call fails
+     */
+    private void calls(TunedSocketFactory factory) throws RemoteException {
+        Echo echo = s -> s;
+        Echo stub = (Echo) UnicastRemoteObject.exportObject(echo, 0, factory, factory);
+        long opened = TunedSocketFactory.getOpened();
+        try {
+            StringBuilder big = new StringBuilder();
+            for (int i = 0; i < 5000; i++) {
+                big.append("option ").append(i).append(", ");
+            }
+            for (int i = 0; i < 20; i++) {
+                assertEquals("choose " + i, stub.echo("choose " + i));
+                assertEquals(big.toString(), stub.echo(big.toString()));
+            }
+            long used = TunedSocketFactory.getOpened() - opened;
+            assertTrue(used >= 1);
+            assertTrue(used < 40);
+        } finally {
+            UnicastRemoteObject.unexportObject(echo, true);
+        }
+    }
+
+    /**
+     * Checks calls through plain tuned sockets, which are reused across calls.
+     *
+     * @throws RemoteException  if a call fails
+     */
+    @Test
+    public void plain() throws RemoteException {
+        calls(new TunedSocketFactory(true, 65536, false));
+    }
+
+    /**
+     * Checks calls through compressed sockets.
+     *
+     * @throws RemoteException  if a call fails
+     */
+    @Test
+    public void compressed() throws RemoteException {
+        calls(new TunedSocketFactory(true, 0, true));
+        assertTrue(TunedSocketFactory.getStatistics().contains("deflated"));
+    }
+
+    /**
+     * Checks that factories with the same settings are equal, as RMI only shares connections between equal factories.
+     */
+    @Test
+    public void equality() {
+        assertEquals(new TunedSocketFactory(true, 0, true), new TunedSocketFactory(true, 0, true));
+        assertEquals(new TunedSocketFactory(true, 0, true).hashCode(), new TunedSocketFactory(true, 0, true).hashCode());
+        assertNotEquals(new TunedSocketFactory(true, 0, true), new TunedSocketFactory(true, 0, false));
+    }
+}
@@ -0,0 +1,84 @@
+package it.polimi.ingsw.network;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the limit on the length of the messages read by WireReader.
+ *
+ * @author marcobaga
+ */
+public class WireReaderTest {
+
+    /**
+     * Stream which never ends, made of the same byte, counting the bytes read from it.
+     */
+    private static class EndlessStream extends InputStream {
+
+        private long read = 0;
+
+        @Override
+        public int read() {
+            read++;
+            return 'a';
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            Arrays.fill(b, off, off + len, (byte) 'a');
+            read += len;
+            return len;
+        }
+    }
+
+    /**
+     * Checks that lines within the limit are read, including one of the maximum length.
+     *
+     * @throws IOException  if a line cannot be read
+     */
+    @Test
+    public void linesWithinLimit() throws IOException {
+        String longest = new String(new char[16]).replace('\0', 'x');
+        WireReader in = new WireReader(new ByteArrayInputStream(("ping\r\n" + longest + "\n")
+                .getBytes(StandardCharsets.UTF_8)), 16);
+        assertEquals("ping", in.readLine());
+        assertEquals(longest, in.readLine());
+        assertNull(in.readLine());
+    }
+
+    /**
+     * Checks that a line that never ends is refused after reading little more than the limit.
+     */
+    @Test
+    public void endlessLine() {
+        EndlessStream stream = new EndlessStream();
+        WireReader in = new WireReader(stream, 4096);
+        try {
+            in.readLine();
+            fail();
+        } catch (IOException ex) {
+            assertTrue(stream.read <= 4096 + 5);
+        }
+    }
+
+    /**
+     * Checks that a frame announcing a length beyond the limit is refused.
+     */
+    @Test
+    public void frameTooLong() {
+        WireReader in = new WireReader(new ByteArrayInputStream(new byte[]{(byte) 0x81, 0x01, 1, 2, 3}), 100);
+        try {
+            in.readFrame();
+            fail();
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage().startsWith("Frame too long"));
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package it.polimi.ingsw.network.node;
+
+import com.google.gson.JsonObject;
+import it.polimi.ingsw.network.server.VirtualView;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the link between the gateway and a game node, over a loopback connection within the same process.
+ *
+ * @author marcobaga
+ */
+public class GameNodeTest {
+
+    private ServerSocket server;
+    private Socket gatewaySide;
+    private Socket nodeSide;
+
+    /**
+     * A subclass of VirtualView recording what the node asks it to show, and able to answer.
+     */
+    class DummyVirtualView extends VirtualView{
+
+        BlockingQueue<String> shown = new LinkedBlockingQueue<>();
+
+        DummyVirtualView(String name){
+            setName(name);
+        }
+
+        void answer(String ans) { notifyObservers(ans); }
+
+        @Override
+        public void refresh() {        }
+
+        @Override
+        public void shutdown() {        }
+
+        @Override
+        public void showSuspension() {        }
+
+        @Override
+        public void showEnd(String message) { shown.add("END " + message); }
+
+        @Override
+        public void choose(String type, String msg, List<?> options) { shown.add("OPT " + msg + " " + options); }
+
+        @Override
+        public void choose(String type, String msg, List<?> options, int timeoutSec) {
+            shown.add("OPT " + msg + " " + options + " " + timeoutSec);
+        }
+
+        @Override
+        public void display(String msg) { shown.add("MSG " + msg); }
+
+        @Override
+        public String getInputNow(String msg, int max) {
+            return "1";
+        }
+
+        @Override
+        public int chooseNow(String type, String msg, List<?> options) {
+            return 1;
+        }
+
+        @Override
+        public void update(JsonObject jsonObject) {        }
+    }
+
+
+    /**
+     * Connects the two sides of the link.
+     *
+     * @throws IOException      if the loopback connection fails
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        gatewaySide = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+        nodeSide = server.accept();
+    }
+
+
+    /**
+     * Closes the connections.
+     *
+     * @throws IOException      if closing fails
+     */
+    @After
+    public void tearDown() throws IOException {
+        gatewaySide.close();
+        nodeSide.close();
+        server.close();
+    }
+
+
+    /**
+     * Checks that the messages of a player on the node reach his connection on the gateway, that his answers reach
+     * the node, and that the gateway forgets a game once the node tells it is over.
+     *
+     * @throws Exception        if the link fails or the test is interrupted
+     */
+    @Test
+    public void forwarding() throws Exception {
+        AtomicInteger over = new AtomicInteger();
+        RemoteNode remote = new RemoteNode(0, gatewaySide, null, (id, players) -> over.set(id));
+        BlockingQueue<JsonObject> received = new LinkedBlockingQueue<>();
+        NodeLink node = new NodeLink(nodeSide);
+        node.listen("test-node", received::add, () -> {});
+
+        DummyVirtualView first = new DummyVirtualView("first");
+        DummyVirtualView second = new DummyVirtualView("second");
+        remote.startGame(7, new ArrayList<>(Arrays.asList(first, second)));
+        JsonObject game = received.poll(2, TimeUnit.SECONDS);
+        assertEquals(NodeLink.GAME, game.get(NodeLink.HEAD).getAsString());
+        assertEquals(2, game.getAsJsonArray(NodeLink.PLAYERS).size());
+        assertEquals(1, remote.getLoad());
+        assertTrue(second.isRelayed());
+
+        ProxyVirtualView proxy = new ProxyVirtualView(node, 7, 1, "second", "");
+        proxy.display("hello");
+        proxy.choose("type", "pick", Arrays.asList("a", "b"), 10);
+        assertEquals("MSG hello", second.shown.poll(2, TimeUnit.SECONDS));
+        assertEquals("OPT pick [a, b] 10", second.shown.poll(2, TimeUnit.SECONDS));
+        assertTrue(first.shown.isEmpty());
+
+        second.answer("2");
+        JsonObject in = received.poll(2, TimeUnit.SECONDS);
+        assertEquals(NodeLink.IN, in.get(NodeLink.HEAD).getAsString());
+        assertEquals(1, in.get(NodeLink.PLAYER).getAsInt());
+        assertEquals("2", in.get(NodeLink.MESSAGE).getAsString());
+
+        JsonObject end = NodeLink.message(NodeLink.OVER);
+        end.addProperty(NodeLink.ID, 7);
+        node.send(end);
+        for(int i = 0; i < 20 && over.get() == 0; i++){
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        assertEquals(7, over.get());
+        assertEquals(0, remote.getLoad());
+        assertFalse(second.isRelayed());
+        remote.shutdown();
+    }
+
+
+    /**
+     * Checks that a player resuming on the gateway takes the place of his suspended connection: the node is told
+     * about the suspension and then about the resumption, and the messages of the game reach the new connection.
+     *
+     * @throws Exception        if the link fails or the test is interrupted
+     */
+    @Test
+    public void resume() throws Exception {
+        RemoteNode remote = new RemoteNode(0, gatewaySide, null, (id, players) -> { });
+        BlockingQueue<JsonObject> received = new LinkedBlockingQueue<>();
+        NodeLink node = new NodeLink(nodeSide);
+        node.listen("test-node", received::add, () -> {});
+
+        DummyVirtualView first = new DummyVirtualView("first");
+        DummyVirtualView second = new DummyVirtualView("second");
+        DummyVirtualView resumed = new DummyVirtualView("second");
+        remote.startGame(3, new ArrayList<>(Arrays.asList(first, second)));
+        assertEquals(NodeLink.GAME, received.poll(2, TimeUnit.SECONDS).get(NodeLink.HEAD).getAsString());
+        assertTrue(remote.hosts(second));
+        assertFalse(remote.resume(second, resumed, 12));
+
+        second.setSuspended(true);
+        assertTrue(remote.resume(second, resumed, 12));
+        JsonObject susp = received.poll(2, TimeUnit.SECONDS);
+        assertEquals(NodeLink.SUSP, susp.get(NodeLink.HEAD).getAsString());
+        JsonObject resume = received.poll(2, TimeUnit.SECONDS);
+        assertEquals(NodeLink.RESUME, resume.get(NodeLink.HEAD).getAsString());
+        assertEquals(1, resume.get(NodeLink.PLAYER).getAsInt());
+        assertEquals(12, resume.get(NodeLink.SEQ).getAsLong());
+        assertFalse(second.isRelayed());
+        assertTrue(resumed.isRelayed());
+        assertFalse(remote.hosts(second));
+
+        new ProxyVirtualView(node, 3, 1, "second", "").display("welcome back");
+        assertEquals("MSG welcome back", resumed.shown.poll(2, TimeUnit.SECONDS));
+        assertTrue(second.shown.isEmpty());
+        remote.shutdown();
+    }
+
+
+    /**
+     * Checks that a node answering health checks stays healthy, that a silent one is considered failed and ends
+     * its games, and that the node stops when the gateway closes the link.
+     *
+     * @throws Exception        if the link fails or the test is interrupted
+     */
+    @Test
+    public void health() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean(false);
+        new GameNode().serve(nodeSide, () -> closed.set(true));
+        AtomicInteger over = new AtomicInteger();
+        RemoteNode remote = new RemoteNode(0, gatewaySide, null, (id, players) -> over.set(id));
+
+        long start = System.currentTimeMillis();
+        TimeUnit.MILLISECONDS.sleep(50);
+        remote.check(System.currentTimeMillis());
+        TimeUnit.MILLISECONDS.sleep(300);
+        remote.check(start + RemoteNode.HEALTH_TIMEOUT_MILLIS + 10);
+        assertTrue(remote.isHealthy());
+
+        DummyVirtualView player = new DummyVirtualView("player");
+        remote.getGames().put(3, new ArrayList<>(Arrays.asList(player)));
+        remote.check(System.currentTimeMillis() + 2 * RemoteNode.HEALTH_TIMEOUT_MILLIS);
+        assertFalse(remote.isHealthy());
+        assertTrue(player.shown.poll(2, TimeUnit.SECONDS).startsWith("END"));
+        assertEquals(3, over.get());
+
+        for(int i = 0; i < 20 && !closed.get(); i++){
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        assertTrue(closed.get());
+    }
+}
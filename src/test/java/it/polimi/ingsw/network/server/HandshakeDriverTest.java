@@ -0,0 +1,44 @@
+package it.polimi.ingsw.network.server;
+
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the deadline of the login handshakes.
+ *
+ * @author marcobaga
+ */
+public class HandshakeDriverTest {
+
+    /**
+     * Checks that a client which connects and never sends anything is suspended when the deadline expires, giving
+     * its place back to the limiter.
+     *
+     * @throws Exception    if the connection cannot be set up
+     */
+    @Test
+    public void idleClientTimesOut() throws Exception {
+        HandshakeDriver driver = new HandshakeDriver(new HandshakeLimiter(1, 100, 100), 200);
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+             Socket client = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+             Socket accepted = server.accept()) {
+            TCPVirtualView view = new TCPVirtualView(accepted);
+            driver.start();
+            assertTrue(driver.submit(view, null, accepted));
+            assertFalse(driver.submit(new TCPVirtualView(accepted), null, () -> { }));
+            long deadline = System.currentTimeMillis() + 5000;
+            while(driver.getPending() > 0 && System.currentTimeMillis() < deadline){
+                Thread.sleep(20);
+            }
+            assertEquals(0, driver.getPending());
+            assertTrue(view.isSuspended());
+        } finally {
+            driver.shutdown();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package it.polimi.ingsw.network.server;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the admission of login handshakes.
+ *
+ * @author marcobaga
+ */
+public class HandshakeLimiterTest {
+
+    /**
+     * Checks that an address cannot start more handshakes than its burst, and gets tokens back over time.
+     */
+    @Test
+    public void ratePerAddress() {
+        HandshakeLimiter limiter = new HandshakeLimiter(100, 2, 3);
+        for(int i = 0; i < 3; i++){
+            assertTrue(limiter.tryAcquire("10.0.0.1", 1000));
+        }
+        assertFalse(limiter.tryAcquire("10.0.0.1", 1000));
+        assertTrue(limiter.tryAcquire("10.0.0.2", 1000));
+        assertFalse(limiter.tryAcquire("10.0.0.1", 1400));
+        assertTrue(limiter.tryAcquire("10.0.0.1", 1500));
+        assertEquals(5, limiter.getPending());
+    }
+
+    /**
+     * Checks that the handshakes pending at the same time are capped, local ones included.
+     */
+    @Test
+    public void globalCap() {
+        HandshakeLimiter limiter = new HandshakeLimiter(2, 100, 100);
+        assertTrue(limiter.tryAcquire("10.0.0.1", 0));
+        assertTrue(limiter.tryAcquire(null, 0));
+        assertFalse(limiter.tryAcquire("10.0.0.2", 0));
+        assertFalse(limiter.tryAcquire(null, 0));
+        limiter.release();
+        assertTrue(limiter.tryAcquire("10.0.0.2", 0));
+    }
+}
@@ -0,0 +1,106 @@
+package it.polimi.ingsw.network.server;
+
+import com.google.gson.JsonObject;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the liveness checks carried out by the Heartbeat on a VirtualView.
+ *
+ * @author marcobaga
+ */
+public class HeartbeatTest {
+
+    /**
+     * A subclass of VirtualView counting the pings it is asked to send.
+     */
+    class PingCountingVirtualView extends VirtualView{
+
+        int pings = 0;
+
+        @Override
+        protected void sendPing() { pings++; sent(); }
+
+        @Override
+        public void refresh() {        }
+
+        @Override
+        public void shutdown() {        }
+
+        @Override
+        public void showSuspension() {        }
+
+        @Override
+        public void showEnd(String message) {      }
+
+        @Override
+        public void choose(String type, String msg, List<?> options) {        }
+
+        @Override
+        public void choose(String type, String msg, List<?> options, int timeoutSec) {        }
+
+        @Override
+        public void display(String msg) { sent(); }
+
+        @Override
+        public String getInputNow(String msg, int max) {
+            return "1";
+        }
+
+        @Override
+        public int chooseNow(String type, String msg, List<?> options) {
+            return 1;
+        }
+
+        @Override
+        public void update(JsonObject jsonObject) { sent(); }
+    }
+
+
+    /**
+     * Checks that pings are only sent on idle links.
+     */
+    @Test
+    public void pingOnlyWhenIdle() {
+        PingCountingVirtualView v = new PingCountingVirtualView();
+        new Heartbeat().register(v);
+        long now = System.currentTimeMillis();
+
+        v.heartbeat(now);
+        assertEquals(0, v.pings);
+
+        v.heartbeat(now + Heartbeat.PING_INTERVAL_MILLIS);
+        assertEquals(1, v.pings);
+
+        v.display("traffic");
+        v.heartbeat(System.currentTimeMillis() + Heartbeat.PING_INTERVAL_MILLIS/2);
+        assertEquals(1, v.pings);
+    }
+
+
+    /**
+     * Checks that any incoming message keeps the connection alive and that silent clients are suspended.
+     */
+    @Test
+    public void timeout() {
+        PingCountingVirtualView v = new PingCountingVirtualView();
+        Heartbeat heartbeat = new Heartbeat();
+        heartbeat.register(v);
+        v.received();
+        long now = System.currentTimeMillis();
+
+        v.heartbeat(now + VirtualView.PING_TIMEOUT_MILLIS / 2);
+        assertFalse(v.isSuspended());
+
+        v.received();
+        v.heartbeat(System.currentTimeMillis() + VirtualView.PING_TIMEOUT_MILLIS / 2);
+        assertFalse(v.isSuspended());
+
+        v.heartbeat(System.currentTimeMillis() + VirtualView.PING_TIMEOUT_MILLIS + 1);
+        assertTrue(v.isSuspended());
+        assertEquals(0, heartbeat.size());
+    }
+}
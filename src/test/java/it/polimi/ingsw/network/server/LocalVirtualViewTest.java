@@ -0,0 +1,56 @@
+package it.polimi.ingsw.network.server;
+
+import it.polimi.ingsw.network.client.LocalConnection;
+import it.polimi.ingsw.view.ClientMain;
+import it.polimi.ingsw.view.HeadlessUI;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the in-memory connection between a LocalVirtualView and a headless client.
+ *
+ * @author marcobaga
+ */
+public class LocalVirtualViewTest {
+
+    private HeadlessUI ui = new HeadlessUI(7);
+    private ClientMain client = new ClientMain(ui);
+    private LocalConnection connection = new LocalConnection(client);
+    private LocalVirtualView view = connection.getView();
+
+    /**
+     * Checks that requests are answered by the headless client.
+     */
+    @Test
+    public void requests() {
+        int choice = view.chooseNow(VirtualView.ChooseOptionsType.CHOOSE_STRING.toString(), "Do you want to resume?",
+                Arrays.asList("Yes", "No"));
+        assertTrue(choice == 1 || choice == 2);
+        String name = view.getInputNow("Select a name.", 16);
+        assertTrue(name.startsWith("bot"));
+        assertFalse(name.contains(","));
+        assertNotEquals(name, view.getInputNow("Now, choose your battlecry!", 16));
+    }
+
+    /**
+     * Checks that messages are delivered in order through the outbound queue and that the end of the game reaches
+     * the client without terminating the JVM.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    @Test
+    public void messages() throws InterruptedException {
+        view.display("first");
+        view.display("second");
+        view.getOutboundQueue().flush();
+        assertEquals("second", ui.getLastMessage());
+
+        view.showEnd("You won");
+        assertEquals("You won", ui.awaitEnd(2000));
+        assertTrue(client.isGameOver());
+        assertFalse(connection.isConnected());
+    }
+}
@@ -0,0 +1,90 @@
+package it.polimi.ingsw.network.server;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the login handshake of a socket connection, driven by the messages received without a thread waiting for
+ * the client.
+ *
+ * @author marcobaga
+ */
+public class LoginHandshakeTest {
+
+    /**
+     * Logs in through a real socket, answering a malformed name first, and checks that polling never blocks.
+     *
+     * @throws IOException              if the sockets fail
+     * @throws InterruptedException     if interrupted while waiting
+     */
+    @Test
+    public void loginOverSocket() throws IOException, InterruptedException {
+        try(ServerSocket server = new ServerSocket(0);
+            Socket client = new Socket("localhost", server.getLocalPort());
+            Socket accepted = server.accept()) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(client.getOutputStream(), true);
+            TCPVirtualView view = new TCPVirtualView(accepted);
+            assertTrue(view.startHandshake());
+
+            assertEquals("REQ", head(in.readLine()));
+            long start = System.nanoTime();
+            view.pollHandshake();
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(50));
+
+            out.println("bad,name");
+            assertEquals("Your name should not be empty or contain commas. Try again.", answered(view, in));
+            out.println("handshaker");
+            assertEquals("Now, choose your battlecry!", answered(view, in));
+            assertEquals("handshaker", view.getName());
+            out.println("hi");
+            assertEquals("Name accepted. About to join the game...", answered(view, in));
+            assertFalse(view.isHandshaking());
+            assertEquals("hi", view.getBattlecry());
+        }
+    }
+
+    /**
+     * Polls the view until it handles the answer of the client, then reads the text of its next message, skipping
+     * updates.
+     *
+     * @param view      the view
+     * @param in        the reader of the client
+     * @return          the text of the next message or request
+     * @throws IOException              if the socket fails
+     * @throws InterruptedException     if interrupted while waiting
+     */
+    private String answered(TCPVirtualView view, BufferedReader in) throws IOException, InterruptedException {
+        while(!in.ready()){
+            view.pollHandshake();
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+        JsonObject j;
+        do {
+            j = new JsonParser().parse(in.readLine()).getAsJsonObject();
+        } while(!j.has("text"));
+        return j.get("text").getAsString();
+    }
+
+    /**
+     * Extracts the head of a JSON line.
+     *
+     * @param line      the line
+     * @return          the head of the message
+     */
+    private String head(String line) {
+        return new JsonParser().parse(line).getAsJsonObject().get("head").getAsString();
+    }
+}
@@ -0,0 +1,76 @@
+package it.polimi.ingsw.network.server;
+
+import com.google.gson.JsonObject;
+import it.polimi.ingsw.model.EncodedUpdate;
+import it.polimi.ingsw.model.Updater;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the versioning of the models sent to a client.
+ *
+ * @author marcobaga
+ */
+public class ModelSynchronizerTest {
+
+    /**
+     * Builds a fake model update.
+     *
+     * @param skulls    a field of the model
+     * @return          the update
+     */
+    private JsonObject model(int skulls){
+        JsonObject j = new JsonObject();
+        j.addProperty("head", "UPD");
+        j.addProperty(Updater.TYPE_PROP, Updater.MODEL_UPD);
+        JsonObject model = new JsonObject();
+        model.addProperty("skullsLeft", skulls);
+        model.addProperty("mapID", 1);
+        j.add(Updater.MODEL_PROP, model);
+        return j;
+    }
+
+    /**
+     * Checks that models are complete until a version is acknowledged, and differences afterwards.
+     */
+    @Test
+    public void diffAfterAck() {
+        ModelSynchronizer synchronizer = new ModelSynchronizer();
+
+        JsonObject first = synchronizer.encode(EncodedUpdate.of(model(8))).getJson();
+        assertTrue(Updater.isUpdate(first, Updater.MODEL_UPD));
+        assertEquals(1, first.get(Updater.VERSION_PROP).getAsInt());
+
+        JsonObject second = synchronizer.encode(EncodedUpdate.of(model(7))).getJson();
+        assertTrue(Updater.isUpdate(second, Updater.MODEL_UPD));
+
+        synchronizer.acknowledge(1);
+        JsonObject third = synchronizer.encode(EncodedUpdate.batch(Arrays.asList(EncodedUpdate.of(model(6))), true)).getJson();
+        JsonObject diff = third.getAsJsonArray(Updater.UPDATES_PROP).get(0).getAsJsonObject();
+        assertTrue(Updater.isUpdate(diff, Updater.MODEL_DIFF_UPD));
+        assertEquals(3, diff.get(Updater.VERSION_PROP).getAsInt());
+        assertEquals(1, diff.get(Updater.BASE_PROP).getAsInt());
+        assertFalse(diff.get(Updater.DIFF_PROP).toString().contains("mapID"));
+
+        synchronizer.acknowledge(3);
+        synchronizer.acknowledge(2);
+        assertEquals(3, synchronizer.getAckedVersion());
+    }
+
+    /**
+     * Checks that a complete model is sent after the client rejects a difference.
+     */
+    @Test
+    public void fullAfterReject() {
+        ModelSynchronizer synchronizer = new ModelSynchronizer();
+        synchronizer.encode(EncodedUpdate.of(model(8))).getJson();
+        synchronizer.acknowledge(1);
+        assertTrue(Updater.isUpdate(synchronizer.encode(EncodedUpdate.of(model(7))).getJson(), Updater.MODEL_DIFF_UPD));
+
+        synchronizer.reject(2);
+        assertTrue(Updater.isUpdate(synchronizer.encode(EncodedUpdate.of(model(6))).getJson(), Updater.MODEL_UPD));
+    }
+}
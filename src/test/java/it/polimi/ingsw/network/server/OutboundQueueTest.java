@@ -0,0 +1,213 @@
+package it.polimi.ingsw.network.server;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import it.polimi.ingsw.model.Updater;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the overflow policies and the ordering guarantees of OutboundQueue.
+ * Draining is deferred until flush() is called, to simulate a stalled client, and the tasks given to the executor
+ * only run when runDeferred() is called.
+ *
+ * @author marcobaga
+ */
+public class OutboundQueueTest {
+
+    private List<JsonObject> sent = new ArrayList<>();
+    private List<Runnable> deferred = new ArrayList<>();
+    private int overflows = 0;
+
+    /**
+     * Builds a queue which is never drained in background.
+     *
+     * @param capacity      the capacity of the queue
+     * @param policy        the overflow policy
+     * @return              the queue
+     */
+    private OutboundQueue stalledQueue(int capacity, OutboundQueue.OverflowPolicy policy){
+        OutboundQueue queue = new OutboundQueue(m -> sent.add(m.getJson()), () -> overflows++, capacity, policy);
+        queue.setExecutor(deferred::add);
+        return queue;
+    }
+
+    /**
+     * Runs the tasks given to the executor so far.
+     */
+    private void runDeferred(){
+        List<Runnable> tasks = new ArrayList<>(deferred);
+        deferred.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    /**
+     * Builds a fake update of the given type.
+     *
+     * @param type      the type of update
+     * @return          the update
+     */
+    private JsonObject update(String type){
+        JsonObject j = new JsonObject();
+        j.addProperty("head", "UPD");
+        j.addProperty(Updater.TYPE_PROP, type);
+        return j;
+    }
+
+    /**
+     * Checks that messages are delivered in order and that metrics are kept.
+     */
+    @Test
+    public void order() {
+        OutboundQueue queue = stalledQueue(10, OutboundQueue.OverflowPolicy.SUSPEND);
+        queue.offer(update(Updater.MOVE_UPD));
+        queue.offer(update(Updater.DAMAGE_UPD));
+        queue.offer(Updater.getRenderMessage());
+        assertEquals(3, queue.getDepth());
+        assertTrue(sent.isEmpty());
+
+        queue.flush();
+        assertEquals(3, sent.size());
+        assertEquals(Updater.MOVE_UPD, sent.get(0).get(Updater.TYPE_PROP).getAsString());
+        assertEquals(Updater.RENDER_UPD, sent.get(2).get(Updater.TYPE_PROP).getAsString());
+        assertEquals(0, queue.getDepth());
+        assertEquals(3, queue.getMaxDepth());
+        assertEquals(3, queue.getSentCount());
+    }
+
+    /**
+     * Checks that a full queue with the SUSPEND policy drops everything and reports the overflow once, on the
+     * executor rather than on the producer's thread.
+     */
+    @Test
+    public void suspend() {
+        OutboundQueue queue = stalledQueue(2, OutboundQueue.OverflowPolicy.SUSPEND);
+        assertTrue(queue.offer(Updater.getRenderMessage()));
+        assertTrue(queue.offer(Updater.getRenderMessage()));
+        assertFalse(queue.offer(Updater.getRenderMessage()));
+        assertEquals(0, overflows);
+        assertEquals(0, queue.getDepth());
+        assertEquals(3, queue.getDroppedCount());
+
+        queue.offer(Updater.getRenderMessage());
+        queue.offer(Updater.getRenderMessage());
+        assertFalse(queue.offer(Updater.getRenderMessage()));
+        runDeferred();
+        assertEquals(1, overflows);
+        assertTrue(sent.isEmpty());
+    }
+
+    /**
+     * Checks that closing the queue sends the pending messages before closing the transport, on the executor.
+     */
+    @Test
+    public void close() {
+        OutboundQueue queue = stalledQueue(10, OutboundQueue.OverflowPolicy.SUSPEND);
+        List<String> closed = new ArrayList<>();
+        queue.offer(update(Updater.MOVE_UPD));
+        queue.offer(Updater.getRenderMessage());
+        queue.close(() -> closed.add("closed after " + sent.size()), 1000);
+        assertTrue(closed.isEmpty());
+        assertTrue(sent.isEmpty());
+
+        runDeferred();
+        assertEquals(2, sent.size());
+        assertEquals("closed after 2", closed.get(0));
+    }
+
+    /**
+     * Checks that pending updates are merged into a single batch, rendered once, to make room.
+     */
+    @Test
+    public void dropStaleRenders() {
+        OutboundQueue queue = stalledQueue(3, OutboundQueue.OverflowPolicy.DROP_STALE_RENDERS);
+        queue.offer(Updater.getRenderMessage());
+        queue.offer(update(Updater.MOVE_UPD));
+        queue.offer(Updater.getRenderMessage());
+        assertTrue(queue.offer(update(Updater.DAMAGE_UPD)));
+        assertEquals(0, overflows);
+        assertEquals(1, queue.getDepth());
+        queue.flush();
+        assertEquals(1, sent.size());
+        JsonObject batch = sent.get(0);
+        assertTrue(Updater.isUpdate(batch, Updater.BATCH_UPD));
+        assertTrue(batch.get(Updater.RENDER_PROP).getAsBoolean());
+        JsonArray updates = batch.getAsJsonArray(Updater.UPDATES_PROP);
+        assertEquals(2, updates.size());
+        assertEquals(Updater.MOVE_UPD, updates.get(0).getAsJsonObject().get(Updater.TYPE_PROP).getAsString());
+        assertEquals(Updater.DAMAGE_UPD, updates.get(1).getAsJsonObject().get(Updater.TYPE_PROP).getAsString());
+    }
+
+    /**
+     * Checks that a complete model replaces the updates queued before it, but not other messages.
+     */
+    @Test
+    public void coalesceModel() {
+        OutboundQueue queue = stalledQueue(3, OutboundQueue.OverflowPolicy.COALESCE_MODEL);
+        JsonObject msg = new JsonObject();
+        msg.addProperty("head", "MSG");
+        queue.offer(msg);
+        queue.offer(update(Updater.MOVE_UPD));
+        queue.offer(update(Updater.DAMAGE_UPD));
+        assertTrue(queue.offer(update(Updater.MODEL_UPD)));
+        assertEquals(0, overflows);
+        queue.flush();
+        assertEquals(2, sent.size());
+        assertEquals("MSG", sent.get(0).get("head").getAsString());
+        JsonArray updates = sent.get(1).getAsJsonArray(Updater.UPDATES_PROP);
+        assertEquals(1, updates.size());
+        assertEquals(Updater.MODEL_UPD, updates.get(0).getAsJsonObject().get(Updater.TYPE_PROP).getAsString());
+        assertEquals(2, queue.getDroppedCount());
+    }
+
+
+    /**
+     * Checks that a complete model only replaces the updates of the board queued before it, and that a session
+     * token queued before it is still delivered.
+     */
+    @Test
+    public void coalesceModelKeepsSession() {
+        OutboundQueue queue = stalledQueue(2, OutboundQueue.OverflowPolicy.COALESCE_MODEL);
+        queue.offer(update(Updater.MOVE_UPD));
+        queue.offer(Updater.getSession("token"));
+        assertTrue(queue.offer(update(Updater.MODEL_UPD)));
+        assertEquals(0, overflows);
+        queue.flush();
+        JsonArray updates = sent.get(0).getAsJsonArray(Updater.UPDATES_PROP);
+        assertEquals(2, updates.size());
+        assertEquals(Updater.SESSION_UPD, updates.get(0).getAsJsonObject().get(Updater.TYPE_PROP).getAsString());
+        assertEquals(Updater.MODEL_UPD, updates.get(1).getAsJsonObject().get(Updater.TYPE_PROP).getAsString());
+        assertEquals(1, queue.getDroppedCount());
+    }
+
+
+    /**
+     * Checks that a queue batching on drain delivers the consecutive pending updates with a single message, rendered
+     * once, and keeps other messages in between.
+     */
+    @Test
+    public void batchOnDrain() {
+        OutboundQueue queue = stalledQueue(10, OutboundQueue.OverflowPolicy.SUSPEND);
+        queue.batchOnDrain();
+        queue.offer(update(Updater.MOVE_UPD));
+        queue.offer(update(Updater.DAMAGE_UPD));
+        queue.offer(Updater.getRenderMessage());
+        JsonObject msg = new JsonObject();
+        msg.addProperty("head", "MSG");
+        queue.offer(msg);
+        queue.offer(update(Updater.MOVE_UPD));
+
+        queue.flush();
+        assertEquals(3, sent.size());
+        assertEquals(Updater.BATCH_UPD, sent.get(0).get(Updater.TYPE_PROP).getAsString());
+        assertEquals(2, sent.get(0).getAsJsonArray(Updater.UPDATES_PROP).size());
+        assertTrue(sent.get(0).get(Updater.RENDER_PROP).getAsBoolean());
+        assertEquals(msg, sent.get(1));
+        assertEquals(Updater.MOVE_UPD, sent.get(2).get(Updater.TYPE_PROP).getAsString());
+        assertEquals(5, queue.getSentCount());
+    }
+}